@@ -132,6 +132,12 @@ abstract class AbstractReadContext
     @GuardedBy("lock")
     private boolean used;
 
+    /** Set by the single read of this context. Queries do not request the read timestamp. */
+    private volatile boolean isRead;
+
+    @GuardedBy("lock")
+    Timestamp readTimestamp;
+
     private SingleReadContext(Builder builder) {
       super(builder);
       this.bound = builder.bound;
@@ -145,16 +151,61 @@ abstract class AbstractReadContext
       used = true;
     }
 
+    @Override
+    ResultSet readInternalWithOptions(
+        String table,
+        @Nullable String index,
+        KeySet keys,
+        Iterable<String> columns,
+        Options readOptions,
+        ByteString partitionToken) {
+      // A read returns its rows in key order, so a read that loses its session can be resumed on a
+      // different session at the same read timestamp.
+      isRead = true;
+      return super.readInternalWithOptions(
+          table, index, keys, columns, readOptions, partitionToken);
+    }
+
+    /** Returns true if the read timestamp should be returned with the transaction metadata. */
+    boolean returnReadTimestamp() {
+      return isRead;
+    }
+
     @Override
     @Nullable
     TransactionSelector getTransactionSelector() {
-      if (bound.getMode() == TimestampBound.Mode.STRONG) {
-        // Default mode: no need to specify a transaction.
-        return null;
+      if (!returnReadTimestamp()) {
+        if (bound.getMode() == TimestampBound.Mode.STRONG) {
+          // Default mode: no need to specify a transaction.
+          return null;
+        }
+        return TransactionSelector.newBuilder()
+            .setSingleUse(TransactionOptions.newBuilder().setReadOnly(bound.toProto()))
+            .build();
+      }
+      TransactionOptions.Builder options = TransactionOptions.newBuilder();
+      bound.applyToBuilder(options.getReadOnlyBuilder()).setReturnReadTimestamp(true);
+      return TransactionSelector.newBuilder().setSingleUse(options).build();
+    }
+
+    @Override
+    public void onTransactionMetadata(Transaction transaction) {
+      if (transaction.hasReadTimestamp()) {
+        synchronized (lock) {
+          readTimestamp = Timestamp.fromProto(transaction.getReadTimestamp());
+        }
+      }
+    }
+
+    /**
+     * Returns the read timestamp of this context, or null if the read has not returned any data
+     * yet.
+     */
+    @Nullable
+    Timestamp getReadTimestampIfAvailable() {
+      synchronized (lock) {
+        return readTimestamp;
       }
-      return TransactionSelector.newBuilder()
-          .setSingleUse(TransactionOptions.newBuilder().setReadOnly(bound.toProto()))
-          .build();
     }
   }
 
@@ -164,9 +215,6 @@ abstract class AbstractReadContext
 
   static class SingleUseReadOnlyTransaction extends SingleReadContext
       implements ReadOnlyTransaction {
-    @GuardedBy("lock")
-    private Timestamp timestamp;
-
     private SingleUseReadOnlyTransaction(SingleReadContext.Builder builder) {
       super(builder);
     }
@@ -174,17 +222,14 @@ abstract class AbstractReadContext
     @Override
     public Timestamp getReadTimestamp() {
       synchronized (lock) {
-        assertTimestampAvailable(timestamp != null);
-        return timestamp;
+        assertTimestampAvailable(readTimestamp != null);
+        return readTimestamp;
       }
     }
 
     @Override
-    @Nullable
-    TransactionSelector getTransactionSelector() {
-      TransactionOptions.Builder options = TransactionOptions.newBuilder();
-      bound.applyToBuilder(options.getReadOnlyBuilder()).setReturnReadTimestamp(true);
-      return TransactionSelector.newBuilder().setSingleUse(options).build();
+    boolean returnReadTimestamp() {
+      return true;
     }
 
     @Override
@@ -195,7 +240,7 @@ abstract class AbstractReadContext
               ErrorCode.INTERNAL, "Missing expected transaction.read_timestamp metadata field");
         }
         try {
-          timestamp = Timestamp.fromProto(transaction.getReadTimestamp());
+          readTimestamp = Timestamp.fromProto(transaction.getReadTimestamp());
         } catch (IllegalArgumentException e) {
           throw newSpannerException(
               ErrorCode.INTERNAL, "Bad value in transaction.read_timestamp metadata field", e);
@@ -312,7 +357,10 @@ abstract class AbstractReadContext
         if (transactionId != null) {
           return;
         }
-        span.addAnnotation("Creating Transaction");
+        boolean annotate = TraceUtil.shouldAnnotate(span, session.getTracingLevel());
+        if (annotate) {
+          span.addAnnotation("Creating Transaction");
+        }
         try {
           TransactionOptions.Builder options = TransactionOptions.newBuilder();
           bound.applyToBuilder(options.getReadOnlyBuilder()).setReturnReadTimestamp(true);
@@ -337,10 +385,14 @@ abstract class AbstractReadContext
                 ErrorCode.INTERNAL, "Bad value in transaction.read_timestamp metadata field", e);
           }
           transactionId = transaction.getId();
-          span.addAnnotation(
-              "Transaction Creation Done", TraceUtil.getTransactionAnnotations(transaction));
+          if (annotate) {
+            span.addAnnotation(
+                "Transaction Creation Done", TraceUtil.getTransactionAnnotations(transaction));
+          }
         } catch (SpannerException e) {
-          span.addAnnotation("Transaction Creation Failed", TraceUtil.getExceptionAnnotations(e));
+          if (annotate) {
+            span.addAnnotation("Transaction Creation Failed", TraceUtil.getExceptionAnnotations(e));
+          }
           throw e;
         }
       }
@@ -531,7 +583,8 @@ abstract class AbstractReadContext
     final int prefetchChunks =
         options.hasPrefetchChunks() ? options.prefetchChunks() : defaultPrefetchChunks;
     ResumableStreamIterator stream =
-        new ResumableStreamIterator(MAX_BUFFERED_CHUNKS, SpannerImpl.QUERY, span) {
+        new ResumableStreamIterator(
+            MAX_BUFFERED_CHUNKS, SpannerImpl.QUERY, span, session.getRetryBudget()) {
           @Override
           CloseableIterator<PartialResultSet> startStream(@Nullable ByteString resumeToken) {
             GrpcStreamIterator stream = new GrpcStreamIterator(prefetchChunks);
@@ -545,6 +598,10 @@ abstract class AbstractReadContext
             return stream;
           }
         };
+    QueryStatsAggregator queryStats = session.getQueryStats();
+    if (queryStats != null) {
+      return new GrpcResultSet(queryStats.wrap(statement.getSql(), stream), this);
+    }
     return new GrpcResultSet(stream, this);
   }
 
@@ -638,7 +695,8 @@ abstract class AbstractReadContext
     final int prefetchChunks =
         readOptions.hasPrefetchChunks() ? readOptions.prefetchChunks() : defaultPrefetchChunks;
     ResumableStreamIterator stream =
-        new ResumableStreamIterator(MAX_BUFFERED_CHUNKS, SpannerImpl.READ, span) {
+        new ResumableStreamIterator(
+            MAX_BUFFERED_CHUNKS, SpannerImpl.READ, span, session.getRetryBudget()) {
           @Override
           CloseableIterator<PartialResultSet> startStream(@Nullable ByteString resumeToken) {
             GrpcStreamIterator stream = new GrpcStreamIterator(prefetchChunks);
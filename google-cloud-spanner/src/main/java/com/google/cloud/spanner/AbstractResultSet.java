@@ -45,6 +45,7 @@ import com.google.spanner.v1.ResultSetStats;
 import com.google.spanner.v1.Transaction;
 import com.google.spanner.v1.TypeCode;
 import io.grpc.Context;
+import io.grpc.Deadline;
 import io.opencensus.common.Scope;
 import io.opencensus.trace.AttributeValue;
 import io.opencensus.trace.Span;
@@ -113,13 +114,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
         throw newSpannerException(error);
       }
       try {
-        if (currRow == null) {
-          ResultSetMetadata metadata = iterator.getMetadata();
-          if (metadata.hasTransaction()) {
-            listener.onTransactionMetadata(metadata.getTransaction());
-          }
-          currRow = new GrpcStruct(iterator.type(), new ArrayList<>());
-        }
+        ensureMetadata();
         boolean hasNext = currRow.consumeRow(iterator);
         if (!hasNext) {
           statistics = iterator.getStats();
@@ -130,6 +125,49 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
       }
     }
 
+    /**
+     * Decodes up to {@code maxRows} of the remaining rows directly into a {@link ColumnBatch}, or
+     * returns {@code null} if there are no more rows. This must not be mixed with calls to {@link
+     * #next()}.
+     */
+    @Nullable
+    ColumnBatch nextColumnBatch(int maxRows) throws SpannerException {
+      if (error != null) {
+        throw newSpannerException(error);
+      }
+      try {
+        ensureMetadata();
+        ColumnBatch.Builder builder = new ColumnBatch.Builder(currRow.getType(), maxRows);
+        int columnCount = builder.getColumnCount();
+        while (columnCount > 0 && builder.getRowCount() < maxRows && iterator.hasNext()) {
+          for (int i = 0; i < columnCount; i++) {
+            if (!iterator.hasNext()) {
+              throw newSpannerException(
+                  ErrorCode.INTERNAL,
+                  "Invalid value stream: end of stream reached before row is complete");
+            }
+            builder.add(i, iterator.next());
+          }
+        }
+        if (!iterator.hasNext()) {
+          statistics = iterator.getStats();
+        }
+        return builder.getRowCount() == 0 ? null : builder.build();
+      } catch (SpannerException e) {
+        throw yieldError(e);
+      }
+    }
+
+    private void ensureMetadata() {
+      if (currRow == null) {
+        ResultSetMetadata metadata = iterator.getMetadata();
+        if (metadata.hasTransaction()) {
+          listener.onTransactionMetadata(metadata.getTransaction());
+        }
+        currRow = new GrpcStruct(iterator.type(), new ArrayList<>());
+      }
+    }
+
     @Override
     @Nullable
     public ResultSetStats getStats() {
@@ -444,7 +482,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
       return true;
     }
 
-    private static Object decodeValue(Type fieldType, com.google.protobuf.Value proto) {
+    static Object decodeValue(Type fieldType, com.google.protobuf.Value proto) {
       if (proto.getKindCase() == KindCase.NULL_VALUE) {
         return null;
       }
@@ -577,8 +615,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
       }
     }
 
-    private static void checkType(
-        Type fieldType, com.google.protobuf.Value proto, KindCase expected) {
+    static void checkType(Type fieldType, com.google.protobuf.Value proto, KindCase expected) {
       if (proto.getKindCase() != expected) {
         throw newSpannerException(
             ErrorCode.INTERNAL,
@@ -764,11 +801,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
     protected final PartialResultSet computeNext() {
       PartialResultSet next;
       try {
-        // TODO: Ideally honor io.grpc.Context while blocking here.  In practice,
-        //       cancellation/deadline results in an error being delivered to "stream", which
-        //       should mean that we do not block significantly longer afterwards, but it would
-        //       be more robust to use poll() with a timeout.
-        next = stream.take();
+        next = takeNext();
       } catch (InterruptedException e) {
         // Treat interrupt as a request to cancel the read.
         throw SpannerExceptionFactory.propagateInterrupt(e);
@@ -789,6 +822,36 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
       return null;
     }
 
+    /**
+     * Takes the next result from the stream. The wait is bounded by the deadline of the current
+     * {@link Context}, as the call may have been started in a different context than the one that
+     * consumes the results. The call is cancelled if the deadline is exceeded or the context is
+     * cancelled, as no one will consume its results.
+     */
+    private PartialResultSet takeNext() throws InterruptedException {
+      Context context = Context.current();
+      Deadline deadline = context.getDeadline();
+      if (deadline == null && !context.isCancelled()) {
+        return stream.take();
+      }
+      PartialResultSet next = null;
+      if (!context.isCancelled() && !deadline.isExpired()) {
+        next = stream.poll(deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+      }
+      if (next == null) {
+        SpannerException e =
+            context.isCancelled()
+                ? newSpannerExceptionForCancellation(context, null)
+                : newSpannerException(
+                    ErrorCode.DEADLINE_EXCEEDED,
+                    "Deadline exceeded while waiting for the next result: " + deadline);
+        close(e.getMessage());
+        call = null;
+        throw e;
+      }
+      return next;
+    }
+
     private void addToStream(PartialResultSet results) {
       // We assume that nothing from the user will interrupt gRPC event threads.
       Uninterruptibles.putUninterruptibly(stream, results);
@@ -835,7 +898,11 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
     private final LinkedList<PartialResultSet> buffer = new LinkedList<>();
     private final int maxBufferSize;
     private final Span span;
+    @Nullable private final RetryBudget retryBudget;
     private CloseableIterator<PartialResultSet> stream;
+    /** Indicates whether the current stream has returned a response or has completed. */
+    private boolean streamSucceeded;
+
     private ByteString resumeToken;
     private boolean finished;
     /**
@@ -846,12 +913,18 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
     private boolean safeToRetry = true;
 
     protected ResumableStreamIterator(int maxBufferSize, String streamName, Span parent) {
+      this(maxBufferSize, streamName, parent, null);
+    }
+
+    protected ResumableStreamIterator(
+        int maxBufferSize, String streamName, Span parent, @Nullable RetryBudget retryBudget) {
       checkArgument(maxBufferSize >= 0);
       this.maxBufferSize = maxBufferSize;
       this.span = tracer.spanBuilderWithExplicitParent(streamName, parent).startSpan();
+      this.retryBudget = retryBudget;
     }
 
-    private static ExponentialBackOff newBackOff() {
+    static ExponentialBackOff newBackOff() {
       return new ExponentialBackOff.Builder()
           .setMultiplier(STREAMING_RETRY_SETTINGS.getRetryDelayMultiplier())
           .setInitialIntervalMillis(
@@ -861,7 +934,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
           .build();
     }
 
-    private static void backoffSleep(Context context, BackOff backoff) throws SpannerException {
+    static void backoffSleep(Context context, BackOff backoff) throws SpannerException {
       backoffSleep(context, nextBackOffMillis(backoff));
     }
 
@@ -873,7 +946,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
       }
     }
 
-    private static void backoffSleep(Context context, long backoffMillis) throws SpannerException {
+    static void backoffSleep(Context context, long backoffMillis) throws SpannerException {
       tracer
           .getCurrentSpan()
           .addAnnotation(
@@ -942,6 +1015,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
             // When start a new stream set the Span as current to make the gRPC Span a child of
             // this Span.
             stream = checkNotNull(startStream(resumeToken));
+            streamSucceeded = false;
           }
         }
         // Buffer contains items up to a resume token or has reached capacity: flush.
@@ -950,7 +1024,12 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
           return buffer.pop();
         }
         try {
-          if (stream.hasNext()) {
+          boolean hasNext = stream.hasNext();
+          if (!streamSucceeded && retryBudget != null) {
+            retryBudget.recordSuccess();
+          }
+          streamSucceeded = true;
+          if (hasNext) {
             PartialResultSet next = stream.next();
             boolean hasResumeToken = !next.getResumeToken().isEmpty();
             if (hasResumeToken) {
@@ -978,6 +1057,11 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
           }
         } catch (SpannerException e) {
           if (safeToRetry && e.isRetryable()) {
+            if (retryBudget != null && !retryBudget.tryAcquireRetry()) {
+              span.addAnnotation("Stream broken. Retry budget exhausted");
+              TraceUtil.setWithFailure(span, e);
+              throw e;
+            }
             span.addAnnotation(
                 "Stream broken. Safe to retry", TraceUtil.getExceptionAnnotations(e));
             logger.log(Level.FINE, "Retryable exception, will sleep and retry", e);
@@ -1009,7 +1093,7 @@ abstract class AbstractResultSet<R> extends AbstractStructReader implements Resu
     }
   }
 
-  private static double valueProtoToFloat64(com.google.protobuf.Value proto) {
+  static double valueProtoToFloat64(com.google.protobuf.Value proto) {
     if (proto.getKindCase() == KindCase.STRING_VALUE) {
       switch (proto.getStringValue()) {
         case "-Infinity":
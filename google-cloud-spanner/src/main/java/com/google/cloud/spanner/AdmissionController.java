@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Adaptive concurrency limit for the operations of a {@link SessionPool}. The limit is adjusted
+ * with an additive-increase/multiplicative-decrease (AIMD) algorithm based on the latency of the
+ * RPCs of the database:
+ *
+ * <ul>
+ *   <li>If an RPC takes longer than the latency threshold or fails because Cloud Spanner is
+ *       overloaded, the limit is multiplied by {@link #BACKOFF_RATIO}.
+ *   <li>Otherwise the limit is increased by one if at least half of the current limit is in use.
+ * </ul>
+ *
+ * The limit is always between the configured minimum and {@link
+ * SessionPoolOptions#getMaxSessions()}. Operations are only rejected while the limit is below the
+ * maximum. A pool that is saturated but healthy lets requests wait for a session.
+ */
+class AdmissionController {
+  @VisibleForTesting static final double BACKOFF_RATIO = 0.9d;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyThresholdNanos;
+  private final AtomicLong numRejected = new AtomicLong();
+
+  @GuardedBy("this")
+  private double limit;
+
+  AdmissionController(int minLimit, int maxLimit, long latencyThresholdNanos) {
+    Preconditions.checkArgument(minLimit > 0, "minLimit must be > 0");
+    Preconditions.checkArgument(maxLimit >= minLimit, "maxLimit must be >= minLimit");
+    Preconditions.checkArgument(latencyThresholdNanos > 0L, "latencyThreshold must be > 0");
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyThresholdNanos = latencyThresholdNanos;
+    this.limit = maxLimit;
+  }
+
+  /**
+   * Returns true if a new operation may be started while {@code inFlight} operations are already
+   * running or waiting for a session.
+   */
+  boolean tryAdmit(int inFlight) {
+    int limit = getLimit();
+    if (limit >= maxLimit || inFlight < limit) {
+      return true;
+    }
+    numRejected.incrementAndGet();
+    return false;
+  }
+
+  /**
+   * Adjusts the limit based on an RPC that returned its first response, or failed, while {@code
+   * inFlight} operations were running.
+   */
+  synchronized void onSample(long latencyNanos, int inFlight, boolean overloaded) {
+    if (overloaded || latencyNanos > latencyThresholdNanos) {
+      limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    } else if (inFlight * 2 >= limit) {
+      limit = Math.min(maxLimit, limit + 1d);
+    }
+  }
+
+  /** Returns the current concurrency limit. */
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /** Returns the number of operations that have been rejected. */
+  long getNumRejected() {
+    return numRejected.get();
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import javax.annotation.Nullable;
+
+/**
+ * Exception thrown by a {@link DatabaseClient} when adaptive admission control is enabled for its
+ * session pool and the number of concurrent operations has reached the current concurrency limit.
+ * The request is rejected without being sent to Cloud Spanner. See {@link
+ * SessionPoolOptions.Builder#setAdmissionControlLatencyThresholdMillis(long)}.
+ */
+public class AdmissionRejectedException extends SpannerException {
+  private static final long serialVersionUID = 4619377183463425823L;
+
+  /** Private constructor. Use {@link SpannerExceptionFactory} to create instances. */
+  AdmissionRejectedException(DoNotConstructDirectly token, @Nullable String message) {
+    super(token, ErrorCode.RESOURCE_EXHAUSTED, false, message, null);
+  }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.AbstractResultSet.GrpcStruct;
+import com.google.cloud.spanner.Type.Code;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.protobuf.Value.KindCase;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A batch of rows from a {@link ResultSet} stored column by column. {@code BOOL}, {@code INT64} and
+ * {@code FLOAT64} columns are stored as primitive arrays, so reading them does not box any values;
+ * all other columns are stored as arrays of the same objects that {@link Struct} would return for
+ * them. {@code NULL} values are tracked separately and can be checked with {@link #isNull(int,
+ * int)}; the primitive arrays contain {@code 0} or {@code false} for those rows.
+ *
+ * <p>Column batches are created with {@link ResultSets#toColumnBatches(ResultSet, int)}. When the
+ * result set was returned by Cloud Spanner, for example by {@link
+ * BatchReadOnlyTransaction#execute(Partition)}, the values are decoded directly from the stream
+ * without creating a {@link Struct} for each row.
+ *
+ * <p>The arrays returned by the getters of this class are not copied, and must not be modified.
+ */
+public final class ColumnBatch {
+  private final Type type;
+  private final int rowCount;
+  private final Object[] columns;
+  private final BitSet[] nulls;
+
+  private ColumnBatch(Type type, int rowCount, Object[] columns, BitSet[] nulls) {
+    this.type = type;
+    this.rowCount = rowCount;
+    this.columns = columns;
+    this.nulls = nulls;
+  }
+
+  /** Returns the type of the rows in this batch. This is always a {@code STRUCT} type. */
+  public Type getType() {
+    return type;
+  }
+
+  /** Returns the number of rows in this batch. */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /** Returns the number of columns in this batch. */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /** Returns {@code true} if the value in column {@code columnIndex} of row {@code row} is null. */
+  public boolean isNull(int columnIndex, int row) {
+    checkElementIndex(row, rowCount);
+    return nulls[columnIndex].get(row);
+  }
+
+  /** Returns the values of the {@code BOOL} column {@code columnIndex}. */
+  public boolean[] getBooleanColumn(int columnIndex) {
+    checkColumnType(columnIndex, Type.bool());
+    return (boolean[]) columns[columnIndex];
+  }
+
+  /** Returns the values of the {@code INT64} column {@code columnIndex}. */
+  public long[] getLongColumn(int columnIndex) {
+    checkColumnType(columnIndex, Type.int64());
+    return (long[]) columns[columnIndex];
+  }
+
+  /** Returns the values of the {@code FLOAT64} column {@code columnIndex}. */
+  public double[] getDoubleColumn(int columnIndex) {
+    checkColumnType(columnIndex, Type.float64());
+    return (double[]) columns[columnIndex];
+  }
+
+  /** Returns the values of the {@code STRING} column {@code columnIndex}. */
+  public String[] getStringColumn(int columnIndex) {
+    checkColumnType(columnIndex, Type.string());
+    return (String[]) columns[columnIndex];
+  }
+
+  /** Returns the values of the {@code BYTES} column {@code columnIndex}. */
+  public ByteArray[] getBytesColumn(int columnIndex) {
+    checkColumnType(columnIndex, Type.bytes());
+    return (ByteArray[]) columns[columnIndex];
+  }
+
+  /** Returns the values of the {@code TIMESTAMP} column {@code columnIndex}. */
+  public Timestamp[] getTimestampColumn(int columnIndex) {
+    checkColumnType(columnIndex, Type.timestamp());
+    return (Timestamp[]) columns[columnIndex];
+  }
+
+  /** Returns the values of the {@code DATE} column {@code columnIndex}. */
+  public Date[] getDateColumn(int columnIndex) {
+    checkColumnType(columnIndex, Type.date());
+    return (Date[]) columns[columnIndex];
+  }
+
+  /**
+   * Returns the values of the column {@code columnIndex}, which may be of any type except {@code
+   * BOOL}, {@code INT64} and {@code FLOAT64}. {@code ARRAY} values are returned as {@code List}s
+   * and {@code STRUCT} values as {@link Struct}s.
+   */
+  public Object[] getObjectColumn(int columnIndex) {
+    Object column = columns[columnIndex];
+    checkState(
+        column instanceof Object[],
+        "Column %s of type %s is stored as a primitive array",
+        columnIndex,
+        type.getStructFields().get(columnIndex).getType());
+    return (Object[]) column;
+  }
+
+  private void checkColumnType(int columnIndex, Type expected) {
+    Type actual = type.getStructFields().get(columnIndex).getType();
+    if (!actual.equals(expected)) {
+      throw new IllegalStateException(
+          "Illegal call to getter of incorrect type.  Expected: "
+              + expected
+              + " actual: "
+              + actual);
+    }
+  }
+
+  /** Accumulates rows into a {@link ColumnBatch}. */
+  static final class Builder {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Type type;
+    private final Code[] codes;
+    private final Object[] columns;
+    private final BitSet[] nulls;
+    private int capacity;
+    private int rowCount;
+
+    Builder(Type type, int maxRows) {
+      checkArgument(type.getCode() == Code.STRUCT, "Row type must be a STRUCT: %s", type);
+      checkArgument(maxRows > 0, "maxRows must be positive: %s", maxRows);
+      List<StructField> fields = type.getStructFields();
+      this.type = type;
+      this.codes = new Code[fields.size()];
+      this.columns = new Object[fields.size()];
+      this.nulls = new BitSet[fields.size()];
+      this.capacity = Math.min(maxRows, INITIAL_CAPACITY);
+      for (int i = 0; i < fields.size(); i++) {
+        codes[i] = fields.get(i).getType().getCode();
+        columns[i] = newColumn(codes[i], capacity);
+        nulls[i] = new BitSet();
+      }
+    }
+
+    int getRowCount() {
+      return rowCount;
+    }
+
+    int getColumnCount() {
+      return columns.length;
+    }
+
+    /**
+     * Decodes {@code proto} into column {@code columnIndex} of the current row. The current row is
+     * complete once a value has been added for the last column.
+     */
+    void add(int columnIndex, com.google.protobuf.Value proto) {
+      if (columnIndex == 0) {
+        ensureCapacity();
+      }
+      if (proto.getKindCase() == KindCase.NULL_VALUE) {
+        nulls[columnIndex].set(rowCount);
+      } else {
+        switch (codes[columnIndex]) {
+          case BOOL:
+            GrpcStruct.checkType(Type.bool(), proto, KindCase.BOOL_VALUE);
+            ((boolean[]) columns[columnIndex])[rowCount] = proto.getBoolValue();
+            break;
+          case INT64:
+            GrpcStruct.checkType(Type.int64(), proto, KindCase.STRING_VALUE);
+            ((long[]) columns[columnIndex])[rowCount] = Long.parseLong(proto.getStringValue());
+            break;
+          case FLOAT64:
+            ((double[]) columns[columnIndex])[rowCount] =
+                AbstractResultSet.valueProtoToFloat64(proto);
+            break;
+          default:
+            ((Object[]) columns[columnIndex])[rowCount] =
+                GrpcStruct.decodeValue(type.getStructFields().get(columnIndex).getType(), proto);
+        }
+      }
+      if (columnIndex == columns.length - 1) {
+        rowCount++;
+      }
+    }
+
+    /** Adds {@code row} to this batch. */
+    void addRow(Struct row) {
+      ensureCapacity();
+      for (int i = 0; i < columns.length; i++) {
+        if (row.isNull(i)) {
+          nulls[i].set(rowCount);
+          continue;
+        }
+        Type columnType = type.getStructFields().get(i).getType();
+        switch (codes[i]) {
+          case BOOL:
+            ((boolean[]) columns[i])[rowCount] = row.getBoolean(i);
+            break;
+          case INT64:
+            ((long[]) columns[i])[rowCount] = row.getLong(i);
+            break;
+          case FLOAT64:
+            ((double[]) columns[i])[rowCount] = row.getDouble(i);
+            break;
+          case STRING:
+            ((Object[]) columns[i])[rowCount] = row.getString(i);
+            break;
+          case BYTES:
+            ((Object[]) columns[i])[rowCount] = row.getBytes(i);
+            break;
+          case TIMESTAMP:
+            ((Object[]) columns[i])[rowCount] = row.getTimestamp(i);
+            break;
+          case DATE:
+            ((Object[]) columns[i])[rowCount] = row.getDate(i);
+            break;
+          case STRUCT:
+            ((Object[]) columns[i])[rowCount] = row.getStruct(i);
+            break;
+          case ARRAY:
+            ((Object[]) columns[i])[rowCount] = getList(row, i, columnType.getArrayElementType());
+            break;
+          default:
+            throw new AssertionError("Unhandled type code: " + codes[i]);
+        }
+      }
+      rowCount++;
+    }
+
+    ColumnBatch build() {
+      checkState(rowCount > 0, "Empty column batch");
+      Object[] trimmed = new Object[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        trimmed[i] = rowCount == capacity ? columns[i] : copyOf(columns[i], rowCount);
+      }
+      return new ColumnBatch(type, rowCount, trimmed, nulls);
+    }
+
+    private void ensureCapacity() {
+      if (rowCount == capacity) {
+        capacity = capacity * 2;
+        for (int i = 0; i < columns.length; i++) {
+          columns[i] = copyOf(columns[i], capacity);
+        }
+      }
+    }
+
+    private static List<?> getList(Struct row, int columnIndex, Type elementType) {
+      switch (elementType.getCode()) {
+        case BOOL:
+          return row.getBooleanList(columnIndex);
+        case INT64:
+          return row.getLongList(columnIndex);
+        case FLOAT64:
+          return row.getDoubleList(columnIndex);
+        case STRING:
+          return row.getStringList(columnIndex);
+        case BYTES:
+          return row.getBytesList(columnIndex);
+        case TIMESTAMP:
+          return row.getTimestampList(columnIndex);
+        case DATE:
+          return row.getDateList(columnIndex);
+        case STRUCT:
+          return row.getStructList(columnIndex);
+        default:
+          throw new AssertionError("Unhandled array element type: " + elementType);
+      }
+    }
+
+    private static Object newColumn(Code code, int size) {
+      switch (code) {
+        case BOOL:
+          return new boolean[size];
+        case INT64:
+          return new long[size];
+        case FLOAT64:
+          return new double[size];
+        case STRING:
+          return new String[size];
+        case BYTES:
+          return new ByteArray[size];
+        case TIMESTAMP:
+          return new Timestamp[size];
+        case DATE:
+          return new Date[size];
+        default:
+          return new Object[size];
+      }
+    }
+
+    private static Object copyOf(Object column, int size) {
+      if (column instanceof boolean[]) {
+        return Arrays.copyOf((boolean[]) column, size);
+      } else if (column instanceof long[]) {
+        return Arrays.copyOf((long[]) column, size);
+      } else if (column instanceof double[]) {
+        return Arrays.copyOf((double[]) column, size);
+      }
+      return Arrays.copyOf((Object[]) column, size);
+    }
+  }
+}
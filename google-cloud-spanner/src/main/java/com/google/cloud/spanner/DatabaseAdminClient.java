@@ -16,6 +16,7 @@
 
 package com.google.cloud.spanner;
 
+import com.google.api.core.ApiFuture;
 import com.google.api.gax.longrunning.OperationFuture;
 import com.google.api.gax.paging.Page;
 import com.google.cloud.Policy;
@@ -137,6 +138,20 @@ public interface DatabaseAdminClient {
   /** Lists long-running backup operations on the specified instance. */
   Page<Operation> listBackupOperations(String instanceId, ListOption... options);
 
+  /**
+   * Returns all backup operations in the given instance. The pages of the result are fetched in the
+   * background, and the next page is requested while the current page is being processed.
+   *
+   * <p>Example to get all backup operations in the given instance.
+   *
+   * <pre>{@code
+   * String instanceId = my_instance_id;
+   * List<Operation> operations =
+   *     dbAdminClient.listAllBackupOperationsAsync(instanceId, Options.pageSize(100)).get();
+   * }</pre>
+   */
+  ApiFuture<List<Operation>> listAllBackupOperationsAsync(String instanceId, ListOption... options);
+
   /**
    * Gets the current state of a Cloud Spanner database.
    *
@@ -194,6 +209,34 @@ public interface DatabaseAdminClient {
       @Nullable String operationId)
       throws SpannerException;
 
+  /**
+   * Applies the given DDL statements to each of the given databases of the given instance. At most
+   * maxConcurrency update requests are sent at the same time, and all requests are subject to the
+   * rate limit for administrative requests. The update operations are tracked by periodically
+   * listing the database operations of the instance, instead of polling each operation separately.
+   * The returned futures are in the same order as the databases, and each future is done when the
+   * update operation of its database is done. Cancelling a future stops tracking the operation, but
+   * does not cancel the operation on the server.
+   *
+   * <p>Example to add a column to the same table in multiple databases.
+   *
+   * <pre>{@code
+   * String instanceId = my_instance_id;
+   * List<ApiFuture<Void>> results =
+   *     dbAdminClient.updateDatabasesDdlAsync(
+   *         instanceId,
+   *         Arrays.asList("db1", "db2", "db3"),
+   *         Arrays.asList("ALTER TABLE Albums ADD COLUMN MarketingBudget INT64"),
+   *         2);
+   * ApiFutures.allAsList(results).get();
+   * }</pre>
+   */
+  List<ApiFuture<Void>> updateDatabasesDdlAsync(
+      String instanceId,
+      Iterable<String> databaseIds,
+      Iterable<String> statements,
+      int maxConcurrency);
+
   /**
    * Drops a Cloud Spanner database.
    *
@@ -239,6 +282,19 @@ public interface DatabaseAdminClient {
    */
   Page<Database> listDatabases(String instanceId, ListOption... options);
 
+  /**
+   * Returns all Cloud Spanner databases in the given instance. The pages of the result are fetched
+   * in the background, and the next page is requested while the current page is being processed.
+   *
+   * <p>Example to get all Cloud Spanner databases in the given instance.
+   *
+   * <pre>{@code
+   * String instanceId = my_instance_id;
+   * List<Database> dbs = dbAdminClient.listAllDatabasesAsync(instanceId).get();
+   * }</pre>
+   */
+  ApiFuture<List<Database>> listAllDatabasesAsync(String instanceId, ListOption... options);
+
   /**
    * Returns the list of Cloud Spanner backups in the given instance.
    *
@@ -257,6 +313,19 @@ public interface DatabaseAdminClient {
    */
   Page<Backup> listBackups(String instanceId, ListOption... options);
 
+  /**
+   * Returns all Cloud Spanner backups in the given instance. The pages of the result are fetched in
+   * the background, and the next page is requested while the current page is being processed.
+   *
+   * <p>Example to get all Cloud Spanner backups in the given instance.
+   *
+   * <pre>{@code
+   * String instanceId = my_instance_id;
+   * List<Backup> backups = dbAdminClient.listAllBackupsAsync(instanceId).get();
+   * }</pre>
+   */
+  ApiFuture<List<Backup>> listAllBackupsAsync(String instanceId, ListOption... options);
+
   /**
    * Updates the expire time of a backup.
    *
@@ -17,6 +17,7 @@
 package com.google.cloud.spanner;
 
 import com.google.api.core.ApiFunction;
+import com.google.api.core.ApiFuture;
 import com.google.api.gax.grpc.ProtoOperationTransformers;
 import com.google.api.gax.longrunning.OperationFuture;
 import com.google.api.gax.longrunning.OperationFutureImpl;
@@ -38,6 +39,7 @@ import com.google.spanner.admin.database.v1.CreateBackupMetadata;
 import com.google.spanner.admin.database.v1.CreateDatabaseMetadata;
 import com.google.spanner.admin.database.v1.RestoreDatabaseMetadata;
 import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import javax.annotation.Nullable;
@@ -59,15 +61,18 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
   private final String projectId;
   private final SpannerRpc rpc;
   private final PolicyMarshaller policyMarshaller = new PolicyMarshaller();
+  private final LazyDaemonExecutor listExecutor = new LazyDaemonExecutor("spanner-admin-list-%d");
+  private final DdlRolloutRunner ddlRolloutRunner;
   private static final String EXPIRE_TIME_MASK = "expire_time";
 
   DatabaseAdminClientImpl(String projectId, SpannerRpc rpc) {
     this.projectId = projectId;
     this.rpc = rpc;
+    this.ddlRolloutRunner = new DdlRolloutRunner(rpc);
   }
 
   /** Generates a random operation id for long-running database operations. */
-  private static String randomOperationId() {
+  static String randomOperationId() {
     UUID uuid = UUID.randomUUID();
     return ("r" + uuid.toString()).replace("-", "_");
   }
@@ -186,17 +191,27 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
 
   @Override
   public final Page<Operation> listBackupOperations(String instanceId, ListOption... options) {
+    return backupOperationsFetcher(instanceId, options).getNextPage();
+  }
+
+  @Override
+  public ApiFuture<List<Operation>> listAllBackupOperationsAsync(
+      String instanceId, ListOption... options) {
+    return backupOperationsFetcher(instanceId, options).listAllAsync(listExecutor.get());
+  }
+
+  private PageFetcher<Operation, Operation> backupOperationsFetcher(
+      String instanceId, ListOption... options) {
     final String instanceName = getInstanceName(instanceId);
     final Options listOptions = Options.fromListOptions(options);
     final int pageSize = listOptions.hasPageSize() ? listOptions.pageSize() : 0;
     final String filter = listOptions.hasFilter() ? listOptions.filter() : null;
-    final String pageToken = listOptions.hasPageToken() ? listOptions.pageToken() : null;
 
     PageFetcher<Operation, Operation> pageFetcher =
         new PageFetcher<Operation, Operation>() {
           @Override
           public Paginated<Operation> getNextPage(String nextPageToken) {
-            return rpc.listBackupOperations(instanceName, pageSize, filter, pageToken);
+            return rpc.listBackupOperations(instanceName, pageSize, filter, nextPageToken);
           }
 
           @Override
@@ -204,10 +219,7 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
             return proto;
           }
         };
-    if (listOptions.hasPageToken()) {
-      pageFetcher.setNextPageToken(listOptions.pageToken());
-    }
-    return pageFetcher.getNextPage();
+    return initPageFetcher(pageFetcher, listOptions);
   }
 
   @Override
@@ -216,13 +228,12 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
     final Options listOptions = Options.fromListOptions(options);
     final int pageSize = listOptions.hasPageSize() ? listOptions.pageSize() : 0;
     final String filter = listOptions.hasFilter() ? listOptions.filter() : null;
-    final String pageToken = listOptions.hasPageToken() ? listOptions.pageToken() : null;
 
     PageFetcher<Operation, Operation> pageFetcher =
         new PageFetcher<Operation, Operation>() {
           @Override
           public Paginated<Operation> getNextPage(String nextPageToken) {
-            return rpc.listDatabaseOperations(instanceName, pageSize, filter, pageToken);
+            return rpc.listDatabaseOperations(instanceName, pageSize, filter, nextPageToken);
           }
 
           @Override
@@ -230,14 +241,21 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
             return proto;
           }
         };
-    if (listOptions.hasPageToken()) {
-      pageFetcher.setNextPageToken(listOptions.pageToken());
-    }
-    return pageFetcher.getNextPage();
+    return initPageFetcher(pageFetcher, listOptions).getNextPage();
   }
 
   @Override
   public Page<Backup> listBackups(String instanceId, ListOption... options) {
+    return backupsFetcher(instanceId, options).getNextPage();
+  }
+
+  @Override
+  public ApiFuture<List<Backup>> listAllBackupsAsync(String instanceId, ListOption... options) {
+    return backupsFetcher(instanceId, options).listAllAsync(listExecutor.get());
+  }
+
+  private PageFetcher<Backup, com.google.spanner.admin.database.v1.Backup> backupsFetcher(
+      String instanceId, ListOption... options) {
     final String instanceName = getInstanceName(instanceId);
     final Options listOptions = Options.fromListOptions(options);
     final String filter = listOptions.hasFilter() ? listOptions.filter() : null;
@@ -256,10 +274,19 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
             return Backup.fromProto(proto, DatabaseAdminClientImpl.this);
           }
         };
+    return initPageFetcher(pageFetcher, listOptions);
+  }
+
+  /** Applies the page token and prefetch options to the given {@link PageFetcher}. */
+  private <S, T> PageFetcher<S, T> initPageFetcher(
+      PageFetcher<S, T> pageFetcher, Options listOptions) {
     if (listOptions.hasPageToken()) {
       pageFetcher.setNextPageToken(listOptions.pageToken());
     }
-    return pageFetcher.getNextPage();
+    if (listOptions.hasPrefetchPages()) {
+      pageFetcher.setPrefetchExecutor(listExecutor.get());
+    }
+    return pageFetcher;
   }
 
   @Override
@@ -328,6 +355,20 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
         });
   }
 
+  @Override
+  public List<ApiFuture<Void>> updateDatabasesDdlAsync(
+      String instanceId,
+      Iterable<String> databaseIds,
+      Iterable<String> statements,
+      int maxConcurrency) {
+    List<String> dbNames = new ArrayList<>();
+    for (String databaseId : databaseIds) {
+      dbNames.add(getDatabaseName(instanceId, databaseId));
+    }
+    return ddlRolloutRunner.updateDdlAsync(
+        getInstanceName(instanceId), dbNames, statements, maxConcurrency);
+  }
+
   @Override
   public void dropDatabase(String instanceId, String databaseId) throws SpannerException {
     String dbName = getDatabaseName(instanceId, databaseId);
@@ -342,6 +383,16 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
 
   @Override
   public Page<Database> listDatabases(String instanceId, ListOption... options) {
+    return databasesFetcher(instanceId, options).getNextPage();
+  }
+
+  @Override
+  public ApiFuture<List<Database>> listAllDatabasesAsync(String instanceId, ListOption... options) {
+    return databasesFetcher(instanceId, options).listAllAsync(listExecutor.get());
+  }
+
+  private PageFetcher<Database, com.google.spanner.admin.database.v1.Database> databasesFetcher(
+      String instanceId, ListOption... options) {
     final String instanceName = getInstanceName(instanceId);
     final Options listOptions = Options.fromListOptions(options);
     Preconditions.checkArgument(
@@ -371,10 +422,7 @@ class DatabaseAdminClientImpl implements DatabaseAdminClient {
             return Database.fromProto(proto, DatabaseAdminClientImpl.this);
           }
         };
-    if (listOptions.hasPageToken()) {
-      pageFetcher.setNextPageToken(listOptions.pageToken());
-    }
-    return pageFetcher.getNextPage();
+    return initPageFetcher(pageFetcher, listOptions);
   }
 
   @Override
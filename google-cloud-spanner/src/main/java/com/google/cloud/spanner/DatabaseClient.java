@@ -16,7 +16,9 @@
 
 package com.google.cloud.spanner;
 
+import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
+import java.util.List;
 
 /**
  * Interface for all the APIs that are used to read/write data into a Cloud Spanner database. An
@@ -221,6 +223,52 @@ public interface DatabaseClient {
    */
   ReadOnlyTransaction readOnlyTransaction(TimestampBound bound);
 
+  /**
+   * Returns a read-only transaction context in which multiple reads and/or queries can be performed
+   * in parallel at the given timestamp bound. All reads/queries will use the same timestamp, but
+   * unlike {@link #readOnlyTransaction(TimestampBound)}, each read/query is executed on its own
+   * session from the session pool. The returned transaction is thread-safe, and the result sets
+   * that it returns can be consumed in parallel from different threads.
+   *
+   * <p>The read timestamp is determined by beginning a read-only transaction with the given bound
+   * before the first read/query, unless the bound is {@link
+   * TimestampBound#ofReadTimestamp(com.google.cloud.Timestamp)}. The bounded staleness modes,
+   * {@link TimestampBound.Mode#MIN_READ_TIMESTAMP} and {@link TimestampBound.Mode#MAX_STALENESS},
+   * are not supported. Each result set returns its session to the pool when it is closed or has
+   * been consumed. When this method is called on a {@link Session}, a normal read-only transaction
+   * on that session is returned.
+   *
+   * <p>Reads with a {@link KeySet} that contains more than 10,000 keys are split into several reads
+   * that are executed in parallel, and the rows of these reads are returned as one {@link
+   * ResultSet}. The rows of a split read are not returned in key order across the different parts
+   * of the read. Reads with a limit are not split.
+   *
+   * <p>Example of executing two queries in parallel in the same snapshot.
+   *
+   * <pre>{@code
+   * try (final ReadOnlyTransaction txn =
+   *     dbClient.parallelReadOnlyTransaction(TimestampBound.strong())) {
+   *   Future<Long> singerCount =
+   *       executor.submit(
+   *           new Callable<Long>() {
+   *             public Long call() {
+   *               return txn.executeQuery(Statement.of("SELECT COUNT(*) FROM Singers"))
+   *                   .getLong(0);
+   *             }
+   *           });
+   *   try (ResultSet albums = txn.executeQuery(Statement.of("SELECT * FROM Albums"))) {
+   *     while (albums.next()) {
+   *       // process row
+   *     }
+   *   }
+   *   singerCount.get();
+   * }
+   * }</pre>
+   *
+   * @param bound the timestamp bound at which to perform the reads
+   */
+  ReadOnlyTransaction parallelReadOnlyTransaction(TimestampBound bound);
+
   /**
    * Returns a transaction runner for executing a single logical transaction with retries. The
    * returned runner can only be used once.
@@ -326,4 +374,73 @@ public interface DatabaseClient {
    * idempotent, such as deleting old rows from a very large table.
    */
   long executePartitionedUpdate(Statement stmt);
+
+  /**
+   * Executes a Partitioned DML statement asynchronously. The statement is executed on a background
+   * thread with a session from the session pool, and is retried if it is aborted by Cloud Spanner.
+   * Cancelling the returned future cancels the statement. See {@link
+   * #executePartitionedUpdate(Statement)} for the semantics of Partitioned DML.
+   *
+   * <p>When this method is called on a {@link Session}, the statement is executed synchronously and
+   * a completed future is returned.
+   */
+  ApiFuture<Long> executePartitionedUpdateAsync(Statement stmt);
+
+  /**
+   * Executes a batch of independent Partitioned DML statements asynchronously, with at most {@code
+   * maxConcurrency} statements executing at the same time. This can for example be used to run a
+   * large cleanup as one statement per key range or per parent row. Each statement is executed on
+   * its own session from the session pool, and is retried if it is aborted by Cloud Spanner.
+   *
+   * <p>Returns one future per statement in the order of the statements. Each future completes with
+   * the lower bound of the number of modified rows of its statement as soon as that statement has
+   * finished, which can be used to report the progress of the batch. The failure of one statement
+   * does not stop the other statements. Cancelling a future cancels its statement. When this method
+   * is called on a {@link Session}, maxConcurrency must be 1 as a session can only execute one
+   * statement at a time. The statements are then executed sequentially and completed futures are
+   * returned.
+   *
+   * <pre>{@code
+   * List<Statement> statements = new ArrayList<>();
+   * for (long singerId : singerIds) {
+   *   statements.add(
+   *       Statement.newBuilder("DELETE FROM Albums WHERE SingerId = @singerId AND Obsolete")
+   *           .bind("singerId")
+   *           .to(singerId)
+   *           .build());
+   * }
+   * List<ApiFuture<Long>> results = dbClient.executePartitionedUpdatesAsync(statements, 4);
+   * long rowCount = 0L;
+   * for (ApiFuture<Long> result : results) {
+   *   rowCount += result.get();
+   * }
+   * }</pre>
+   */
+  List<ApiFuture<Long>> executePartitionedUpdatesAsync(
+      Iterable<Statement> statements, int maxConcurrency);
+
+  /**
+   * Returns a {@link DatabaseClient} that uses the same session pool as this client, but that
+   * acquires its sessions with the given {@link SessionPriority}. Requests with a higher priority
+   * are served before requests with a lower priority when the session pool is exhausted, and can
+   * use the sessions that are reserved for their priority through {@link
+   * SessionPoolOptions.Builder#setReservedSessions(SessionPriority, int)}.
+   *
+   * <p>The returned client does not need to be closed separately. Requests that are executed
+   * directly on this client use {@link SessionPriority#NORMAL}.
+   *
+   * <p>Example of executing low-priority background reads that may not use the sessions that are
+   * reserved for high-priority requests.
+   *
+   * <pre>{@code
+   * DatabaseClient backgroundClient = dbClient.withSessionPriority(SessionPriority.LOW);
+   * try (ResultSet resultSet =
+   *     backgroundClient.singleUse().executeQuery(Statement.of("SELECT * FROM Albums"))) {
+   *   while (resultSet.next()) {
+   *     // process row
+   *   }
+   * }
+   * }</pre>
+   */
+  DatabaseClient withSessionPriority(SessionPriority priority);
 }
@@ -16,15 +16,20 @@
 
 package com.google.cloud.spanner;
 
+import com.google.api.core.ApiFuture;
 import com.google.cloud.Timestamp;
 import com.google.cloud.spanner.SessionPool.PooledSession;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.opencensus.common.Scope;
 import io.opencensus.trace.Span;
 import io.opencensus.trace.Tracer;
 import io.opencensus.trace.Tracing;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
 
 class DatabaseClientImpl implements DatabaseClient {
   private static final String READ_WRITE_TRANSACTION = "CloudSpanner.ReadWriteTransaction";
@@ -39,6 +44,10 @@ class DatabaseClientImpl implements DatabaseClient {
 
   @VisibleForTesting final String clientId;
   @VisibleForTesting final SessionPool pool;
+  @VisibleForTesting @Nullable final HedgingReadContext.Hedger hedger;
+  @VisibleForTesting final SessionPriority priority;
+  private final PartitionedUpdateRunner partitionedUpdateRunner;
+  final LazyDaemonExecutor splitReadExecutor;
 
   @VisibleForTesting
   DatabaseClientImpl(SessionPool pool) {
@@ -46,18 +55,44 @@ class DatabaseClientImpl implements DatabaseClient {
   }
 
   DatabaseClientImpl(String clientId, SessionPool pool) {
+    this(clientId, pool, null);
+  }
+
+  DatabaseClientImpl(String clientId, SessionPool pool, @Nullable HedgingOptions hedgingOptions) {
     this.clientId = clientId;
     this.pool = pool;
+    this.hedger = hedgingOptions == null ? null : new HedgingReadContext.Hedger(hedgingOptions);
+    this.priority = SessionPriority.NORMAL;
+    this.partitionedUpdateRunner = new PartitionedUpdateRunner();
+    this.splitReadExecutor = new LazyDaemonExecutor("spanner-split-read-%d");
+  }
+
+  private DatabaseClientImpl(DatabaseClientImpl delegate, SessionPriority priority) {
+    this.clientId = delegate.clientId;
+    this.pool = delegate.pool;
+    this.hedger = delegate.hedger;
+    this.priority = priority;
+    this.partitionedUpdateRunner = delegate.partitionedUpdateRunner;
+    this.splitReadExecutor = delegate.splitReadExecutor;
   }
 
   @VisibleForTesting
   PooledSession getReadSession() {
-    return pool.getReadSession();
+    return pool.getReadSession(priority);
   }
 
   @VisibleForTesting
   PooledSession getReadWriteSession() {
-    return pool.getReadWriteSession();
+    return pool.getReadWriteSession(priority);
+  }
+
+  @Override
+  public DatabaseClient withSessionPriority(SessionPriority priority) {
+    Preconditions.checkNotNull(priority);
+    if (priority == this.priority) {
+      return this;
+    }
+    return new DatabaseClientImpl(this, priority);
   }
 
   @Override
@@ -115,6 +150,9 @@ class DatabaseClientImpl implements DatabaseClient {
   public ReadContext singleUse(TimestampBound bound) {
     Span span = tracer.spanBuilder(READ_ONLY_TRANSACTION).startSpan();
     try (Scope s = tracer.withSpan(span)) {
+      if (hedger != null && isStaleRead(bound)) {
+        return new HedgingReadContext(pool, priority, bound, hedger);
+      }
       return getReadSession().singleUse(bound);
     } catch (RuntimeException e) {
       TraceUtil.endSpanWithFailure(span, e);
@@ -166,6 +204,26 @@ class DatabaseClientImpl implements DatabaseClient {
     }
   }
 
+  @Override
+  public ReadOnlyTransaction parallelReadOnlyTransaction(TimestampBound bound) {
+    return new ParallelReadOnlyTransaction(this, bound);
+  }
+
+  /**
+   * Begins a read-only transaction with the given bound on a session from the pool and returns the
+   * read timestamp of the transaction.
+   */
+  Timestamp beginReadOnlyTransaction(final TimestampBound bound) {
+    return runWithSessionRetry(
+        SessionMode.READ,
+        new Function<Session, Timestamp>() {
+          @Override
+          public Timestamp apply(Session session) {
+            return ((PooledSession) session).beginReadOnlyTransaction(bound);
+          }
+        });
+  }
+
   @Override
   public TransactionRunner readWriteTransaction() {
     Span span = tracer.spanBuilder(READ_WRITE_TRANSACTION).startSpan();
@@ -213,19 +271,50 @@ class DatabaseClientImpl implements DatabaseClient {
   private <T> T runWithSessionRetry(SessionMode mode, Function<Session, T> callable) {
     PooledSession session =
         mode == SessionMode.READ_WRITE ? getReadWriteSession() : getReadSession();
-    while (true) {
-      try {
-        return callable.apply(session);
-      } catch (SessionNotFoundException e) {
-        session =
-            mode == SessionMode.READ_WRITE
-                ? pool.replaceReadWriteSession(e, session)
-                : pool.replaceReadSession(e, session);
+    boolean retryScope = SpannerExceptionFactory.enterRetryScope();
+    try {
+      while (true) {
+        try {
+          return callable.apply(session);
+        } catch (SessionNotFoundException e) {
+          session =
+              mode == SessionMode.READ_WRITE
+                  ? pool.replaceReadWriteSession(e, session)
+                  : pool.replaceReadSession(e, session);
+        }
+      }
+    } catch (SpannerException e) {
+      if (retryScope) {
+        e.ensureStackTrace();
       }
+      throw e;
+    } finally {
+      SpannerExceptionFactory.exitRetryScope(retryScope);
     }
   }
 
+  private static boolean isStaleRead(TimestampBound bound) {
+    return bound.getMode() == TimestampBound.Mode.EXACT_STALENESS
+        || bound.getMode() == TimestampBound.Mode.MAX_STALENESS;
+  }
+
+  @Override
+  public ApiFuture<Long> executePartitionedUpdateAsync(Statement stmt) {
+    return executePartitionedUpdatesAsync(Collections.singleton(stmt), 1).get(0);
+  }
+
+  @Override
+  public List<ApiFuture<Long>> executePartitionedUpdatesAsync(
+      Iterable<Statement> statements, int maxConcurrency) {
+    return partitionedUpdateRunner.executeAsync(this, statements, maxConcurrency);
+  }
+
   ListenableFuture<Void> closeAsync() {
+    partitionedUpdateRunner.close();
+    splitReadExecutor.close();
+    if (hedger != null) {
+      hedger.close();
+    }
     return pool.closeAsync();
   }
 }
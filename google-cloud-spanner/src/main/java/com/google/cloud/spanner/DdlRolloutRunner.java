@@ -0,0 +1,246 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
+import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.cloud.spanner.spi.v1.SpannerRpc.Paginated;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.longrunning.Operation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Applies the same DDL statements to multiple databases of an instance on background threads. The
+ * number of update requests that are sent in parallel is limited by the concurrency of the rollout.
+ * All update operations of one rollout share an operation id prefix, and are tracked by one poller
+ * that lists the database operations of the instance with a filter on that prefix, instead of
+ * polling each operation separately.
+ */
+final class DdlRolloutRunner {
+  private static final Logger logger = Logger.getLogger(DdlRolloutRunner.class.getName());
+  private static final String UPDATE_DDL_METADATA_TYPE =
+      "type.googleapis.com/google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata";
+  private static final long DEFAULT_INITIAL_POLL_INTERVAL_MILLIS = 1000L;
+  private static final long MAX_POLL_INTERVAL_MILLIS = 10_000L;
+  private static final double POLL_INTERVAL_MULTIPLIER = 1.5d;
+
+  private final SpannerRpc rpc;
+  private final long initialPollIntervalMillis;
+  private final LazyDaemonExecutor executor = new LazyDaemonExecutor("spanner-ddl-rollout-%d");
+
+  DdlRolloutRunner(SpannerRpc rpc) {
+    this(rpc, DEFAULT_INITIAL_POLL_INTERVAL_MILLIS);
+  }
+
+  @VisibleForTesting
+  DdlRolloutRunner(SpannerRpc rpc, long initialPollIntervalMillis) {
+    this.rpc = checkNotNull(rpc);
+    this.initialPollIntervalMillis = initialPollIntervalMillis;
+  }
+
+  /**
+   * Applies the given statements to the given databases of the given instance with at most
+   * maxConcurrency update requests in flight at the same time. The returned futures are in the same
+   * order as the databases, and are done when the update operation of the database is done.
+   * Cancelling a future stops tracking the operation, but does not cancel the operation.
+   */
+  List<ApiFuture<Void>> updateDdlAsync(
+      final String instanceName,
+      Iterable<String> databaseNames,
+      Iterable<String> statements,
+      int maxConcurrency) {
+    checkNotNull(instanceName);
+    checkArgument(maxConcurrency > 0, "maxConcurrency must be > 0");
+    final List<String> databases = ImmutableList.copyOf(databaseNames);
+    final List<String> ddl = ImmutableList.copyOf(statements);
+    final List<SettableApiFuture<Void>> results = new ArrayList<>(databases.size());
+    for (int i = 0; i < databases.size(); i++) {
+      results.add(SettableApiFuture.<Void>create());
+    }
+    if (databases.isEmpty()) {
+      return ImmutableList.<ApiFuture<Void>>of();
+    }
+    final String rolloutId = DatabaseAdminClientImpl.randomOperationId();
+    final Map<String, SettableApiFuture<Void>> pending = new ConcurrentHashMap<>();
+    final AtomicInteger next = new AtomicInteger();
+    final int workers = Math.min(maxConcurrency, databases.size());
+    final AtomicInteger activeWorkers = new AtomicInteger(workers);
+    Runnable worker =
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              int index;
+              while ((index = next.getAndIncrement()) < databases.size()) {
+                start(
+                    databases.get(index),
+                    ddl,
+                    rolloutId + "_" + index,
+                    results.get(index),
+                    pending);
+              }
+            } finally {
+              activeWorkers.decrementAndGet();
+            }
+          }
+        };
+    Runnable poller =
+        new Runnable() {
+          @Override
+          public void run() {
+            poll(instanceName, rolloutId, activeWorkers, pending);
+          }
+        };
+    ExecutorService executor = this.executor.get();
+    int submitted = 0;
+    try {
+      executor.execute(poller);
+      for (; submitted < workers; submitted++) {
+        executor.execute(worker);
+      }
+    } catch (RejectedExecutionException e) {
+      // Workers that could not be submitted will never finish, so they must not keep the poller
+      // waiting.
+      activeWorkers.addAndGet(submitted - workers);
+      SpannerException error =
+          SpannerExceptionFactory.newSpannerException(
+              ErrorCode.RESOURCE_EXHAUSTED, "Could not start DDL rollout worker", e);
+      int index;
+      while ((index = next.getAndIncrement()) < results.size()) {
+        results.get(index).setException(error);
+      }
+    }
+    return ImmutableList.<ApiFuture<Void>>copyOf(results);
+  }
+
+  private void start(
+      String databaseName,
+      List<String> statements,
+      String operationId,
+      SettableApiFuture<Void> result,
+      Map<String, SettableApiFuture<Void>> pending) {
+    if (result.isDone()) {
+      // The update was cancelled before it was started.
+      return;
+    }
+    try {
+      Operation operation = rpc.startUpdateDatabaseDdl(databaseName, statements, operationId);
+      if (operation.getDone()) {
+        complete(operation, result);
+      } else {
+        pending.put(operation.getName(), result);
+      }
+    } catch (Throwable t) {
+      result.setException(SpannerExceptionFactory.newSpannerException(t));
+    }
+  }
+
+  private void poll(
+      String instanceName,
+      String rolloutId,
+      AtomicInteger activeWorkers,
+      Map<String, SettableApiFuture<Void>> pending) {
+    String filter =
+        String.format("(metadata.@type:%s) AND (name:%s)", UPDATE_DDL_METADATA_TYPE, rolloutId);
+    long interval = initialPollIntervalMillis;
+    while (true) {
+      try {
+        Thread.sleep(interval);
+      } catch (InterruptedException e) {
+        failAll(pending, SpannerExceptionFactory.propagateInterrupt(e));
+        return;
+      }
+      // Read the number of workers before the operations, so an operation that is added by the
+      // last worker is always seen by this or the next iteration.
+      boolean allStarted = activeWorkers.get() == 0;
+      removeCancelled(pending);
+      if (pending.isEmpty()) {
+        if (allStarted) {
+          return;
+        }
+      } else {
+        try {
+          pollOnce(instanceName, filter, pending);
+        } catch (SpannerException e) {
+          if (!e.isRetryable()) {
+            failAll(pending, e);
+          } else {
+            logger.log(Level.FINE, "Listing database operations failed, retrying", e);
+          }
+        }
+      }
+      interval = Math.min(MAX_POLL_INTERVAL_MILLIS, (long) (interval * POLL_INTERVAL_MULTIPLIER));
+    }
+  }
+
+  private void pollOnce(
+      String instanceName, String filter, Map<String, SettableApiFuture<Void>> pending) {
+    String pageToken = null;
+    do {
+      Paginated<Operation> page = rpc.listDatabaseOperations(instanceName, 0, filter, pageToken);
+      for (Operation operation : page.getResults()) {
+        if (operation.getDone()) {
+          SettableApiFuture<Void> result = pending.remove(operation.getName());
+          if (result != null) {
+            complete(operation, result);
+          }
+        }
+      }
+      pageToken = page.getNextPageToken();
+    } while (pageToken != null && !pageToken.isEmpty());
+  }
+
+  private static void complete(Operation operation, SettableApiFuture<Void> result) {
+    if (operation.hasError()) {
+      result.setException(
+          SpannerExceptionFactory.newSpannerException(
+              ErrorCode.fromRpcStatus(operation.getError()), operation.getError().getMessage()));
+    } else {
+      result.set(null);
+    }
+  }
+
+  private static void removeCancelled(Map<String, SettableApiFuture<Void>> pending) {
+    for (Map.Entry<String, SettableApiFuture<Void>> entry : pending.entrySet()) {
+      if (entry.getValue().isDone()) {
+        pending.remove(entry.getKey());
+      }
+    }
+  }
+
+  private static void failAll(Map<String, SettableApiFuture<Void>> pending, SpannerException e) {
+    for (String name : pending.keySet()) {
+      SettableApiFuture<Void> result = pending.remove(name);
+      if (result != null) {
+        result.setException(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import org.threeten.bp.Duration;
+
+/**
+ * Options for hedging single-use stale reads that are executed through {@link
+ * DatabaseClient#singleUse(TimestampBound)} with a {@link TimestampBound#ofExactStaleness(long,
+ * java.util.concurrent.TimeUnit)} or {@link TimestampBound#ofMaxStaleness(long,
+ * java.util.concurrent.TimeUnit)} bound.
+ *
+ * <p>If the first response of a hedged read has not been received within the hedging delay, the
+ * client sends the same read on a different session and uses the response of the stream that
+ * returns its first response first. The other stream is cancelled. The hedging delay is the
+ * configured percentile of the first-response latencies of earlier hedged reads of the same {@link
+ * DatabaseClient}. The number of additional reads is limited to a percentage of all hedged reads.
+ */
+public class HedgingOptions {
+  private static final double DEFAULT_LATENCY_PERCENTILE = 95d;
+  private static final double DEFAULT_BUDGET_PERCENT = 5d;
+  private static final Duration DEFAULT_MIN_DELAY = Duration.ofMillis(1L);
+  private static final Duration DEFAULT_INITIAL_DELAY = Duration.ofMillis(50L);
+
+  private final double latencyPercentile;
+  private final double budgetPercent;
+  private final Duration minDelay;
+  private final Duration initialDelay;
+
+  private HedgingOptions(Builder builder) {
+    this.latencyPercentile = builder.latencyPercentile;
+    this.budgetPercent = builder.budgetPercent;
+    this.minDelay = builder.minDelay;
+    this.initialDelay = builder.initialDelay;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the percentile of the observed first-response latencies that a read may take before a
+   * second read is sent.
+   */
+  public double getLatencyPercentile() {
+    return latencyPercentile;
+  }
+
+  /** Returns the maximum percentage of hedged reads that may send a second read. */
+  public double getBudgetPercent() {
+    return budgetPercent;
+  }
+
+  /** Returns the minimum time to wait for the first response before a second read is sent. */
+  public Duration getMinDelay() {
+    return minDelay;
+  }
+
+  /**
+   * Returns the time to wait for the first response before a second read is sent until enough
+   * latencies have been observed to compute the percentile.
+   */
+  public Duration getInitialDelay() {
+    return initialDelay;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("latencyPercentile", latencyPercentile)
+        .add("budgetPercent", budgetPercent)
+        .add("minDelay", minDelay)
+        .add("initialDelay", initialDelay)
+        .toString();
+  }
+
+  /** Builder for creating {@link HedgingOptions}. */
+  public static class Builder {
+    private double latencyPercentile = DEFAULT_LATENCY_PERCENTILE;
+    private double budgetPercent = DEFAULT_BUDGET_PERCENT;
+    private Duration minDelay = DEFAULT_MIN_DELAY;
+    private Duration initialDelay = DEFAULT_INITIAL_DELAY;
+
+    private Builder() {}
+
+    /**
+     * Sets the percentile of the observed first-response latencies that a read may take before a
+     * second read is sent. The default is 95.
+     */
+    public Builder setLatencyPercentile(double latencyPercentile) {
+      Preconditions.checkArgument(
+          latencyPercentile > 0d && latencyPercentile < 100d,
+          "latencyPercentile must be between 0 and 100 (exclusive)");
+      this.latencyPercentile = latencyPercentile;
+      return this;
+    }
+
+    /**
+     * Sets the maximum percentage of hedged reads that may send a second read. This limits the
+     * additional load that hedging generates. The default is 5.
+     */
+    public Builder setBudgetPercent(double budgetPercent) {
+      Preconditions.checkArgument(
+          budgetPercent >= 0d && budgetPercent <= 100d,
+          "budgetPercent must be between 0 and 100 (inclusive)");
+      this.budgetPercent = budgetPercent;
+      return this;
+    }
+
+    /**
+     * Sets the minimum time to wait for the first response before a second read is sent. The
+     * default is 1 millisecond.
+     */
+    public Builder setMinDelay(Duration minDelay) {
+      Preconditions.checkArgument(!minDelay.isNegative(), "minDelay must be >= 0");
+      this.minDelay = minDelay;
+      return this;
+    }
+
+    /**
+     * Sets the time to wait for the first response before a second read is sent until enough
+     * latencies have been observed to compute the percentile. The default is 50 milliseconds.
+     */
+    public Builder setInitialDelay(Duration initialDelay) {
+      Preconditions.checkArgument(!initialDelay.isNegative(), "initialDelay must be >= 0");
+      this.initialDelay = initialDelay;
+      return this;
+    }
+
+    public HedgingOptions build() {
+      return new HedgingOptions(this);
+    }
+  }
+}
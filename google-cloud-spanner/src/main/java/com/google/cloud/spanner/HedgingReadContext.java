@@ -0,0 +1,482 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.cloud.spanner.Options.QueryOption;
+import com.google.cloud.spanner.Options.ReadOption;
+import com.google.cloud.spanner.SessionPool.PooledSession;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * {@link ReadContext} for single-use stale reads that sends a second read on a different session if
+ * the first response of the read has not been received within the hedging delay. The {@link
+ * ResultSet} of the read that returns its first response first is returned to the user, and the
+ * other read is cancelled. See {@link HedgingOptions}.
+ */
+final class HedgingReadContext implements ReadContext {
+  private static final int RUNNING = 0;
+  private static final int COMPLETED = 1;
+  private static final int ABANDONED = 2;
+
+  /** The state that is shared by all hedged reads of a {@link DatabaseClient}. */
+  static final class Hedger {
+    private static final int MAX_LATENCIES = 1024;
+    private static final int MIN_LATENCIES = 100;
+    private static final int RECOMPUTE_INTERVAL = 64;
+
+    private final HedgingOptions options;
+    private final ExecutorService executor;
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong hedgedReads = new AtomicLong();
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private final long[] latencies = new long[MAX_LATENCIES];
+
+    @GuardedBy("lock")
+    private int numLatencies;
+
+    @GuardedBy("lock")
+    private int nextLatency;
+
+    @GuardedBy("lock")
+    private int latenciesSinceRecompute;
+
+    /** The hedging delay in nanoseconds, or -1 if not enough latencies have been recorded. */
+    private volatile long delayNanos = -1L;
+
+    Hedger(HedgingOptions options) {
+      this(
+          options,
+          Executors.newCachedThreadPool(
+              new ThreadFactoryBuilder()
+                  .setDaemon(true)
+                  .setNameFormat("spanner-hedged-read-%d")
+                  .build()));
+    }
+
+    @VisibleForTesting
+    Hedger(HedgingOptions options, ExecutorService executor) {
+      this.options = checkNotNull(options);
+      this.executor = checkNotNull(executor);
+    }
+
+    /** Returns the time in nanoseconds to wait for the first response before hedging a read. */
+    long getDelayNanos() {
+      long delay = delayNanos;
+      if (delay < 0L) {
+        return options.getInitialDelay().toNanos();
+      }
+      return Math.max(delay, options.getMinDelay().toNanos());
+    }
+
+    void recordFirstResponseLatency(long latencyNanos) {
+      synchronized (lock) {
+        latencies[nextLatency] = latencyNanos;
+        nextLatency = (nextLatency + 1) % MAX_LATENCIES;
+        numLatencies = Math.min(numLatencies + 1, MAX_LATENCIES);
+        latenciesSinceRecompute++;
+        if (numLatencies >= MIN_LATENCIES && latenciesSinceRecompute >= RECOMPUTE_INTERVAL) {
+          long[] sorted = Arrays.copyOf(latencies, numLatencies);
+          Arrays.sort(sorted);
+          int index = (int) Math.ceil(options.getLatencyPercentile() / 100d * sorted.length) - 1;
+          delayNanos = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+          latenciesSinceRecompute = 0;
+        }
+      }
+    }
+
+    /** Returns true if the budget allows one more read to be hedged. */
+    boolean tryAcquireHedge() {
+      long hedged = hedgedReads.get();
+      if ((hedged + 1L) * 100d > options.getBudgetPercent() * reads.get()) {
+        return false;
+      }
+      return hedgedReads.compareAndSet(hedged, hedged + 1L);
+    }
+
+    @VisibleForTesting
+    long getReadCount() {
+      return reads.get();
+    }
+
+    @VisibleForTesting
+    long getHedgedReadCount() {
+      return hedgedReads.get();
+    }
+
+    void close() {
+      executor.shutdown();
+    }
+  }
+
+  private final SessionPool pool;
+  private final SessionPriority priority;
+  private final TimestampBound bound;
+  private final Hedger hedger;
+  private boolean used;
+  private HedgedResultSet resultSet;
+
+  HedgingReadContext(SessionPool pool, TimestampBound bound, Hedger hedger) {
+    this(pool, SessionPriority.NORMAL, bound, hedger);
+  }
+
+  HedgingReadContext(
+      SessionPool pool, SessionPriority priority, TimestampBound bound, Hedger hedger) {
+    this.pool = pool;
+    this.priority = priority;
+    this.bound = bound;
+    this.hedger = hedger;
+  }
+
+  /**
+   * A single attempt of a hedged read. The attempt runs until it has received its first response,
+   * and is then either completed or abandoned. A completed attempt is released by the {@link
+   * HedgedResultSet}, and an abandoned attempt is released by the thread that runs the attempt.
+   */
+  private final class Attempt implements Runnable {
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+    private final AtomicBoolean released = new AtomicBoolean();
+    private final Function<ReadContext, ResultSet> operation;
+    private final BlockingQueue<Attempt> completed;
+    private volatile PooledSession session;
+    private volatile ReadContext readContext;
+    private volatile ResultSet resultSet;
+    private boolean hasRow;
+    private SpannerException error;
+
+    private Attempt(
+        @Nullable PooledSession session,
+        Function<ReadContext, ResultSet> operation,
+        BlockingQueue<Attempt> completed) {
+      this.operation = operation;
+      this.completed = completed;
+      if (session != null) {
+        start(session);
+      }
+    }
+
+    private void start(PooledSession session) {
+      this.session = session;
+      this.readContext = session.delegate.singleUse(bound);
+      this.resultSet = operation.apply(readContext);
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (session == null) {
+          start(pool.getReadSession(priority));
+        }
+        while (state.get() == RUNNING) {
+          try {
+            hasRow = resultSet.next();
+            session.markUsed();
+            break;
+          } catch (SessionNotFoundException e) {
+            // The stream and the read context of the lost session are replaced by new ones.
+            resultSet.close();
+            readContext.close();
+            start(pool.replaceReadSession(e, session));
+          }
+        }
+      } catch (SpannerException e) {
+        error = e;
+      } catch (RuntimeException e) {
+        error = SpannerExceptionFactory.newSpannerException(e);
+      }
+      if (state.compareAndSet(RUNNING, COMPLETED)) {
+        completed.add(this);
+      } else {
+        release();
+      }
+    }
+
+    /** Cancels this attempt if it is still running, or releases it if it has completed. */
+    private void abandon() {
+      if (state.compareAndSet(RUNNING, ABANDONED)) {
+        ResultSet rs = resultSet;
+        if (rs != null) {
+          rs.close();
+        }
+      } else if (state.get() == COMPLETED) {
+        release();
+      }
+    }
+
+    private void release() {
+      if (released.compareAndSet(false, true)) {
+        if (resultSet != null) {
+          resultSet.close();
+        }
+        if (readContext != null) {
+          readContext.close();
+        }
+        if (session != null) {
+          session.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * {@link ResultSet} that starts the hedged read when {@link #next()} is called for the first
+   * time, and then forwards all calls to the {@link ResultSet} of the attempt that returned its
+   * first response first.
+   */
+  private final class HedgedResultSet extends ForwardingResultSet {
+    private final Function<ReadContext, ResultSet> operation;
+    private final Attempt primary;
+    private Attempt hedge;
+    private Attempt winner;
+    private boolean beforeFirst = true;
+    private boolean closed;
+
+    private HedgedResultSet(Attempt primary, Function<ReadContext, ResultSet> operation) {
+      super(primary.resultSet);
+      this.primary = primary;
+      this.operation = operation;
+    }
+
+    @Override
+    public boolean next() throws SpannerException {
+      boolean hasRow;
+      if (beforeFirst) {
+        beforeFirst = false;
+        hasRow = race();
+      } else {
+        try {
+          hasRow = super.next();
+        } catch (SpannerException e) {
+          close();
+          throw e;
+        }
+      }
+      if (!hasRow) {
+        close();
+      }
+      return hasRow;
+    }
+
+    private boolean race() {
+      BlockingQueue<Attempt> completed = primary.completed;
+      long startNanos = System.nanoTime();
+      // Run the attempts in the context of the caller, so the deadline, cancellation and trace span
+      // of the caller also apply to the reads and to checking out a session for the hedged read.
+      Context context = Context.current();
+      Deadline deadline = context.getDeadline();
+      try {
+        hedger.executor.execute(context.wrap(primary));
+      } catch (RejectedExecutionException e) {
+        close();
+        throw new IllegalStateException("The database client has been closed", e);
+      }
+      int running = 1;
+      SpannerException error = null;
+      try {
+        Attempt attempt = completed.poll(hedger.getDelayNanos(), TimeUnit.NANOSECONDS);
+        if (attempt == null && hedger.tryAcquireHedge()) {
+          hedge = new Attempt(null, operation, completed);
+          try {
+            hedger.executor.execute(context.wrap(hedge));
+            running++;
+          } catch (RejectedExecutionException e) {
+            hedge = null;
+          }
+        }
+        while (true) {
+          if (attempt == null) {
+            attempt =
+                deadline == null
+                    ? completed.take()
+                    : completed.poll(
+                        deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+            if (attempt == null) {
+              close();
+              throw SpannerExceptionFactory.newSpannerException(
+                  ErrorCode.DEADLINE_EXCEEDED,
+                  "Deadline exceeded while waiting for a read: " + deadline);
+            }
+          }
+          running--;
+          if (attempt.error == null) {
+            winner = attempt;
+            break;
+          }
+          // Prefer the error of the primary read if both reads fail.
+          if (error == null || attempt == primary) {
+            error = attempt.error;
+          }
+          attempt.release();
+          if (running == 0) {
+            closed = true;
+            throw error;
+          }
+          attempt = null;
+        }
+      } catch (InterruptedException e) {
+        close();
+        throw SpannerExceptionFactory.propagateInterrupt(e);
+      }
+      hedger.recordFirstResponseLatency(System.nanoTime() - startNanos);
+      if (running > 0) {
+        (winner == primary ? hedge : primary).abandon();
+      }
+      replaceDelegate(winner.resultSet);
+      return winner.hasRow;
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (beforeFirst) {
+        primary.release();
+      } else {
+        primary.abandon();
+        if (hedge != null) {
+          hedge.abandon();
+        }
+      }
+    }
+  }
+
+  private ResultSet hedge(Function<ReadContext, ResultSet> operation) {
+    checkState(!used, "Cannot use a single-read ReadContext for multiple reads");
+    used = true;
+    hedger.reads.incrementAndGet();
+    PooledSession session = pool.getReadSession(priority);
+    Attempt primary;
+    try {
+      primary = new Attempt(session, operation, new LinkedBlockingQueue<Attempt>());
+    } catch (RuntimeException e) {
+      session.close();
+      throw e;
+    }
+    resultSet = new HedgedResultSet(primary, operation);
+    return resultSet;
+  }
+
+  @Override
+  public ResultSet read(
+      final String table,
+      final KeySet keys,
+      final Iterable<String> columns,
+      final ReadOption... options) {
+    return hedge(
+        new Function<ReadContext, ResultSet>() {
+          @Override
+          public ResultSet apply(ReadContext context) {
+            return context.read(table, keys, columns, options);
+          }
+        });
+  }
+
+  @Override
+  public ResultSet readUsingIndex(
+      final String table,
+      final String index,
+      final KeySet keys,
+      final Iterable<String> columns,
+      final ReadOption... options) {
+    return hedge(
+        new Function<ReadContext, ResultSet>() {
+          @Override
+          public ResultSet apply(ReadContext context) {
+            return context.readUsingIndex(table, index, keys, columns, options);
+          }
+        });
+  }
+
+  @Nullable
+  @Override
+  public Struct readRow(String table, Key key, Iterable<String> columns) {
+    try (ResultSet resultSet = read(table, KeySet.singleKey(key), columns)) {
+      return consumeSingleRow(resultSet);
+    }
+  }
+
+  @Nullable
+  @Override
+  public Struct readRowUsingIndex(String table, String index, Key key, Iterable<String> columns) {
+    try (ResultSet resultSet = readUsingIndex(table, index, KeySet.singleKey(key), columns)) {
+      return consumeSingleRow(resultSet);
+    }
+  }
+
+  @Override
+  public ResultSet executeQuery(final Statement statement, final QueryOption... options) {
+    return hedge(
+        new Function<ReadContext, ResultSet>() {
+          @Override
+          public ResultSet apply(ReadContext context) {
+            return context.executeQuery(statement, options);
+          }
+        });
+  }
+
+  @Override
+  public ResultSet analyzeQuery(final Statement statement, final QueryAnalyzeMode queryMode) {
+    return hedge(
+        new Function<ReadContext, ResultSet>() {
+          @Override
+          public ResultSet apply(ReadContext context) {
+            return context.analyzeQuery(statement, queryMode);
+          }
+        });
+  }
+
+  @Override
+  public void close() {
+    if (resultSet != null) {
+      resultSet.close();
+    }
+  }
+
+  private static Struct consumeSingleRow(ResultSet resultSet) {
+    if (!resultSet.next()) {
+      return null;
+    }
+    Struct row = resultSet.getCurrentRowAsStruct();
+    if (resultSet.next()) {
+      throw SpannerExceptionFactory.newSpannerException(
+          ErrorCode.INTERNAL, "Multiple rows returned for single key");
+    }
+    return row;
+  }
+}
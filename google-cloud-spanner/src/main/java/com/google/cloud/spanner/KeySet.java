@@ -16,8 +16,14 @@
 
 package com.google.cloud.spanner;
 
+import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.primitives.Longs;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -26,20 +32,43 @@ import java.util.Objects;
  *
  * <p>If the same key is specified multiple times in the set (for example if two ranges, two keys,
  * or a key and a range overlap), the Cloud Spanner backend behaves as if the key were only
- * specified once. However, the {@code KeySet} object itself does not perform any de-duplication.
+ * specified once. However, the {@code KeySet} object itself does not perform any de-duplication,
+ * unless it is normalized with {@link #normalize()}.
+ *
+ * <p>Large numbers of keys that consist of a single {@code INT64} value can be added with {@link
+ * Builder#addInt64Keys(long...)}. These keys are stored as primitive values, and are only converted
+ * to {@link Key} instances when they are iterated with {@link #getKeys()}.
  *
  * <p>{@code KeySet} instances are immutable.
  */
 public final class KeySet implements Serializable {
   private static final long serialVersionUID = -542201151451064347L;
+  private static final long[] EMPTY_INT64_KEYS = new long[0];
+
+  private static final Function<Long, Key> INT64_TO_KEY =
+      new Function<Long, Key>() {
+        @Override
+        public Key apply(Long input) {
+          return Key.of(input);
+        }
+      };
+
   private final boolean all;
   private final ImmutableList<Key> keys;
   private final ImmutableList<KeyRange> ranges;
+  /** Keys that consist of a single INT64 value. Null for instances serialized by older versions. */
+  private final long[] int64Keys;
 
   private KeySet(boolean all, ImmutableList<Key> keys, ImmutableList<KeyRange> ranges) {
+    this(all, keys, ranges, EMPTY_INT64_KEYS);
+  }
+
+  private KeySet(
+      boolean all, ImmutableList<Key> keys, ImmutableList<KeyRange> ranges, long[] int64Keys) {
     this.all = all;
     this.keys = keys;
     this.ranges = ranges;
+    this.int64Keys = int64Keys;
   }
 
   /**
@@ -81,6 +110,8 @@ public final class KeySet implements Serializable {
     private boolean all;
     private ImmutableList.Builder<Key> keys;
     private ImmutableList.Builder<KeyRange> ranges;
+    private long[] int64Keys = EMPTY_INT64_KEYS;
+    private int numInt64Keys;
 
     private Builder() {}
 
@@ -92,6 +123,7 @@ public final class KeySet implements Serializable {
       if (!set.ranges.isEmpty()) {
         ranges = ImmutableList.<KeyRange>builder().addAll(set.ranges);
       }
+      addInt64Keys(set.getInt64Keys());
     }
 
     /**
@@ -106,6 +138,23 @@ public final class KeySet implements Serializable {
       return this;
     }
 
+    /**
+     * Adds keys that each consist of a single {@code INT64} value to the key set. This is
+     * equivalent to calling {@code addKey(Key.of(key))} for each key, except that these keys are
+     * returned by {@link KeySet#getKeys()} after all keys that were added with {@link
+     * #addKey(Key)}. The keys are stored as primitive values. Use this method when reading large
+     * numbers of rows of a table or index with a single {@code INT64} key column.
+     */
+    public Builder addInt64Keys(long... keys) {
+      int size = numInt64Keys + keys.length;
+      if (size > int64Keys.length) {
+        int64Keys = Arrays.copyOf(int64Keys, Math.max(size, int64Keys.length * 2));
+      }
+      System.arraycopy(keys, 0, int64Keys, numInt64Keys, keys.length);
+      numInt64Keys = size;
+      return this;
+    }
+
     /** Adds a range to the key set. See {@link KeyRange} for details of how to specify ranges. */
     public Builder addRange(KeyRange range) {
       if (ranges == null) {
@@ -125,7 +174,8 @@ public final class KeySet implements Serializable {
       return new KeySet(
           all,
           keys != null ? keys.build() : ImmutableList.<Key>of(),
-          ranges != null ? ranges.build() : ImmutableList.<KeyRange>of());
+          ranges != null ? ranges.build() : ImmutableList.<KeyRange>of(),
+          numInt64Keys == 0 ? EMPTY_INT64_KEYS : Arrays.copyOf(int64Keys, numInt64Keys));
     }
   }
 
@@ -134,7 +184,64 @@ public final class KeySet implements Serializable {
     // Design note: returns Iterable<> rather than List<> since future internal representations
     // may not maintain a List<Key> internally, but rather decode the rep and reconstruct Keys on
     // the fly.
-    return keys;
+    long[] int64Keys = getInt64Keys();
+    if (int64Keys.length == 0) {
+      return keys;
+    }
+    return Iterables.concat(keys, Iterables.transform(Longs.asList(int64Keys), INT64_TO_KEY));
+  }
+
+  private long[] getInt64Keys() {
+    return int64Keys == null ? EMPTY_INT64_KEYS : int64Keys;
+  }
+
+  /** Returns the number of keys in this set. Ranges are not counted. */
+  int getKeyCount() {
+    return keys.size() + getInt64Keys().length;
+  }
+
+  /**
+   * Splits this set into sets that each contain at most {@code maxKeys} keys. The ranges of this
+   * set are added to the first set. A set that contains all keys, or that contains at most {@code
+   * maxKeys} keys, is not split. The {@code INT64} keys that were added with {@link
+   * Builder#addInt64Keys(long...)} are sorted before they are split, so that each set covers a
+   * separate part of the key space.
+   */
+  List<KeySet> split(int maxKeys) {
+    if (all || getKeyCount() <= maxKeys) {
+      return ImmutableList.of(this);
+    }
+    List<KeySet> result = new ArrayList<>();
+    Builder builder = newBuilder();
+    int count = 0;
+    for (KeyRange range : ranges) {
+      builder.addRange(range);
+    }
+    for (Key key : keys) {
+      if (count == maxKeys) {
+        result.add(builder.build());
+        builder = newBuilder();
+        count = 0;
+      }
+      builder.addKey(key);
+      count++;
+    }
+    long[] sorted = getInt64Keys().clone();
+    Arrays.sort(sorted);
+    int offset = 0;
+    while (offset < sorted.length) {
+      if (count == maxKeys) {
+        result.add(builder.build());
+        builder = newBuilder();
+        count = 0;
+      }
+      int length = Math.min(maxKeys - count, sorted.length - offset);
+      builder.addInt64Keys(Arrays.copyOfRange(sorted, offset, offset + length));
+      offset += length;
+      count += length;
+    }
+    result.add(builder.build());
+    return result;
   }
 
   /** Returns the ranges in this set. */
@@ -147,6 +254,21 @@ public final class KeySet implements Serializable {
     return all;
   }
 
+  /**
+   * Returns a key set that contains the same rows as this set, but that is cheaper to send to and
+   * to execute on Cloud Spanner. The keys of the returned set are sorted and de-duplicated,
+   * overlapping and adjacent ranges are merged, runs of keys that only differ by consecutive {@code
+   * INT64} values in their last part are replaced by a closed range, and keys that are covered by a
+   * range are removed.
+   *
+   * <p>Normalization orders keys like Cloud Spanner orders ascending key columns. It must therefore
+   * only be used for key sets of tables and indexes whose key columns are all in ascending order
+   * ({@code ASC}, which is the default).
+   */
+  public KeySet normalize() {
+    return KeySetNormalizer.normalize(this);
+  }
+
   /** Returns a builder initialized with the contents of this set. */
   public Builder toBuilder() {
     return new Builder(this);
@@ -165,6 +287,12 @@ public final class KeySet implements Serializable {
       }
       key.toString(b);
     }
+    for (long key : getInt64Keys()) {
+      if (size++ > 0) {
+        b.append(',');
+      }
+      b.append('[').append(key).append(']');
+    }
     for (KeyRange range : ranges) {
       if (size++ > 0) {
         b.append(',');
@@ -190,18 +318,28 @@ public final class KeySet implements Serializable {
       return false;
     }
     KeySet that = (KeySet) o;
-    return all == that.all && keys.equals(that.keys) && ranges.equals(that.ranges);
+    // Keys that were added with addInt64Keys are equal to the same keys added with addKey.
+    return all == that.all
+        && ranges.equals(that.ranges)
+        && Iterables.elementsEqual(getKeys(), that.getKeys());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(all, keys, ranges);
+    int keysHashCode = 1;
+    for (Key key : getKeys()) {
+      keysHashCode = 31 * keysHashCode + key.hashCode();
+    }
+    return Objects.hash(all, keysHashCode, ranges);
   }
 
   void appendToProto(com.google.spanner.v1.KeySet.Builder proto) {
     for (Key key : keys) {
       proto.addKeys(key.toProto());
     }
+    for (long key : getInt64Keys()) {
+      proto.addKeysBuilder().addValuesBuilder().setStringValue(Long.toString(key));
+    }
     for (KeyRange range : ranges) {
       proto.addRanges(range.toProto());
     }
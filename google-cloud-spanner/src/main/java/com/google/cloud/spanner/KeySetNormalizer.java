@@ -0,0 +1,389 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.api.core.InternalApi;
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.KeyRange.Endpoint;
+import com.google.common.primitives.UnsignedBytes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Normalizes a {@link KeySet} by sorting and de-duplicating its keys, merging overlapping and
+ * adjacent ranges, collapsing runs of consecutive integer keys into ranges, and removing keys that
+ * are covered by a range. See {@link KeySet#normalize()}.
+ *
+ * <p>Keys are ordered like Cloud Spanner orders the values of ascending key columns: {@code NULL}
+ * before all other values, {@code NaN} before all other {@code FLOAT64} values, {@code STRING}
+ * values by their UTF-8 encoding and {@code BYTES} values as unsigned bytes. This order is also
+ * used by {@link com.google.cloud.spanner.tools.BulkLoader} to sort mutations by key.
+ */
+@InternalApi
+public final class KeySetNormalizer {
+  /** The order of Cloud Spanner keys of the same table or index with ascending key columns. */
+  static final Comparator<Key> KEY_ORDER =
+      new Comparator<Key>() {
+        @Override
+        public int compare(Key k1, Key k2) {
+          int res = comparePrefix(k1, k2);
+          return res != 0 ? res : Integer.compare(k1.size(), k2.size());
+        }
+      };
+
+  private static final Comparator<byte[]> BYTES_ORDER = UnsignedBytes.lexicographicalComparator();
+
+  private static final Comparator<Range> RANGE_ORDER =
+      new Comparator<Range>() {
+        @Override
+        public int compare(Range r1, Range r2) {
+          return compareBounds(r1.start, r1.startAfter, r2.start, r2.startAfter);
+        }
+      };
+
+  private KeySetNormalizer() {}
+
+  /**
+   * A key range as a pair of positions in the key space. A position is a key together with a flag
+   * that indicates whether the position is before or after all keys that start with the key.
+   */
+  private static final class Range {
+    private final Key start;
+    private final boolean startAfter;
+    private Key end;
+    private boolean endAfter;
+
+    private Range(Key start, boolean startAfter, Key end, boolean endAfter) {
+      this.start = start;
+      this.startAfter = startAfter;
+      this.end = end;
+      this.endAfter = endAfter;
+    }
+
+    private static Range of(KeyRange range) {
+      return new Range(
+          range.getStart(),
+          range.getStartType() == Endpoint.OPEN,
+          range.getEnd(),
+          range.geEndType() == Endpoint.CLOSED);
+    }
+
+    private boolean isEmpty() {
+      return compareBounds(start, startAfter, end, endAfter) >= 0;
+    }
+
+    private boolean contains(Key key) {
+      return compareBounds(start, startAfter, key, false) <= 0
+          && compareBounds(key, true, end, endAfter) <= 0;
+    }
+
+    private KeyRange toKeyRange() {
+      return KeyRange.newBuilder()
+          .setStart(start)
+          .setStartType(startAfter ? Endpoint.OPEN : Endpoint.CLOSED)
+          .setEnd(end)
+          .setEndType(endAfter ? Endpoint.CLOSED : Endpoint.OPEN)
+          .build();
+    }
+  }
+
+  static KeySet normalize(KeySet keySet) {
+    if (keySet.isAll()) {
+      return KeySet.all();
+    }
+    // Single INT64 keys are handled as primitive values.
+    List<Key> keys = new ArrayList<>();
+    long[] int64Keys = new long[keySet.getKeyCount()];
+    int numInt64Keys = 0;
+    for (Key key : keySet.getKeys()) {
+      if (key.size() == 1 && key.getParts().iterator().next() instanceof Long) {
+        int64Keys[numInt64Keys++] = (Long) key.getParts().iterator().next();
+      } else {
+        keys.add(key);
+      }
+    }
+    List<Range> ranges = new ArrayList<>();
+    for (KeyRange range : keySet.getRanges()) {
+      Range r = Range.of(range);
+      if (!r.isEmpty()) {
+        ranges.add(r);
+      }
+    }
+    int64Keys = collapseInt64Runs(sortedDistinct(int64Keys, numInt64Keys), ranges);
+    keys = collapseRuns(sortedDistinct(keys), ranges);
+    ranges = merge(ranges);
+
+    KeySet.Builder builder = KeySet.newBuilder();
+    for (Key key : keys) {
+      if (!isCovered(key, ranges)) {
+        builder.addKey(key);
+      }
+    }
+    long[] uncovered = new long[int64Keys.length];
+    int numUncovered = 0;
+    for (long key : int64Keys) {
+      if (!isCovered(Key.of(key), ranges)) {
+        uncovered[numUncovered++] = key;
+      }
+    }
+    if (numUncovered > 0) {
+      builder.addInt64Keys(Arrays.copyOf(uncovered, numUncovered));
+    }
+    for (Range range : ranges) {
+      builder.addRange(range.toKeyRange());
+    }
+    return builder.build();
+  }
+
+  private static long[] sortedDistinct(long[] values, int length) {
+    long[] sorted = Arrays.copyOf(values, length);
+    Arrays.sort(sorted);
+    int numDistinct = 0;
+    for (int i = 0; i < length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        sorted[numDistinct++] = sorted[i];
+      }
+    }
+    return Arrays.copyOf(sorted, numDistinct);
+  }
+
+  private static List<Key> sortedDistinct(List<Key> keys) {
+    Collections.sort(keys, KEY_ORDER);
+    List<Key> res = new ArrayList<>(keys.size());
+    for (Key key : keys) {
+      if (res.isEmpty() || KEY_ORDER.compare(res.get(res.size() - 1), key) != 0) {
+        res.add(key);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Adds a closed range to {@code ranges} for each run of at least two consecutive sorted values
+   * and returns the values that are not part of such a run.
+   */
+  private static long[] collapseInt64Runs(long[] sorted, List<Range> ranges) {
+    long[] remaining = new long[sorted.length];
+    int numRemaining = 0;
+    int runStart = 0;
+    for (int i = 1; i <= sorted.length; i++) {
+      if (i < sorted.length && sorted[i - 1] != Long.MAX_VALUE && sorted[i] == sorted[i - 1] + 1) {
+        continue;
+      }
+      if (i - runStart > 1) {
+        ranges.add(new Range(Key.of(sorted[runStart]), false, Key.of(sorted[i - 1]), true));
+      } else if (runStart < sorted.length) {
+        remaining[numRemaining++] = sorted[runStart];
+      }
+      runStart = i;
+    }
+    return Arrays.copyOf(remaining, numRemaining);
+  }
+
+  /**
+   * Adds a closed range to {@code ranges} for each run of at least two sorted keys that only differ
+   * in their last part, where the last parts are consecutive {@code INT64} values. Returns the keys
+   * that are not part of such a run.
+   */
+  private static List<Key> collapseRuns(List<Key> sorted, List<Range> ranges) {
+    List<Key> remaining = new ArrayList<>();
+    int runStart = 0;
+    for (int i = 1; i <= sorted.size(); i++) {
+      if (i < sorted.size() && isSuccessor(sorted.get(i - 1), sorted.get(i))) {
+        continue;
+      }
+      if (i - runStart > 1) {
+        ranges.add(new Range(sorted.get(runStart), false, sorted.get(i - 1), true));
+      } else if (runStart < sorted.size()) {
+        remaining.add(sorted.get(runStart));
+      }
+      runStart = i;
+    }
+    return remaining;
+  }
+
+  private static boolean isSuccessor(Key key, Key next) {
+    if (key.size() == 0 || key.size() != next.size()) {
+      return false;
+    }
+    Iterator<Object> it1 = key.getParts().iterator();
+    Iterator<Object> it2 = next.getParts().iterator();
+    for (int i = 0; i < key.size() - 1; i++) {
+      if (compareParts(it1.next(), it2.next()) != 0) {
+        return false;
+      }
+    }
+    Object last = it1.next();
+    Object nextLast = it2.next();
+    return last instanceof Long
+        && nextLast instanceof Long
+        && (Long) last != Long.MAX_VALUE
+        && (Long) nextLast == (Long) last + 1;
+  }
+
+  /** Sorts the ranges and merges ranges that overlap or are adjacent. */
+  private static List<Range> merge(List<Range> ranges) {
+    Collections.sort(ranges, RANGE_ORDER);
+    List<Range> res = new ArrayList<>(ranges.size());
+    for (Range range : ranges) {
+      Range last = res.isEmpty() ? null : res.get(res.size() - 1);
+      if (last != null
+          && compareBounds(range.start, range.startAfter, last.end, last.endAfter) <= 0) {
+        if (compareBounds(range.end, range.endAfter, last.end, last.endAfter) > 0) {
+          last.end = range.end;
+          last.endAfter = range.endAfter;
+        }
+      } else {
+        res.add(range);
+      }
+    }
+    return res;
+  }
+
+  /** Returns true if the key is covered by one of the given sorted, non-overlapping ranges. */
+  private static boolean isCovered(Key key, List<Range> ranges) {
+    // Find the last range that starts at or before the key.
+    int low = 0;
+    int high = ranges.size() - 1;
+    int candidate = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      Range range = ranges.get(mid);
+      if (compareBounds(range.start, range.startAfter, key, false) <= 0) {
+        candidate = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return candidate >= 0 && ranges.get(candidate).contains(key);
+  }
+
+  /**
+   * Compares two positions in the key space. A position with {@code after == false} is before all
+   * keys that start with the given key, and a position with {@code after == true} is after all keys
+   * that start with the given key.
+   */
+  private static int compareBounds(Key k1, boolean after1, Key k2, boolean after2) {
+    int res = comparePrefix(k1, k2);
+    if (res != 0) {
+      return res;
+    }
+    if (k1.size() == k2.size()) {
+      return Boolean.compare(after1, after2);
+    }
+    if (k1.size() < k2.size()) {
+      // k1 is a prefix of k2.
+      return after1 ? 1 : -1;
+    }
+    return after2 ? -1 : 1;
+  }
+
+  /** Compares the parts that the two keys have in common. */
+  private static int comparePrefix(Key k1, Key k2) {
+    Iterator<Object> it1 = k1.getParts().iterator();
+    Iterator<Object> it2 = k2.getParts().iterator();
+    while (it1.hasNext() && it2.hasNext()) {
+      int res = compareParts(it1.next(), it2.next());
+      if (res != 0) {
+        return res;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Compares two parts of a {@link Key} in the order that Cloud Spanner uses for the values of
+   * ascending key columns. {@code null} is smaller than any other value.
+   */
+  @InternalApi
+  public static int compareParts(Object o1, Object o2) {
+    if (o1 == null || o2 == null) {
+      return o1 == null ? (o2 == null ? 0 : -1) : 1;
+    }
+    int rank1 = rank(o1);
+    int rank2 = rank(o2);
+    if (rank1 != rank2) {
+      // Keys of the same table or index have the same types. This only gives a total order.
+      return Integer.compare(rank1, rank2);
+    }
+    if (o1 instanceof Boolean) {
+      return Boolean.compare((Boolean) o1, (Boolean) o2);
+    } else if (o1 instanceof Long) {
+      return Long.compare((Long) o1, (Long) o2);
+    } else if (o1 instanceof Double) {
+      return compareDoubles((Double) o1, (Double) o2);
+    } else if (o1 instanceof String) {
+      return compareStrings((String) o1, (String) o2);
+    } else if (o1 instanceof ByteArray) {
+      return BYTES_ORDER.compare(((ByteArray) o1).toByteArray(), ((ByteArray) o2).toByteArray());
+    } else if (o1 instanceof Timestamp) {
+      return ((Timestamp) o1).compareTo((Timestamp) o2);
+    } else {
+      return ((Date) o1).compareTo((Date) o2);
+    }
+  }
+
+  private static int rank(Object part) {
+    if (part instanceof Boolean) {
+      return 0;
+    } else if (part instanceof Long) {
+      return 1;
+    } else if (part instanceof Double) {
+      return 2;
+    } else if (part instanceof String) {
+      return 3;
+    } else if (part instanceof ByteArray) {
+      return 4;
+    } else if (part instanceof Timestamp) {
+      return 5;
+    } else if (part instanceof Date) {
+      return 6;
+    }
+    throw new AssertionError("Illegal key part: " + part.getClass());
+  }
+
+  /** Cloud Spanner orders NaN before all other values, and treats -0.0 and 0.0 as equal. */
+  private static int compareDoubles(double d1, double d2) {
+    if (Double.isNaN(d1) || Double.isNaN(d2)) {
+      return Double.isNaN(d1) ? (Double.isNaN(d2) ? 0 : -1) : 1;
+    }
+    return d1 == d2 ? 0 : (d1 < d2 ? -1 : 1);
+  }
+
+  /** Compares strings by code point, which is the same as comparing their UTF-8 encodings. */
+  private static int compareStrings(String s1, String s2) {
+    int i1 = 0;
+    int i2 = 0;
+    while (i1 < s1.length() && i2 < s2.length()) {
+      int c1 = s1.codePointAt(i1);
+      int c2 = s2.codePointAt(i2);
+      if (c1 != c2) {
+        return Integer.compare(c1, c2);
+      }
+      i1 += Character.charCount(c1);
+      i2 += Character.charCount(c2);
+    }
+    return Integer.compare(s1.length() - i1, s2.length() - i2);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Cached thread pool with daemon threads that is only created when it is first used. This is used
+ * for optional background work of a {@link DatabaseClient} or {@link DatabaseAdminClient}, so that
+ * clients that do not use that work do not create a thread pool.
+ */
+final class LazyDaemonExecutor {
+  private final String nameFormat;
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private ExecutorService executor;
+
+  @GuardedBy("lock")
+  private boolean closed;
+
+  /** Creates an executor whose threads are named using the given {@link String#format} pattern. */
+  LazyDaemonExecutor(String nameFormat) {
+    this.nameFormat = checkNotNull(nameFormat);
+  }
+
+  /**
+   * Returns the thread pool, and creates it if necessary.
+   *
+   * @throws SpannerException with {@link ErrorCode#FAILED_PRECONDITION} if the executor has been
+   *     closed
+   */
+  ExecutorService get() {
+    synchronized (lock) {
+      if (closed) {
+        throw SpannerExceptionFactory.newSpannerException(
+            ErrorCode.FAILED_PRECONDITION, "DatabaseClient has been closed");
+      }
+      if (executor == null) {
+        executor =
+            Executors.newCachedThreadPool(
+                new ThreadFactoryBuilder().setDaemon(true).setNameFormat(nameFormat).build());
+      }
+      return executor;
+    }
+  }
+
+  /** Stops accepting new tasks. Tasks that are already running are not interrupted. */
+  void close() {
+    synchronized (lock) {
+      closed = true;
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+}
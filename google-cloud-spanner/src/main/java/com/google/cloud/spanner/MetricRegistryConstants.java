@@ -15,12 +15,25 @@
  */
 package com.google.cloud.spanner;
 
+import com.google.api.core.InternalApi;
 import com.google.common.collect.ImmutableList;
 import io.opencensus.metrics.LabelKey;
 import io.opencensus.metrics.LabelValue;
+import io.opencensus.stats.Aggregation;
+import io.opencensus.stats.Aggregation.Distribution;
+import io.opencensus.stats.Aggregation.Sum;
+import io.opencensus.stats.BucketBoundaries;
+import io.opencensus.stats.Measure.MeasureDouble;
+import io.opencensus.stats.Measure.MeasureLong;
+import io.opencensus.stats.View;
+import io.opencensus.tags.TagKey;
 
-/** A helper class that holds OpenCensus's related constants. */
-class MetricRegistryConstants {
+/**
+ * A helper class that holds OpenCensus's related constants. The unit and bucket boundaries of the
+ * latency distributions are also used by the RPC views in {@code spi.v1}.
+ */
+@InternalApi
+public class MetricRegistryConstants {
 
   // The label keys are used to uniquely identify timeseries.
   private static final LabelKey CLIENT_ID =
@@ -31,18 +44,48 @@ class MetricRegistryConstants {
   private static final LabelKey LIBRARY_VERSION =
       LabelKey.create("library_version", "Library version");
 
+  private static final LabelKey SPANNER_ID =
+      LabelKey.create("spanner_id", "Generated id of the Spanner instance");
+
   /** The label value is used to represent missing value. */
   private static final LabelValue UNSET_LABEL = LabelValue.create(null);
 
   static final ImmutableList<LabelKey> SPANNER_LABEL_KEYS =
       ImmutableList.of(CLIENT_ID, DATABASE, INSTANCE_ID, LIBRARY_VERSION);
 
+  /** The label keys of the retry budget metrics, which are shared by all database clients. */
+  static final ImmutableList<LabelKey> RETRY_BUDGET_LABEL_KEYS =
+      ImmutableList.of(SPANNER_ID, LIBRARY_VERSION);
+
   static final ImmutableList<LabelValue> SPANNER_DEFAULT_LABEL_VALUES =
       ImmutableList.of(UNSET_LABEL, UNSET_LABEL, UNSET_LABEL, UNSET_LABEL);
 
+  /**
+   * The tag keys of the distributions. These have the same names as {@link #SPANNER_LABEL_KEYS}, as
+   * distributions are recorded with the OpenCensus Stats API instead of the Metrics API.
+   */
+  static final ImmutableList<TagKey> SPANNER_TAG_KEYS =
+      ImmutableList.of(
+          TagKey.create(CLIENT_ID.getKey()),
+          TagKey.create(DATABASE.getKey()),
+          TagKey.create(INSTANCE_ID.getKey()),
+          TagKey.create(LIBRARY_VERSION.getKey()));
+
+  /** The type of session that was requested: read or read_write. */
+  static final TagKey SESSION_TYPE = TagKey.create("type");
+
+  /** The normalized SQL of a query, see {@link QueryFingerprint}. */
+  static final TagKey QUERY_FINGERPRINT = TagKey.create("query_fingerprint");
+
   /** Unit to represent counts. */
   static final String COUNT = "1";
 
+  /** Unit to represent milliseconds. */
+  public static final String MILLISECOND = "ms";
+
+  /** Unit to represent bytes. */
+  static final String BYTE = "By";
+
   // The Metric name and description
   static final String MAX_IN_USE_SESSIONS = "cloud.google.com/java/spanner/max_in_use_sessions";
   static final String MAX_ALLOWED_SESSIONS = "cloud.google.com/java/spanner/max_allowed_sessions";
@@ -50,6 +93,20 @@ class MetricRegistryConstants {
   static final String GET_SESSION_TIMEOUTS = "cloud.google.com/java/spanner/get_session_timeouts";
   static final String NUM_ACQUIRED_SESSIONS = "cloud.google.com/java/spanner/num_acquired_sessions";
   static final String NUM_RELEASED_SESSIONS = "cloud.google.com/java/spanner/num_released_sessions";
+  static final String NUM_SESSION_WAITERS = "cloud.google.com/java/spanner/num_session_waiters";
+  static final String NUM_ADMISSION_REJECTIONS =
+      "cloud.google.com/java/spanner/num_admission_rejections";
+  static final String GET_SESSION_WAIT_TIME = "cloud.google.com/java/spanner/get_session_wait_time";
+  static final String SESSION_HOLD_TIME = "cloud.google.com/java/spanner/session_hold_time";
+  static final String PREPARE_SESSION_LATENCY =
+      "cloud.google.com/java/spanner/prepare_session_latency";
+  static final String RETRIES_ATTEMPTED = "cloud.google.com/java/spanner/retries_attempted";
+  static final String RETRIES_DENIED = "cloud.google.com/java/spanner/retries_denied";
+  static final String QUERY_LATENCY = "cloud.google.com/java/spanner/query_latency";
+  static final String QUERY_TIME_TO_FIRST_ROW =
+      "cloud.google.com/java/spanner/query_time_to_first_row";
+  static final String QUERY_ROWS_RETURNED = "cloud.google.com/java/spanner/query_rows_returned";
+  static final String QUERY_BYTES_RECEIVED = "cloud.google.com/java/spanner/query_bytes_received";
 
   static final String MAX_IN_USE_SESSIONS_DESCRIPTION =
       "The maximum number of sessions in use during the last 10 minute interval.";
@@ -62,4 +119,104 @@ class MetricRegistryConstants {
       "The number of sessions acquired from the session pool.";
   static final String NUM_RELEASED_SESSIONS_DESCRIPTION =
       "The number of sessions released by the user and pool maintainer.";
+  static final String NUM_SESSION_WAITERS_DESCRIPTION =
+      "The number of requests that are waiting for a session to become available.";
+  static final String NUM_ADMISSION_REJECTIONS_DESCRIPTION =
+      "The number of requests that were rejected by the admission control of the session pool.";
+  static final String GET_SESSION_WAIT_TIME_DESCRIPTION =
+      "The time that requests waited for a session from the session pool.";
+  static final String SESSION_HOLD_TIME_DESCRIPTION =
+      "The time between acquiring a session from the session pool and releasing it.";
+  static final String PREPARE_SESSION_LATENCY_DESCRIPTION =
+      "The time it took to prepare a session for a read/write transaction.";
+  static final String RETRIES_ATTEMPTED_DESCRIPTION =
+      "The number of retries that were allowed by the retry budget.";
+  static final String RETRIES_DENIED_DESCRIPTION =
+      "The number of retries that were denied because the retry budget was spent.";
+  static final String QUERY_LATENCY_DESCRIPTION =
+      "The time between requesting the first row of a query and the end of its result stream.";
+  static final String QUERY_TIME_TO_FIRST_ROW_DESCRIPTION =
+      "The time between requesting the first row of a query and receiving it.";
+  static final String QUERY_ROWS_RETURNED_DESCRIPTION = "The number of rows returned by queries.";
+  static final String QUERY_BYTES_RECEIVED_DESCRIPTION =
+      "The number of bytes of the result streams of queries.";
+
+  static final MeasureDouble GET_SESSION_WAIT_TIME_MEASURE =
+      MeasureDouble.create(GET_SESSION_WAIT_TIME, GET_SESSION_WAIT_TIME_DESCRIPTION, MILLISECOND);
+  static final MeasureDouble SESSION_HOLD_TIME_MEASURE =
+      MeasureDouble.create(SESSION_HOLD_TIME, SESSION_HOLD_TIME_DESCRIPTION, MILLISECOND);
+  static final MeasureDouble PREPARE_SESSION_LATENCY_MEASURE =
+      MeasureDouble.create(
+          PREPARE_SESSION_LATENCY, PREPARE_SESSION_LATENCY_DESCRIPTION, MILLISECOND);
+  static final MeasureDouble QUERY_LATENCY_MEASURE =
+      MeasureDouble.create(QUERY_LATENCY, QUERY_LATENCY_DESCRIPTION, MILLISECOND);
+  static final MeasureDouble QUERY_TIME_TO_FIRST_ROW_MEASURE =
+      MeasureDouble.create(
+          QUERY_TIME_TO_FIRST_ROW, QUERY_TIME_TO_FIRST_ROW_DESCRIPTION, MILLISECOND);
+  static final MeasureLong QUERY_ROWS_RETURNED_MEASURE =
+      MeasureLong.create(QUERY_ROWS_RETURNED, QUERY_ROWS_RETURNED_DESCRIPTION, COUNT);
+  static final MeasureLong QUERY_BYTES_RECEIVED_MEASURE =
+      MeasureLong.create(QUERY_BYTES_RECEIVED, QUERY_BYTES_RECEIVED_DESCRIPTION, BYTE);
+
+  /** The bucket boundaries in milliseconds of the latency distributions. */
+  public static final ImmutableList<Double> MILLISECOND_BUCKET_BOUNDARIES =
+      ImmutableList.of(
+          0.0, 0.5, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 8.0, 10.0, 13.0, 16.0, 20.0, 25.0, 30.0, 40.0,
+          50.0, 65.0, 80.0, 100.0, 130.0, 160.0, 200.0, 250.0, 300.0, 400.0, 500.0, 650.0, 800.0,
+          1000.0, 2000.0, 5000.0, 10000.0, 20000.0, 50000.0, 100000.0);
+
+  private static final Aggregation MILLISECOND_DISTRIBUTION =
+      Distribution.create(BucketBoundaries.create(MILLISECOND_BUCKET_BOUNDARIES));
+
+  static final View GET_SESSION_WAIT_TIME_VIEW =
+      View.create(
+          View.Name.create(GET_SESSION_WAIT_TIME),
+          GET_SESSION_WAIT_TIME_DESCRIPTION,
+          GET_SESSION_WAIT_TIME_MEASURE,
+          MILLISECOND_DISTRIBUTION,
+          ImmutableList.<TagKey>builder().addAll(SPANNER_TAG_KEYS).add(SESSION_TYPE).build());
+  static final View SESSION_HOLD_TIME_VIEW =
+      View.create(
+          View.Name.create(SESSION_HOLD_TIME),
+          SESSION_HOLD_TIME_DESCRIPTION,
+          SESSION_HOLD_TIME_MEASURE,
+          MILLISECOND_DISTRIBUTION,
+          SPANNER_TAG_KEYS);
+  static final View PREPARE_SESSION_LATENCY_VIEW =
+      View.create(
+          View.Name.create(PREPARE_SESSION_LATENCY),
+          PREPARE_SESSION_LATENCY_DESCRIPTION,
+          PREPARE_SESSION_LATENCY_MEASURE,
+          MILLISECOND_DISTRIBUTION,
+          SPANNER_TAG_KEYS);
+  static final View QUERY_LATENCY_VIEW =
+      View.create(
+          View.Name.create(QUERY_LATENCY),
+          QUERY_LATENCY_DESCRIPTION,
+          QUERY_LATENCY_MEASURE,
+          MILLISECOND_DISTRIBUTION,
+          ImmutableList.of(QUERY_FINGERPRINT));
+  static final View QUERY_TIME_TO_FIRST_ROW_VIEW =
+      View.create(
+          View.Name.create(QUERY_TIME_TO_FIRST_ROW),
+          QUERY_TIME_TO_FIRST_ROW_DESCRIPTION,
+          QUERY_TIME_TO_FIRST_ROW_MEASURE,
+          MILLISECOND_DISTRIBUTION,
+          ImmutableList.of(QUERY_FINGERPRINT));
+  static final View QUERY_ROWS_RETURNED_VIEW =
+      View.create(
+          View.Name.create(QUERY_ROWS_RETURNED),
+          QUERY_ROWS_RETURNED_DESCRIPTION,
+          QUERY_ROWS_RETURNED_MEASURE,
+          Sum.create(),
+          ImmutableList.of(QUERY_FINGERPRINT));
+  static final View QUERY_BYTES_RECEIVED_VIEW =
+      View.create(
+          View.Name.create(QUERY_BYTES_RECEIVED),
+          QUERY_BYTES_RECEIVED_DESCRIPTION,
+          QUERY_BYTES_RECEIVED_MEASURE,
+          Sum.create(),
+          ImmutableList.of(QUERY_FINGERPRINT));
+
+  private MetricRegistryConstants() {}
 }
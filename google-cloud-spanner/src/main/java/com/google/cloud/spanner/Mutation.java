@@ -16,11 +16,16 @@
 
 package com.google.cloud.spanner;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
 import com.google.common.collect.ImmutableList;
 import com.google.protobuf.ListValue;
+import com.google.protobuf.NullValue;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.HashSet;
@@ -90,8 +95,12 @@ public final class Mutation implements Serializable {
   private final String table;
   private final Op operation;
   private final ImmutableList<String> columns;
-  private final ImmutableList<Value> values;
+  // Decoded lazily from encodedValues for mutations created by a RowsBuilder.
+  private ImmutableList<Value> values;
   private final KeySet keySet;
+  // Only set for mutations created by a RowsBuilder.
+  private final ListValue encodedValues;
+  private final ImmutableList<Type> columnTypes;
 
   private Mutation(
       String table,
@@ -99,11 +108,24 @@ public final class Mutation implements Serializable {
       @Nullable ImmutableList<String> columns,
       @Nullable ImmutableList<Value> values,
       @Nullable KeySet keySet) {
+    this(table, operation, columns, values, keySet, null, null);
+  }
+
+  private Mutation(
+      String table,
+      Op operation,
+      @Nullable ImmutableList<String> columns,
+      @Nullable ImmutableList<Value> values,
+      @Nullable KeySet keySet,
+      @Nullable ListValue encodedValues,
+      @Nullable ImmutableList<Type> columnTypes) {
     this.table = table;
     this.operation = operation;
     this.columns = columns;
     this.values = values;
     this.keySet = keySet;
+    this.encodedValues = encodedValues;
+    this.columnTypes = columnTypes;
   }
 
   /**
@@ -151,6 +173,30 @@ public final class Mutation implements Serializable {
     return new Mutation(table, Op.DELETE, null, null, checkNotNull(keySet));
   }
 
+  /**
+   * Returns a builder that can be used to construct a batch of {@code operation} mutations against
+   * {@code table} that all write the same columns. Cell values are encoded directly into their wire
+   * format as they are appended, without creating a {@link Value} for each cell. For example:
+   *
+   * <pre>
+   *     List&lt;Mutation&gt; mutations = Mutation.newRowsBuilder(Op.INSERT, "T")
+   *         .addColumn("C1", Type.int64())
+   *         .addColumn("C2", Type.string())
+   *         .append(1L).append("x")
+   *         .append(2L).append("y")
+   *         .build();
+   * </pre>
+   *
+   * <p>This is intended for bulk loads of many rows; consecutive mutations built this way are
+   * coalesced into a single write when the request is assembled.
+   *
+   * @throws IllegalArgumentException if {@code operation} is {@link Op#DELETE}
+   */
+  public static RowsBuilder newRowsBuilder(Op operation, String table) {
+    checkArgument(operation != Op.DELETE, "DELETE mutations cannot be built row by row");
+    return new RowsBuilder(table, operation);
+  }
+
   /**
    * Builder for {@link Op#INSERT}, {@link Op#INSERT_OR_UPDATE}, {@link Op#UPDATE}, and {@link
    * Op#REPLACE} mutations.
@@ -225,6 +271,180 @@ public final class Mutation implements Serializable {
     }
   }
 
+  /**
+   * Builder for a batch of {@link Op#INSERT}, {@link Op#INSERT_OR_UPDATE}, {@link Op#UPDATE}, or
+   * {@link Op#REPLACE} mutations that write the same columns of the same table. All columns must be
+   * declared with {@link #addColumn(String, Type)} before the first value is appended. Values are
+   * then appended in column order, and a row is complete once a value has been appended for each
+   * column.
+   *
+   * <p>Only columns of type {@code BOOL}, {@code INT64}, {@code FLOAT64}, {@code STRING}, {@code
+   * BYTES}, {@code TIMESTAMP} and {@code DATE} are supported; use a {@link WriteBuilder} for {@code
+   * ARRAY} and {@code STRUCT} columns.
+   */
+  public static final class RowsBuilder {
+    private static final com.google.protobuf.Value NULL_PROTO =
+        com.google.protobuf.Value.newBuilder().setNullValue(NullValue.NULL_VALUE).build();
+    private static final com.google.protobuf.Value TRUE_PROTO =
+        com.google.protobuf.Value.newBuilder().setBoolValue(true).build();
+    private static final com.google.protobuf.Value FALSE_PROTO =
+        com.google.protobuf.Value.newBuilder().setBoolValue(false).build();
+    private static final com.google.protobuf.Value COMMIT_TIMESTAMP_PROTO =
+        Value.timestamp(Value.COMMIT_TIMESTAMP).toProto();
+
+    private final String table;
+    private final Op operation;
+    private final ImmutableList.Builder<String> columnsBuilder = ImmutableList.builder();
+    private final ImmutableList.Builder<Type> columnTypesBuilder = ImmutableList.builder();
+    private final Set<String> columnNameSet = new HashSet<>();
+    private final ImmutableList.Builder<Mutation> mutations = ImmutableList.builder();
+    // Set once the first value has been appended; all mutations share these lists.
+    private ImmutableList<String> columns;
+    private ImmutableList<Type> columnTypes;
+    private ListValue.Builder currentRow;
+
+    private RowsBuilder(String table, Op operation) {
+      this.table = checkNotNull(table);
+      this.operation = operation;
+    }
+
+    /**
+     * Declares the next column that is written by the mutations of this builder.
+     *
+     * @throws IllegalStateException if a value has already been appended, or if a column with the
+     *     same name has already been declared. Duplicate detection is case-insensitive.
+     * @throws IllegalArgumentException if {@code type} is an {@code ARRAY} or {@code STRUCT} type
+     */
+    public RowsBuilder addColumn(String columnName, Type type) {
+      checkState(columns == null, "Columns cannot be added after values have been appended");
+      checkNotNull(columnName);
+      checkArgument(
+          type.getCode() != Type.Code.ARRAY && type.getCode() != Type.Code.STRUCT,
+          "Unsupported column type: %s",
+          type);
+      if (!columnNameSet.add(columnName.toLowerCase())) {
+        throw new IllegalStateException("Duplicate column: " + columnName.toLowerCase());
+      }
+      columnsBuilder.add(columnName);
+      columnTypesBuilder.add(type);
+      return this;
+    }
+
+    /** Appends a {@code BOOL} value to the current row. */
+    public RowsBuilder append(boolean value) {
+      return append(Type.Code.BOOL, value ? TRUE_PROTO : FALSE_PROTO);
+    }
+
+    /** Appends an {@code INT64} value to the current row. */
+    public RowsBuilder append(long value) {
+      return append(
+          Type.Code.INT64,
+          com.google.protobuf.Value.newBuilder().setStringValue(Long.toString(value)).build());
+    }
+
+    /** Appends a {@code FLOAT64} value to the current row. */
+    public RowsBuilder append(double value) {
+      return append(
+          Type.Code.FLOAT64, com.google.protobuf.Value.newBuilder().setNumberValue(value).build());
+    }
+
+    /** Appends a {@code STRING} value to the current row. */
+    public RowsBuilder append(@Nullable String value) {
+      return append(
+          Type.Code.STRING,
+          value == null
+              ? NULL_PROTO
+              : com.google.protobuf.Value.newBuilder().setStringValue(value).build());
+    }
+
+    /** Appends a {@code BYTES} value to the current row. */
+    public RowsBuilder append(@Nullable ByteArray value) {
+      return append(
+          Type.Code.BYTES,
+          value == null
+              ? NULL_PROTO
+              : com.google.protobuf.Value.newBuilder().setStringValue(value.toBase64()).build());
+    }
+
+    /**
+     * Appends a {@code TIMESTAMP} value to the current row. {@link Value#COMMIT_TIMESTAMP} may be
+     * used to store the commit timestamp.
+     */
+    public RowsBuilder append(@Nullable Timestamp value) {
+      com.google.protobuf.Value proto;
+      if (value == null) {
+        proto = NULL_PROTO;
+      } else if (value == Value.COMMIT_TIMESTAMP) {
+        proto = COMMIT_TIMESTAMP_PROTO;
+      } else {
+        proto = com.google.protobuf.Value.newBuilder().setStringValue(value.toString()).build();
+      }
+      return append(Type.Code.TIMESTAMP, proto);
+    }
+
+    /** Appends a {@code DATE} value to the current row. */
+    public RowsBuilder append(@Nullable Date value) {
+      return append(
+          Type.Code.DATE,
+          value == null
+              ? NULL_PROTO
+              : com.google.protobuf.Value.newBuilder().setStringValue(value.toString()).build());
+    }
+
+    /** Appends a {@code NULL} value of the type of the current column to the current row. */
+    public RowsBuilder appendNull() {
+      return append(nextColumnType().getCode(), NULL_PROTO);
+    }
+
+    /** Appends {@code value} to the current row. */
+    public RowsBuilder append(Value value) {
+      return append(value.getType().getCode(), value.toProto());
+    }
+
+    /**
+     * Returns the mutations that have been built, one per row.
+     *
+     * @throws IllegalStateException if the last row is incomplete
+     */
+    public ImmutableList<Mutation> build() {
+      checkState(
+          currentRow == null, "Incomplete row: %s values missing", missingValues(currentRow));
+      return mutations.build();
+    }
+
+    private Type nextColumnType() {
+      if (columns == null) {
+        columns = columnsBuilder.build();
+        columnTypes = columnTypesBuilder.build();
+        checkState(!columns.isEmpty(), "No columns have been added");
+      }
+      return columnTypes.get(currentRow == null ? 0 : currentRow.getValuesCount());
+    }
+
+    private RowsBuilder append(Type.Code code, com.google.protobuf.Value proto) {
+      Type type = nextColumnType();
+      if (type.getCode() != code) {
+        int index = currentRow == null ? 0 : currentRow.getValuesCount();
+        throw new IllegalArgumentException(
+            "Column " + columns.get(index) + " has type " + type + ", got " + code);
+      }
+      if (currentRow == null) {
+        currentRow = ListValue.newBuilder();
+      }
+      currentRow.addValues(proto);
+      if (currentRow.getValuesCount() == columns.size()) {
+        mutations.add(
+            new Mutation(table, operation, columns, null, null, currentRow.build(), columnTypes));
+        currentRow = null;
+      }
+      return this;
+    }
+
+    private int missingValues(@Nullable ListValue.Builder row) {
+      return row == null ? 0 : columns.size() - row.getValuesCount();
+    }
+  }
+
   /** Returns the name of the table that this mutation will affect. */
   public String getTable() {
     return table;
@@ -254,7 +474,7 @@ public final class Mutation implements Serializable {
    */
   public Iterable<Value> getValues() {
     checkState(operation != Op.DELETE, "values() cannot be called for a DELETE mutation");
-    return values;
+    return values();
   }
 
   /**
@@ -267,6 +487,7 @@ public final class Mutation implements Serializable {
    */
   public Map<String, Value> asMap() {
     checkState(operation != Op.DELETE, "asMap() cannot be called for a DELETE mutation");
+    ImmutableList<Value> values = values();
     LinkedHashMap<String, Value> map = new LinkedHashMap<>();
     for (int i = 0; i < columns.size(); ++i) {
       Value existing = map.put(columns.get(i), values.get(i));
@@ -284,6 +505,49 @@ public final class Mutation implements Serializable {
     return keySet;
   }
 
+  private ImmutableList<Value> values() {
+    if (values == null && encodedValues != null) {
+      values = decodeValues(columnTypes, encodedValues);
+    }
+    return values;
+  }
+
+  private static ImmutableList<Value> decodeValues(List<Type> types, ListValue encoded) {
+    ImmutableList.Builder<Value> builder = ImmutableList.builder();
+    for (int i = 0; i < types.size(); i++) {
+      builder.add(decodeValue(types.get(i), encoded.getValues(i)));
+    }
+    return builder.build();
+  }
+
+  private static Value decodeValue(Type type, com.google.protobuf.Value proto) {
+    boolean isNull = proto.getKindCase() == com.google.protobuf.Value.KindCase.NULL_VALUE;
+    switch (type.getCode()) {
+      case BOOL:
+        return Value.bool(isNull ? null : proto.getBoolValue());
+      case INT64:
+        return Value.int64(isNull ? null : Long.parseLong(proto.getStringValue()));
+      case FLOAT64:
+        return Value.float64(isNull ? null : proto.getNumberValue());
+      case STRING:
+        return Value.string(isNull ? null : proto.getStringValue());
+      case BYTES:
+        return Value.bytes(isNull ? null : ByteArray.fromBase64(proto.getStringValue()));
+      case TIMESTAMP:
+        if (isNull) {
+          return Value.timestamp(null);
+        }
+        if (proto.equals(RowsBuilder.COMMIT_TIMESTAMP_PROTO)) {
+          return Value.timestamp(Value.COMMIT_TIMESTAMP);
+        }
+        return Value.timestamp(Timestamp.parseTimestamp(proto.getStringValue()));
+      case DATE:
+        return Value.date(isNull ? null : Date.parseDate(proto.getStringValue()));
+      default:
+        throw new AssertionError("Unhandled type code: " + type.getCode());
+    }
+  }
+
   void toString(StringBuilder b) {
     String opName;
     boolean isWrite;
@@ -312,6 +576,7 @@ public final class Mutation implements Serializable {
         throw new AssertionError("Unhandled Op: " + operation);
     }
     if (isWrite) {
+      ImmutableList<Value> values = values();
       b.append(opName).append('(').append(table).append('{');
       for (int i = 0; i < columns.size(); ++i) {
         if (i > 0) {
@@ -349,13 +614,13 @@ public final class Mutation implements Serializable {
     return operation == that.operation
         && Objects.equals(table, that.table)
         && Objects.equals(columns, that.columns)
-        && Objects.equals(values, that.values)
+        && Objects.equals(values(), that.values())
         && Objects.equals(keySet, that.keySet);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(operation, table, columns, values, keySet);
+    return Objects.hash(operation, table, columns, values(), keySet);
   }
 
   static void toProto(Iterable<Mutation> mutations, List<com.google.spanner.v1.Mutation> out) {
@@ -381,9 +646,15 @@ public final class Mutation implements Serializable {
         }
         write = null;
       } else {
-        ListValue.Builder values = ListValue.newBuilder();
-        for (Value value : mutation.getValues()) {
-          values.addValues(value.toProto());
+        ListValue values;
+        if (mutation.encodedValues != null) {
+          values = mutation.encodedValues;
+        } else {
+          ListValue.Builder builder = ListValue.newBuilder();
+          for (Value value : mutation.values) {
+            builder.addValues(value.toProto());
+          }
+          values = builder.build();
         }
         if (last != null
             && mutation.operation == last.operation
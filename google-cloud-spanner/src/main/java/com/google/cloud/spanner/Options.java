@@ -73,6 +73,23 @@ public final class Options implements Serializable {
     return new PageTokenOption(pageToken);
   }
 
+  /**
+   * Specifying this will cause the list operation to fetch the next page in the background while
+   * the current page is being consumed. This reduces the time that is needed to iterate over a
+   * large number of results. The requests for the next pages are subject to the same rate limit as
+   * other administrative requests. List operations that support this option are:
+   *
+   * <ul>
+   *   <li>{@link DatabaseAdminClient#listDatabases}
+   *   <li>{@link DatabaseAdminClient#listBackups}
+   *   <li>{@link DatabaseAdminClient#listBackupOperations}
+   *   <li>{@link DatabaseAdminClient#listDatabaseOperations}
+   * </ul>
+   */
+  public static ListOption prefetchPages() {
+    return PrefetchPagesOption.INSTANCE;
+  }
+
   /**
    * Specifying this will cause the given filter to be applied to the list operation. List
    * operations that support this options are:
@@ -120,6 +137,7 @@ public final class Options implements Serializable {
   private Integer pageSize;
   private String pageToken;
   private String filter;
+  private boolean prefetchPages;
 
   // Construction is via factory methods below.
   private Options() {}
@@ -164,6 +182,10 @@ public final class Options implements Serializable {
     return filter;
   }
 
+  boolean hasPrefetchPages() {
+    return prefetchPages;
+  }
+
   @Override
   public String toString() {
     StringBuilder b = new StringBuilder();
@@ -182,6 +204,9 @@ public final class Options implements Serializable {
     if (filter != null) {
       b.append("filter: ").append(filter).append(' ');
     }
+    if (prefetchPages) {
+      b.append("prefetchPages: true ");
+    }
     return b.toString();
   }
 
@@ -206,7 +231,8 @@ public final class Options implements Serializable {
         && (!hasPageSize() && !that.hasPageSize()
             || hasPageSize() && that.hasPageSize() && Objects.equals(pageSize(), that.pageSize()))
         && Objects.equals(pageToken(), that.pageToken())
-        && Objects.equals(filter(), that.filter());
+        && Objects.equals(filter(), that.filter())
+        && prefetchPages == that.prefetchPages;
   }
 
   @Override
@@ -227,6 +253,9 @@ public final class Options implements Serializable {
     if (filter != null) {
       result = 31 * result + filter.hashCode();
     }
+    if (prefetchPages) {
+      result = 31 * result + 1;
+    }
     return result;
   }
 
@@ -303,6 +332,17 @@ public final class Options implements Serializable {
     }
   }
 
+  static class PrefetchPagesOption extends InternalOption implements ListOption {
+    static final PrefetchPagesOption INSTANCE = new PrefetchPagesOption();
+
+    private PrefetchPagesOption() {}
+
+    @Override
+    void appendToOptions(Options options) {
+      options.prefetchPages = true;
+    }
+  }
+
   static class FilterOption extends InternalOption implements ListOption {
     private final String filter;
 
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.Options.QueryOption;
+import com.google.cloud.spanner.Options.ReadOption;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * {@link ReadOnlyTransaction} that executes each read and query on its own session from the session
+ * pool, so that reads and queries can be executed in parallel from multiple threads. All reads and
+ * queries use the same read timestamp. The read timestamp is determined by beginning a read-only
+ * transaction with the {@link TimestampBound} of the transaction before the first read or query,
+ * unless the bound is a {@link TimestampBound#ofReadTimestamp(Timestamp)} bound. Each read and
+ * query is then executed as a single-use read at that timestamp.
+ *
+ * <p>Reads with more than {@link #DEFAULT_MAX_KEYS_PER_READ} keys are split into multiple reads
+ * that are executed in parallel, using at most {@link #MAX_PARALLEL_SPLIT_READS} sessions. The rows
+ * of these reads are returned as one {@link ResultSet}.
+ */
+final class ParallelReadOnlyTransaction implements ReadOnlyTransaction {
+  static final int DEFAULT_MAX_KEYS_PER_READ = 10_000;
+  static final int MAX_PARALLEL_SPLIT_READS = 8;
+
+  private final DatabaseClientImpl client;
+  private final int maxKeysPerRead;
+  private final TimestampBound bound;
+  private final Object lock = new Object();
+
+  @GuardedBy("lock")
+  private Timestamp timestamp;
+
+  /** Set while the first read or query begins a read-only transaction to get the timestamp. */
+  @GuardedBy("lock")
+  private SettableFuture<Timestamp> pendingTimestamp;
+
+  @GuardedBy("lock")
+  private boolean closed;
+
+  ParallelReadOnlyTransaction(DatabaseClientImpl client, TimestampBound bound) {
+    this(client, bound, DEFAULT_MAX_KEYS_PER_READ);
+  }
+
+  @VisibleForTesting
+  ParallelReadOnlyTransaction(DatabaseClientImpl client, TimestampBound bound, int maxKeysPerRead) {
+    checkNotNull(bound);
+    checkArgument(maxKeysPerRead > 0, "maxKeysPerRead must be > 0");
+    checkArgument(
+        bound.getMode() != TimestampBound.Mode.MAX_STALENESS
+            && bound.getMode() != TimestampBound.Mode.MIN_READ_TIMESTAMP,
+        "Bounded staleness mode %s is not supported for multi-use read-only transactions."
+            + " Create a single-use read or read-only transaction instead.",
+        bound.getMode());
+    this.client = checkNotNull(client);
+    this.bound = bound;
+    this.maxKeysPerRead = maxKeysPerRead;
+    if (bound.getMode() == TimestampBound.Mode.READ_TIMESTAMP) {
+      this.timestamp = bound.getReadTimestamp();
+    }
+  }
+
+  /** Returns a single-use context for the next read or query at the read timestamp. */
+  private ReadContext nextContext() {
+    return client.singleUse(TimestampBound.ofReadTimestamp(getOrBeginReadTimestamp()));
+  }
+
+  /**
+   * Returns the read timestamp of the transaction. The first call begins a read-only transaction to
+   * determine the timestamp. The transaction is begun without holding the lock of this transaction,
+   * and concurrent calls wait for its result. If beginning the transaction fails, the next call
+   * tries again.
+   */
+  private Timestamp getOrBeginReadTimestamp() {
+    SettableFuture<Timestamp> future;
+    boolean begin = false;
+    synchronized (lock) {
+      checkState(!closed, "This transaction has been closed");
+      if (timestamp != null) {
+        return timestamp;
+      }
+      if (pendingTimestamp == null) {
+        pendingTimestamp = SettableFuture.create();
+        begin = true;
+      }
+      future = pendingTimestamp;
+    }
+    if (begin) {
+      try {
+        Timestamp readTimestamp = client.beginReadOnlyTransaction(bound);
+        synchronized (lock) {
+          timestamp = readTimestamp;
+          pendingTimestamp = null;
+        }
+        future.set(readTimestamp);
+      } catch (RuntimeException e) {
+        synchronized (lock) {
+          pendingTimestamp = null;
+        }
+        future.setException(e);
+        throw e;
+      }
+    }
+    return get(future);
+  }
+
+  private static <T> T get(Future<T> future) {
+    try {
+      return Uninterruptibles.getUninterruptibly(future);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof SpannerException) {
+        throw (SpannerException) e.getCause();
+      }
+      throw SpannerExceptionFactory.newSpannerException(e.getCause());
+    }
+  }
+
+  @Override
+  public Timestamp getReadTimestamp() {
+    synchronized (lock) {
+      checkState(
+          timestamp != null, "Method can only be called after read has returned data or finished");
+      return timestamp;
+    }
+  }
+
+  @Override
+  public ResultSet read(
+      final String table,
+      KeySet keys,
+      final Iterable<String> columns,
+      final ReadOption... options) {
+    return splitRead(
+        keys,
+        options,
+        new Function<KeySet, ResultSet>() {
+          @Override
+          public ResultSet apply(KeySet keys) {
+            return nextContext().read(table, keys, columns, options);
+          }
+        });
+  }
+
+  @Override
+  public ResultSet readUsingIndex(
+      final String table,
+      final String index,
+      KeySet keys,
+      final Iterable<String> columns,
+      final ReadOption... options) {
+    return splitRead(
+        keys,
+        options,
+        new Function<KeySet, ResultSet>() {
+          @Override
+          public ResultSet apply(KeySet keys) {
+            return nextContext().readUsingIndex(table, index, keys, columns, options);
+          }
+        });
+  }
+
+  private ResultSet splitRead(
+      KeySet keys, ReadOption[] options, Function<KeySet, ResultSet> reader) {
+    // A limit applies to each read, so a read with a limit cannot be split.
+    List<KeySet> splits =
+        Options.fromReadOptions(options).hasLimit()
+            ? Collections.singletonList(keys)
+            : keys.split(maxKeysPerRead);
+    if (splits.size() == 1) {
+      return reader.apply(keys);
+    }
+    // Only read ahead with the sessions that are available, so that split reads do not hold on to
+    // sessions while they wait for the pool.
+    int maxParallelReads =
+        Math.max(1, Math.min(MAX_PARALLEL_SPLIT_READS, client.pool.getNumberOfAvailableSessions()));
+    return SplitReadResultSet.create(
+        client.splitReadExecutor.get(), splits, reader, maxParallelReads);
+  }
+
+  @Nullable
+  @Override
+  public Struct readRow(String table, Key key, Iterable<String> columns) {
+    return nextContext().readRow(table, key, columns);
+  }
+
+  @Nullable
+  @Override
+  public Struct readRowUsingIndex(String table, String index, Key key, Iterable<String> columns) {
+    return nextContext().readRowUsingIndex(table, index, key, columns);
+  }
+
+  @Override
+  public ResultSet executeQuery(Statement statement, QueryOption... options) {
+    return nextContext().executeQuery(statement, options);
+  }
+
+  @Override
+  public ResultSet analyzeQuery(Statement statement, QueryAnalyzeMode queryMode) {
+    return nextContext().analyzeQuery(statement, queryMode);
+  }
+
+  /**
+   * {@link ResultSet} that returns the rows of the reads of a split {@link KeySet} one read after
+   * the other. Up to {@code maxParallelReads} reads are executed ahead of the read that is being
+   * consumed, so that Cloud Spanner executes them in parallel. The reads after the first take their
+   * session from the pool on the executor and in the order of the splits, so that the read that is
+   * consumed next never waits for a session that is held by a later read of the same result set.
+   */
+  @VisibleForTesting
+  static final class SplitReadResultSet extends ForwardingResultSet {
+    private final ExecutorService executor;
+    private final List<KeySet> splits;
+    private final Function<KeySet, ResultSet> reader;
+    /**
+     * Cancelled when the result set is closed, which stops reads that are waiting for a session.
+     */
+    private final CancellableContext context = Context.current().withCancellation();
+
+    private final List<SplitRead> reads = new ArrayList<>();
+
+    private int current;
+    private boolean closed;
+
+    private SplitReadResultSet(
+        ExecutorService executor,
+        List<KeySet> splits,
+        Function<KeySet, ResultSet> reader,
+        int maxParallelReads,
+        ResultSet first) {
+      super(first);
+      this.executor = executor;
+      this.splits = splits;
+      this.reader = reader;
+      try {
+        schedule(new SplitRead(first));
+        while (reads.size() < Math.min(splits.size(), maxParallelReads)) {
+          scheduleNext();
+        }
+      } catch (RuntimeException e) {
+        close();
+        throw e;
+      }
+    }
+
+    /**
+     * Starts the read of the first split on the calling thread and schedules the reads of the
+     * following splits on the executor, with at most {@code maxParallelReads} reads in flight.
+     */
+    static SplitReadResultSet create(
+        ExecutorService executor,
+        List<KeySet> splits,
+        Function<KeySet, ResultSet> reader,
+        int maxParallelReads) {
+      checkArgument(maxParallelReads > 0, "maxParallelReads must be > 0");
+      return new SplitReadResultSet(
+          executor, splits, reader, maxParallelReads, reader.apply(splits.get(0)));
+    }
+
+    private void scheduleNext() {
+      schedule(new SplitRead(splits.get(reads.size()), reads.get(reads.size() - 1)));
+    }
+
+    private void schedule(SplitRead read) {
+      reads.add(read);
+      read.future = executor.submit(context.wrap(read));
+    }
+
+    @Override
+    public boolean next() throws SpannerException {
+      checkState(!closed, "ResultSet is closed");
+      while (true) {
+        boolean hasRow;
+        SplitRead read = reads.get(current);
+        if (!read.firstNextDone) {
+          read.firstNextDone = true;
+          hasRow = get(read.future);
+          replaceDelegate(read.resultSet);
+        } else {
+          hasRow = read.resultSet.next();
+        }
+        if (hasRow) {
+          return true;
+        }
+        read.closeResultSet();
+        if (current + 1 == splits.size()) {
+          return false;
+        }
+        current++;
+        if (reads.size() < splits.size()) {
+          scheduleNext();
+        }
+      }
+    }
+
+    /**
+     * Closes all reads that have not yet been consumed. A read that has not yet started on the
+     * executor is cancelled, and a read that is running on the executor is awaited before it is
+     * closed, so that a {@link ResultSet} is never closed while another thread is using it.
+     */
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      // Cancel all reads that have not yet started before waiting for the ones that are running.
+      List<SplitRead> running = new ArrayList<>();
+      for (int i = current; i < reads.size(); i++) {
+        SplitRead read = reads.get(i);
+        if (!read.firstNextDone) {
+          read.firstNextDone = true;
+          if (read.tryCancel()) {
+            read.future.cancel(false);
+          } else {
+            running.add(read);
+          }
+        }
+      }
+      context.cancel(null);
+      for (SplitRead read : running) {
+        try {
+          Uninterruptibles.getUninterruptibly(read.future);
+        } catch (ExecutionException e) {
+          // Ignore, the read is closed anyway.
+        }
+      }
+      for (int i = current; i < reads.size(); i++) {
+        reads.get(i).closeResultSet();
+      }
+    }
+
+    /**
+     * The read of one split. The read takes its session and executes its first {@link
+     * ResultSet#next()} call on the executor.
+     */
+    private final class SplitRead implements Callable<Boolean> {
+      @Nullable private final KeySet keys;
+      @Nullable private final SplitRead previous;
+      /** Counted down when this read has taken its session, or will never take one. */
+      private final CountDownLatch sessionTaken = new CountDownLatch(1);
+
+      private final AtomicBoolean claimed = new AtomicBoolean();
+      private volatile ResultSet resultSet;
+      private Future<Boolean> future;
+      private boolean firstNextDone;
+      private boolean resultSetClosed;
+
+      /** Creates a read that has already been started on the calling thread. */
+      private SplitRead(ResultSet resultSet) {
+        this.keys = null;
+        this.previous = null;
+        this.resultSet = resultSet;
+        this.sessionTaken.countDown();
+      }
+
+      private SplitRead(KeySet keys, SplitRead previous) {
+        this.keys = keys;
+        this.previous = previous;
+      }
+
+      @Override
+      public Boolean call() throws InterruptedException {
+        if (!claimed.compareAndSet(false, true)) {
+          return false;
+        }
+        if (resultSet == null) {
+          try {
+            previous.sessionTaken.await();
+            if (Context.current().isCancelled()) {
+              return false;
+            }
+            resultSet = reader.apply(keys);
+          } finally {
+            sessionTaken.countDown();
+          }
+        }
+        return resultSet.next();
+      }
+
+      /** Prevents the read from starting. Returns false if the read has already started. */
+      private boolean tryCancel() {
+        if (claimed.compareAndSet(false, true)) {
+          sessionTaken.countDown();
+          return true;
+        }
+        return false;
+      }
+
+      private void closeResultSet() {
+        if (resultSet != null && !resultSetClosed) {
+          resultSetClosed = true;
+          resultSet.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Closes the transaction. The result sets of the transaction are not closed, and return their
+   * sessions to the pool when they are closed or have been consumed.
+   */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      closed = true;
+    }
+  }
+}
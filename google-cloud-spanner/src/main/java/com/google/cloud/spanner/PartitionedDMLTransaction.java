@@ -18,15 +18,20 @@ package com.google.cloud.spanner;
 
 import static com.google.common.base.Preconditions.checkState;
 
+import com.google.api.client.util.BackOff;
+import com.google.api.gax.rpc.ServerStream;
+import com.google.cloud.spanner.AbstractResultSet.ResumableStreamIterator;
 import com.google.cloud.spanner.SessionImpl.SessionTransaction;
 import com.google.cloud.spanner.spi.v1.SpannerRpc;
 import com.google.protobuf.ByteString;
 import com.google.spanner.v1.BeginTransactionRequest;
 import com.google.spanner.v1.ExecuteSqlRequest;
 import com.google.spanner.v1.ExecuteSqlRequest.QueryMode;
+import com.google.spanner.v1.PartialResultSet;
 import com.google.spanner.v1.Transaction;
 import com.google.spanner.v1.TransactionOptions;
 import com.google.spanner.v1.TransactionSelector;
+import io.grpc.Context;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import org.threeten.bp.Duration;
@@ -61,40 +66,89 @@ class PartitionedDMLTransaction implements SessionTransaction {
 
   /**
    * Executes the {@link Statement} using a partitioned dml transaction with automatic retry if the
-   * transaction was aborted.
+   * transaction was aborted. The statement is executed with ExecuteStreamingSql, and is resumed in
+   * the same transaction from the last resume token that was received if the stream breaks with a
+   * retryable error, using the same backoff as resumable queries. An aborted transaction cannot be
+   * resumed, and the statement is then executed again in a new transaction. The timeout applies to
+   * the statement as a whole.
    */
   long executePartitionedUpdate(final Statement statement, final Duration timeout) {
     checkState(isValid, "Partitioned DML has been invalidated by a new operation on the session");
-    Callable<com.google.spanner.v1.ResultSet> callable =
-        new Callable<com.google.spanner.v1.ResultSet>() {
+    final long deadlineNanos = System.nanoTime() + timeout.toNanos();
+    Callable<Long> callable =
+        new Callable<Long>() {
           @Override
-          public com.google.spanner.v1.ResultSet call() throws Exception {
-            ByteString transactionId = initTransaction();
-            final ExecuteSqlRequest.Builder builder =
-                ExecuteSqlRequest.newBuilder()
-                    .setSql(statement.getSql())
-                    .setQueryMode(QueryMode.NORMAL)
-                    .setSession(session.getName())
-                    .setTransaction(TransactionSelector.newBuilder().setId(transactionId).build());
-            Map<String, Value> stmtParameters = statement.getParameters();
-            if (!stmtParameters.isEmpty()) {
-              com.google.protobuf.Struct.Builder paramsBuilder = builder.getParamsBuilder();
-              for (Map.Entry<String, Value> param : stmtParameters.entrySet()) {
-                paramsBuilder.putFields(param.getKey(), param.getValue().toProto());
-                builder.putParamTypes(param.getKey(), param.getValue().getType().toProto());
+          public Long call() throws Exception {
+            ExecuteSqlRequest.Builder builder = newRequestBuilder(statement, initTransaction());
+            ByteString resumeToken = ByteString.EMPTY;
+            boolean foundStats = false;
+            long updateCount = 0L;
+            BackOff backOff = ResumableStreamIterator.newBackOff();
+            while (true) {
+              Duration remaining = Duration.ofNanos(deadlineNanos - System.nanoTime());
+              if (remaining.isNegative() || remaining.isZero()) {
+                throw SpannerExceptionFactory.newSpannerException(
+                    ErrorCode.DEADLINE_EXCEEDED,
+                    "Partitioned DML timed out after " + timeout.toMillis() + "ms");
               }
+              try {
+                ServerStream<PartialResultSet> stream =
+                    rpc.executeStreamingPartitionedDml(
+                        builder.setResumeToken(resumeToken).build(),
+                        session.getOptions(),
+                        remaining);
+                for (PartialResultSet partial : stream) {
+                  if (!partial.getResumeToken().isEmpty()) {
+                    resumeToken = partial.getResumeToken();
+                  }
+                  if (partial.hasStats()) {
+                    foundStats = true;
+                    // For partitioned DML, using the row count lower bound.
+                    updateCount += partial.getStats().getRowCountLowerBound();
+                  }
+                }
+                break;
+              } catch (RuntimeException e) {
+                SpannerException spannerException = SpannerExceptionFactory.newSpannerException(e);
+                if (resumeToken.isEmpty() || !spannerException.isRetryable()) {
+                  throw spannerException;
+                }
+                // Resume the stream in the same transaction after backing off.
+                long delay = spannerException.getRetryDelayInMillis();
+                if (delay != -1) {
+                  ResumableStreamIterator.backoffSleep(Context.current(), delay);
+                } else {
+                  ResumableStreamIterator.backoffSleep(Context.current(), backOff);
+                }
+              }
+            }
+            if (!foundStats) {
+              throw new IllegalArgumentException(
+                  "Partitioned DML response missing stats possibly due to non-DML statement as input");
             }
-            return rpc.executePartitionedDml(builder.build(), session.getOptions(), timeout);
+            return updateCount;
           }
         };
-    com.google.spanner.v1.ResultSet resultSet =
-        SpannerRetryHelper.runTxWithRetriesOnAborted(callable);
-    if (!resultSet.hasStats()) {
-      throw new IllegalArgumentException(
-          "Partitioned DML response missing stats possibly due to non-DML statement as input");
+    return SpannerRetryHelper.runTxWithRetriesOnAborted(callable, session.getRetryBudget());
+  }
+
+  private ExecuteSqlRequest.Builder newRequestBuilder(
+      Statement statement, ByteString transactionId) {
+    ExecuteSqlRequest.Builder builder =
+        ExecuteSqlRequest.newBuilder()
+            .setSql(statement.getSql())
+            .setQueryMode(QueryMode.NORMAL)
+            .setSession(session.getName())
+            .setTransaction(TransactionSelector.newBuilder().setId(transactionId).build());
+    Map<String, Value> stmtParameters = statement.getParameters();
+    if (!stmtParameters.isEmpty()) {
+      com.google.protobuf.Struct.Builder paramsBuilder = builder.getParamsBuilder();
+      for (Map.Entry<String, Value> param : stmtParameters.entrySet()) {
+        paramsBuilder.putFields(param.getKey(), param.getValue().toProto());
+        builder.putParamTypes(param.getKey(), param.getValue().getType().toProto());
+      }
     }
-    // For partitioned DML, using the row count lower bound.
-    return resultSet.getStats().getRowCountLowerBound();
+    return builder;
   }
 
   @Override
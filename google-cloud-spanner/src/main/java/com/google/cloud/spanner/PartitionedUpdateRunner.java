@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes Partitioned DML statements of a {@link DatabaseClient} on background threads. Each
+ * statement is executed on its own session from the session pool. The number of statements of one
+ * batch that are executed in parallel is limited by the concurrency of the batch.
+ */
+final class PartitionedUpdateRunner {
+  private final LazyDaemonExecutor executor = new LazyDaemonExecutor("spanner-partitioned-dml-%d");
+
+  /**
+   * Executes the given statements on the given client with at most maxConcurrency statements
+   * running at the same time. The returned futures are in the same order as the statements. The
+   * statements are executed in the {@link Context} of the caller, so a deadline or cancellation of
+   * the caller also applies to the statements.
+   */
+  List<ApiFuture<Long>> executeAsync(
+      final DatabaseClient client, Iterable<Statement> statements, int maxConcurrency) {
+    checkNotNull(client);
+    checkArgument(maxConcurrency > 0, "maxConcurrency must be > 0");
+    final List<Statement> batch = ImmutableList.copyOf(statements);
+    final List<SettableApiFuture<Long>> results = new ArrayList<>(batch.size());
+    for (int i = 0; i < batch.size(); i++) {
+      results.add(SettableApiFuture.<Long>create());
+    }
+    final AtomicInteger next = new AtomicInteger();
+    final Context callerContext = Context.current();
+    Runnable worker =
+        new Runnable() {
+          @Override
+          public void run() {
+            int index;
+            while ((index = next.getAndIncrement()) < batch.size()) {
+              execute(callerContext, client, batch.get(index), results.get(index));
+            }
+          }
+        };
+    int workers = Math.min(maxConcurrency, batch.size());
+    ExecutorService executor = this.executor.get();
+    for (int i = 0; i < workers; i++) {
+      try {
+        executor.execute(worker);
+      } catch (RejectedExecutionException e) {
+        failRemaining(
+            next,
+            results,
+            SpannerExceptionFactory.newSpannerException(
+                ErrorCode.FAILED_PRECONDITION, "DatabaseClient has been closed", e));
+        break;
+      }
+    }
+    return ImmutableList.<ApiFuture<Long>>copyOf(results);
+  }
+
+  private static void execute(
+      Context callerContext,
+      DatabaseClient client,
+      Statement statement,
+      final SettableApiFuture<Long> result) {
+    if (result.isDone()) {
+      // The statement was cancelled before it was started.
+      return;
+    }
+    // Cancelling the future cancels the RPC that is executing the statement.
+    final CancellableContext context = callerContext.withCancellation();
+    result.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            if (result.isCancelled()) {
+              context.cancel(null);
+            }
+          }
+        },
+        MoreExecutors.directExecutor());
+    Context previous = context.attach();
+    try {
+      result.set(client.executePartitionedUpdate(statement));
+    } catch (Throwable t) {
+      result.setException(t);
+    } finally {
+      context.detach(previous);
+      context.cancel(null);
+    }
+  }
+
+  private static void failRemaining(
+      AtomicInteger next, List<SettableApiFuture<Long>> results, SpannerException e) {
+    int index;
+    while ((index = next.getAndIncrement()) < results.size()) {
+      results.get(index).setException(e);
+    }
+  }
+
+  /**
+   * Executes the given statements sequentially on the calling thread and returns completed futures.
+   * This is used by {@link Session}s, as a session can only execute one statement at a time. A
+   * maxConcurrency of more than one can therefore not be honored and is rejected.
+   */
+  static List<ApiFuture<Long>> executeSequentially(
+      DatabaseClient session, Iterable<Statement> statements, int maxConcurrency) {
+    checkArgument(
+        maxConcurrency == 1,
+        "A session executes one Partitioned DML statement at a time, maxConcurrency must be 1,"
+            + " but was %s",
+        maxConcurrency);
+    ImmutableList.Builder<ApiFuture<Long>> results = ImmutableList.builder();
+    for (Statement statement : statements) {
+      try {
+        results.add(ApiFutures.immediateFuture(session.executePartitionedUpdate(statement)));
+      } catch (SpannerException e) {
+        results.add(ApiFutures.<Long>immediateFailedFuture(e));
+      }
+    }
+    return results.build();
+  }
+
+  /** Stops accepting new statements. Statements that are already running are not cancelled. */
+  void close() {
+    executor.close();
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes the SQL of a {@link Statement}, so that executions of the same query with different
+ * literals are aggregated together in {@link QueryStats}. The fingerprint of a query is its SQL
+ * with comments removed, all whitespace collapsed into single spaces, all string, bytes and numeric
+ * literals replaced by {@code ?}, and lists of literals such as {@code IN (1, 2, 3)} collapsed into
+ * a single {@code ?}. Query parameters and quoted identifiers are not changed.
+ */
+final class QueryFingerprint {
+  private static final Pattern LITERAL_LIST = Pattern.compile("\\?(?: ?, ?\\?)+");
+
+  private QueryFingerprint() {}
+
+  /** Returns the fingerprint of the given SQL string. */
+  static String of(String sql) {
+    StringBuilder fingerprint = new StringBuilder(sql.length());
+    int length = sql.length();
+    int index = 0;
+    while (index < length) {
+      char c = sql.charAt(index);
+      if (Character.isWhitespace(c)) {
+        index = skipWhitespace(sql, index);
+        appendSpace(fingerprint);
+      } else if (c == '#' || (c == '-' && sql.startsWith("--", index))) {
+        int end = sql.indexOf('\n', index);
+        index = end < 0 ? length : end + 1;
+        appendSpace(fingerprint);
+      } else if (c == '/' && sql.startsWith("/*", index)) {
+        int end = sql.indexOf("*/", index + 2);
+        index = end < 0 ? length : end + 2;
+        appendSpace(fingerprint);
+      } else if (c == '\'' || c == '"') {
+        index = skipStringLiteral(sql, index);
+        removeLiteralPrefix(fingerprint);
+        fingerprint.append('?');
+      } else if (c == '`') {
+        int end = sql.indexOf('`', index + 1);
+        end = end < 0 ? length : end + 1;
+        fingerprint.append(sql, index, end);
+        index = end;
+      } else if (isIdentifierPart(c)) {
+        int end = index;
+        while (end < length && isIdentifierPart(sql.charAt(end))) {
+          end++;
+        }
+        // A token that starts with a digit is a numeric literal, unless it is part of a parameter
+        // name or a qualified name.
+        boolean literal =
+            Character.isDigit(c) && (index == 0 || !isNamePrefix(sql.charAt(index - 1)));
+        if (literal) {
+          end = skipExponentAndFraction(sql, end);
+          fingerprint.append('?');
+        } else {
+          fingerprint.append(sql, index, end);
+        }
+        index = end;
+      } else if (c == '.'
+          && index + 1 < length
+          && Character.isDigit(sql.charAt(index + 1))
+          && (fingerprint.length() == 0 || !isNamePrefix(sql.charAt(index - 1)))) {
+        // A numeric literal without an integer part, such as .5.
+        index = skipExponentAndFraction(sql, index);
+        fingerprint.append('?');
+      } else {
+        fingerprint.append(c);
+        index++;
+      }
+    }
+    return LITERAL_LIST.matcher(fingerprint.toString().trim()).replaceAll("?");
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_';
+  }
+
+  private static boolean isNamePrefix(char c) {
+    return isIdentifierPart(c) || c == '@' || c == '.' || c == '`';
+  }
+
+  private static int skipWhitespace(String sql, int index) {
+    while (index < sql.length() && Character.isWhitespace(sql.charAt(index))) {
+      index++;
+    }
+    return index;
+  }
+
+  private static void appendSpace(StringBuilder fingerprint) {
+    if (fingerprint.length() > 0 && fingerprint.charAt(fingerprint.length() - 1) != ' ') {
+      fingerprint.append(' ');
+    }
+  }
+
+  /** Skips the fraction and exponent of a numeric literal, such as the .5e-3 of 1.5e-3. */
+  private static int skipExponentAndFraction(String sql, int index) {
+    int length = sql.length();
+    while (index < length) {
+      char c = sql.charAt(index);
+      if (isIdentifierPart(c) || c == '.') {
+        index++;
+      } else if ((c == '+' || c == '-')
+          && (sql.charAt(index - 1) == 'e' || sql.charAt(index - 1) == 'E')) {
+        index++;
+      } else {
+        break;
+      }
+    }
+    return index;
+  }
+
+  /** Skips a single, double or triple quoted string or bytes literal that starts at index. */
+  private static int skipStringLiteral(String sql, int index) {
+    char quote = sql.charAt(index);
+    String triple = new String(new char[] {quote, quote, quote});
+    boolean raw = isRawLiteral(sql, index);
+    boolean isTriple = sql.startsWith(triple, index);
+    int length = sql.length();
+    int pos = index + (isTriple ? 3 : 1);
+    while (pos < length) {
+      char c = sql.charAt(pos);
+      if (c == '\\' && !raw) {
+        pos += 2;
+      } else if (isTriple ? sql.startsWith(triple, pos) : c == quote) {
+        return pos + (isTriple ? 3 : 1);
+      } else {
+        pos++;
+      }
+    }
+    return length;
+  }
+
+  /** Returns true if the literal that starts at index has an r or R prefix. */
+  private static boolean isRawLiteral(String sql, int index) {
+    for (int pos = index - 1; pos >= 0 && pos >= index - 2; pos--) {
+      char c = Character.toLowerCase(sql.charAt(pos));
+      if (c == 'r') {
+        return true;
+      }
+      if (c != 'b') {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /** Removes a raw or bytes prefix such as r, b, rb or br before a literal. */
+  private static void removeLiteralPrefix(StringBuilder fingerprint) {
+    int end = fingerprint.length();
+    int start = end;
+    while (start > 0 && end - start < 2 && "rRbB".indexOf(fingerprint.charAt(start - 1)) >= 0) {
+      start--;
+    }
+    if (start < end && (start == 0 || !isIdentifierPart(fingerprint.charAt(start - 1)))) {
+      fingerprint.setLength(start);
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+import java.util.List;
+
+/**
+ * Client-side statistics of all executions of queries with the same fingerprint by a {@link
+ * Spanner} instance. The fingerprint of a query is its SQL with all literals replaced by {@code ?}
+ * and all whitespace collapsed, so that executions of the same query with different literals are
+ * aggregated together. The statistics are collected when {@link
+ * SpannerOptions.Builder#setQueryStatsOptions(QueryStatsOptions)} is set, and can be retrieved with
+ * {@link Spanner#getTopQueryStats(int)}.
+ *
+ * <p>The latency of an execution is the time between requesting the first row of the result set and
+ * the end of the result stream, or the time that the result set was closed. The latency percentiles
+ * are approximations that are computed from histograms, and are the upper bound of the histogram
+ * bucket that contains the percentile.
+ */
+public final class QueryStats {
+  private final String fingerprint;
+  private final long executionCount;
+  private final long rowCount;
+  private final long bytesReceived;
+  private final double totalLatencyMillis;
+  private final List<Double> bucketBoundaries;
+  private final long[] latencyCounts;
+  private final double maxLatencyMillis;
+  private final long[] timeToFirstRowCounts;
+  private final double maxTimeToFirstRowMillis;
+
+  QueryStats(
+      String fingerprint,
+      long executionCount,
+      long rowCount,
+      long bytesReceived,
+      double totalLatencyMillis,
+      List<Double> bucketBoundaries,
+      long[] latencyCounts,
+      double maxLatencyMillis,
+      long[] timeToFirstRowCounts,
+      double maxTimeToFirstRowMillis) {
+    this.fingerprint = fingerprint;
+    this.executionCount = executionCount;
+    this.rowCount = rowCount;
+    this.bytesReceived = bytesReceived;
+    this.totalLatencyMillis = totalLatencyMillis;
+    this.bucketBoundaries = bucketBoundaries;
+    this.latencyCounts = latencyCounts;
+    this.maxLatencyMillis = maxLatencyMillis;
+    this.timeToFirstRowCounts = timeToFirstRowCounts;
+    this.maxTimeToFirstRowMillis = maxTimeToFirstRowMillis;
+  }
+
+  /** Returns the normalized SQL of the queries. */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+
+  /** Returns the number of executions. */
+  public long getExecutionCount() {
+    return executionCount;
+  }
+
+  /** Returns the total number of rows that all executions returned. */
+  public long getRowCount() {
+    return rowCount;
+  }
+
+  /** Returns the total size in bytes of the result streams of all executions. */
+  public long getBytesReceived() {
+    return bytesReceived;
+  }
+
+  /** Returns the sum of the latencies of all executions in milliseconds. */
+  public double getTotalLatencyMillis() {
+    return totalLatencyMillis;
+  }
+
+  /**
+   * Returns the given percentile of the latencies of the executions in milliseconds, or 0 if there
+   * are no executions.
+   *
+   * @param percentile the percentile, for example 50 for the median and 99 for the 99th percentile
+   */
+  public double getLatencyPercentileMillis(double percentile) {
+    return percentile(latencyCounts, maxLatencyMillis, percentile);
+  }
+
+  /**
+   * Returns the given percentile of the times between requesting the first row and receiving it in
+   * milliseconds, or 0 if there are no executions that returned a row.
+   *
+   * @param percentile the percentile, for example 50 for the median and 99 for the 99th percentile
+   */
+  public double getTimeToFirstRowPercentileMillis(double percentile) {
+    return percentile(timeToFirstRowCounts, maxTimeToFirstRowMillis, percentile);
+  }
+
+  private double percentile(long[] counts, double max, double percentile) {
+    Preconditions.checkArgument(
+        percentile > 0d && percentile <= 100d, "percentile must be > 0 and <= 100");
+    long total = 0L;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total == 0L) {
+      return 0d;
+    }
+    long rank = (long) Math.ceil(percentile / 100d * total);
+    long seen = 0L;
+    for (int bucket = 0; bucket < counts.length; bucket++) {
+      seen += counts[bucket];
+      if (seen >= rank) {
+        return bucket < bucketBoundaries.size() ? Math.min(bucketBoundaries.get(bucket), max) : max;
+      }
+    }
+    return max;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("fingerprint", fingerprint)
+        .add("executionCount", executionCount)
+        .add("rowCount", rowCount)
+        .add("bytesReceived", bytesReceived)
+        .add("totalLatencyMillis", totalLatencyMillis)
+        .add("p50LatencyMillis", getLatencyPercentileMillis(50d))
+        .add("p99LatencyMillis", getLatencyPercentileMillis(99d))
+        .toString();
+  }
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.cloud.spanner.MetricRegistryConstants.MILLISECOND_BUCKET_BOUNDARIES;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_BYTES_RECEIVED_MEASURE;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_BYTES_RECEIVED_VIEW;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_FINGERPRINT;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_LATENCY_MEASURE;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_LATENCY_VIEW;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_ROWS_RETURNED_MEASURE;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_ROWS_RETURNED_VIEW;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_TIME_TO_FIRST_ROW_MEASURE;
+import static com.google.cloud.spanner.MetricRegistryConstants.QUERY_TIME_TO_FIRST_ROW_VIEW;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.cloud.spanner.AbstractResultSet.CloseableIterator;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Doubles;
+import com.google.spanner.v1.PartialResultSet;
+import io.opencensus.stats.MeasureMap;
+import io.opencensus.stats.Stats;
+import io.opencensus.stats.StatsRecorder;
+import io.opencensus.stats.ViewManager;
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.TagValue;
+import io.opencensus.tags.Tagger;
+import io.opencensus.tags.Tags;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Aggregates client-side statistics of the queries of a {@link Spanner} instance per query
+ * fingerprint. The statistics are kept in memory for {@link Spanner#getTopQueryStats(int)}, and are
+ * recorded with the OpenCensus Stats API with the fingerprint as tag.
+ */
+final class QueryStatsAggregator {
+  /**
+   * The fingerprint of the executions of queries that exceed the maximum number of fingerprints.
+   */
+  static final String OTHER_FINGERPRINT = "<other>";
+
+  /** OpenCensus tag values must be printable ASCII strings of at most this length. */
+  private static final int MAX_TAG_VALUE_LENGTH = TagValue.MAX_LENGTH;
+
+  private static final Ordering<QueryStats> BY_TOTAL_LATENCY =
+      new Ordering<QueryStats>() {
+        @Override
+        public int compare(QueryStats left, QueryStats right) {
+          return Doubles.compare(left.getTotalLatencyMillis(), right.getTotalLatencyMillis());
+        }
+      };
+
+  private final int maxFingerprints;
+  private final StatsRecorder statsRecorder;
+  private final Tagger tagger;
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  QueryStatsAggregator(QueryStatsOptions options) {
+    this(options, Stats.getStatsRecorder(), Tags.getTagger());
+  }
+
+  @VisibleForTesting
+  QueryStatsAggregator(QueryStatsOptions options, StatsRecorder statsRecorder, Tagger tagger) {
+    this.maxFingerprints = options.getMaxFingerprints();
+    this.statsRecorder = checkNotNull(statsRecorder);
+    this.tagger = checkNotNull(tagger);
+  }
+
+  /**
+   * Registers the OpenCensus views of the query statistics. Registering a view that has already
+   * been registered is a no-op.
+   */
+  static void registerViews() {
+    ViewManager viewManager = Stats.getViewManager();
+    viewManager.registerView(QUERY_LATENCY_VIEW);
+    viewManager.registerView(QUERY_TIME_TO_FIRST_ROW_VIEW);
+    viewManager.registerView(QUERY_ROWS_RETURNED_VIEW);
+    viewManager.registerView(QUERY_BYTES_RECEIVED_VIEW);
+  }
+
+  /**
+   * Returns the statistics of the n query fingerprints with the highest total latency, ordered by
+   * total latency in descending order.
+   */
+  List<QueryStats> getTopQueryStats(int n) {
+    checkArgument(n >= 0, "n must be >= 0");
+    List<QueryStats> stats = new ArrayList<>(entries.size());
+    for (Entry entry : entries.values()) {
+      stats.add(entry.snapshot());
+    }
+    return BY_TOTAL_LATENCY.greatestOf(stats, n);
+  }
+
+  /**
+   * Returns an iterator that records the statistics of the result stream of the given query when
+   * the stream ends or is closed.
+   */
+  CloseableIterator<PartialResultSet> wrap(String sql, CloseableIterator<PartialResultSet> stream) {
+    return new RecordingIterator(sql, stream);
+  }
+
+  /**
+   * Records one execution of the given query. timeToFirstRowNanos is negative if the query did not
+   * return any rows.
+   */
+  @VisibleForTesting
+  void record(String sql, long rows, long bytes, long timeToFirstRowNanos, long latencyNanos) {
+    Entry entry = getEntry(QueryFingerprint.of(sql));
+    double latencyMillis = latencyNanos / 1_000_000d;
+    double timeToFirstRowMillis = timeToFirstRowNanos / 1_000_000d;
+    entry.record(
+        rows, bytes, timeToFirstRowNanos >= 0L ? timeToFirstRowMillis : -1d, latencyMillis);
+    MeasureMap measures =
+        statsRecorder
+            .newMeasureMap()
+            .put(QUERY_LATENCY_MEASURE, latencyMillis)
+            .put(QUERY_ROWS_RETURNED_MEASURE, rows)
+            .put(QUERY_BYTES_RECEIVED_MEASURE, bytes);
+    if (timeToFirstRowNanos >= 0L) {
+      measures.put(QUERY_TIME_TO_FIRST_ROW_MEASURE, timeToFirstRowMillis);
+    }
+    measures.record(entry.tags);
+  }
+
+  private Entry getEntry(String fingerprint) {
+    Entry entry = entries.get(fingerprint);
+    if (entry != null) {
+      return entry;
+    }
+    // The size is checked without a lock, so the limit can be exceeded by a few fingerprints when
+    // multiple new fingerprints are added at the same time.
+    if (entries.size() >= maxFingerprints) {
+      fingerprint = OTHER_FINGERPRINT;
+      entry = entries.get(fingerprint);
+      if (entry != null) {
+        return entry;
+      }
+    }
+    Entry newEntry =
+        new Entry(
+            fingerprint,
+            tagger
+                .emptyBuilder()
+                .put(QUERY_FINGERPRINT, TagValue.create(toTagValue(fingerprint)))
+                .build());
+    entry = entries.putIfAbsent(fingerprint, newEntry);
+    return entry == null ? newEntry : entry;
+  }
+
+  /**
+   * Converts a fingerprint to a valid tag value by replacing characters that are not printable
+   * ASCII and truncating it to the maximum length of a tag value.
+   */
+  private static String toTagValue(String fingerprint) {
+    int length = Math.min(fingerprint.length(), MAX_TAG_VALUE_LENGTH);
+    StringBuilder value = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      char c = fingerprint.charAt(i);
+      value.append(c >= ' ' && c <= '~' ? c : '?');
+    }
+    return value.toString();
+  }
+
+  private static final class Entry {
+    private final String fingerprint;
+    private final TagContext tags;
+
+    @GuardedBy("this")
+    private long executionCount;
+
+    @GuardedBy("this")
+    private long rowCount;
+
+    @GuardedBy("this")
+    private long bytesReceived;
+
+    @GuardedBy("this")
+    private double totalLatencyMillis;
+
+    @GuardedBy("this")
+    private final long[] latencyCounts = new long[MILLISECOND_BUCKET_BOUNDARIES.size() + 1];
+
+    @GuardedBy("this")
+    private double maxLatencyMillis;
+
+    @GuardedBy("this")
+    private final long[] timeToFirstRowCounts = new long[MILLISECOND_BUCKET_BOUNDARIES.size() + 1];
+
+    @GuardedBy("this")
+    private double maxTimeToFirstRowMillis;
+
+    private Entry(String fingerprint, TagContext tags) {
+      this.fingerprint = fingerprint;
+      this.tags = tags;
+    }
+
+    synchronized void record(
+        long rows, long bytes, double timeToFirstRowMillis, double latencyMillis) {
+      executionCount++;
+      rowCount += rows;
+      bytesReceived += bytes;
+      totalLatencyMillis += latencyMillis;
+      latencyCounts[bucket(latencyMillis)]++;
+      maxLatencyMillis = Math.max(maxLatencyMillis, latencyMillis);
+      if (timeToFirstRowMillis >= 0d) {
+        timeToFirstRowCounts[bucket(timeToFirstRowMillis)]++;
+        maxTimeToFirstRowMillis = Math.max(maxTimeToFirstRowMillis, timeToFirstRowMillis);
+      }
+    }
+
+    synchronized QueryStats snapshot() {
+      return new QueryStats(
+          fingerprint,
+          executionCount,
+          rowCount,
+          bytesReceived,
+          totalLatencyMillis,
+          MILLISECOND_BUCKET_BOUNDARIES,
+          Arrays.copyOf(latencyCounts, latencyCounts.length),
+          maxLatencyMillis,
+          Arrays.copyOf(timeToFirstRowCounts, timeToFirstRowCounts.length),
+          maxTimeToFirstRowMillis);
+    }
+
+    /** Returns the index of the first bucket whose upper bound is at least the given value. */
+    private static int bucket(double millis) {
+      int bucket = 0;
+      while (bucket < MILLISECOND_BUCKET_BOUNDARIES.size()
+          && MILLISECOND_BUCKET_BOUNDARIES.get(bucket) < millis) {
+        bucket++;
+      }
+      return bucket;
+    }
+  }
+
+  /**
+   * Counts the bytes and rows of a result stream, and records the statistics of the stream once
+   * when it ends, fails or is closed. The latency is measured from the first request for a row.
+   */
+  private final class RecordingIterator implements CloseableIterator<PartialResultSet> {
+    private final String sql;
+    private final CloseableIterator<PartialResultSet> delegate;
+    private long startNanos = -1L;
+    private long firstRowNanos = -1L;
+    private long bytes;
+    private long values;
+    private int columns;
+    private boolean recorded;
+
+    private RecordingIterator(String sql, CloseableIterator<PartialResultSet> delegate) {
+      this.sql = sql;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean hasNext() {
+      start();
+      boolean hasNext;
+      try {
+        hasNext = delegate.hasNext();
+      } catch (RuntimeException e) {
+        finish();
+        throw e;
+      }
+      if (!hasNext) {
+        finish();
+      }
+      return hasNext;
+    }
+
+    @Override
+    public PartialResultSet next() {
+      start();
+      PartialResultSet partialResultSet = delegate.next();
+      bytes += partialResultSet.getSerializedSize();
+      if (partialResultSet.hasMetadata()) {
+        columns = partialResultSet.getMetadata().getRowType().getFieldsCount();
+      }
+      int count = partialResultSet.getValuesCount();
+      if (count > 0 && firstRowNanos < 0L) {
+        firstRowNanos = System.nanoTime();
+      }
+      // A chunked value is continued in the next partial result set, and is only counted once.
+      values += partialResultSet.getChunkedValue() ? count - 1 : count;
+      return partialResultSet;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close(@Nullable String message) {
+      delegate.close(message);
+      finish();
+    }
+
+    private void start() {
+      if (startNanos < 0L) {
+        startNanos = System.nanoTime();
+      }
+    }
+
+    private void finish() {
+      if (recorded || startNanos < 0L) {
+        return;
+      }
+      recorded = true;
+      record(
+          sql,
+          columns == 0 ? 0L : values / columns,
+          bytes,
+          firstRowNanos < 0L ? -1L : firstRowNanos - startNanos,
+          System.nanoTime() - startNanos);
+    }
+  }
+}
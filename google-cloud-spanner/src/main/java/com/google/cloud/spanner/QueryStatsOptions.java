@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Options for the client-side statistics of queries that are collected per query fingerprint. See
+ * {@link QueryStats}.
+ */
+public class QueryStatsOptions {
+  private static final int DEFAULT_MAX_FINGERPRINTS = 1000;
+
+  private final int maxFingerprints;
+
+  private QueryStatsOptions(Builder builder) {
+    this.maxFingerprints = builder.maxFingerprints;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the maximum number of distinct query fingerprints that statistics are kept for.
+   * Executions of queries with other fingerprints are aggregated under the fingerprint {@code
+   * <other>}.
+   */
+  public int getMaxFingerprints() {
+    return maxFingerprints;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("maxFingerprints", maxFingerprints).toString();
+  }
+
+  /** Builder for creating {@link QueryStatsOptions}. */
+  public static class Builder {
+    private int maxFingerprints = DEFAULT_MAX_FINGERPRINTS;
+
+    private Builder() {}
+
+    /**
+     * Sets the maximum number of distinct query fingerprints that statistics are kept for. This
+     * limits the memory usage of the statistics and the number of time series that are exported to
+     * OpenCensus. The default is 1000.
+     */
+    public Builder setMaxFingerprints(int maxFingerprints) {
+      Preconditions.checkArgument(maxFingerprints > 0, "maxFingerprints must be > 0");
+      this.maxFingerprints = maxFingerprints;
+      return this;
+    }
+
+    public QueryStatsOptions build() {
+      return new QueryStatsOptions(this);
+    }
+  }
+}
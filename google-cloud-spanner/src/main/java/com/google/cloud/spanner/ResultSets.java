@@ -19,11 +19,14 @@ package com.google.cloud.spanner;
 import com.google.cloud.ByteArray;
 import com.google.cloud.Date;
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.AbstractResultSet.GrpcResultSet;
 import com.google.cloud.spanner.Type.Code;
 import com.google.cloud.spanner.Type.StructField;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.Lists;
 import com.google.spanner.v1.ResultSetStats;
+import java.util.Iterator;
 import java.util.List;
 
 /** Utility methods for working with {@link com.google.cloud.spanner.ResultSet}. */
@@ -41,6 +44,57 @@ public final class ResultSets {
     return new PrePopulatedResultSet(type, rows);
   }
 
+  /**
+   * Returns an iterator that reads the remaining rows of {@code resultSet} into {@link
+   * ColumnBatch}es of at most {@code maxRowsPerBatch} rows each. This is typically used to convert
+   * the results of each {@link BatchReadOnlyTransaction#execute(Partition)} call into columnar
+   * record batches:
+   *
+   * <pre>{@code
+   * try (ResultSet resultSet = txn.execute(partition)) {
+   *   Iterator<ColumnBatch> batches = ResultSets.toColumnBatches(resultSet, 10000);
+   *   while (batches.hasNext()) {
+   *     ColumnBatch batch = batches.next();
+   *     long[] ids = batch.getLongColumn(0);
+   *     ...
+   *   }
+   * }
+   * }</pre>
+   *
+   * <p>Result sets that are returned by Cloud Spanner are decoded directly into the column batches
+   * without creating a {@link Struct} for each row. The result set must not be advanced with {@link
+   * ResultSet#next()} while the iterator is in use, and must still be closed by the caller.
+   */
+  public static Iterator<ColumnBatch> toColumnBatches(
+      final ResultSet resultSet, final int maxRowsPerBatch) {
+    Preconditions.checkNotNull(resultSet);
+    Preconditions.checkArgument(
+        maxRowsPerBatch > 0, "maxRowsPerBatch must be positive: %s", maxRowsPerBatch);
+    if (resultSet instanceof GrpcResultSet) {
+      final GrpcResultSet grpcResultSet = (GrpcResultSet) resultSet;
+      return new AbstractIterator<ColumnBatch>() {
+        @Override
+        protected ColumnBatch computeNext() {
+          ColumnBatch batch = grpcResultSet.nextColumnBatch(maxRowsPerBatch);
+          return batch == null ? endOfData() : batch;
+        }
+      };
+    }
+    return new AbstractIterator<ColumnBatch>() {
+      @Override
+      protected ColumnBatch computeNext() {
+        if (!resultSet.next()) {
+          return endOfData();
+        }
+        ColumnBatch.Builder builder = new ColumnBatch.Builder(resultSet.getType(), maxRowsPerBatch);
+        do {
+          builder.addRow(resultSet.getCurrentRowAsStruct());
+        } while (builder.getRowCount() < maxRowsPerBatch && resultSet.next());
+        return builder.build();
+      }
+    };
+  }
+
   private static class PrePopulatedResultSet implements ResultSet {
     private final List<Struct> rows;
     private final Type type;
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.cloud.spanner.MetricRegistryConstants.COUNT;
+import static com.google.cloud.spanner.MetricRegistryConstants.RETRIES_ATTEMPTED;
+import static com.google.cloud.spanner.MetricRegistryConstants.RETRIES_ATTEMPTED_DESCRIPTION;
+import static com.google.cloud.spanner.MetricRegistryConstants.RETRIES_DENIED;
+import static com.google.cloud.spanner.MetricRegistryConstants.RETRIES_DENIED_DESCRIPTION;
+import static com.google.cloud.spanner.MetricRegistryConstants.RETRY_BUDGET_LABEL_KEYS;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import io.opencensus.common.ToLongFunction;
+import io.opencensus.metrics.DerivedLongCumulative;
+import io.opencensus.metrics.LabelValue;
+import io.opencensus.metrics.MetricOptions;
+import io.opencensus.metrics.MetricRegistry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Token bucket that limits the number of client-side retries of a {@link Spanner} instance to a
+ * ratio of the number of successful requests. See {@link RetryBudgetOptions}.
+ */
+class RetryBudget {
+  private final int maxTokens;
+  private final double retryRatio;
+  private final AtomicLong retriesAttempted = new AtomicLong();
+  private final AtomicLong retriesDenied = new AtomicLong();
+
+  @GuardedBy("this")
+  private double tokens;
+
+  RetryBudget(RetryBudgetOptions options) {
+    Preconditions.checkNotNull(options);
+    this.maxTokens = options.getMaxTokens();
+    this.retryRatio = options.getRetryRatio();
+    this.tokens = maxTokens;
+  }
+
+  /**
+   * Withdraws one token from the budget for a retry. Returns {@code false} if the budget is spent,
+   * in which case the caller should not retry.
+   */
+  boolean tryAcquireRetry() {
+    synchronized (this) {
+      if (tokens >= 1d) {
+        tokens -= 1d;
+        retriesAttempted.incrementAndGet();
+        return true;
+      }
+    }
+    retriesDenied.incrementAndGet();
+    return false;
+  }
+
+  /** Deposits tokens in the budget for a successful request. */
+  void recordSuccess() {
+    synchronized (this) {
+      tokens = Math.min(maxTokens, tokens + retryRatio);
+    }
+  }
+
+  @VisibleForTesting
+  synchronized double getTokens() {
+    return tokens;
+  }
+
+  long getRetriesAttempted() {
+    return retriesAttempted.get();
+  }
+
+  long getRetriesDenied() {
+    return retriesDenied.get();
+  }
+
+  /** Exports the number of attempted and denied retries to the given {@link MetricRegistry}. */
+  void registerMetrics(MetricRegistry metricRegistry, List<LabelValue> labelValues) {
+    DerivedLongCumulative retriesAttemptedMetric =
+        metricRegistry.addDerivedLongCumulative(
+            RETRIES_ATTEMPTED,
+            MetricOptions.builder()
+                .setDescription(RETRIES_ATTEMPTED_DESCRIPTION)
+                .setUnit(COUNT)
+                .setLabelKeys(RETRY_BUDGET_LABEL_KEYS)
+                .build());
+    DerivedLongCumulative retriesDeniedMetric =
+        metricRegistry.addDerivedLongCumulative(
+            RETRIES_DENIED,
+            MetricOptions.builder()
+                .setDescription(RETRIES_DENIED_DESCRIPTION)
+                .setUnit(COUNT)
+                .setLabelKeys(RETRY_BUDGET_LABEL_KEYS)
+                .build());
+
+    retriesAttemptedMetric.createTimeSeries(
+        labelValues,
+        this,
+        new ToLongFunction<RetryBudget>() {
+          @Override
+          public long applyAsLong(RetryBudget budget) {
+            return budget.getRetriesAttempted();
+          }
+        });
+    retriesDeniedMetric.createTimeSeries(
+        labelValues,
+        this,
+        new ToLongFunction<RetryBudget>() {
+          @Override
+          public long applyAsLong(RetryBudget budget) {
+            return budget.getRetriesDenied();
+          }
+        });
+  }
+}
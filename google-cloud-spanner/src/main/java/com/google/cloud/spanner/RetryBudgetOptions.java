@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Preconditions;
+
+/**
+ * Options for the client-side retry budget of a {@link Spanner} instance. The retry budget limits
+ * the number of retries of aborted transactions and broken result streams to a ratio of the number
+ * of successful requests. This prevents all client threads from retrying at the same time during a
+ * server-side incident and amplifying the load on the backend.
+ *
+ * <p>The budget is a token bucket that starts full. Each retry withdraws one token and each
+ * successful request deposits {@link #getRetryRatio()} tokens, up to {@link #getMaxTokens()}. A
+ * retry that is attempted while the bucket holds less than one token is denied, and the operation
+ * fails with the error that would otherwise have been retried.
+ */
+public class RetryBudgetOptions {
+  private static final int DEFAULT_MAX_TOKENS = 100;
+  private static final double DEFAULT_RETRY_RATIO = 0.1d;
+
+  private final int maxTokens;
+  private final double retryRatio;
+
+  private RetryBudgetOptions(Builder builder) {
+    this.maxTokens = builder.maxTokens;
+    this.retryRatio = builder.retryRatio;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Returns the maximum number of retries that may be executed in a burst. */
+  public int getMaxTokens() {
+    return maxTokens;
+  }
+
+  /** Returns the number of retries that each successful request adds to the budget. */
+  public double getRetryRatio() {
+    return retryRatio;
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this)
+        .add("maxTokens", maxTokens)
+        .add("retryRatio", retryRatio)
+        .toString();
+  }
+
+  /** Builder for creating {@link RetryBudgetOptions}. */
+  public static class Builder {
+    private int maxTokens = DEFAULT_MAX_TOKENS;
+    private double retryRatio = DEFAULT_RETRY_RATIO;
+
+    private Builder() {}
+
+    /**
+     * Sets the maximum number of retries that may be executed in a burst without any successful
+     * requests in between. The default is 100.
+     */
+    public Builder setMaxTokens(int maxTokens) {
+      Preconditions.checkArgument(maxTokens > 0, "maxTokens must be > 0");
+      this.maxTokens = maxTokens;
+      return this;
+    }
+
+    /**
+     * Sets the number of retries that each successful request adds to the budget. A ratio of 0.1
+     * allows one retry for every ten successful requests once the initial burst has been used. The
+     * default is 0.1.
+     */
+    public Builder setRetryRatio(double retryRatio) {
+      Preconditions.checkArgument(retryRatio >= 0d, "retryRatio must be >= 0");
+      this.retryRatio = retryRatio;
+      return this;
+    }
+
+    public RetryBudgetOptions build() {
+      return new RetryBudgetOptions(this);
+    }
+  }
+}
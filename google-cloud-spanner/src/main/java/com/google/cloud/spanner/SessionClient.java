@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 /** Client for creating single sessions and batches of sessions. */
@@ -87,6 +88,10 @@ class SessionClient implements AutoCloseable {
       return new SessionOption(SpannerRpc.Option.CHANNEL_HINT, hint);
     }
 
+    static SessionOption clientId(String clientId) {
+      return new SessionOption(SpannerRpc.Option.CLIENT_ID, clientId);
+    }
+
     SpannerRpc.Option rpcOption() {
       return rpcOption;
     }
@@ -108,17 +113,31 @@ class SessionClient implements AutoCloseable {
     return ImmutableMap.copyOf(tmp);
   }
 
+  /**
+   * Returns the options for a session with the given channel hint that is used by the database
+   * client with the given id, if any.
+   */
+  private static Map<SpannerRpc.Option, ?> sessionOptions(
+      long channelHint, @Nullable String clientId) {
+    if (clientId == null) {
+      return optionMap(SessionOption.channelHint(channelHint));
+    }
+    return optionMap(SessionOption.channelHint(channelHint), SessionOption.clientId(clientId));
+  }
+
   private final class BatchCreateSessionsRunnable implements Runnable {
     private final long channelHint;
     private final int sessionCount;
+    @Nullable private final String clientId;
     private final SessionConsumer consumer;
 
     private BatchCreateSessionsRunnable(
-        int sessionCount, long channelHint, SessionConsumer consumer) {
+        int sessionCount, long channelHint, @Nullable String clientId, SessionConsumer consumer) {
       Preconditions.checkNotNull(consumer);
       Preconditions.checkArgument(sessionCount > 0, "sessionCount must be > 0");
       this.channelHint = channelHint;
       this.sessionCount = sessionCount;
+      this.clientId = clientId;
       this.consumer = consumer;
     }
 
@@ -133,7 +152,8 @@ class SessionClient implements AutoCloseable {
             .addAnnotation(String.format("Creating %d sessions", sessionCount));
         while (remainingSessionsToCreate > 0) {
           try {
-            sessions = internalBatchCreateSessions(remainingSessionsToCreate, channelHint);
+            sessions =
+                internalBatchCreateSessions(remainingSessionsToCreate, channelHint, clientId);
           } catch (Throwable t) {
             TraceUtil.setWithFailure(SpannerImpl.tracer.getCurrentSpan(), t);
             consumer.onSessionCreateFailure(t, remainingSessionsToCreate);
@@ -166,6 +186,9 @@ class SessionClient implements AutoCloseable {
     void onSessionCreateFailure(Throwable t, int createFailureForSessionCount);
   }
 
+  /** The maximum number of sessions that Cloud Spanner returns for one BatchCreateSessions RPC. */
+  private static final int MAX_SESSIONS_PER_BATCH_CREATE = 100;
+
   private final SpannerImpl spanner;
   private final ExecutorFactory<ScheduledExecutorService> executorFactory;
   private final ScheduledExecutorService executor;
@@ -234,6 +257,17 @@ class SessionClient implements AutoCloseable {
    * @param consumer The {@link SessionConsumer} to use for callbacks when sessions are available.
    */
   void asyncBatchCreateSessions(final int sessionCount, SessionConsumer consumer) {
+    asyncBatchCreateSessions(sessionCount, null, consumer);
+  }
+
+  /**
+   * Asynchronously creates a batch of sessions for the database client with the given id. The id is
+   * passed to the {@link SpannerRpc} layer with the RPCs of the sessions, and is used as the client
+   * id label of the RPC latency metrics. See {@link #asyncBatchCreateSessions(int,
+   * SessionConsumer)}.
+   */
+  void asyncBatchCreateSessions(
+      final int sessionCount, @Nullable String clientId, SessionConsumer consumer) {
     // We spread the session creation evenly over all available channels.
     int sessionCountPerChannel = sessionCount / spanner.getOptions().getNumChannels();
     int remainder = sessionCount % spanner.getOptions().getNumChannels();
@@ -253,13 +287,29 @@ class SessionClient implements AutoCloseable {
           createCountForChannel = sessionCountPerChannel + remainder;
         }
         if (createCountForChannel > 0) {
-          try {
-            executor.submit(
-                new BatchCreateSessionsRunnable(
-                    createCountForChannel, sessionChannelCounter++, consumer));
-            numBeingCreated += createCountForChannel;
-          } catch (Throwable t) {
-            consumer.onSessionCreateFailure(t, sessionCount - numBeingCreated);
+          long channelHint = sessionChannelCounter++;
+          // Split the sessions for a channel over multiple concurrent RPCs if more sessions are
+          // needed than one RPC returns.
+          int numRpcs =
+              Math.min(
+                  spanner
+                      .getOptions()
+                      .getSessionPoolOptions()
+                      .getBatchCreateSessionsConcurrencyPerChannel(),
+                  (createCountForChannel + MAX_SESSIONS_PER_BATCH_CREATE - 1)
+                      / MAX_SESSIONS_PER_BATCH_CREATE);
+          for (int rpc = 0; rpc < numRpcs; rpc++) {
+            int createCountForRpc =
+                createCountForChannel / numRpcs + (rpc < createCountForChannel % numRpcs ? 1 : 0);
+            try {
+              executor.submit(
+                  new BatchCreateSessionsRunnable(
+                      createCountForRpc, channelHint, clientId, consumer));
+              numBeingCreated += createCountForRpc;
+            } catch (Throwable t) {
+              consumer.onSessionCreateFailure(t, sessionCount - numBeingCreated);
+              return;
+            }
           }
         } else {
           break;
@@ -274,8 +324,9 @@ class SessionClient implements AutoCloseable {
    * that are distributed over multiple channels.
    */
   private List<SessionImpl> internalBatchCreateSessions(
-      final int sessionCount, final long channelHint) throws SpannerException {
-    final Map<SpannerRpc.Option, ?> options = optionMap(SessionOption.channelHint(channelHint));
+      final int sessionCount, final long channelHint, @Nullable String clientId)
+      throws SpannerException {
+    final Map<SpannerRpc.Option, ?> options = sessionOptions(channelHint, clientId);
     Span parent = SpannerImpl.tracer.getCurrentSpan();
     Span span =
         SpannerImpl.tracer
@@ -305,9 +356,17 @@ class SessionClient implements AutoCloseable {
 
   /** Returns a {@link SessionImpl} that references the existing session with the given name. */
   SessionImpl sessionWithId(String name) {
+    return sessionWithId(name, null);
+  }
+
+  /**
+   * Returns a {@link SessionImpl} that references the existing session with the given name, and
+   * that is used by the database client with the given id.
+   */
+  SessionImpl sessionWithId(String name, @Nullable String clientId) {
     final Map<SpannerRpc.Option, ?> options;
     synchronized (this) {
-      options = optionMap(SessionOption.channelHint(sessionChannelCounter++));
+      options = sessionOptions(sessionChannelCounter++, clientId);
     }
     return new SessionImpl(spanner, name, options);
   }
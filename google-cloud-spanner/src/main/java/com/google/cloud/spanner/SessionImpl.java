@@ -25,6 +25,7 @@ import com.google.cloud.spanner.AbstractReadContext.MultiUseReadOnlyTransaction;
 import com.google.cloud.spanner.AbstractReadContext.SingleReadContext;
 import com.google.cloud.spanner.AbstractReadContext.SingleUseReadOnlyTransaction;
 import com.google.cloud.spanner.SessionClient.SessionId;
+import com.google.cloud.spanner.SpannerOptions.TracingLevel;
 import com.google.cloud.spanner.TransactionRunnerImpl.TransactionContextImpl;
 import com.google.cloud.spanner.spi.v1.SpannerRpc;
 import com.google.common.collect.Lists;
@@ -41,6 +42,7 @@ import io.opencensus.trace.Tracer;
 import io.opencensus.trace.Tracing;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
@@ -84,12 +86,19 @@ class SessionImpl implements Session {
   private SessionTransaction activeTransaction;
   private ByteString readyTransactionId;
   private final Map<SpannerRpc.Option, ?> options;
+  private final TracingLevel tracingLevel;
+  private final RetryBudget retryBudget;
+  private final QueryStatsAggregator queryStats;
 
   SessionImpl(SpannerImpl spanner, String name, Map<SpannerRpc.Option, ?> options) {
     this.spanner = spanner;
     this.options = options;
     this.name = checkNotNull(name);
     this.databaseId = SessionId.of(name).getDatabaseId();
+    SpannerOptions spannerOptions = spanner == null ? null : spanner.getOptions();
+    this.tracingLevel = spannerOptions == null ? null : spannerOptions.getTracingLevel();
+    this.retryBudget = spanner == null ? null : spanner.getRetryBudget();
+    this.queryStats = spanner == null ? null : spanner.getQueryStats();
   }
 
   @Override
@@ -97,6 +106,33 @@ class SessionImpl implements Session {
     return name;
   }
 
+  /**
+   * Returns the {@link TracingLevel} of the {@link Spanner} instance that created this session, or
+   * {@code null} if it is unknown.
+   */
+  @Nullable
+  TracingLevel getTracingLevel() {
+    return tracingLevel;
+  }
+
+  /**
+   * Returns the {@link RetryBudget} of the {@link Spanner} instance that created this session, or
+   * {@code null} if retries are not limited.
+   */
+  @Nullable
+  RetryBudget getRetryBudget() {
+    return retryBudget;
+  }
+
+  /**
+   * Returns the {@link QueryStatsAggregator} of the {@link Spanner} instance that created this
+   * session, or {@code null} if query statistics are not collected.
+   */
+  @Nullable
+  QueryStatsAggregator getQueryStats() {
+    return queryStats;
+  }
+
   Map<SpannerRpc.Option, ?> getOptions() {
     return options;
   }
@@ -108,6 +144,29 @@ class SessionImpl implements Session {
     return txn.executePartitionedUpdate(stmt, spanner.getOptions().getPartitionedDmlTimeout());
   }
 
+  @Override
+  public ApiFuture<Long> executePartitionedUpdateAsync(Statement stmt) {
+    return executePartitionedUpdatesAsync(Collections.singleton(stmt), 1).get(0);
+  }
+
+  @Override
+  public List<ApiFuture<Long>> executePartitionedUpdatesAsync(
+      Iterable<Statement> statements, int maxConcurrency) {
+    return PartitionedUpdateRunner.executeSequentially(this, statements, maxConcurrency);
+  }
+
+  /** A single session cannot execute reads and queries in parallel. */
+  @Override
+  public ReadOnlyTransaction parallelReadOnlyTransaction(TimestampBound bound) {
+    return readOnlyTransaction(bound);
+  }
+
+  /** A session has already been acquired and is therefore not affected by a priority. */
+  @Override
+  public DatabaseClient withSessionPriority(SessionPriority priority) {
+    return this;
+  }
+
   @Override
   public Timestamp write(Iterable<Mutation> mutations) throws SpannerException {
     TransactionRunner runner = readWriteTransaction();
@@ -206,6 +265,28 @@ class SessionImpl implements Session {
             .build());
   }
 
+  /**
+   * Begins a read-only transaction with the given bound on this session and returns the read
+   * timestamp that Cloud Spanner chose for the transaction.
+   */
+  Timestamp beginReadOnlyTransaction(TimestampBound bound) {
+    MultiUseReadOnlyTransaction txn =
+        setActive(
+            MultiUseReadOnlyTransaction.newBuilder()
+                .setSession(this)
+                .setTimestampBound(bound)
+                .setRpc(spanner.getRpc())
+                .setDefaultQueryOptions(spanner.getDefaultQueryOptions(databaseId))
+                .setDefaultPrefetchChunks(spanner.getDefaultPrefetchChunks())
+                .build());
+    try {
+      txn.initTransaction();
+      return txn.getReadTimestamp();
+    } finally {
+      txn.close();
+    }
+  }
+
   @Override
   public TransactionRunner readWriteTransaction() {
     return setActive(
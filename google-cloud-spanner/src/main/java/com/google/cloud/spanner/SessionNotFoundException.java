@@ -36,4 +36,17 @@ public class SessionNotFoundException extends ResourceNotFoundException {
       @Nullable Throwable cause) {
     super(token, message, resourceInfo, cause);
   }
+
+  /**
+   * Skips capturing the stack trace if this exception is created while the client library is
+   * internally retrying an operation, as these exceptions are normally caught and retried. See
+   * {@link SpannerExceptionFactory#enterRetryScope()}.
+   */
+  @Override
+  public synchronized Throwable fillInStackTrace() {
+    if (SpannerExceptionFactory.isInRetryScope()) {
+      return this;
+    }
+    return super.fillInStackTrace();
+  }
 }
@@ -18,6 +18,8 @@ package com.google.cloud.spanner;
 
 import static com.google.cloud.spanner.MetricRegistryConstants.COUNT;
 import static com.google.cloud.spanner.MetricRegistryConstants.GET_SESSION_TIMEOUTS;
+import static com.google.cloud.spanner.MetricRegistryConstants.GET_SESSION_WAIT_TIME_MEASURE;
+import static com.google.cloud.spanner.MetricRegistryConstants.GET_SESSION_WAIT_TIME_VIEW;
 import static com.google.cloud.spanner.MetricRegistryConstants.IN_USE_SESSIONS;
 import static com.google.cloud.spanner.MetricRegistryConstants.IN_USE_SESSIONS_DESCRIPTION;
 import static com.google.cloud.spanner.MetricRegistryConstants.MAX_ALLOWED_SESSIONS;
@@ -26,22 +28,36 @@ import static com.google.cloud.spanner.MetricRegistryConstants.MAX_IN_USE_SESSIO
 import static com.google.cloud.spanner.MetricRegistryConstants.MAX_IN_USE_SESSIONS_DESCRIPTION;
 import static com.google.cloud.spanner.MetricRegistryConstants.NUM_ACQUIRED_SESSIONS;
 import static com.google.cloud.spanner.MetricRegistryConstants.NUM_ACQUIRED_SESSIONS_DESCRIPTION;
+import static com.google.cloud.spanner.MetricRegistryConstants.NUM_ADMISSION_REJECTIONS;
+import static com.google.cloud.spanner.MetricRegistryConstants.NUM_ADMISSION_REJECTIONS_DESCRIPTION;
 import static com.google.cloud.spanner.MetricRegistryConstants.NUM_RELEASED_SESSIONS;
 import static com.google.cloud.spanner.MetricRegistryConstants.NUM_RELEASED_SESSIONS_DESCRIPTION;
+import static com.google.cloud.spanner.MetricRegistryConstants.NUM_SESSION_WAITERS;
+import static com.google.cloud.spanner.MetricRegistryConstants.NUM_SESSION_WAITERS_DESCRIPTION;
+import static com.google.cloud.spanner.MetricRegistryConstants.PREPARE_SESSION_LATENCY_MEASURE;
+import static com.google.cloud.spanner.MetricRegistryConstants.PREPARE_SESSION_LATENCY_VIEW;
 import static com.google.cloud.spanner.MetricRegistryConstants.SESSIONS_TIMEOUTS_DESCRIPTION;
+import static com.google.cloud.spanner.MetricRegistryConstants.SESSION_HOLD_TIME_MEASURE;
+import static com.google.cloud.spanner.MetricRegistryConstants.SESSION_HOLD_TIME_VIEW;
+import static com.google.cloud.spanner.MetricRegistryConstants.SESSION_TYPE;
 import static com.google.cloud.spanner.MetricRegistryConstants.SPANNER_DEFAULT_LABEL_VALUES;
 import static com.google.cloud.spanner.MetricRegistryConstants.SPANNER_LABEL_KEYS;
+import static com.google.cloud.spanner.MetricRegistryConstants.SPANNER_TAG_KEYS;
 import static com.google.cloud.spanner.SpannerExceptionFactory.newSpannerException;
+import static com.google.cloud.spanner.SpannerExceptionFactory.newSpannerExceptionForCancellation;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutures;
 import com.google.cloud.Timestamp;
 import com.google.cloud.grpc.GrpcTransportOptions;
 import com.google.cloud.grpc.GrpcTransportOptions.ExecutorFactory;
+import com.google.cloud.spanner.AbstractReadContext.SingleReadContext;
 import com.google.cloud.spanner.Options.QueryOption;
 import com.google.cloud.spanner.Options.ReadOption;
 import com.google.cloud.spanner.SessionClient.SessionConsumer;
 import com.google.cloud.spanner.SpannerException.ResourceNotFoundException;
+import com.google.cloud.spanner.SpannerOptions.TracingLevel;
+import com.google.cloud.spanner.spi.v1.SpannerLatencyInterceptor.LatencyListener;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.MoreObjects;
@@ -55,6 +71,9 @@ import com.google.common.util.concurrent.SettableFuture;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.protobuf.Empty;
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.Status.Code;
 import io.opencensus.common.Scope;
 import io.opencensus.common.ToLongFunction;
 import io.opencensus.metrics.DerivedLongCumulative;
@@ -63,25 +82,42 @@ import io.opencensus.metrics.LabelValue;
 import io.opencensus.metrics.MetricOptions;
 import io.opencensus.metrics.MetricRegistry;
 import io.opencensus.metrics.Metrics;
+import io.opencensus.stats.Measure.MeasureDouble;
+import io.opencensus.stats.Stats;
+import io.opencensus.stats.StatsRecorder;
+import io.opencensus.stats.ViewManager;
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.TagContextBuilder;
+import io.opencensus.tags.TagValue;
+import io.opencensus.tags.Tagger;
+import io.opencensus.tags.Tags;
 import io.opencensus.trace.Annotation;
 import io.opencensus.trace.AttributeValue;
 import io.opencensus.trace.Span;
 import io.opencensus.trace.Status;
 import io.opencensus.trace.Tracer;
 import io.opencensus.trace.Tracing;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -148,7 +184,13 @@ final class SessionPool {
       return readContextDelegate;
     }
 
-    private ResultSet wrap(final Supplier<ResultSet> resultSetSupplier) {
+    /**
+     * Wraps the result set that is returned by the given supplier. If {@code resumable} is true,
+     * the stream is resumed at the read timestamp of the original stream if it loses its session
+     * after it has returned rows. Only reads return their rows in a deterministic (key) order, so
+     * only reads can be resumed without returning different or duplicate rows.
+     */
+    private ResultSet wrap(final Supplier<ResultSet> resultSetSupplier, final boolean resumable) {
       ResultSet res;
       while (true) {
         try {
@@ -160,16 +202,59 @@ final class SessionPool {
       }
       return new ForwardingResultSet(res) {
         private boolean beforeFirst = true;
+        private long rowsReturned;
+        private long rowsToSkip;
 
         @Override
         public boolean next() throws SpannerException {
           while (true) {
             try {
+              skipRowsReturnedBeforeResume();
               return internalNext();
             } catch (SessionNotFoundException e) {
-              replaceSessionIfPossible(e);
-              replaceDelegate(resultSetSupplier.get());
+              if (rowsReturned > 0L) {
+                resumeAtReadTimestamp(e);
+              } else {
+                replaceSessionIfPossible(e);
+                replaceDelegate(resultSetSupplier.get());
+              }
+            }
+          }
+        }
+
+        /**
+         * Re-issues a single-use read that lost its session after it had returned rows. The read is
+         * executed on a new session at the read timestamp of the original read, so the stream
+         * returns the same rows in the same order, and the rows that have already been returned are
+         * skipped. Queries are not guaranteed to return their rows in the same order, so the {@link
+         * SessionNotFoundException} is propagated for queries.
+         */
+        private void resumeAtReadTimestamp(SessionNotFoundException e) {
+          Timestamp readTimestamp = null;
+          if (resumable && isSingleUse && readContextDelegate instanceof SingleReadContext) {
+            readTimestamp = ((SingleReadContext) readContextDelegate).getReadTimestampIfAvailable();
+          }
+          if (readTimestamp == null) {
+            if (isSingleUse && !closed) {
+              session.lastException = e;
+              AutoClosingReadContext.this.close();
             }
+            throw e;
+          }
+          session = sessionPool.replaceReadSession(e, session);
+          readContextDelegate = readContextAtTimestamp(session, readTimestamp);
+          replaceDelegate(resultSetSupplier.get());
+          rowsToSkip = rowsReturned;
+        }
+
+        private void skipRowsReturnedBeforeResume() {
+          while (rowsToSkip > 0L) {
+            if (!super.next()) {
+              throw SpannerExceptionFactory.newSpannerException(
+                  ErrorCode.INTERNAL,
+                  "The resumed stream returned fewer rows than had already been returned");
+            }
+            rowsToSkip--;
           }
         }
 
@@ -181,7 +266,9 @@ final class SessionPool {
               beforeFirst = false;
               sessionUsedForQuery = true;
             }
-            if (!ret && isSingleUse) {
+            if (ret) {
+              rowsReturned++;
+            } else if (isSingleUse) {
               close();
             }
             return ret;
@@ -206,6 +293,19 @@ final class SessionPool {
       };
     }
 
+    /**
+     * Returns a single-use read context on the given session that reads at the given timestamp and
+     * is of the same type as the original delegate.
+     */
+    @SuppressWarnings("unchecked")
+    private T readContextAtTimestamp(PooledSession session, Timestamp readTimestamp) {
+      TimestampBound bound = TimestampBound.ofReadTimestamp(readTimestamp);
+      if (readContextDelegate instanceof ReadOnlyTransaction) {
+        return (T) session.delegate.singleUseReadOnlyTransaction(bound);
+      }
+      return (T) session.delegate.singleUse(bound);
+    }
+
     private void replaceSessionIfPossible(SessionNotFoundException e) {
       if (isSingleUse || !sessionUsedForQuery) {
         // This class is only used by read-only transactions, so we know that we only need a
@@ -229,7 +329,8 @@ final class SessionPool {
             public ResultSet get() {
               return readContextDelegate.read(table, keys, columns, options);
             }
-          });
+          },
+          true);
     }
 
     @Override
@@ -245,7 +346,8 @@ final class SessionPool {
             public ResultSet get() {
               return readContextDelegate.readUsingIndex(table, index, keys, columns, options);
             }
-          });
+          },
+          true);
     }
 
     @Override
@@ -296,7 +398,8 @@ final class SessionPool {
             public ResultSet get() {
               return readContextDelegate.executeQuery(statement, options);
             }
-          });
+          },
+          false);
     }
 
     @Override
@@ -307,7 +410,8 @@ final class SessionPool {
             public ResultSet get() {
               return readContextDelegate.analyzeQuery(statement, queryMode);
             }
-          });
+          },
+          false);
     }
 
     @Override
@@ -572,6 +676,7 @@ final class SessionPool {
     @Override
     @Nullable
     public <T> T run(TransactionCallable<T> callable) {
+      boolean retryScope = SpannerExceptionFactory.enterRetryScope();
       try {
         T result;
         while (true) {
@@ -586,8 +691,12 @@ final class SessionPool {
         session.markUsed();
         return result;
       } catch (SpannerException e) {
+        if (retryScope) {
+          e.ensureStackTrace();
+        }
         throw session.lastException = e;
       } finally {
+        SpannerExceptionFactory.exitRetryScope(retryScope);
         session.close();
       }
     }
@@ -623,9 +732,12 @@ final class SessionPool {
   final class PooledSession implements Session {
     @VisibleForTesting SessionImpl delegate;
     private volatile Instant lastUseTime;
+    private volatile long checkoutNanos;
     private volatile SpannerException lastException;
     private volatile LeakedSessionException leakedException;
     private volatile boolean allowReplacing = true;
+    /** The priority of the request that has checked out this session. */
+    private volatile SessionPriority priority = SessionPriority.NORMAL;
 
     @GuardedBy("lock")
     private SessionState state;
@@ -647,6 +759,7 @@ final class SessionPool {
     }
 
     private void markBusy() {
+      this.checkoutNanos = System.nanoTime();
       this.state = SessionState.BUSY;
       this.leakedException = new LeakedSessionException();
     }
@@ -679,6 +792,43 @@ final class SessionPool {
       }
     }
 
+    Timestamp beginReadOnlyTransaction(TimestampBound bound) {
+      try {
+        markUsed();
+        return delegate.beginReadOnlyTransaction(bound);
+      } catch (SpannerException e) {
+        throw lastException = e;
+      } finally {
+        close();
+      }
+    }
+
+    @Override
+    public ReadOnlyTransaction parallelReadOnlyTransaction(TimestampBound bound) {
+      return readOnlyTransaction(bound);
+    }
+
+    @Override
+    public ApiFuture<Long> executePartitionedUpdateAsync(Statement stmt) {
+      return executePartitionedUpdatesAsync(Collections.singleton(stmt), 1).get(0);
+    }
+
+    @Override
+    public List<ApiFuture<Long>> executePartitionedUpdatesAsync(
+        Iterable<Statement> statements, int maxConcurrency) {
+      try {
+        markUsed();
+        return PartitionedUpdateRunner.executeSequentially(delegate, statements, maxConcurrency);
+      } finally {
+        close();
+      }
+    }
+
+    @Override
+    public DatabaseClient withSessionPriority(SessionPriority priority) {
+      return this;
+    }
+
     @Override
     public Timestamp writeAtLeastOnce(Iterable<Mutation> mutations) throws SpannerException {
       try {
@@ -804,6 +954,12 @@ final class SessionPool {
       synchronized (lock) {
         numSessionsInUse--;
         numSessionsReleased++;
+        unreserve(this);
+      }
+      long checkout = checkoutNanos;
+      checkoutNanos = 0L;
+      if (checkout != 0L) {
+        recordLatency(SESSION_HOLD_TIME_MEASURE, checkout, tagContext);
       }
       leakedException = null;
       if (lastException != null && isSessionNotFound(lastException)) {
@@ -848,7 +1004,7 @@ final class SessionPool {
       }
     }
 
-    private void markUsed() {
+    void markUsed() {
       lastUseTime = clock.instant();
     }
 
@@ -873,58 +1029,135 @@ final class SessionPool {
     }
   }
 
+  /**
+   * A request for a session that could not be served directly from the pool. Sessions and errors
+   * are handed to a waiter without blocking, so it is safe to do so while holding {@code lock}. A
+   * session that is handed to a waiter must already have been reserved for the priority of the
+   * waiter by the thread that removed the waiter from its queue.
+   */
   private final class Waiter {
     private static final long MAX_SESSION_WAIT_TIMEOUT = 240_000L;
-    private final SynchronousQueue<SessionOrError> waiter = new SynchronousQueue<>();
+    private final SettableFuture<SessionOrError> waiter = SettableFuture.create();
+    private final SessionPriority priority;
+
+    private Waiter(SessionPriority priority) {
+      this.priority = priority;
+    }
 
     private void put(PooledSession session) {
-      Uninterruptibles.putUninterruptibly(waiter, new SessionOrError(session));
+      waiter.set(new SessionOrError(session));
     }
 
     private void put(SpannerException e) {
-      Uninterruptibles.putUninterruptibly(waiter, new SessionOrError(e));
+      waiter.set(new SessionOrError(e));
     }
 
     private PooledSession take() throws SpannerException {
       long currentTimeout = options.getInitialWaitForSessionTimeoutMillis();
-      while (true) {
-        Span span = tracer.spanBuilder(WAIT_FOR_SESSION).startSpan();
-        try (Scope waitScope = tracer.withSpan(span)) {
-          SessionOrError s = pollUninterruptiblyWithTimeout(currentTimeout);
-          if (s == null) {
-            // Set the status to DEADLINE_EXCEEDED and retry.
-            numWaiterTimeouts.incrementAndGet();
-            tracer.getCurrentSpan().setStatus(Status.DEADLINE_EXCEEDED);
-            currentTimeout = Math.min(currentTimeout * 2, MAX_SESSION_WAIT_TIMEOUT);
-          } else {
-            if (s.e != null) {
-              throw newSpannerException(s.e);
+      final Context context = Context.current();
+      Deadline deadline = context.getDeadline();
+      // Complete the waiter with an error if the context is cancelled while it is still queued.
+      // If another thread has already removed the waiter from its queue, that thread will
+      // complete it instead, and take() will return the session to the pool.
+      Context.CancellationListener listener =
+          new Context.CancellationListener() {
+            @Override
+            public void cancelled(Context context) {
+              if (remove()) {
+                put(newSpannerExceptionForCancellation(context, null));
+              }
             }
-            return s.session;
-          }
-        } catch (Exception e) {
-          TraceUtil.setWithFailure(span, e);
-          throw e;
-        } finally {
-          span.end(TraceUtil.END_SPAN_OPTIONS);
-        }
-      }
-    }
-
-    private SessionOrError pollUninterruptiblyWithTimeout(long timeoutMillis) {
-      boolean interrupted = false;
+          };
+      context.addListener(listener, MoreExecutors.directExecutor());
       try {
         while (true) {
-          try {
-            return waiter.poll(timeoutMillis, TimeUnit.MILLISECONDS);
-          } catch (InterruptedException e) {
-            interrupted = true;
+          Span span = tracer.spanBuilder(WAIT_FOR_SESSION).startSpan();
+          try (Scope waitScope = tracer.withSpan(span)) {
+            long timeout = currentTimeout;
+            if (deadline != null) {
+              timeout = Math.min(timeout, deadline.timeRemaining(TimeUnit.MILLISECONDS));
+            }
+            SessionOrError s = timeout > 0L ? getUninterruptiblyWithTimeout(timeout) : null;
+            if (s == null) {
+              if (context.isCancelled()) {
+                throw abandon(newSpannerExceptionForCancellation(context, null));
+              }
+              if (deadline != null && deadline.isExpired()) {
+                throw abandon(
+                    newSpannerException(
+                        ErrorCode.DEADLINE_EXCEEDED,
+                        "Deadline exceeded while waiting for a session: " + deadline));
+              }
+              // Set the status to DEADLINE_EXCEEDED and retry.
+              numWaiterTimeouts.incrementAndGet();
+              tracer.getCurrentSpan().setStatus(Status.DEADLINE_EXCEEDED);
+              currentTimeout = Math.min(currentTimeout * 2, MAX_SESSION_WAIT_TIMEOUT);
+            } else {
+              if (s.e != null) {
+                throw newSpannerException(s.e);
+              }
+              if (context.isCancelled()) {
+                giveBack(s);
+                throw newSpannerExceptionForCancellation(context, null);
+              }
+              return s.session;
+            }
+          } catch (Exception e) {
+            TraceUtil.setWithFailure(span, e);
+            throw e;
+          } finally {
+            span.end(TraceUtil.END_SPAN_OPTIONS);
           }
         }
       } finally {
-        if (interrupted) {
-          Thread.currentThread().interrupt();
+        context.removeListener(listener);
+      }
+    }
+
+    private boolean remove() {
+      synchronized (lock) {
+        return readWaiters.remove(this) || readWriteWaiters.remove(this);
+      }
+    }
+
+    /**
+     * Removes this waiter from the waiter queues after its deadline has been exceeded or its
+     * context has been cancelled. If another thread has already taken this waiter from its queue,
+     * that thread completes the waiter without blocking, and any session that it hands over is
+     * returned to the pool.
+     */
+    private SpannerException abandon(SpannerException e) {
+      if (!remove()) {
+        giveBack(getUninterruptibly());
+      }
+      return e;
+    }
+
+    private void giveBack(SessionOrError received) {
+      if (received.session != null) {
+        synchronized (lock) {
+          unreserve(received.session);
         }
+        releaseSession(received.session, Position.FIRST);
+      }
+    }
+
+    private SessionOrError getUninterruptibly() {
+      try {
+        return Uninterruptibles.getUninterruptibly(waiter);
+      } catch (ExecutionException e) {
+        throw SpannerExceptionFactory.newSpannerException(e.getCause());
+      }
+    }
+
+    @Nullable
+    private SessionOrError getUninterruptiblyWithTimeout(long timeoutMillis) {
+      try {
+        return Uninterruptibles.getUninterruptibly(waiter, timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        return null;
+      } catch (ExecutionException e) {
+        throw SpannerExceptionFactory.newSpannerException(e.getCause());
       }
     }
   }
@@ -1114,10 +1347,14 @@ final class SessionPool {
   private final LinkedList<PooledSession> writePreparedSessions = new LinkedList<>();
 
   @GuardedBy("lock")
-  private final Queue<Waiter> readWaiters = new LinkedList<>();
+  private final WaiterQueue readWaiters = new WaiterQueue();
+
+  @GuardedBy("lock")
+  private final WaiterQueue readWriteWaiters = new WaiterQueue();
 
+  /** The number of sessions in use per {@link SessionPriority}, indexed by ordinal. */
   @GuardedBy("lock")
-  private final Queue<Waiter> readWriteWaiters = new LinkedList<>();
+  private final int[] numSessionsInUseByPriority = new int[SessionPriority.values().length];
 
   @GuardedBy("lock")
   private int numSessionsBeingPrepared = 0;
@@ -1144,6 +1381,17 @@ final class SessionPool {
 
   private final SessionConsumer sessionConsumer = new SessionConsumerImpl();
 
+  private final StatsRecorder statsRecorder;
+  private final TracingLevel tracingLevel;
+  @Nullable private final AdmissionController admissionController;
+  @Nullable private final LatencyListener admissionSampler;
+  /** The id of the database client of this pool, which is passed on to the RPCs of its sessions. */
+  @Nullable private final String clientId;
+
+  private final TagContext tagContext;
+  private final TagContext readTagContext;
+  private final TagContext readWriteTagContext;
+
   /**
    * Create a session pool with the given options and for the given database. It will also start
    * eagerly creating sessions if {@link SessionPoolOptions#getMinSessions()} is greater than 0.
@@ -1158,6 +1406,8 @@ final class SessionPool {
         sessionClient,
         new Clock(),
         Metrics.getMetricRegistry(),
+        Stats.getStatsRecorder(),
+        spannerOptions.getTracingLevel(),
         labelValues);
   }
 
@@ -1189,6 +1439,44 @@ final class SessionPool {
       Clock clock,
       MetricRegistry metricRegistry,
       List<LabelValue> labelValues) {
+    return createPool(
+        poolOptions,
+        executorFactory,
+        sessionClient,
+        clock,
+        metricRegistry,
+        Stats.getStatsRecorder(),
+        labelValues);
+  }
+
+  static SessionPool createPool(
+      SessionPoolOptions poolOptions,
+      ExecutorFactory<ScheduledExecutorService> executorFactory,
+      SessionClient sessionClient,
+      Clock clock,
+      MetricRegistry metricRegistry,
+      StatsRecorder statsRecorder,
+      List<LabelValue> labelValues) {
+    return createPool(
+        poolOptions,
+        executorFactory,
+        sessionClient,
+        clock,
+        metricRegistry,
+        statsRecorder,
+        TracingLevel.ALL,
+        labelValues);
+  }
+
+  static SessionPool createPool(
+      SessionPoolOptions poolOptions,
+      ExecutorFactory<ScheduledExecutorService> executorFactory,
+      SessionClient sessionClient,
+      Clock clock,
+      MetricRegistry metricRegistry,
+      StatsRecorder statsRecorder,
+      TracingLevel tracingLevel,
+      List<LabelValue> labelValues) {
     SessionPool pool =
         new SessionPool(
             poolOptions,
@@ -1197,6 +1485,8 @@ final class SessionPool {
             sessionClient,
             clock,
             metricRegistry,
+            statsRecorder,
+            tracingLevel,
             labelValues);
     pool.initPool();
     return pool;
@@ -1209,6 +1499,8 @@ final class SessionPool {
       SessionClient sessionClient,
       Clock clock,
       MetricRegistry metricRegistry,
+      StatsRecorder statsRecorder,
+      TracingLevel tracingLevel,
       List<LabelValue> labelValues) {
     this.options = options;
     this.executorFactory = executorFactory;
@@ -1229,6 +1521,49 @@ final class SessionPool {
     this.sessionClient = sessionClient;
     this.clock = clock;
     this.poolMaintainer = new PoolMaintainer();
+    this.statsRecorder = statsRecorder;
+    this.tracingLevel = tracingLevel;
+    this.admissionController =
+        options.isAdmissionControlEnabled()
+            ? new AdmissionController(
+                options.getAdmissionControlMinConcurrency(),
+                options.getMaxSessions(),
+                TimeUnit.MILLISECONDS.toNanos(options.getAdmissionControlLatencyThresholdMillis()))
+            : null;
+    if (admissionController != null) {
+      // The limit is adjusted based on the latency of the RPCs of the database, and not on how long
+      // the application holds on to a session.
+      this.admissionSampler =
+          new LatencyListener() {
+            @Override
+            public void onLatency(long latencyNanos, Code code) {
+              int inFlight;
+              synchronized (lock) {
+                inFlight = numSessionsInUse + numWaiters();
+              }
+              admissionController.onSample(
+                  latencyNanos,
+                  inFlight,
+                  code == Code.RESOURCE_EXHAUSTED || code == Code.DEADLINE_EXCEEDED);
+            }
+          };
+      sessionClient
+          .getSpanner()
+          .getRpc()
+          .addLatencyListener(sessionClient.getDatabaseId().getName(), admissionSampler);
+    } else {
+      this.admissionSampler = null;
+    }
+    // The first label is the client id, see SPANNER_LABEL_KEYS.
+    this.clientId = labelValues.isEmpty() ? null : labelValues.get(0).getValue();
+    Tagger tagger = Tags.getTagger();
+    this.tagContext = createTagContext(tagger, labelValues).build();
+    this.readTagContext =
+        createTagContext(tagger, labelValues).put(SESSION_TYPE, TagValue.create("read")).build();
+    this.readWriteTagContext =
+        createTagContext(tagger, labelValues)
+            .put(SESSION_TYPE, TagValue.create("read_write"))
+            .build();
     this.initMetricsCollection(metricRegistry, labelValues);
   }
 
@@ -1246,6 +1581,34 @@ final class SessionPool {
     }
   }
 
+  @VisibleForTesting
+  @Nullable
+  AdmissionController getAdmissionController() {
+    return admissionController;
+  }
+
+  @VisibleForTesting
+  int getNumberOfSessionsInUse() {
+    synchronized (lock) {
+      return numSessionsInUse;
+    }
+  }
+
+  /**
+   * Returns the number of sessions that can currently be checked out of the pool without waiting
+   * for another session to be released.
+   */
+  int getNumberOfAvailableSessions() {
+    synchronized (lock) {
+      return Math.max(0, options.getMaxSessions() - numSessionsInUse - numWaiters());
+    }
+  }
+
+  @VisibleForTesting
+  int getNumberOfWaiters() {
+    return numWaiters();
+  }
+
   @VisibleForTesting
   int getNumberOfSessionsBeingCreated() {
     synchronized (lock) {
@@ -1266,14 +1629,83 @@ final class SessionPool {
   }
 
   private void initPool() {
+    List<String> snapshot = Collections.emptyList();
+    if (options.getSessionSnapshotDirectory() != null) {
+      snapshot =
+          SessionPoolSnapshot.claim(
+              new File(options.getSessionSnapshotDirectory()),
+              sessionClient.getDatabaseId(),
+              options.getMaxSessions());
+    }
     synchronized (lock) {
       poolMaintainer.init();
-      if (options.getMinSessions() > 0) {
-        createSessions(options.getMinSessions());
+      if (!snapshot.isEmpty()) {
+        adoptSessions(snapshot);
+      }
+      if (options.getMinSessions() > snapshot.size()) {
+        createSessions(options.getMinSessions() - snapshot.size());
       }
     }
   }
 
+  /**
+   * Adopts the sessions of a snapshot that was written by a previous pool for the same database.
+   * Each session is checked in parallel with a simple query in the same way as sessions are kept
+   * alive. Sessions that no longer exist are replaced by new sessions when all sessions have been
+   * checked.
+   */
+  private void adoptSessions(List<String> sessionNames) {
+    synchronized (lock) {
+      numSessionsBeingCreated += sessionNames.size();
+    }
+    logger.log(
+        Level.FINE, String.format("Adopting %d sessions from snapshot", sessionNames.size()));
+    final AtomicInteger remaining = new AtomicInteger(sessionNames.size());
+    for (final String name : sessionNames) {
+      executor.submit(
+          new Runnable() {
+            @Override
+            public void run() {
+              SessionImpl session = sessionClient.sessionWithId(name, clientId);
+              boolean exists = false;
+              try (ResultSet resultSet =
+                  session
+                      .singleUse(TimestampBound.ofMaxStaleness(60, TimeUnit.SECONDS))
+                      .executeQuery(Statement.newBuilder("SELECT 1").build())) {
+                resultSet.next();
+                exists = true;
+              } catch (SpannerException e) {
+                logger.log(Level.FINE, "Could not adopt session " + name, e);
+              }
+              if (exists) {
+                sessionConsumer.onSessionReady(session);
+              } else {
+                synchronized (lock) {
+                  numSessionsBeingCreated--;
+                  if (isClosed()) {
+                    decrementPendingClosures(1);
+                  }
+                }
+              }
+              if (remaining.decrementAndGet() == 0) {
+                synchronized (lock) {
+                  if (!isClosed()) {
+                    int missingSessions =
+                        Math.max(
+                            options.getMinSessions() - totalSessions() - numSessionsBeingCreated,
+                            numWaiters() - numSessionsBeingCreated);
+                    missingSessions = getAllowedCreateSessions(missingSessions);
+                    if (missingSessions > 0) {
+                      createSessions(missingSessions);
+                    }
+                  }
+                }
+              }
+            }
+          });
+    }
+  }
+
   private boolean isClosed() {
     synchronized (lock) {
       return closureFuture != null;
@@ -1349,17 +1781,33 @@ final class SessionPool {
    * </ol>
    */
   PooledSession getReadSession() throws SpannerException {
+    return getReadSession(SessionPriority.NORMAL);
+  }
+
+  /**
+   * Returns a session to be used for read requests with the given {@link SessionPriority}. See
+   * {@link #getReadSession()}.
+   */
+  PooledSession getReadSession(SessionPriority priority) throws SpannerException {
+    long startNanos = System.nanoTime();
     Span span = Tracing.getTracer().getCurrentSpan();
-    span.addAnnotation("Acquiring session");
+    boolean annotate = TraceUtil.shouldAnnotate(span, tracingLevel);
+    if (annotate) {
+      span.addAnnotation("Acquiring session");
+    }
     Waiter waiter = null;
     PooledSession sess = null;
     synchronized (lock) {
       if (closureFuture != null) {
-        span.addAnnotation("Pool has been closed");
+        if (annotate) {
+          span.addAnnotation("Pool has been closed");
+        }
         throw new IllegalStateException("Pool has been closed");
       }
       if (resourceNotFoundException != null) {
-        span.addAnnotation("Database has been deleted");
+        if (annotate) {
+          span.addAnnotation("Database has been deleted");
+        }
         throw SpannerExceptionFactory.newSpannerException(
             ErrorCode.NOT_FOUND,
             String.format(
@@ -1367,31 +1815,44 @@ final class SessionPool {
                 resourceNotFoundException.getMessage()),
             resourceNotFoundException);
       }
-      sess = readSessions.poll();
-      if (sess == null) {
-        sess = writePreparedSessions.poll();
+      checkAdmission(span, annotate);
+      if (isEligible(priority)) {
+        sess = readSessions.poll();
         if (sess == null) {
+          sess = writePreparedSessions.poll();
+          if (sess != null && annotate) {
+            span.addAnnotation("Acquired read write session");
+          }
+        } else if (annotate) {
+          span.addAnnotation("Acquired read only session");
+        }
+      }
+      if (sess == null) {
+        if (annotate) {
           span.addAnnotation("No session available");
-          maybeCreateSession();
-          waiter = new Waiter();
-          readWaiters.add(waiter);
-        } else {
-          span.addAnnotation("Acquired read write session");
         }
+        maybeCreateSession();
+        waiter = new Waiter(priority);
+        readWaiters.add(waiter);
       } else {
-        span.addAnnotation("Acquired read only session");
+        reserve(sess, priority);
       }
     }
     if (waiter != null) {
       logger.log(
           Level.FINE,
           "No session available in the pool. Blocking for one to become available/created");
-      span.addAnnotation("Waiting for read only session to be available");
+      if (annotate) {
+        span.addAnnotation("Waiting for read only session to be available");
+      }
       sess = waiter.take();
     }
+    recordLatency(GET_SESSION_WAIT_TIME_MEASURE, startNanos, readTagContext);
     sess.markBusy();
     incrementNumSessionsInUse();
-    span.addAnnotation(sessionAnnotation(sess));
+    if (annotate) {
+      span.addAnnotation(sessionAnnotation(sess));
+    }
     return sess;
   }
 
@@ -1414,17 +1875,33 @@ final class SessionPool {
    * </ol>
    */
   PooledSession getReadWriteSession() {
+    return getReadWriteSession(SessionPriority.NORMAL);
+  }
+
+  /**
+   * Returns a session which has been prepared for writes for a request with the given {@link
+   * SessionPriority}. See {@link #getReadWriteSession()}.
+   */
+  PooledSession getReadWriteSession(SessionPriority priority) {
+    long startNanos = System.nanoTime();
     Span span = Tracing.getTracer().getCurrentSpan();
-    span.addAnnotation("Acquiring read write session");
+    boolean annotate = TraceUtil.shouldAnnotate(span, tracingLevel);
+    if (annotate) {
+      span.addAnnotation("Acquiring read write session");
+    }
     Waiter waiter = null;
     PooledSession sess = null;
     synchronized (lock) {
       if (closureFuture != null) {
-        span.addAnnotation("Pool has been closed");
+        if (annotate) {
+          span.addAnnotation("Pool has been closed");
+        }
         throw new IllegalStateException("Pool has been closed");
       }
       if (resourceNotFoundException != null) {
-        span.addAnnotation("Database has been deleted");
+        if (annotate) {
+          span.addAnnotation("Database has been deleted");
+        }
         throw SpannerExceptionFactory.newSpannerException(
             ErrorCode.NOT_FOUND,
             String.format(
@@ -1432,37 +1909,81 @@ final class SessionPool {
                 resourceNotFoundException.getMessage()),
             resourceNotFoundException);
       }
-      sess = writePreparedSessions.poll();
+      checkAdmission(span, annotate);
+      if (isEligible(priority)) {
+        sess = writePreparedSessions.poll();
+      }
       if (sess == null) {
         if (numSessionsBeingPrepared <= readWriteWaiters.size()) {
           PooledSession readSession = readSessions.poll();
           if (readSession != null) {
-            span.addAnnotation("Acquired read only session. Preparing for read write transaction");
+            if (annotate) {
+              span.addAnnotation(
+                  "Acquired read only session. Preparing for read write transaction");
+            }
             prepareSession(readSession);
           } else {
-            span.addAnnotation("No session available");
+            if (annotate) {
+              span.addAnnotation("No session available");
+            }
             maybeCreateSession();
           }
         }
-        waiter = new Waiter();
+        waiter = new Waiter(priority);
         readWriteWaiters.add(waiter);
       } else {
-        span.addAnnotation("Acquired read write session");
+        reserve(sess, priority);
+        if (annotate) {
+          span.addAnnotation("Acquired read write session");
+        }
       }
     }
     if (waiter != null) {
       logger.log(
           Level.FINE,
           "No session available in the pool. Blocking for one to become available/created");
-      span.addAnnotation("Waiting for read write session to be available");
+      if (annotate) {
+        span.addAnnotation("Waiting for read write session to be available");
+      }
       sess = waiter.take();
     }
+    recordLatency(GET_SESSION_WAIT_TIME_MEASURE, startNanos, readWriteTagContext);
     sess.markBusy();
     incrementNumSessionsInUse();
-    span.addAnnotation(sessionAnnotation(sess));
+    if (annotate) {
+      span.addAnnotation(sessionAnnotation(sess));
+    }
     return sess;
   }
 
+  /**
+   * Rejects the request if the deadline of the current {@link Context} has already been exceeded,
+   * or if admission control is enabled and the number of sessions in use plus the number of waiters
+   * has reached the current concurrency limit.
+   */
+  private void checkAdmission(Span span, boolean annotate) {
+    Context context = Context.current();
+    if (context.isCancelled()) {
+      if (annotate) {
+        span.addAnnotation("Context has been cancelled");
+      }
+      throw newSpannerExceptionForCancellation(context, null);
+    }
+    synchronized (lock) {
+      if (admissionController != null
+          && !admissionController.tryAdmit(numSessionsInUse + numWaiters())) {
+        if (annotate) {
+          span.addAnnotation("Rejected by admission control");
+        }
+        throw SpannerExceptionFactory.newAdmissionRejectedException(
+            String.format(
+                "The number of concurrent operations has reached the current limit of %d of the "
+                    + "adaptive admission control of the session pool.",
+                admissionController.getLimit()));
+      }
+    }
+  }
+
   PooledSession replaceReadSession(SessionNotFoundException e, PooledSession session) {
     return replaceSession(e, session, false);
   }
@@ -1474,13 +1995,27 @@ final class SessionPool {
   private PooledSession replaceSession(
       SessionNotFoundException e, PooledSession session, boolean write) {
     if (!options.isFailIfSessionNotFound() && session.allowReplacing) {
+      List<Waiter> waiters = new ArrayList<>();
+      List<PooledSession> sessions = new ArrayList<>();
       synchronized (lock) {
         numSessionsInUse--;
         numSessionsReleased++;
+        unreserve(session);
+        // Releasing the reservation might have made a waiter eligible for an idle session.
+        Waiter waiter;
+        while (!readSessions.isEmpty() && (waiter = readWaiters.pollEligible()) != null) {
+          PooledSession idle = readSessions.poll();
+          reserve(idle, waiter.priority);
+          waiters.add(waiter);
+          sessions.add(idle);
+        }
+      }
+      for (int i = 0; i < waiters.size(); i++) {
+        waiters.get(i).put(sessions.get(i));
       }
       session.leakedException = null;
       invalidateSession(session);
-      return write ? getReadWriteSession() : getReadSession();
+      return write ? getReadWriteSession(session.priority) : getReadSession(session.priority);
     } else {
       throw e;
     }
@@ -1503,13 +2038,18 @@ final class SessionPool {
 
   private void maybeCreateSession() {
     Span span = Tracing.getTracer().getCurrentSpan();
+    boolean annotate = TraceUtil.shouldAnnotate(span, tracingLevel);
     synchronized (lock) {
       if (numWaiters() >= numSessionsBeingCreated) {
         if (canCreateSession()) {
-          span.addAnnotation("Creating sessions");
+          if (annotate) {
+            span.addAnnotation("Creating sessions");
+          }
           createSessions(getAllowedCreateSessions(numWaiters() - numSessionsBeingCreated + 1));
         } else if (options.isFailIfPoolExhausted()) {
-          span.addAnnotation("Pool exhausted. Failing");
+          if (annotate) {
+            span.addAnnotation("Pool exhausted. Failing");
+          }
           // throw specific exception
           throw newSpannerException(
               ErrorCode.RESOURCE_EXHAUSTED,
@@ -1535,6 +2075,7 @@ final class SessionPool {
    */
   private void releaseSession(PooledSession session, Position position) {
     Preconditions.checkNotNull(session);
+    Waiter handoff = null;
     synchronized (lock) {
       if (closureFuture != null) {
         return;
@@ -1558,32 +2099,46 @@ final class SessionPool {
           }
         }
       } else if (shouldUnblockReader()) {
-        readWaiters.poll().put(session);
+        Waiter waiter = readWaiters.pollEligible();
+        if (waiter == null) {
+          // All waiting readers have to wait for sessions to be returned by other priorities.
+          readSessions.addFirst(session);
+        } else {
+          reserve(session, waiter.priority);
+          handoff = waiter;
+        }
       } else {
         prepareSession(session);
       }
     }
+    if (handoff != null) {
+      handoff.put(session);
+    }
   }
 
   private void handleCreateSessionsFailure(SpannerException e, int count) {
+    List<Waiter> failed = new ArrayList<>();
     synchronized (lock) {
       for (int i = 0; i < count; i++) {
         if (readWaiters.size() > 0) {
-          readWaiters.poll().put(e);
+          failed.add(readWaiters.poll());
         } else if (readWriteWaiters.size() > 0) {
-          readWriteWaiters.poll().put(e);
+          failed.add(readWriteWaiters.poll());
         } else {
           break;
         }
       }
-      this.resourceNotFoundException =
-          MoreObjects.firstNonNull(
-              this.resourceNotFoundException,
-              isDatabaseOrInstanceNotFound(e) ? (ResourceNotFoundException) e : null);
+      if (this.resourceNotFoundException == null && isDatabaseOrInstanceNotFound(e)) {
+        this.resourceNotFoundException = (ResourceNotFoundException) e;
+      }
+    }
+    for (Waiter waiter : failed) {
+      waiter.put(e);
     }
   }
 
   private void handlePrepareSessionFailure(SpannerException e, PooledSession session) {
+    List<Waiter> failed = new ArrayList<>();
     synchronized (lock) {
       if (isSessionNotFound(e)) {
         invalidateSession(session);
@@ -1592,27 +2147,29 @@ final class SessionPool {
         // should stop trying to prepare any transactions. Also propagate the error to all waiters,
         // as any further waiting is pointless.
         while (readWriteWaiters.size() > 0) {
-          readWriteWaiters.poll().put(e);
+          failed.add(readWriteWaiters.poll());
         }
         while (readWaiters.size() > 0) {
-          readWaiters.poll().put(e);
+          failed.add(readWaiters.poll());
         }
         // Remove the session from the pool.
         allSessions.remove(session);
         if (isClosed()) {
           decrementPendingClosures(1);
         }
-        this.resourceNotFoundException =
-            MoreObjects.firstNonNull(
-                this.resourceNotFoundException,
-                isDatabaseOrInstanceNotFound(e) ? (ResourceNotFoundException) e : null);
+        if (this.resourceNotFoundException == null && isDatabaseOrInstanceNotFound(e)) {
+          this.resourceNotFoundException = (ResourceNotFoundException) e;
+        }
       } else if (readWriteWaiters.size() > 0) {
         releaseSession(session, Position.FIRST);
-        readWriteWaiters.poll().put(e);
+        failed.add(readWriteWaiters.poll());
       } else {
         releaseSession(session, Position.FIRST);
       }
     }
+    for (Waiter waiter : failed) {
+      waiter.put(e);
+    }
   }
 
   private void decrementPendingClosures(int count) {
@@ -1625,23 +2182,35 @@ final class SessionPool {
   /**
    * Close all the sessions. Once this method is invoked {@link #getReadSession()} and {@link
    * #getReadWriteSession()} will start throwing {@code IllegalStateException}. The returned future
-   * blocks till all the sessions created in this pool have been closed.
+   * blocks till all the sessions created in this pool have been closed, or until the close timeout
+   * of the {@link SessionPoolOptions} has expired. The sessions are not deleted if {@link
+   * SessionPoolOptions#isSkipSessionDeletionOnClose()} is true.
    */
   ListenableFuture<Void> closeAsync() {
     ListenableFuture<Void> retFuture = null;
+    final long startNanos = System.nanoTime();
+    int numSessionsToDelete;
+    int numSessionsSkipped;
+    List<Waiter> failed = new ArrayList<>();
+    // The idle sessions that are written to the snapshot. The snapshot is written after the lock
+    // has
+    // been released, and the sessions that would otherwise be deleted are only kept or deleted
+    // after that.
+    Set<PooledSession> snapshotSessions = new LinkedHashSet<>();
+    Set<PooledSession> keepIfSnapshotWritten = Collections.emptySet();
     synchronized (lock) {
       if (closureFuture != null) {
         throw new IllegalStateException("Close has already been invoked");
       }
-      // Fail all pending waiters.
+      // Remove all pending waiters. They are failed after the lock has been released.
       Waiter waiter = readWaiters.poll();
       while (waiter != null) {
-        waiter.put(newSpannerException(ErrorCode.INTERNAL, "Client has been closed"));
+        failed.add(waiter);
         waiter = readWaiters.poll();
       }
       waiter = readWriteWaiters.poll();
       while (waiter != null) {
-        waiter.put(newSpannerException(ErrorCode.INTERNAL, "Client has been closed"));
+        failed.add(waiter);
         waiter = readWriteWaiters.poll();
       }
       closureFuture = SettableFuture.create();
@@ -1652,6 +2221,19 @@ final class SessionPool {
               + 2 /* For pool maintenance thread + prepareExecutor */;
 
       poolMaintainer.close();
+      if (admissionSampler != null) {
+        sessionClient
+            .getSpanner()
+            .getRpc()
+            .removeLatencyListener(sessionClient.getDatabaseId().getName(), admissionSampler);
+      }
+      if (options.getSessionSnapshotDirectory() != null) {
+        snapshotSessions.addAll(readSessions);
+        snapshotSessions.addAll(writePreparedSessions);
+        if (!options.isSkipSessionDeletionOnClose()) {
+          keepIfSnapshotWritten = snapshotSessions;
+        }
+      }
       readSessions.clear();
       writePreparedSessions.clear();
       prepareExecutor.shutdown();
@@ -1668,16 +2250,54 @@ final class SessionPool {
               }
             }
           });
+      int skipped = 0;
       for (final PooledSession session : ImmutableList.copyOf(allSessions)) {
         if (session.leakedException != null) {
           logger.log(Level.WARNING, "Leaked session", session.leakedException);
         }
         if (session.state != SessionState.CLOSING) {
-          closeSessionAsync(session);
+          if (options.isSkipSessionDeletionOnClose()) {
+            allSessions.remove(session);
+            decrementPendingClosures(1);
+            skipped++;
+          } else if (!keepIfSnapshotWritten.contains(session)) {
+            closeSessionAsync(session);
+          }
         }
       }
+      numSessionsToDelete = allSessions.size() - keepIfSnapshotWritten.size();
+      numSessionsSkipped = skipped;
     }
-    retFuture.addListener(
+    for (Waiter waiter : failed) {
+      waiter.put(newSpannerException(ErrorCode.INTERNAL, "Client has been closed"));
+    }
+    if (!snapshotSessions.isEmpty()) {
+      boolean written = writeSnapshot(snapshotSessions);
+      synchronized (lock) {
+        for (PooledSession session : keepIfSnapshotWritten) {
+          if (written) {
+            allSessions.remove(session);
+            decrementPendingClosures(1);
+          } else {
+            closeSessionAsync(session);
+          }
+        }
+      }
+      if (written) {
+        numSessionsSkipped += keepIfSnapshotWritten.size();
+      } else {
+        numSessionsToDelete += keepIfSnapshotWritten.size();
+      }
+    }
+    final int sessionsToDelete = numSessionsToDelete;
+    final int sessionsSkipped = numSessionsSkipped;
+    ListenableFuture<Void> closure = retFuture;
+    if (options.getCloseTimeoutMillis() > 0L) {
+      retFuture = withCloseTimeout(closure);
+    }
+    // The executor is only released when all pending operations have finished, also if the
+    // returned future is done earlier because the close timeout expired.
+    closure.addListener(
         new Runnable() {
           @Override
           public void run() {
@@ -1685,9 +2305,87 @@ final class SessionPool {
           }
         },
         MoreExecutors.directExecutor());
+    retFuture.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            int numSessionsNotDeleted = getNumberOfSessionsBeingDeleted();
+            logger.log(
+                Level.INFO,
+                String.format(
+                    "Closed session pool in %d ms, %d sessions deleted, %d sessions not deleted",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    Math.max(sessionsToDelete - numSessionsNotDeleted, 0),
+                    numSessionsNotDeleted + sessionsSkipped));
+          }
+        },
+        MoreExecutors.directExecutor());
     return retFuture;
   }
 
+  /**
+   * Writes the names of the given idle sessions to the snapshot directory. These sessions should
+   * not be deleted if the snapshot was written, so a new pool can adopt them. Must not be called
+   * while holding the lock of the pool, as it does file I/O.
+   *
+   * @return true if the snapshot was written
+   */
+  private boolean writeSnapshot(Collection<PooledSession> sessions) {
+    List<String> names = new ArrayList<>(sessions.size());
+    for (PooledSession session : sessions) {
+      names.add(session.getName());
+    }
+    try {
+      SessionPoolSnapshot.write(
+          new File(options.getSessionSnapshotDirectory()), sessionClient.getDatabaseId(), names);
+      return true;
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Failed to write session snapshot, deleting sessions instead", e);
+      return false;
+    }
+  }
+
+  /**
+   * Returns a future that is done when the given closure future is done or when the close timeout
+   * of the pool expires, whichever happens first.
+   */
+  private ListenableFuture<Void> withCloseTimeout(ListenableFuture<Void> closure) {
+    final SettableFuture<Void> res = SettableFuture.create();
+    final ScheduledFuture<?> timeout =
+        executor.schedule(
+            new Runnable() {
+              @Override
+              public void run() {
+                if (res.set(null)) {
+                  logger.log(
+                      Level.WARNING,
+                      String.format(
+                          "Timed out after %d ms while waiting for %d sessions to be deleted",
+                          options.getCloseTimeoutMillis(), getNumberOfSessionsBeingDeleted()));
+                }
+              }
+            },
+            options.getCloseTimeoutMillis(),
+            TimeUnit.MILLISECONDS);
+    closure.addListener(
+        new Runnable() {
+          @Override
+          public void run() {
+            timeout.cancel(false);
+            res.set(null);
+          }
+        },
+        MoreExecutors.directExecutor());
+    return res;
+  }
+
+  /** Returns the number of sessions of a closed pool whose DeleteSession RPC has not finished. */
+  private int getNumberOfSessionsBeingDeleted() {
+    synchronized (lock) {
+      return allSessions.size();
+    }
+  }
+
   private boolean shouldUnblockReader() {
     // This might not be the best strategy since a continuous burst of read requests can starve
     // a write request. Maybe maintain a timestamp in the queue and unblock according to that
@@ -1705,6 +2403,111 @@ final class SessionPool {
     }
   }
 
+  /**
+   * Returns true if a request with the given priority may check out a session without using a
+   * session that is reserved for another priority.
+   */
+  @GuardedBy("lock")
+  private boolean isEligible(SessionPriority priority) {
+    if (!options.hasReservedSessions()) {
+      return true;
+    }
+    int inUse = 0;
+    int reservedForOthers = 0;
+    for (SessionPriority p : SessionPriority.values()) {
+      int inUseByPriority = numSessionsInUseByPriority[p.ordinal()];
+      inUse += inUseByPriority;
+      if (p != priority) {
+        reservedForOthers += Math.max(0, options.getReservedSessions(p) - inUseByPriority);
+      }
+    }
+    return inUse + 1 + reservedForOthers <= options.getMaxSessions();
+  }
+
+  /** Registers that the session has been checked out by a request with the given priority. */
+  @GuardedBy("lock")
+  private void reserve(PooledSession session, SessionPriority priority) {
+    session.priority = priority;
+    numSessionsInUseByPriority[priority.ordinal()]++;
+  }
+
+  @GuardedBy("lock")
+  private void unreserve(PooledSession session) {
+    numSessionsInUseByPriority[session.priority.ordinal()]--;
+  }
+
+  /**
+   * Queue of {@link Waiter}s that serves the waiters of the different {@link SessionPriority}s by
+   * smooth weighted round-robin, and first-in-first-out within the same priority.
+   */
+  private final class WaiterQueue {
+    private final List<Queue<Waiter>> queues = new ArrayList<>();
+    private final int[] credits = new int[SessionPriority.values().length];
+    private int size;
+
+    private WaiterQueue() {
+      for (int i = 0; i < SessionPriority.values().length; i++) {
+        queues.add(new LinkedList<Waiter>());
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    void add(Waiter waiter) {
+      queues.get(waiter.priority.ordinal()).add(waiter);
+      size++;
+    }
+
+    boolean remove(Waiter waiter) {
+      if (queues.get(waiter.priority.ordinal()).remove(waiter)) {
+        size--;
+        return true;
+      }
+      return false;
+    }
+
+    /** Returns the next waiter of any priority, or null if there are no waiters. */
+    @Nullable
+    Waiter poll() {
+      return poll(false);
+    }
+
+    /**
+     * Returns the next waiter that may check out a session without using a session that is reserved
+     * for another priority, or null if there is no such waiter.
+     */
+    @Nullable
+    Waiter pollEligible() {
+      return poll(true);
+    }
+
+    private Waiter poll(boolean eligibleOnly) {
+      SessionPriority selected = null;
+      int totalWeight = 0;
+      for (SessionPriority priority : SessionPriority.values()) {
+        int index = priority.ordinal();
+        if (queues.get(index).isEmpty()) {
+          credits[index] = 0;
+        } else if (!eligibleOnly || isEligible(priority)) {
+          int weight = options.getPriorityWeight(priority);
+          credits[index] += weight;
+          totalWeight += weight;
+          if (selected == null || credits[index] > credits[selected.ordinal()]) {
+            selected = priority;
+          }
+        }
+      }
+      if (selected == null) {
+        return null;
+      }
+      credits[selected.ordinal()] -= totalWeight;
+      size--;
+      return queues.get(selected.ordinal()).poll();
+    }
+  }
+
   private int numWaiters() {
     synchronized (lock) {
       return readWaiters.size() + readWriteWaiters.size();
@@ -1751,26 +2554,36 @@ final class SessionPool {
           public void run() {
             try {
               logger.log(Level.FINE, "Preparing session");
+              long startNanos = System.nanoTime();
               sess.prepareReadWriteTransaction();
+              recordLatency(PREPARE_SESSION_LATENCY_MEASURE, startNanos, tagContext);
               logger.log(Level.FINE, "Session prepared");
+              Waiter waiter = null;
               synchronized (lock) {
                 numSessionsBeingPrepared--;
                 if (!isClosed()) {
-                  if (readWriteWaiters.size() > 0) {
-                    readWriteWaiters.poll().put(sess);
-                  } else if (readWaiters.size() > 0) {
-                    readWaiters.poll().put(sess);
-                  } else {
+                  waiter = readWriteWaiters.pollEligible();
+                  if (waiter == null) {
+                    waiter = readWaiters.pollEligible();
+                  }
+                  if (waiter == null) {
                     writePreparedSessions.add(sess);
+                  } else {
+                    reserve(sess, waiter.priority);
                   }
                 }
               }
+              if (waiter != null) {
+                waiter.put(sess);
+              }
             } catch (Throwable t) {
+              boolean closed;
               synchronized (lock) {
                 numSessionsBeingPrepared--;
-                if (!isClosed()) {
-                  handlePrepareSessionFailure(newSpannerException(t), sess);
-                }
+                closed = isClosed();
+              }
+              if (!closed) {
+                handlePrepareSessionFailure(newSpannerException(t), sess);
               }
             }
           }
@@ -1803,7 +2616,7 @@ final class SessionPool {
         // calls and the session consumer consumes the returned sessions as they become available.
         // The batchCreateSessions method automatically spreads the sessions evenly over all
         // available channels.
-        sessionClient.asyncBatchCreateSessions(sessionCount, sessionConsumer);
+        sessionClient.asyncBatchCreateSessions(sessionCount, clientId, sessionConsumer);
         logger.log(Level.FINE, "Sessions created");
       } catch (Throwable t) {
         // Expose this to customer via a metric.
@@ -1894,6 +2707,24 @@ final class SessionPool {
                 .setLabelKeys(SPANNER_LABEL_KEYS)
                 .build());
 
+    DerivedLongGauge numSessionWaitersMetric =
+        metricRegistry.addDerivedLongGauge(
+            NUM_SESSION_WAITERS,
+            MetricOptions.builder()
+                .setDescription(NUM_SESSION_WAITERS_DESCRIPTION)
+                .setUnit(COUNT)
+                .setLabelKeys(SPANNER_LABEL_KEYS)
+                .build());
+
+    DerivedLongCumulative numAdmissionRejectionsMetric =
+        metricRegistry.addDerivedLongCumulative(
+            NUM_ADMISSION_REJECTIONS,
+            MetricOptions.builder()
+                .setDescription(NUM_ADMISSION_REJECTIONS_DESCRIPTION)
+                .setUnit(COUNT)
+                .setLabelKeys(SPANNER_LABEL_KEYS)
+                .build());
+
     DerivedLongCumulative sessionsTimeouts =
         metricRegistry.addDerivedLongCumulative(
             GET_SESSION_TIMEOUTS,
@@ -1957,6 +2788,28 @@ final class SessionPool {
           }
         });
 
+    numSessionWaitersMetric.createTimeSeries(
+        labelValues,
+        this,
+        new ToLongFunction<SessionPool>() {
+          @Override
+          public long applyAsLong(SessionPool sessionPool) {
+            return sessionPool.numWaiters();
+          }
+        });
+
+    numAdmissionRejectionsMetric.createTimeSeries(
+        labelValues,
+        this,
+        new ToLongFunction<SessionPool>() {
+          @Override
+          public long applyAsLong(SessionPool sessionPool) {
+            return sessionPool.admissionController == null
+                ? 0L
+                : sessionPool.admissionController.getNumRejected();
+          }
+        });
+
     // The value of a numWaiterTimeouts is observed from a callback function. This function is
     // invoked whenever metrics are collected.
     sessionsTimeouts.createTimeSeries(
@@ -1988,5 +2841,31 @@ final class SessionPool {
             return sessionPool.numSessionsReleased;
           }
         });
+
+    // The wait, hold and prepare times are distributions, which are only supported by the Stats
+    // API. Registering a view that has already been registered is a no-op.
+    ViewManager viewManager = Stats.getViewManager();
+    viewManager.registerView(GET_SESSION_WAIT_TIME_VIEW);
+    viewManager.registerView(SESSION_HOLD_TIME_VIEW);
+    viewManager.registerView(PREPARE_SESSION_LATENCY_VIEW);
+  }
+
+  private static TagContextBuilder createTagContext(Tagger tagger, List<LabelValue> labelValues) {
+    TagContextBuilder builder = tagger.emptyBuilder();
+    for (int i = 0; i < SPANNER_TAG_KEYS.size() && i < labelValues.size(); i++) {
+      String value = labelValues.get(i).getValue();
+      if (value != null) {
+        builder.put(SPANNER_TAG_KEYS.get(i), TagValue.create(value));
+      }
+    }
+    return builder;
+  }
+
+  /** Records the time since {@code startNanos} in milliseconds for the given measure. */
+  private void recordLatency(MeasureDouble measure, long startNanos, TagContext tags) {
+    statsRecorder
+        .newMeasureMap()
+        .put(measure, (System.nanoTime() - startNanos) / 1_000_000d)
+        .record(tags);
   }
 }
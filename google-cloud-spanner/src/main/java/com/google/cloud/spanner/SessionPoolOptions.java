@@ -18,6 +18,11 @@ package com.google.cloud.spanner;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.annotation.Nullable;
 
 /** Options for the session pool used by {@code DatabaseClient}. */
 public class SessionPoolOptions {
@@ -25,6 +30,10 @@ public class SessionPoolOptions {
   private static final int DEFAULT_MAX_SESSIONS = 400;
   private static final int DEFAULT_MIN_SESSIONS = 100;
   private static final ActionOnExhaustion DEFAULT_ACTION = ActionOnExhaustion.BLOCK;
+  private static final ImmutableMap<SessionPriority, Integer> DEFAULT_PRIORITY_WEIGHTS =
+      Maps.immutableEnumMap(
+          ImmutableMap.of(
+              SessionPriority.HIGH, 16, SessionPriority.NORMAL, 4, SessionPriority.LOW, 1));
   private final int minSessions;
   private final int maxSessions;
   private final int maxIdleSessions;
@@ -33,6 +42,14 @@ public class SessionPoolOptions {
   private final int keepAliveIntervalMinutes;
   private final ActionOnSessionNotFound actionOnSessionNotFound;
   private final long initialWaitForSessionTimeoutMillis;
+  private final long admissionControlLatencyThresholdMillis;
+  private final int admissionControlMinConcurrency;
+  private final ImmutableMap<SessionPriority, Integer> priorityWeights;
+  private final ImmutableMap<SessionPriority, Integer> reservedSessions;
+  private final int batchCreateSessionsConcurrencyPerChannel;
+  private final long closeTimeoutMillis;
+  private final boolean skipSessionDeletionOnClose;
+  private final String sessionSnapshotDirectory;
 
   private SessionPoolOptions(Builder builder) {
     // minSessions > maxSessions is only possible if the user has only set a value for maxSessions.
@@ -46,6 +63,16 @@ public class SessionPoolOptions {
     this.actionOnSessionNotFound = builder.actionOnSessionNotFound;
     this.initialWaitForSessionTimeoutMillis = builder.initialWaitForSessionTimeoutMillis;
     this.keepAliveIntervalMinutes = builder.keepAliveIntervalMinutes;
+    this.admissionControlLatencyThresholdMillis = builder.admissionControlLatencyThresholdMillis;
+    this.admissionControlMinConcurrency =
+        Math.min(builder.admissionControlMinConcurrency, builder.maxSessions);
+    this.priorityWeights = Maps.immutableEnumMap(builder.priorityWeights);
+    this.reservedSessions = Maps.immutableEnumMap(builder.reservedSessions);
+    this.batchCreateSessionsConcurrencyPerChannel =
+        builder.batchCreateSessionsConcurrencyPerChannel;
+    this.closeTimeoutMillis = builder.closeTimeoutMillis;
+    this.skipSessionDeletionOnClose = builder.skipSessionDeletionOnClose;
+    this.sessionSnapshotDirectory = builder.sessionSnapshotDirectory;
   }
 
   public int getMinSessions() {
@@ -76,6 +103,48 @@ public class SessionPoolOptions {
     return actionOnExhaustion == ActionOnExhaustion.BLOCK;
   }
 
+  public boolean isAdmissionControlEnabled() {
+    return admissionControlLatencyThresholdMillis > 0L;
+  }
+
+  public long getAdmissionControlLatencyThresholdMillis() {
+    return admissionControlLatencyThresholdMillis;
+  }
+
+  public int getAdmissionControlMinConcurrency() {
+    return admissionControlMinConcurrency;
+  }
+
+  public int getPriorityWeight(SessionPriority priority) {
+    return priorityWeights.get(Preconditions.checkNotNull(priority));
+  }
+
+  public int getReservedSessions(SessionPriority priority) {
+    Integer reserved = reservedSessions.get(Preconditions.checkNotNull(priority));
+    return reserved == null ? 0 : reserved;
+  }
+
+  boolean hasReservedSessions() {
+    return !reservedSessions.isEmpty();
+  }
+
+  public int getBatchCreateSessionsConcurrencyPerChannel() {
+    return batchCreateSessionsConcurrencyPerChannel;
+  }
+
+  public long getCloseTimeoutMillis() {
+    return closeTimeoutMillis;
+  }
+
+  public boolean isSkipSessionDeletionOnClose() {
+    return skipSessionDeletionOnClose;
+  }
+
+  @Nullable
+  public String getSessionSnapshotDirectory() {
+    return sessionSnapshotDirectory;
+  }
+
   @VisibleForTesting
   long getInitialWaitForSessionTimeoutMillis() {
     return initialWaitForSessionTimeoutMillis;
@@ -111,6 +180,16 @@ public class SessionPoolOptions {
     private long initialWaitForSessionTimeoutMillis = 30_000L;
     private ActionOnSessionNotFound actionOnSessionNotFound = ActionOnSessionNotFound.RETRY;
     private int keepAliveIntervalMinutes = 30;
+    private long admissionControlLatencyThresholdMillis = 0L;
+    private int admissionControlMinConcurrency = 1;
+    private final Map<SessionPriority, Integer> priorityWeights =
+        new EnumMap<>(DEFAULT_PRIORITY_WEIGHTS);
+    private final Map<SessionPriority, Integer> reservedSessions =
+        new EnumMap<>(SessionPriority.class);
+    private int batchCreateSessionsConcurrencyPerChannel = 1;
+    private long closeTimeoutMillis = 0L;
+    private boolean skipSessionDeletionOnClose = false;
+    private String sessionSnapshotDirectory;
 
     /**
      * Minimum number of sessions that this pool will always maintain. These will be created eagerly
@@ -176,6 +255,111 @@ public class SessionPoolOptions {
       return this;
     }
 
+    /**
+     * Enables adaptive admission control for the operations of the pool. The pool then limits the
+     * number of operations that are using or waiting for a session to a concurrency limit that
+     * starts at {@code maxSessions}. The limit is reduced multiplicatively each time that an RPC of
+     * the database takes longer than {@code latencyThresholdMillis} to return its first response or
+     * fails because Cloud Spanner is overloaded, and increased by one for each faster RPC. While
+     * the limit is below {@code maxSessions}, requests that exceed the limit fail immediately with
+     * an {@link AdmissionRejectedException} instead of waiting for a session. A value of 0 disables
+     * admission control, which is the default.
+     */
+    public Builder setAdmissionControlLatencyThresholdMillis(long latencyThresholdMillis) {
+      Preconditions.checkArgument(
+          latencyThresholdMillis >= 0L, "latencyThresholdMillis must be >= 0");
+      this.admissionControlLatencyThresholdMillis = latencyThresholdMillis;
+      return this;
+    }
+
+    /**
+     * The lower bound of the concurrency limit of adaptive admission control. See {@link
+     * #setAdmissionControlLatencyThresholdMillis(long)}. Defaults to 1.
+     */
+    public Builder setAdmissionControlMinConcurrency(int minConcurrency) {
+      Preconditions.checkArgument(minConcurrency > 0, "minConcurrency must be > 0");
+      this.admissionControlMinConcurrency = minConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets the weight of a {@link SessionPriority}. If requests of multiple priorities are waiting
+     * for a session, each priority receives sessions in proportion to its weight. The defaults are
+     * 16 for {@link SessionPriority#HIGH}, 4 for {@link SessionPriority#NORMAL} and 1 for {@link
+     * SessionPriority#LOW}.
+     */
+    public Builder setPriorityWeight(SessionPriority priority, int weight) {
+      Preconditions.checkNotNull(priority);
+      Preconditions.checkArgument(weight > 0, "weight must be > 0");
+      this.priorityWeights.put(priority, weight);
+      return this;
+    }
+
+    /**
+     * Reserves a number of sessions for a {@link SessionPriority}. Requests of other priorities
+     * will wait for a session instead of using a session that is needed to keep the reserved
+     * sessions available for this priority. The total number of reserved sessions must not exceed
+     * {@code maxSessions}. Defaults to 0 for all priorities.
+     */
+    public Builder setReservedSessions(SessionPriority priority, int reservedSessions) {
+      Preconditions.checkNotNull(priority);
+      Preconditions.checkArgument(reservedSessions >= 0, "reservedSessions must be >= 0");
+      if (reservedSessions == 0) {
+        this.reservedSessions.remove(priority);
+      } else {
+        this.reservedSessions.put(priority, reservedSessions);
+      }
+      return this;
+    }
+
+    /**
+     * The maximum number of BatchCreateSessions RPCs that the pool executes concurrently on each
+     * gRPC channel when it creates sessions. Each RPC returns at most 100 sessions, so a higher
+     * value reduces the time that is needed to create a large number of sessions, for example
+     * {@code minSessions} at startup. Defaults to 1.
+     */
+    public Builder setBatchCreateSessionsConcurrencyPerChannel(int concurrency) {
+      Preconditions.checkArgument(concurrency > 0, "concurrency must be > 0");
+      this.batchCreateSessionsConcurrencyPerChannel = concurrency;
+      return this;
+    }
+
+    /**
+     * The maximum number of milliseconds that closing the pool waits for the DeleteSession RPCs of
+     * its sessions to finish. Sessions that have not been deleted when the timeout expires are
+     * eventually garbage collected by Cloud Spanner. A value of 0 waits until all sessions have
+     * been deleted, which is the default.
+     */
+    public Builder setCloseTimeoutMillis(long closeTimeoutMillis) {
+      Preconditions.checkArgument(closeTimeoutMillis >= 0L, "closeTimeoutMillis must be >= 0");
+      this.closeTimeoutMillis = closeTimeoutMillis;
+      return this;
+    }
+
+    /**
+     * If true, closing the pool does not delete its sessions. This makes shutdown fast, but the
+     * sessions continue to count towards the session limits of the database until Cloud Spanner
+     * garbage collects them after one hour of inactivity. Defaults to false.
+     */
+    public Builder setSkipSessionDeletionOnClose(boolean skipSessionDeletionOnClose) {
+      this.skipSessionDeletionOnClose = skipSessionDeletionOnClose;
+      return this;
+    }
+
+    /**
+     * Sets a local directory that the pool uses to keep its sessions across restarts of the
+     * application. When the pool is closed, the names of its idle sessions are written to a file in
+     * this directory instead of deleting the sessions. When a new pool for the same database is
+     * created, it adopts these sessions after checking that they still exist, and only creates the
+     * sessions that it needs in addition to these. Cloud Spanner deletes sessions that have not
+     * been used for one hour, so this only helps if the application is restarted within that time.
+     * The default is null, which disables this feature.
+     */
+    public Builder setSessionSnapshotDirectory(@Nullable String directory) {
+      this.sessionSnapshotDirectory = directory;
+      return this;
+    }
+
     /**
      * The initial number of milliseconds to wait for a session to become available when one is
      * requested. The session pool will keep retrying to get a session, and the timeout will be
@@ -224,6 +408,15 @@ public class SessionPoolOptions {
             minSessions,
             maxSessions);
       }
+      int totalReservedSessions = 0;
+      for (int reserved : reservedSessions.values()) {
+        totalReservedSessions += reserved;
+      }
+      Preconditions.checkArgument(
+          totalReservedSessions <= maxSessions,
+          "Total reserved sessions(%s) must be <= max sessions(%s)",
+          totalReservedSessions,
+          maxSessions);
       Preconditions.checkArgument(
           keepAliveIntervalMinutes < 60, "Keep alive interval should be less than" + "60 minutes");
       Preconditions.checkArgument(
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.base.Preconditions;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Reads and writes the names of the sessions of a {@link SessionPool} from and to local files, so
+ * that a new process can adopt the sessions of a previous process instead of creating new ones.
+ * Each pool that is closed writes its own file in the snapshot directory, so pools of the same
+ * database never overwrite each other's snapshot. A file is claimed by renaming it before it is
+ * read, so the sessions in a file are adopted by at most one pool.
+ */
+class SessionPoolSnapshot {
+  private static final Logger logger = Logger.getLogger(SessionPoolSnapshot.class.getName());
+  private static final String SUFFIX = ".sessions";
+  private static final String CLAIMED_SUFFIX = ".claimed";
+  private static final String TMP_SUFFIX = ".tmp";
+
+  private SessionPoolSnapshot() {}
+
+  /** Returns the prefix of the names of the snapshot files of the given database. */
+  private static String getFilePrefix(DatabaseId db) {
+    // Database ids cannot contain a '.', so the prefix of one database is never a prefix of
+    // another.
+    return db.getName().replace('/', '_') + ".";
+  }
+
+  /** Returns the snapshot files of the given database in the given directory that are unclaimed. */
+  static List<File> getFiles(File directory, DatabaseId db) {
+    final String prefix = getFilePrefix(db);
+    File[] files =
+        directory.listFiles(
+            new FilenameFilter() {
+              @Override
+              public boolean accept(File dir, String name) {
+                return name.startsWith(prefix) && name.endsWith(SUFFIX);
+              }
+            });
+    if (files == null) {
+      return Collections.emptyList();
+    }
+    Arrays.sort(files);
+    return Arrays.asList(files);
+  }
+
+  /**
+   * Writes the given session names to a new snapshot file of the given database. Existing snapshots
+   * of the database, for example of other pools, are not changed.
+   */
+  static void write(File directory, DatabaseId db, Collection<String> sessionNames)
+      throws IOException {
+    Preconditions.checkNotNull(sessionNames);
+    String name = getFilePrefix(db) + UUID.randomUUID() + SUFFIX;
+    File file = new File(directory, name);
+    File tmp = new File(directory, name + TMP_SUFFIX);
+    Files.write(tmp.toPath(), sessionNames, StandardCharsets.UTF_8);
+    Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Claims and removes snapshots of the given database and returns at most {@code maxSessions}
+   * session names from them. Sessions of a claimed snapshot that exceed {@code maxSessions} are
+   * written to a new snapshot, so another pool can adopt them. Returns an empty list if there is no
+   * snapshot or if none could be read.
+   */
+  static List<String> claim(File directory, DatabaseId db, int maxSessions) {
+    String prefix = db.getName() + "/sessions/";
+    List<String> res = new ArrayList<>();
+    for (File file : getFiles(directory, db)) {
+      if (res.size() >= maxSessions) {
+        break;
+      }
+      File claimed = new File(directory, file.getName() + CLAIMED_SUFFIX);
+      try {
+        Files.move(file.toPath(), claimed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        // Another process claimed the snapshot first.
+        continue;
+      }
+      List<String> surplus = new ArrayList<>();
+      try {
+        for (String line : Files.readAllLines(claimed.toPath(), StandardCharsets.UTF_8)) {
+          String name = line.trim();
+          if (name.startsWith(prefix)) {
+            if (res.size() < maxSessions) {
+              res.add(name);
+            } else {
+              surplus.add(name);
+            }
+          }
+        }
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Failed to read session snapshot " + claimed, e);
+      } finally {
+        if (!claimed.delete()) {
+          logger.log(Level.WARNING, "Failed to delete session snapshot " + claimed);
+        }
+      }
+      if (!surplus.isEmpty()) {
+        try {
+          write(directory, db, surplus);
+        } catch (IOException e) {
+          logger.log(Level.WARNING, "Failed to write the sessions that were not adopted", e);
+        }
+      }
+    }
+    return res;
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+/**
+ * Priority class of the requests of a {@link DatabaseClient} for a session from the session pool.
+ * If the pool is exhausted, the waiting requests of the different priorities are served by weighted
+ * priority, and first-in-first-out within the same priority. The weights and the number of sessions
+ * that are reserved for a priority can be set with {@link
+ * SessionPoolOptions.Builder#setPriorityWeight(SessionPriority, int)} and {@link
+ * SessionPoolOptions.Builder#setReservedSessions(SessionPriority, int)}.
+ *
+ * @see DatabaseClient#withSessionPriority(SessionPriority)
+ */
+public enum SessionPriority {
+  /** Priority for latency-sensitive requests. */
+  HIGH,
+  /** The default priority. */
+  NORMAL,
+  /** Priority for batch jobs and other requests that are not latency-sensitive. */
+  LOW;
+}
@@ -17,6 +17,7 @@
 package com.google.cloud.spanner;
 
 import com.google.cloud.Service;
+import java.util.List;
 
 /**
  * An interface for Cloud Spanner. Typically, there would only be one instance of this for the
@@ -108,4 +109,23 @@ public interface Spanner extends Service<SpannerOptions>, AutoCloseable {
 
   /** @return <code>true</code> if this {@link Spanner} object is closed. */
   boolean isClosed();
+
+  /**
+   * Returns the client-side statistics of the n query fingerprints with the highest total latency,
+   * ordered by total latency in descending order. Returns an empty list if query statistics are not
+   * enabled with {@link SpannerOptions.Builder#setQueryStatsOptions(QueryStatsOptions)}.
+   *
+   * <p>Example to print the ten most expensive queries.
+   *
+   * <pre>{@code
+   * for (QueryStats stats : spanner.getTopQueryStats(10)) {
+   *   System.out.printf(
+   *       "%s: %d executions, p99 %.1f ms%n",
+   *       stats.getFingerprint(),
+   *       stats.getExecutionCount(),
+   *       stats.getLatencyPercentileMillis(99d));
+   * }
+   * }</pre>
+   */
+  List<QueryStats> getTopQueryStats(int n);
 }
@@ -71,6 +71,17 @@ public class SpannerException extends BaseGrpcServiceException {
     return code;
   }
 
+  /**
+   * Fills in the stack trace of this exception if it was created without one while the client
+   * library was internally retrying an operation. This is called when the exception is thrown to
+   * user code.
+   */
+  void ensureStackTrace() {
+    if (getStackTrace().length == 0) {
+      super.fillInStackTrace();
+    }
+  }
+
   enum DoNotConstructDirectly {
     ALLOWED
   }
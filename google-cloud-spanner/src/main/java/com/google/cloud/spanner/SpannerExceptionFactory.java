@@ -19,6 +19,7 @@ package com.google.cloud.spanner;
 import com.google.api.gax.grpc.GrpcStatusCode;
 import com.google.api.gax.rpc.ApiException;
 import com.google.cloud.spanner.SpannerException.DoNotConstructDirectly;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Predicate;
 import com.google.rpc.ResourceInfo;
@@ -47,6 +48,21 @@ public final class SpannerExceptionFactory {
   private static final Metadata.Key<ResourceInfo> KEY_RESOURCE_INFO =
       ProtoUtils.keyForProto(ResourceInfo.getDefaultInstance());
 
+  /**
+   * System property that makes the client library create {@link AbortedException}s and {@link
+   * SessionNotFoundException}s without a stack trace while it is internally retrying an operation.
+   * These exceptions are normally caught and retried by the library. If such an exception is
+   * eventually thrown to user code, its stack trace is filled in at that point. Note that
+   * exceptions that are thrown to a {@link TransactionRunner.TransactionCallable} are also created
+   * without a stack trace, as the callable is executed by the retry loop of the library.
+   */
+  static final String OMIT_RETRIED_STACK_TRACES_PROPERTY =
+      "com.google.cloud.spanner.omitRetriedExceptionStackTraces";
+
+  private static volatile boolean omitRetriedStackTraces =
+      Boolean.getBoolean(OMIT_RETRIED_STACK_TRACES_PROPERTY);
+  private static final ThreadLocal<Boolean> inRetryScope = new ThreadLocal<>();
+
   public static SpannerException newSpannerException(ErrorCode code, @Nullable String message) {
     return newSpannerException(code, message, null);
   }
@@ -99,6 +115,14 @@ public final class SpannerExceptionFactory {
     return new SpannerBatchUpdateException(token, code, message, updateCounts);
   }
 
+  /**
+   * Constructs an exception that indicates that the admission control of a session pool rejected a
+   * request because the concurrency limit has been reached.
+   */
+  static AdmissionRejectedException newAdmissionRejectedException(String message) {
+    return new AdmissionRejectedException(DoNotConstructDirectly.ALLOWED, message);
+  }
+
   /**
    * Constructs a specific aborted exception that should only be thrown by a connection after an
    * internal retry aborted due to concurrent modifications.
@@ -169,6 +193,40 @@ public final class SpannerExceptionFactory {
         ErrorCode.CANCELLED, cause == null ? "Cancelled" : cause.getMessage(), cause);
   }
 
+  @VisibleForTesting
+  static void setOmitRetriedStackTraces(boolean omit) {
+    omitRetriedStackTraces = omit;
+  }
+
+  /**
+   * Marks the start of an operation that internally retries {@link AbortedException}s and {@link
+   * SessionNotFoundException}s. Returns true if this call started the outermost retry scope on the
+   * current thread, in which case the caller must call {@link #exitRetryScope(boolean)} when the
+   * operation finishes and fill in the stack trace of any {@link SpannerException} that it throws
+   * to user code with {@link SpannerException#ensureStackTrace()}.
+   */
+  static boolean enterRetryScope() {
+    if (!omitRetriedStackTraces || inRetryScope.get() != null) {
+      return false;
+    }
+    inRetryScope.set(Boolean.TRUE);
+    return true;
+  }
+
+  static void exitRetryScope(boolean entered) {
+    if (entered) {
+      inRetryScope.remove();
+    }
+  }
+
+  /**
+   * Returns true if exceptions that are retried internally should be created without a stack trace
+   * on the current thread.
+   */
+  static boolean isInRetryScope() {
+    return inRetryScope.get() != null;
+  }
+
   private static String formatMessage(ErrorCode code, @Nullable String message) {
     if (message == null) {
       return code.toString();
@@ -16,6 +16,8 @@
 
 package com.google.cloud.spanner;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.SettableApiFuture;
 import com.google.api.gax.core.GaxProperties;
 import com.google.api.gax.paging.Page;
 import com.google.cloud.BaseService;
@@ -31,17 +33,23 @@ import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
 import com.google.spanner.v1.ExecuteSqlRequest.QueryOptions;
 import io.opencensus.metrics.LabelValue;
+import io.opencensus.metrics.Metrics;
 import io.opencensus.trace.Tracer;
 import io.opencensus.trace.Tracing;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -67,6 +75,8 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
   @GuardedBy("CLIENT_ID_LOCK")
   private static final Map<DatabaseId, Long> CLIENT_IDS = new HashMap<>();
 
+  private static final AtomicLong SPANNER_IDS = new AtomicLong();
+
   private static String nextDatabaseClientId(DatabaseId databaseId) {
     synchronized (CLIENT_ID_LOCK) {
       Long id = CLIENT_IDS.get(databaseId);
@@ -93,6 +103,8 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
 
   private final DatabaseAdminClient dbAdminClient;
   private final InstanceAdminClient instanceClient;
+  @Nullable private final RetryBudget retryBudget;
+  @Nullable private final QueryStatsAggregator queryStats;
 
   @GuardedBy("this")
   private boolean spannerIsClosed = false;
@@ -104,6 +116,22 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     this.dbAdminClient = new DatabaseAdminClientImpl(options.getProjectId(), gapicRpc);
     this.instanceClient =
         new InstanceAdminClientImpl(options.getProjectId(), gapicRpc, dbAdminClient);
+    if (options.getRetryBudgetOptions() == null) {
+      this.retryBudget = null;
+    } else {
+      this.retryBudget = new RetryBudget(options.getRetryBudgetOptions());
+      this.retryBudget.registerMetrics(
+          Metrics.getMetricRegistry(),
+          ImmutableList.of(
+              LabelValue.create(String.format("spanner-%d", SPANNER_IDS.incrementAndGet())),
+              LabelValue.create(GaxProperties.getLibraryVersion(options.getClass()))));
+    }
+    if (options.getQueryStatsOptions() == null) {
+      this.queryStats = null;
+    } else {
+      this.queryStats = new QueryStatsAggregator(options.getQueryStatsOptions());
+      QueryStatsAggregator.registerViews();
+    }
   }
 
   SpannerImpl(SpannerOptions options) {
@@ -115,6 +143,24 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     return gapicRpc;
   }
 
+  /**
+   * Returns the {@link RetryBudget} that is shared by all sessions of this {@link SpannerImpl}
+   * instance, or {@code null} if retries are not limited.
+   */
+  @Nullable
+  RetryBudget getRetryBudget() {
+    return retryBudget;
+  }
+
+  /**
+   * Returns the {@link QueryStatsAggregator} that is shared by all sessions of this {@link
+   * SpannerImpl} instance, or {@code null} if query statistics are not collected.
+   */
+  @Nullable
+  QueryStatsAggregator getQueryStats() {
+    return queryStats;
+  }
+
   /** Returns the default setting for prefetchChunks of this {@link SpannerImpl} instance. */
   int getDefaultPrefetchChunks() {
     return getOptions().getPrefetchChunks();
@@ -190,7 +236,7 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
 
   @VisibleForTesting
   DatabaseClientImpl createDatabaseClient(String clientId, SessionPool pool) {
-    return new DatabaseClientImpl(clientId, pool);
+    return new DatabaseClientImpl(clientId, pool, getOptions().getHedgingOptions());
   }
 
   @Override
@@ -237,14 +283,34 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
     return spannerIsClosed;
   }
 
+  @Override
+  public List<QueryStats> getTopQueryStats(int n) {
+    if (queryStats == null) {
+      return ImmutableList.of();
+    }
+    return queryStats.getTopQueryStats(n);
+  }
+
   /** Helper class for gRPC calls that can return paginated results. */
   abstract static class PageFetcher<S, T> implements NextPageFetcher<S> {
     private String nextPageToken;
+    private Executor prefetchExecutor;
+    private String prefetchedPageToken;
+    private ListenableFuture<Paginated<T>> prefetchedPage;
 
     @Override
     public Page<S> getNextPage() {
-      Paginated<T> nextPage = getNextPage(nextPageToken);
+      Paginated<T> nextPage;
+      if (prefetchedPage != null && Objects.equals(prefetchedPageToken, nextPageToken)) {
+        nextPage = getPrefetchedPage();
+      } else {
+        nextPage = getNextPage(nextPageToken);
+      }
+      prefetchedPage = null;
       this.nextPageToken = nextPage.getNextPageToken();
+      if (prefetchExecutor != null && !Strings.isNullOrEmpty(nextPageToken)) {
+        prefetch(nextPageToken);
+      }
       List<S> results = new ArrayList<>();
       for (T proto : nextPage.getResults()) {
         results.add(fromProto(proto));
@@ -252,10 +318,67 @@ class SpannerImpl extends BaseService<SpannerOptions> implements Spanner {
       return new PageImpl<S>(this, nextPageToken, results);
     }
 
+    private void prefetch(final String pageToken) {
+      ListenableFutureTask<Paginated<T>> task =
+          ListenableFutureTask.create(
+              new Callable<Paginated<T>>() {
+                @Override
+                public Paginated<T> call() {
+                  return getNextPage(pageToken);
+                }
+              });
+      prefetchedPageToken = pageToken;
+      prefetchedPage = task;
+      prefetchExecutor.execute(task);
+    }
+
+    private Paginated<T> getPrefetchedPage() {
+      try {
+        return prefetchedPage.get();
+      } catch (InterruptedException e) {
+        throw SpannerExceptionFactory.propagateInterrupt(e);
+      } catch (ExecutionException e) {
+        throw SpannerExceptionFactory.newSpannerException(e.getCause());
+      }
+    }
+
     void setNextPageToken(String nextPageToken) {
       this.nextPageToken = nextPageToken;
     }
 
+    /**
+     * Sets an executor that is used to fetch the next page in the background while the current page
+     * is being consumed.
+     */
+    void setPrefetchExecutor(Executor prefetchExecutor) {
+      this.prefetchExecutor = prefetchExecutor;
+    }
+
+    /**
+     * Fetches all remaining pages in the background and returns a future for all their values. The
+     * pages after the first page are prefetched with the given executor.
+     */
+    ApiFuture<List<S>> listAllAsync(Executor executor) {
+      setPrefetchExecutor(executor);
+      final SettableApiFuture<List<S>> res = SettableApiFuture.create();
+      executor.execute(
+          new Runnable() {
+            @Override
+            public void run() {
+              try {
+                List<S> values = new ArrayList<>();
+                for (S value : getNextPage().iterateAll()) {
+                  values.add(value);
+                }
+                res.set(values);
+              } catch (Throwable t) {
+                res.setException(t);
+              }
+            }
+          });
+      return res;
+    }
+
     abstract Paginated<T> getNextPage(@Nullable String nextPageToken);
 
     abstract S fromProto(T proto);
@@ -57,6 +57,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import org.threeten.bp.Duration;
 
 /** Options for the Cloud Spanner service. */
@@ -88,6 +89,10 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
   private final DatabaseAdminStubSettings databaseAdminStubSettings;
   private final Duration partitionedDmlTimeout;
   private final boolean autoThrottleAdministrativeRequests;
+  private final TracingLevel tracingLevel;
+  private final HedgingOptions hedgingOptions;
+  private final RetryBudgetOptions retryBudgetOptions;
+  private final QueryStatsOptions queryStatsOptions;
   /**
    * These are the default {@link QueryOptions} defined by the user on this {@link SpannerOptions}.
    */
@@ -113,6 +118,17 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
     CallCredentials getCallCredentials();
   }
 
+  /** The amount of tracing information that the client library adds to the spans of the caller. */
+  public enum TracingLevel {
+    /** Add child spans and annotations for all operations. This is the default. */
+    ALL,
+    /**
+     * Only add child spans. Annotations that are added to the current span for each session
+     * checkout and transaction attempt are skipped.
+     */
+    SPANS_ONLY;
+  }
+
   /** Default implementation of {@code SpannerFactory}. */
   private static class DefaultSpannerFactory implements SpannerFactory {
     private static final DefaultSpannerFactory INSTANCE = new DefaultSpannerFactory();
@@ -160,6 +176,10 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
     }
     partitionedDmlTimeout = builder.partitionedDmlTimeout;
     autoThrottleAdministrativeRequests = builder.autoThrottleAdministrativeRequests;
+    tracingLevel = builder.tracingLevel;
+    hedgingOptions = builder.hedgingOptions;
+    retryBudgetOptions = builder.retryBudgetOptions;
+    queryStatsOptions = builder.queryStatsOptions;
     defaultQueryOptions = builder.defaultQueryOptions;
     envQueryOptions = builder.getEnvironmentQueryOptions();
     if (envQueryOptions.equals(QueryOptions.getDefaultInstance())) {
@@ -235,6 +255,10 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
         DatabaseAdminStubSettings.newBuilder();
     private Duration partitionedDmlTimeout = Duration.ofHours(2L);
     private boolean autoThrottleAdministrativeRequests = false;
+    private TracingLevel tracingLevel = TracingLevel.ALL;
+    private HedgingOptions hedgingOptions;
+    private RetryBudgetOptions retryBudgetOptions;
+    private QueryStatsOptions queryStatsOptions;
     private Map<DatabaseId, QueryOptions> defaultQueryOptions = new HashMap<>();
     private CallCredentialsProvider callCredentialsProvider;
     private String emulatorHost = System.getenv("SPANNER_EMULATOR_HOST");
@@ -305,6 +329,10 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
       this.databaseAdminStubSettingsBuilder = options.databaseAdminStubSettings.toBuilder();
       this.partitionedDmlTimeout = options.partitionedDmlTimeout;
       this.autoThrottleAdministrativeRequests = options.autoThrottleAdministrativeRequests;
+      this.tracingLevel = options.tracingLevel;
+      this.hedgingOptions = options.hedgingOptions;
+      this.retryBudgetOptions = options.retryBudgetOptions;
+      this.queryStatsOptions = options.queryStatsOptions;
       this.defaultQueryOptions = options.defaultQueryOptions;
       this.callCredentialsProvider = options.callCredentialsProvider;
       this.channelProvider = options.channelProvider;
@@ -514,6 +542,48 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
       return this;
     }
 
+    /**
+     * Sets the amount of tracing information that the client library adds to the spans of the
+     * application. The default is {@link TracingLevel#ALL}. Use {@link TracingLevel#SPANS_ONLY} to
+     * skip the per-call annotations that are added to the current span when sessions are checked
+     * out and transactions are executed.
+     */
+    public Builder setTracingLevel(TracingLevel tracingLevel) {
+      this.tracingLevel = Preconditions.checkNotNull(tracingLevel);
+      return this;
+    }
+
+    /**
+     * Enables hedging of single-use reads with an exact or maximum staleness bound. Hedging is
+     * disabled by default. See {@link HedgingOptions} for more information.
+     */
+    public Builder setHedgingOptions(HedgingOptions hedgingOptions) {
+      this.hedgingOptions = Preconditions.checkNotNull(hedgingOptions);
+      return this;
+    }
+
+    /**
+     * Enables a retry budget that is shared by all database clients of the {@link Spanner}
+     * instance. The retry budget limits the retries of aborted transactions and broken result
+     * streams to a ratio of the successful requests. Retries are not limited by default. See {@link
+     * RetryBudgetOptions} for more information.
+     */
+    public Builder setRetryBudgetOptions(RetryBudgetOptions retryBudgetOptions) {
+      this.retryBudgetOptions = Preconditions.checkNotNull(retryBudgetOptions);
+      return this;
+    }
+
+    /**
+     * Enables client-side statistics of queries that are aggregated per query fingerprint. The
+     * statistics are exported through OpenCensus and can be retrieved with {@link
+     * Spanner#getTopQueryStats(int)}. Query statistics are disabled by default. See {@link
+     * QueryStats} for more information.
+     */
+    public Builder setQueryStatsOptions(QueryStatsOptions queryStatsOptions) {
+      this.queryStatsOptions = Preconditions.checkNotNull(queryStatsOptions);
+      return this;
+    }
+
     /**
      * Sets the default {@link QueryOptions} that will be used for all queries on the specified
      * database. Query options can also be specified on a per-query basis and as environment
@@ -675,6 +745,30 @@ public class SpannerOptions extends ServiceOptions<Spanner, SpannerOptions> {
     return autoThrottleAdministrativeRequests;
   }
 
+  public TracingLevel getTracingLevel() {
+    return tracingLevel;
+  }
+
+  /** Returns the {@link HedgingOptions} for stale reads, or {@code null} if hedging is disabled. */
+  @Nullable
+  public HedgingOptions getHedgingOptions() {
+    return hedgingOptions;
+  }
+
+  /** Returns the {@link RetryBudgetOptions}, or {@code null} if retries are not limited. */
+  @Nullable
+  public RetryBudgetOptions getRetryBudgetOptions() {
+    return retryBudgetOptions;
+  }
+
+  /**
+   * Returns the {@link QueryStatsOptions}, or {@code null} if query statistics are not collected.
+   */
+  @Nullable
+  public QueryStatsOptions getQueryStatsOptions() {
+    return queryStatsOptions;
+  }
+
   public CallCredentialsProvider getCallCredentialsProvider() {
     return callCredentialsProvider;
   }
@@ -29,12 +29,13 @@ import com.google.spanner.v1.RollbackRequest;
 import io.grpc.Context;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import javax.annotation.Nullable;
 import org.threeten.bp.Duration;
 
 /**
  * Util class for retrying aborted transactions. This class is a wrapper around {@link RetryHelper}
  * that uses specific settings to only retry on aborted transactions, without a timeout and without
- * a cap on the number of retries.
+ * a cap on the number of retries, unless a {@link RetryBudget} is given.
  */
 class SpannerRetryHelper {
 
@@ -53,18 +54,50 @@ class SpannerRetryHelper {
 
   /** Executes the {@link Callable} and retries if it fails with an {@link AbortedException}. */
   static <T> T runTxWithRetriesOnAborted(Callable<T> callable) {
+    return runTxWithRetriesOnAborted(callable, null);
+  }
+
+  /**
+   * Executes the {@link Callable} and retries if it fails with an {@link AbortedException} and the
+   * given {@link RetryBudget} allows a retry. A {@code null} budget does not limit the retries.
+   */
+  static <T> T runTxWithRetriesOnAborted(Callable<T> callable, @Nullable RetryBudget budget) {
+    boolean retryScope = SpannerExceptionFactory.enterRetryScope();
     try {
-      return RetryHelper.runWithRetries(
-          callable, txRetrySettings, new TxRetryAlgorithm<>(), NanoClock.getDefaultClock());
+      T result =
+          RetryHelper.runWithRetries(
+              callable,
+              txRetrySettings,
+              new TxRetryAlgorithm<T>(budget),
+              NanoClock.getDefaultClock());
+      if (budget != null) {
+        budget.recordSuccess();
+      }
+      return result;
     } catch (RetryHelperException e) {
       if (e.getCause() != null) {
+        if (retryScope && e.getCause() instanceof SpannerException) {
+          ((SpannerException) e.getCause()).ensureStackTrace();
+        }
         Throwables.throwIfUnchecked(e.getCause());
       }
       throw e;
+    } finally {
+      SpannerExceptionFactory.exitRetryScope(retryScope);
     }
   }
 
   private static class TxRetryAlgorithm<T> implements ResultRetryAlgorithm<T> {
+    @Nullable private final RetryBudget budget;
+    // shouldRetry can be called multiple times for the same attempt, but each attempt should only
+    // withdraw one token from the retry budget.
+    private Throwable lastThrowable;
+    private boolean lastRetryAllowed;
+
+    private TxRetryAlgorithm(@Nullable RetryBudget budget) {
+      this.budget = budget;
+    }
+
     @Override
     public TimedAttemptSettings createNextAttempt(
         Throwable prevThrowable, T prevResponse, TimedAttemptSettings prevSettings) {
@@ -86,9 +119,19 @@ class SpannerRetryHelper {
       if (Context.current().isCancelled()) {
         throw SpannerExceptionFactory.newSpannerExceptionForCancellation(Context.current(), null);
       }
-      return prevThrowable != null
-          && (prevThrowable instanceof AbortedException
-              || prevThrowable instanceof com.google.api.gax.rpc.AbortedException);
+      if (prevThrowable == null
+          || !(prevThrowable instanceof AbortedException
+              || prevThrowable instanceof com.google.api.gax.rpc.AbortedException)) {
+        return false;
+      }
+      if (budget == null) {
+        return true;
+      }
+      if (prevThrowable != lastThrowable) {
+        lastThrowable = prevThrowable;
+        lastRetryAllowed = budget.tryAcquireRetry();
+      }
+      return lastRetryAllowed;
     }
   }
 }
@@ -17,6 +17,7 @@
 package com.google.cloud.spanner;
 
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.SpannerOptions.TracingLevel;
 import com.google.common.collect.ImmutableMap;
 import com.google.spanner.v1.Transaction;
 import io.opencensus.contrib.grpc.util.StatusConverter;
@@ -25,6 +26,7 @@ import io.opencensus.trace.EndSpanOptions;
 import io.opencensus.trace.Span;
 import io.opencensus.trace.Status;
 import java.util.Map;
+import javax.annotation.Nullable;
 
 /** Utility methods for tracing. */
 class TraceUtil {
@@ -32,6 +34,16 @@ class TraceUtil {
   static final EndSpanOptions END_SPAN_OPTIONS =
       EndSpanOptions.builder().setSampleToLocalSpanStore(true).build();
 
+  /**
+   * Returns true if annotations should be added to the given span. Annotations are only recorded by
+   * spans that record events, so callers should check this once before building any annotation
+   * descriptions or attribute maps. A {@code null} level is treated as {@link TracingLevel#ALL}.
+   */
+  static boolean shouldAnnotate(Span span, @Nullable TracingLevel level) {
+    return level != TracingLevel.SPANS_ONLY
+        && span.getOptions().contains(Span.Options.RECORD_EVENTS);
+  }
+
   static Map<String, AttributeValue> getTransactionAnnotations(Transaction t) {
     return ImmutableMap.of(
         "Id",
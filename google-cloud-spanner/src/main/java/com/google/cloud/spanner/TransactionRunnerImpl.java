@@ -88,34 +88,44 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
 
     private ByteString transactionId;
     private Timestamp commitTimestamp;
+    private final boolean annotate;
 
     private TransactionContextImpl(Builder builder) {
       super(builder);
       this.transactionId = builder.transactionId;
+      this.annotate = TraceUtil.shouldAnnotate(span, session.getTracingLevel());
     }
 
     void ensureTxn() {
       if (transactionId == null || isAborted()) {
-        span.addAnnotation("Creating Transaction");
+        if (annotate) {
+          span.addAnnotation("Creating Transaction");
+        }
         try {
           transactionId = session.beginTransaction();
-          span.addAnnotation(
-              "Transaction Creation Done",
-              ImmutableMap.of(
-                  "Id", AttributeValue.stringAttributeValue(transactionId.toStringUtf8())));
+          if (annotate) {
+            span.addAnnotation(
+                "Transaction Creation Done",
+                ImmutableMap.of(
+                    "Id", AttributeValue.stringAttributeValue(transactionId.toStringUtf8())));
+          }
           txnLogger.log(
               Level.FINER,
               "Started transaction {0}",
               txnLogger.isLoggable(Level.FINER) ? transactionId.asReadOnlyByteBuffer() : null);
         } catch (SpannerException e) {
-          span.addAnnotation("Transaction Creation Failed", TraceUtil.getExceptionAnnotations(e));
+          if (annotate) {
+            span.addAnnotation("Transaction Creation Failed", TraceUtil.getExceptionAnnotations(e));
+          }
           throw e;
         }
       } else {
-        span.addAnnotation(
-            "Transaction Initialized",
-            ImmutableMap.of(
-                "Id", AttributeValue.stringAttributeValue(transactionId.toStringUtf8())));
+        if (annotate) {
+          span.addAnnotation(
+              "Transaction Initialized",
+              ImmutableMap.of(
+                  "Id", AttributeValue.stringAttributeValue(transactionId.toStringUtf8())));
+        }
         txnLogger.log(
             Level.FINER,
             "Using prepared transaction {0}",
@@ -124,7 +134,9 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
     }
 
     void commit() {
-      span.addAnnotation("Starting Commit");
+      if (annotate) {
+        span.addAnnotation("Starting Commit");
+      }
       CommitRequest.Builder builder =
           CommitRequest.newBuilder().setSession(session.getName()).setTransactionId(transactionId);
       synchronized (lock) {
@@ -147,14 +159,18 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
         commitTimestamp = Timestamp.fromProto(commitResponse.getCommitTimestamp());
         opSpan.end(TraceUtil.END_SPAN_OPTIONS);
       } catch (RuntimeException e) {
-        span.addAnnotation("Commit Failed", TraceUtil.getExceptionAnnotations(e));
+        if (annotate) {
+          span.addAnnotation("Commit Failed", TraceUtil.getExceptionAnnotations(e));
+        }
         TraceUtil.endSpanWithFailure(opSpan, e);
         if (e instanceof SpannerException) {
           onError((SpannerException) e);
         }
         throw e;
       }
-      span.addAnnotation("Commit Done");
+      if (annotate) {
+        span.addAnnotation("Commit Done");
+      }
     }
 
     Timestamp commitTimestamp() {
@@ -176,17 +192,23 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
         // Note that we're not retrying this request since we don't particularly care about the
         // response.  Normally, the next thing that will happen is that we will make a fresh
         // transaction attempt, which should implicitly abort this one.
-        span.addAnnotation("Starting Rollback");
+        if (annotate) {
+          span.addAnnotation("Starting Rollback");
+        }
         rpc.rollback(
             RollbackRequest.newBuilder()
                 .setSession(session.getName())
                 .setTransactionId(transactionId)
                 .build(),
             session.getOptions());
-        span.addAnnotation("Rollback Done");
+        if (annotate) {
+          span.addAnnotation("Rollback Done");
+        }
       } catch (SpannerException e) {
         txnLogger.log(Level.FINE, "Exception during rollback", e);
-        span.addAnnotation("Rollback Failed", TraceUtil.getExceptionAnnotations(e));
+        if (annotate) {
+          span.addAnnotation("Rollback Failed", TraceUtil.getExceptionAnnotations(e));
+        }
       }
     }
 
@@ -286,6 +308,7 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
   private boolean blockNestedTxn = true;
   private final SessionImpl session;
   private final Span span;
+  private final boolean annotate;
   private TransactionContextImpl txn;
   private volatile boolean isValid = true;
 
@@ -298,6 +321,7 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
   TransactionRunnerImpl(SessionImpl session, SpannerRpc rpc, int defaultPrefetchChunks) {
     this.session = session;
     this.span = Tracing.getTracer().getCurrentSpan();
+    this.annotate = TraceUtil.shouldAnnotate(span, session.getTracingLevel());
     this.txn = session.newTransaction();
   }
 
@@ -335,9 +359,12 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
             attempt.incrementAndGet();
             // TODO(user): When using streaming reads, consider using the first read to begin
             // the txn.
-            span.addAnnotation(
-                "Starting Transaction Attempt",
-                ImmutableMap.of("Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+            if (annotate) {
+              span.addAnnotation(
+                  "Starting Transaction Attempt",
+                  ImmutableMap.of(
+                      "Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+            }
             txn.ensureTxn();
 
             T result;
@@ -348,10 +375,12 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
             } catch (Exception e) {
               txnLogger.log(Level.FINE, "User-provided TransactionCallable raised exception", e);
               if (txn.isAborted() || (e instanceof AbortedException)) {
-                span.addAnnotation(
-                    "Transaction Attempt Aborted in user operation. Retrying",
-                    ImmutableMap.of(
-                        "Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+                if (annotate) {
+                  span.addAnnotation(
+                      "Transaction Attempt Aborted in user operation. Retrying",
+                      ImmutableMap.of(
+                          "Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+                }
                 shouldRollback = false;
                 if (e instanceof AbortedException) {
                   throw (AbortedException) e;
@@ -365,12 +394,14 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
               } else {
                 toThrow = newSpannerException(ErrorCode.UNKNOWN, e.getMessage(), e);
               }
-              span.addAnnotation(
-                  "Transaction Attempt Failed in user operation",
-                  ImmutableMap.<String, AttributeValue>builder()
-                      .putAll(TraceUtil.getExceptionAnnotations(toThrow))
-                      .put("Attempt", AttributeValue.longAttributeValue(attempt.longValue()))
-                      .build());
+              if (annotate) {
+                span.addAnnotation(
+                    "Transaction Attempt Failed in user operation",
+                    ImmutableMap.<String, AttributeValue>builder()
+                        .putAll(TraceUtil.getExceptionAnnotations(toThrow))
+                        .put("Attempt", AttributeValue.longAttributeValue(attempt.longValue()))
+                        .build());
+              }
               throw toThrow;
             } finally {
               if (shouldRollback) {
@@ -380,30 +411,36 @@ class TransactionRunnerImpl implements SessionTransaction, TransactionRunner {
 
             try {
               txn.commit();
-              span.addAnnotation(
-                  "Transaction Attempt Succeeded",
-                  ImmutableMap.of(
-                      "Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+              if (annotate) {
+                span.addAnnotation(
+                    "Transaction Attempt Succeeded",
+                    ImmutableMap.of(
+                        "Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+              }
               return result;
             } catch (AbortedException e) {
               txnLogger.log(Level.FINE, "Commit aborted", e);
-              span.addAnnotation(
-                  "Transaction Attempt Aborted in Commit. Retrying",
-                  ImmutableMap.of(
-                      "Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+              if (annotate) {
+                span.addAnnotation(
+                    "Transaction Attempt Aborted in Commit. Retrying",
+                    ImmutableMap.of(
+                        "Attempt", AttributeValue.longAttributeValue(attempt.longValue())));
+              }
               throw e;
             } catch (SpannerException e) {
-              span.addAnnotation(
-                  "Transaction Attempt Failed in Commit",
-                  ImmutableMap.<String, AttributeValue>builder()
-                      .putAll(TraceUtil.getExceptionAnnotations(e))
-                      .put("Attempt", AttributeValue.longAttributeValue(attempt.longValue()))
-                      .build());
+              if (annotate) {
+                span.addAnnotation(
+                    "Transaction Attempt Failed in Commit",
+                    ImmutableMap.<String, AttributeValue>builder()
+                        .putAll(TraceUtil.getExceptionAnnotations(e))
+                        .put("Attempt", AttributeValue.longAttributeValue(attempt.longValue()))
+                        .build());
+              }
               throw e;
             }
           }
         };
-    return SpannerRetryHelper.runTxWithRetriesOnAborted(retryCallable);
+    return SpannerRetryHelper.runTxWithRetriesOnAborted(retryCallable, session.getRetryBudget());
   }
 
   @Override
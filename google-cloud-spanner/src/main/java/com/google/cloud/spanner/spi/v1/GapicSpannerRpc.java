@@ -33,11 +33,13 @@ import com.google.api.gax.rpc.HeaderProvider;
 import com.google.api.gax.rpc.InstantiatingWatchdogProvider;
 import com.google.api.gax.rpc.OperationCallable;
 import com.google.api.gax.rpc.ResponseObserver;
+import com.google.api.gax.rpc.ServerStream;
 import com.google.api.gax.rpc.StreamController;
 import com.google.api.gax.rpc.TransportChannelProvider;
 import com.google.api.gax.rpc.WatchdogProvider;
 import com.google.api.pathtemplate.PathTemplate;
 import com.google.cloud.grpc.GrpcTransportOptions;
+import com.google.cloud.spanner.ErrorCode;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.SpannerExceptionFactory;
 import com.google.cloud.spanner.SpannerOptions;
@@ -46,11 +48,13 @@ import com.google.cloud.spanner.admin.database.v1.stub.DatabaseAdminStub;
 import com.google.cloud.spanner.admin.database.v1.stub.GrpcDatabaseAdminStub;
 import com.google.cloud.spanner.admin.instance.v1.stub.GrpcInstanceAdminStub;
 import com.google.cloud.spanner.admin.instance.v1.stub.InstanceAdminStub;
+import com.google.cloud.spanner.spi.v1.SpannerLatencyInterceptor.LatencyListener;
 import com.google.cloud.spanner.v1.stub.GrpcSpannerStub;
 import com.google.cloud.spanner.v1.stub.SpannerStub;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
 import com.google.common.util.concurrent.RateLimiter;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.iam.v1.GetIamPolicyRequest;
@@ -126,6 +130,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
@@ -212,6 +217,10 @@ public class GapicSpannerRpc implements SpannerRpc {
   private static final ConcurrentMap<String, RateLimiter> ADMINISTRATIVE_REQUESTS_RATE_LIMITERS =
       new ConcurrentHashMap<String, RateLimiter>();
 
+  /** The listeners for the latency of the RPCs of this instance, by database name. */
+  private final ConcurrentMap<String, Set<LatencyListener>> latencyListeners =
+      new ConcurrentHashMap<>();
+
   public static GapicSpannerRpc create(SpannerOptions options) {
     return new GapicSpannerRpc(options);
   }
@@ -552,6 +561,33 @@ public class GapicSpannerRpc implements SpannerRpc {
     return operationFuture;
   }
 
+  @Override
+  public Operation startUpdateDatabaseDdl(
+      String databaseName, Iterable<String> updateDatabaseStatements, String updateId)
+      throws SpannerException {
+    acquireAdministrativeRequestsRateLimiter();
+    UpdateDatabaseDdlRequest request =
+        UpdateDatabaseDdlRequest.newBuilder()
+            .setDatabase(databaseName)
+            .addAllStatements(updateDatabaseStatements)
+            .setOperationId(updateId)
+            .build();
+    GrpcCallContext context = newCallContext(null, databaseName);
+    try {
+      return get(databaseAdminStub.updateDatabaseDdlCallable().futureCall(request, context));
+    } catch (SpannerException e) {
+      if (e.getErrorCode() == ErrorCode.ALREADY_EXISTS) {
+        // The operation was started by an earlier attempt of the same request.
+        return Operation.newBuilder()
+            .setName(
+                OPERATION_NAME_TEMPLATE.instantiate(
+                    "database", databaseName, "operation", updateId))
+            .build();
+      }
+      throw e;
+    }
+  }
+
   @Override
   public void dropDatabase(String databaseName) throws SpannerException {
     acquireAdministrativeRequestsRateLimiter();
@@ -733,6 +769,7 @@ public class GapicSpannerRpc implements SpannerRpc {
     return get(spannerStub.executeSqlCallable().futureCall(request, context));
   }
 
+  @Deprecated
   @Override
   public ResultSet executePartitionedDml(
       ExecuteSqlRequest request, @Nullable Map<Option, ?> options, Duration timeout) {
@@ -740,6 +777,13 @@ public class GapicSpannerRpc implements SpannerRpc {
     return get(spannerStub.executeSqlCallable().futureCall(request, context));
   }
 
+  @Override
+  public ServerStream<PartialResultSet> executeStreamingPartitionedDml(
+      ExecuteSqlRequest request, @Nullable Map<Option, ?> options, Duration timeout) {
+    GrpcCallContext context = newCallContext(options, request.getSession(), timeout);
+    return spannerStub.executeStreamingSqlCallable().call(request, context);
+  }
+
   @Override
   public StreamingCall executeQuery(
       ExecuteSqlRequest request, ResultStreamConsumer consumer, @Nullable Map<Option, ?> options) {
@@ -905,6 +949,26 @@ public class GapicSpannerRpc implements SpannerRpc {
     GrpcCallContext context = GrpcCallContext.createDefault();
     if (options != null) {
       context = context.withChannelAffinity(Option.CHANNEL_HINT.getLong(options).intValue());
+      String clientId = Option.CLIENT_ID.get(options);
+      if (clientId != null) {
+        context =
+            context.withCallOptions(
+                context
+                    .getCallOptions()
+                    .withOption(SpannerLatencyInterceptor.CLIENT_ID_KEY, clientId));
+      }
+    }
+    if (!latencyListeners.isEmpty()) {
+      String databaseName = SpannerLatencyInterceptor.getDatabaseName(resource);
+      Set<LatencyListener> listeners =
+          databaseName == null ? null : latencyListeners.get(databaseName);
+      if (listeners != null) {
+        context =
+            context.withCallOptions(
+                context
+                    .getCallOptions()
+                    .withOption(SpannerLatencyInterceptor.LATENCY_LISTENERS_KEY, listeners));
+      }
     }
     context = context.withExtraHeaders(metadataProvider.newExtraHeaders(resource, projectName));
     if (timeout != null) {
@@ -920,6 +984,27 @@ public class GapicSpannerRpc implements SpannerRpc {
     return context.withStreamWaitTimeout(waitTimeout).withStreamIdleTimeout(idleTimeout);
   }
 
+  @Override
+  public void addLatencyListener(String databaseName, LatencyListener listener) {
+    Set<LatencyListener> listeners = latencyListeners.get(databaseName);
+    if (listeners == null) {
+      Set<LatencyListener> newListeners = Sets.newConcurrentHashSet();
+      listeners = latencyListeners.putIfAbsent(databaseName, newListeners);
+      if (listeners == null) {
+        listeners = newListeners;
+      }
+    }
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeLatencyListener(String databaseName, LatencyListener listener) {
+    Set<LatencyListener> listeners = latencyListeners.get(databaseName);
+    if (listeners != null) {
+      listeners.remove(listener);
+    }
+  }
+
   @Override
   public void shutdown() {
     this.rpcIsClosed = true;
@@ -33,6 +33,7 @@ public class SpannerInterceptorProvider implements GrpcInterceptorProvider {
   private static final List<ClientInterceptor> defaultInterceptors =
       ImmutableList.of(
           new SpannerErrorInterceptor(),
+          new SpannerLatencyInterceptor(),
           new LoggingInterceptor(Logger.getLogger(GapicSpannerRpc.class.getName()), Level.FINER));
 
   private final List<ClientInterceptor> clientInterceptors;
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner.spi.v1;
+
+import com.google.api.core.InternalApi;
+import com.google.api.gax.core.GaxProperties;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.opencensus.stats.Measure.MeasureDouble;
+import io.opencensus.stats.Stats;
+import io.opencensus.stats.StatsRecorder;
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.TagContextBuilder;
+import io.opencensus.tags.TagValue;
+import io.opencensus.tags.Tagger;
+import io.opencensus.tags.Tags;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Records the latency of RPCs in the distributions of {@link SpannerRpcViews}: the total latency of
+ * each call, the latency until the first response was received, and the server processing time that
+ * is reported by the {@code server-timing} response header. The database and instance labels are
+ * taken from the {@code google-cloud-resource-prefix} header of the call, and the client id label
+ * from the {@link #CLIENT_ID_KEY} option of the call. This is the same client id as the one of the
+ * session pool metrics of the database client that issued the call.
+ *
+ * <p>The latency of each call is also reported to the {@link LatencyListener}s in the {@link
+ * #LATENCY_LISTENERS_KEY} option of the call. {@link GapicSpannerRpc} sets this option to the
+ * listeners that have been registered with it for the database of the call.
+ */
+@InternalApi
+public final class SpannerLatencyInterceptor implements ClientInterceptor {
+  /** Listener for the latency of the RPCs of a database. */
+  @InternalApi
+  public interface LatencyListener {
+    /**
+     * Called once for each RPC of the database, when the first response has been received, or when
+     * the call is closed without a response. {@code code} is {@link Status.Code#OK} if a response
+     * was received.
+     */
+    void onLatency(long latencyNanos, Status.Code code);
+  }
+
+  private static final Logger logger = Logger.getLogger(SpannerLatencyInterceptor.class.getName());
+
+  /** The {@link CallOptions} key for the id of the database client that issued the call. */
+  static final CallOptions.Key<String> CLIENT_ID_KEY = CallOptions.Key.create("spanner-client-id");
+
+  /** The {@link CallOptions} key for the listeners for the latency of the call. */
+  static final CallOptions.Key<Iterable<LatencyListener>> LATENCY_LISTENERS_KEY =
+      CallOptions.Key.create("spanner-latency-listeners");
+
+  private static final Metadata.Key<String> RESOURCE_PREFIX_KEY =
+      Metadata.Key.of("google-cloud-resource-prefix", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Metadata.Key<String> SERVER_TIMING_KEY =
+      Metadata.Key.of("server-timing", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Pattern SERVER_TIMING_PATTERN =
+      Pattern.compile("dur=(\\d+(?:\\.\\d+)?)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern DATABASE_PATTERN =
+      Pattern.compile("^(projects/[^/]+/instances/[^/]+)/databases/([^/]+)");
+  private static final TagValue LIBRARY_VERSION =
+      TagValue.create(Strings.nullToEmpty(GaxProperties.getLibraryVersion(SpannerRpcViews.class)));
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  private final StatsRecorder statsRecorder;
+  private final Tagger tagger;
+
+  public SpannerLatencyInterceptor() {
+    this(Stats.getStatsRecorder(), Tags.getTagger());
+    SpannerRpcViews.registerAllViews();
+  }
+
+  @VisibleForTesting
+  SpannerLatencyInterceptor(StatsRecorder statsRecorder, Tagger tagger) {
+    this.statsRecorder = statsRecorder;
+    this.tagger = tagger;
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    final long startNanos = System.nanoTime();
+    final TagContext parentTags = tagger.getCurrentTagContext();
+    final String methodName = getMethodName(method);
+    final String clientId = callOptions.getOption(CLIENT_ID_KEY);
+    final Iterable<LatencyListener> latencyListeners = callOptions.getOption(LATENCY_LISTENERS_KEY);
+    return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+      @Override
+      public void start(Listener<RespT> responseListener, Metadata headers) {
+        String resourcePrefix = headers.get(RESOURCE_PREFIX_KEY);
+        final TagContext tags = createTagContext(parentTags, methodName, clientId, resourcePrefix);
+        super.start(
+            new SimpleForwardingClientCallListener<RespT>(responseListener) {
+              // gRPC calls the methods of a listener serially.
+              private boolean receivedResponse;
+
+              @Override
+              public void onHeaders(Metadata headers) {
+                Double serverLatency = parseServerTiming(headers.get(SERVER_TIMING_KEY));
+                if (serverLatency != null) {
+                  record(SpannerRpcViews.SERVER_LATENCY, serverLatency, tags);
+                }
+                super.onHeaders(headers);
+              }
+
+              @Override
+              public void onMessage(RespT message) {
+                if (!receivedResponse) {
+                  receivedResponse = true;
+                  record(SpannerRpcViews.FIRST_RESPONSE_LATENCY, elapsedMillis(startNanos), tags);
+                  notifyListeners(latencyListeners, startNanos, Status.Code.OK);
+                }
+                super.onMessage(message);
+              }
+
+              @Override
+              public void onClose(Status status, Metadata trailers) {
+                if (!receivedResponse) {
+                  notifyListeners(latencyListeners, startNanos, status.getCode());
+                }
+                record(
+                    SpannerRpcViews.RPC_LATENCY,
+                    elapsedMillis(startNanos),
+                    tagger
+                        .toBuilder(tags)
+                        .put(SpannerRpcViews.STATUS, TagValue.create(status.getCode().name()))
+                        .build());
+                super.onClose(status, trailers);
+              }
+            },
+            headers);
+      }
+    };
+  }
+
+  private TagContext createTagContext(
+      TagContext parent,
+      String methodName,
+      @Nullable String clientId,
+      @Nullable String resourcePrefix) {
+    TagContextBuilder builder =
+        tagger
+            .toBuilder(parent)
+            .put(SpannerRpcViews.METHOD, TagValue.create(methodName))
+            .put(SpannerRpcViews.LIBRARY_VERSION, LIBRARY_VERSION);
+    if (clientId != null) {
+      builder.put(SpannerRpcViews.CLIENT_ID, TagValue.create(clientId));
+    }
+    if (resourcePrefix != null) {
+      Matcher matcher = DATABASE_PATTERN.matcher(resourcePrefix);
+      if (matcher.find()) {
+        builder
+            .put(SpannerRpcViews.INSTANCE_ID, TagValue.create(matcher.group(1)))
+            .put(SpannerRpcViews.DATABASE, TagValue.create(matcher.group(2)));
+      }
+    }
+    return builder.build();
+  }
+
+  /** Returns the name of the database of a resource, or null if it is not a database resource. */
+  @Nullable
+  static String getDatabaseName(String resource) {
+    Matcher matcher = DATABASE_PATTERN.matcher(resource);
+    return matcher.find() ? matcher.group() : null;
+  }
+
+  private static void notifyListeners(
+      @Nullable Iterable<LatencyListener> latencyListeners, long startNanos, Status.Code code) {
+    if (latencyListeners != null) {
+      long latencyNanos = System.nanoTime() - startNanos;
+      for (LatencyListener listener : latencyListeners) {
+        try {
+          listener.onLatency(latencyNanos, code);
+        } catch (RuntimeException e) {
+          logger.log(Level.FINE, "Latency listener failed", e);
+        }
+      }
+    }
+  }
+
+  private void record(MeasureDouble measure, double value, TagContext tags) {
+    try {
+      statsRecorder.newMeasureMap().put(measure, value).record(tags);
+    } catch (RuntimeException e) {
+      // Metrics should never cause an RPC to fail.
+      logger.log(Level.FINE, "Failed to record " + measure.getName(), e);
+    }
+  }
+
+  private static double elapsedMillis(long startNanos) {
+    return (System.nanoTime() - startNanos) / NANOS_PER_MILLI;
+  }
+
+  private static String getMethodName(MethodDescriptor<?, ?> method) {
+    String fullMethodName = method.getFullMethodName();
+    return fullMethodName.substring(fullMethodName.lastIndexOf('/') + 1);
+  }
+
+  /**
+   * Returns the duration in milliseconds in a {@code server-timing} header value, for example
+   * {@code gfet4t7; dur=123}, or {@code null} if the value does not contain a duration.
+   */
+  @VisibleForTesting
+  @Nullable
+  static Double parseServerTiming(@Nullable String value) {
+    if (value == null) {
+      return null;
+    }
+    Matcher matcher = SERVER_TIMING_PATTERN.matcher(value);
+    if (matcher.find()) {
+      try {
+        return Double.valueOf(matcher.group(1));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+}
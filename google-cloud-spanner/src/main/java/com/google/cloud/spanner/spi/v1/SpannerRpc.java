@@ -19,10 +19,12 @@ package com.google.cloud.spanner.spi.v1;
 import com.google.api.core.ApiFuture;
 import com.google.api.core.InternalApi;
 import com.google.api.gax.longrunning.OperationFuture;
+import com.google.api.gax.rpc.ServerStream;
 import com.google.cloud.ServiceRpc;
 import com.google.cloud.spanner.SpannerException;
 import com.google.cloud.spanner.admin.database.v1.stub.DatabaseAdminStub;
 import com.google.cloud.spanner.admin.instance.v1.stub.InstanceAdminStub;
+import com.google.cloud.spanner.spi.v1.SpannerLatencyInterceptor.LatencyListener;
 import com.google.common.collect.ImmutableList;
 import com.google.iam.v1.Policy;
 import com.google.iam.v1.TestIamPermissionsResponse;
@@ -75,7 +77,9 @@ import org.threeten.bp.Duration;
 public interface SpannerRpc extends ServiceRpc {
   /** Options passed in {@link SpannerRpc} methods to control how an RPC is issued. */
   enum Option {
-    CHANNEL_HINT("Channel Hint");
+    CHANNEL_HINT("Channel Hint"),
+    /** The id of the database client that issues the RPC, used for the RPC latency metrics. */
+    CLIENT_ID("Client Id");
 
     private final String value;
 
@@ -203,6 +207,16 @@ public interface SpannerRpc extends ServiceRpc {
       String databaseName, Iterable<String> updateDatabaseStatements, @Nullable String updateId)
       throws SpannerException;
 
+  /**
+   * Starts applying the given DDL statements to the given database and returns the initial state of
+   * the long-running operation without polling it. The caller is responsible for tracking the
+   * operation, for example by listing the database operations of the instance. If an operation with
+   * the given updateId already exists, an operation that only contains the name is returned.
+   */
+  Operation startUpdateDatabaseDdl(
+      String databaseName, Iterable<String> updateDatabaseStatements, String updateId)
+      throws SpannerException;
+
   void dropDatabase(String databaseName) throws SpannerException;
 
   Database getDatabase(String databaseName) throws SpannerException;
@@ -282,9 +296,34 @@ public interface SpannerRpc extends ServiceRpc {
 
   ResultSet executeQuery(ExecuteSqlRequest request, @Nullable Map<Option, ?> options);
 
+  /**
+   * Registers a listener for the latency of the RPCs of the given database that are executed by
+   * this {@link SpannerRpc}. The listener is called on the thread that receives the response, and
+   * must therefore not block.
+   */
+  void addLatencyListener(String databaseName, LatencyListener listener);
+
+  /** Removes a listener that was registered with {@link #addLatencyListener}. */
+  void removeLatencyListener(String databaseName, LatencyListener listener);
+
+  /**
+   * @deprecated Partitioned DML statements are executed with {@link
+   *     #executeStreamingPartitionedDml(ExecuteSqlRequest, Map, Duration)}, which can be resumed if
+   *     the stream breaks. This method is no longer used by the client library.
+   */
+  @Deprecated
   ResultSet executePartitionedDml(
       ExecuteSqlRequest request, @Nullable Map<Option, ?> options, Duration timeout);
 
+  /**
+   * Executes a Partitioned DML statement with ExecuteStreamingSql, so that the statement can be
+   * resumed with the resume token of the last {@link PartialResultSet} if the stream breaks. The
+   * timeout applies to the whole stream. Errors are thrown as {@link
+   * com.google.api.gax.rpc.ApiException}s while iterating the stream.
+   */
+  ServerStream<PartialResultSet> executeStreamingPartitionedDml(
+      ExecuteSqlRequest request, @Nullable Map<Option, ?> options, Duration timeout);
+
   StreamingCall executeQuery(
       ExecuteSqlRequest request, ResultStreamConsumer consumer, @Nullable Map<Option, ?> options);
 
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner.spi.v1;
+
+import static com.google.cloud.spanner.MetricRegistryConstants.MILLISECOND;
+import static com.google.cloud.spanner.MetricRegistryConstants.MILLISECOND_BUCKET_BOUNDARIES;
+
+import com.google.common.collect.ImmutableList;
+import io.opencensus.stats.Aggregation;
+import io.opencensus.stats.Aggregation.Distribution;
+import io.opencensus.stats.BucketBoundaries;
+import io.opencensus.stats.Measure.MeasureDouble;
+import io.opencensus.stats.Stats;
+import io.opencensus.stats.View;
+import io.opencensus.stats.ViewManager;
+import io.opencensus.tags.TagKey;
+import java.util.List;
+
+/**
+ * OpenCensus measures and views for the latency of the RPCs of the Cloud Spanner API. The views are
+ * registered with the default {@link ViewManager} when the first Spanner gRPC channel is created,
+ * and use the same label keys, unit and bucket boundaries as the session pool metrics.
+ */
+public final class SpannerRpcViews {
+  // The tag keys have the same names as the label keys of the session pool metrics.
+  static final TagKey CLIENT_ID = TagKey.create("client_id");
+  static final TagKey DATABASE = TagKey.create("database");
+  static final TagKey INSTANCE_ID = TagKey.create("instance_id");
+  static final TagKey LIBRARY_VERSION = TagKey.create("library_version");
+  static final TagKey METHOD = TagKey.create("method");
+  static final TagKey STATUS = TagKey.create("status");
+
+  /** Total latency of an RPC, from the start of the call until the call is closed. */
+  public static final MeasureDouble RPC_LATENCY =
+      MeasureDouble.create(
+          "cloud.google.com/java/spanner/rpc_latency",
+          "Latency of RPCs from the start of the call until the call is closed.",
+          MILLISECOND);
+
+  /**
+   * Latency until the first response of an RPC was received. For streaming RPCs this is the time to
+   * the first {@code PartialResultSet}, which normally contains the first rows.
+   */
+  public static final MeasureDouble FIRST_RESPONSE_LATENCY =
+      MeasureDouble.create(
+          "cloud.google.com/java/spanner/first_response_latency",
+          "Latency of RPCs from the start of the call until the first response was received.",
+          MILLISECOND);
+
+  /** Server processing time of an RPC, as reported by the {@code server-timing} header. */
+  public static final MeasureDouble SERVER_LATENCY =
+      MeasureDouble.create(
+          "cloud.google.com/java/spanner/server_latency",
+          "Latency of RPCs as reported by the server-timing header.",
+          MILLISECOND);
+
+  private static final Aggregation LATENCY_DISTRIBUTION =
+      Distribution.create(BucketBoundaries.create(MILLISECOND_BUCKET_BOUNDARIES));
+
+  private static final List<TagKey> LABEL_KEYS =
+      ImmutableList.of(CLIENT_ID, DATABASE, INSTANCE_ID, LIBRARY_VERSION, METHOD);
+
+  public static final View RPC_LATENCY_VIEW =
+      View.create(
+          View.Name.create(RPC_LATENCY.getName()),
+          RPC_LATENCY.getDescription(),
+          RPC_LATENCY,
+          LATENCY_DISTRIBUTION,
+          ImmutableList.<TagKey>builder().addAll(LABEL_KEYS).add(STATUS).build());
+
+  public static final View FIRST_RESPONSE_LATENCY_VIEW =
+      View.create(
+          View.Name.create(FIRST_RESPONSE_LATENCY.getName()),
+          FIRST_RESPONSE_LATENCY.getDescription(),
+          FIRST_RESPONSE_LATENCY,
+          LATENCY_DISTRIBUTION,
+          LABEL_KEYS);
+
+  public static final View SERVER_LATENCY_VIEW =
+      View.create(
+          View.Name.create(SERVER_LATENCY.getName()),
+          SERVER_LATENCY.getDescription(),
+          SERVER_LATENCY,
+          LATENCY_DISTRIBUTION,
+          LABEL_KEYS);
+
+  private static final Object lock = new Object();
+  private static boolean registered;
+
+  private SpannerRpcViews() {}
+
+  /** Registers all Cloud Spanner RPC views with the default {@link ViewManager}. */
+  public static void registerAllViews() {
+    synchronized (lock) {
+      if (!registered) {
+        ViewManager viewManager = Stats.getViewManager();
+        viewManager.registerView(RPC_LATENCY_VIEW);
+        viewManager.registerView(FIRST_RESPONSE_LATENCY_VIEW);
+        viewManager.registerView(SERVER_LATENCY_VIEW);
+        registered = true;
+      }
+    }
+  }
+}
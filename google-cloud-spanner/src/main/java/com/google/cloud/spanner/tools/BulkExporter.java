@@ -0,0 +1,616 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner.tools;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.spanner.BatchClient;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.BatchTransactionId;
+import com.google.cloud.spanner.KeySet;
+import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.Type;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the results of a query or a table read to files in a local directory. The export uses a
+ * {@link BatchReadOnlyTransaction}, and the partitions of the query or read are exported in
+ * parallel, one file per partition. For example:
+ *
+ * <pre>{@code
+ * long rows =
+ *     BulkExporter.newBuilder(spanner.getBatchClient(databaseId), Paths.get("/tmp/singers"))
+ *         .setQuery(Statement.of("SELECT SingerId, FirstName, LastName FROM Singers"))
+ *         .setFormat(BulkExporter.Format.CSV)
+ *         .setCompressed(true)
+ *         .setParallelism(8)
+ *         .build()
+ *         .export();
+ * }</pre>
+ *
+ * <p>Each completed partition is recorded in a {@value #MANIFEST_FILE_NAME} file in the output
+ * directory, with the name of its file and the number of rows it contains. The transaction and its
+ * partitions are stored in the same directory before any partition is exported. If an export fails,
+ * calling {@link #export()} again with the same output directory resumes it: the remaining
+ * partitions are read in the original transaction, so the combined files are still a consistent
+ * snapshot. This is possible as long as the read timestamp of the transaction has not been garbage
+ * collected and its session still exists.
+ */
+public final class BulkExporter {
+  private static final Logger logger = Logger.getLogger(BulkExporter.class.getName());
+
+  /** The name of the file that lists the partitions that have been exported. */
+  public static final String MANIFEST_FILE_NAME = "MANIFEST";
+
+  private static final String STATE_FILE_NAME = "export.state";
+
+  /** The file formats that can be used for an export. */
+  public enum Format {
+    /**
+     * Comma-separated values with a header row, as described in RFC 4180. Every file has a header
+     * row, also if its partition is empty. A {@code NULL} value is written as an empty field, and
+     * an empty string as a quoted empty field ({@code ""}).
+     */
+    CSV(".csv"),
+    /** Newline-delimited JSON, with one JSON object per row. */
+    JSON(".json");
+
+    private final String extension;
+
+    private Format(String extension) {
+      this.extension = extension;
+    }
+  }
+
+  /** Returns a builder for an export that uses {@code client} and writes to {@code directory}. */
+  public static Builder newBuilder(BatchClient client, Path directory) {
+    return new Builder(client, directory);
+  }
+
+  /** Builder for {@link BulkExporter}. */
+  public static final class Builder {
+    private final BatchClient client;
+    private final Path directory;
+    private Statement statement;
+    private String table;
+    private KeySet keys;
+    private List<String> columns;
+    private Format format = Format.CSV;
+    private boolean compressed;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private TimestampBound bound = TimestampBound.strong();
+    private PartitionOptions partitionOptions = PartitionOptions.getDefaultInstance();
+
+    private Builder(BatchClient client, Path directory) {
+      this.client = Preconditions.checkNotNull(client);
+      this.directory = Preconditions.checkNotNull(directory);
+    }
+
+    /** Exports the results of {@code statement}. The statement must be root-partitionable. */
+    public Builder setQuery(Statement statement) {
+      this.statement = Preconditions.checkNotNull(statement);
+      this.table = null;
+      return this;
+    }
+
+    /** Exports {@code columns} of the rows of {@code table} that are covered by {@code keys}. */
+    public Builder setTable(String table, KeySet keys, Iterable<String> columns) {
+      this.table = Preconditions.checkNotNull(table);
+      this.keys = Preconditions.checkNotNull(keys);
+      this.columns = ImmutableList.copyOf(columns);
+      this.statement = null;
+      return this;
+    }
+
+    /** Sets the format of the exported files. The default is {@link Format#CSV}. */
+    public Builder setFormat(Format format) {
+      this.format = Preconditions.checkNotNull(format);
+      return this;
+    }
+
+    /** Sets whether the exported files are compressed with gzip. The default is {@code false}. */
+    public Builder setCompressed(boolean compressed) {
+      this.compressed = compressed;
+      return this;
+    }
+
+    /**
+     * Sets the number of partitions that are exported in parallel. The default is the number of
+     * available processors.
+     */
+    public Builder setParallelism(int parallelism) {
+      Preconditions.checkArgument(parallelism > 0, "parallelism must be positive");
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Sets the timestamp bound of the transaction that is used for a new export. The default is
+     * {@link TimestampBound#strong()}. This is ignored when an export is resumed.
+     */
+    public Builder setTimestampBound(TimestampBound bound) {
+      this.bound = Preconditions.checkNotNull(bound);
+      return this;
+    }
+
+    /** Sets the options that are used to partition the query or read. */
+    public Builder setPartitionOptions(PartitionOptions partitionOptions) {
+      this.partitionOptions = Preconditions.checkNotNull(partitionOptions);
+      return this;
+    }
+
+    public BulkExporter build() {
+      Preconditions.checkState(
+          statement != null || table != null, "Either a query or a table must be set");
+      return new BulkExporter(this);
+    }
+  }
+
+  /** The transaction and partitions of an export, stored to allow the export to be resumed. */
+  private static final class ExportState implements Serializable {
+    private static final long serialVersionUID = 4815208434237150962L;
+
+    private final String source;
+    private final BatchTransactionId transactionId;
+    private final List<Partition> partitions;
+
+    private ExportState(
+        String source, BatchTransactionId transactionId, List<Partition> partitions) {
+      this.source = source;
+      this.transactionId = transactionId;
+      this.partitions = new ArrayList<>(partitions);
+    }
+  }
+
+  private final BatchClient client;
+  private final Path directory;
+  private final Statement statement;
+  private final String table;
+  private final KeySet keys;
+  private final List<String> columns;
+  private final Format format;
+  private final boolean compressed;
+  private final int parallelism;
+  private final TimestampBound bound;
+  private final PartitionOptions partitionOptions;
+
+  private BulkExporter(Builder builder) {
+    this.client = builder.client;
+    this.directory = builder.directory;
+    this.statement = builder.statement;
+    this.table = builder.table;
+    this.keys = builder.keys;
+    this.columns = builder.columns;
+    this.format = builder.format;
+    this.compressed = builder.compressed;
+    this.parallelism = builder.parallelism;
+    this.bound = builder.bound;
+    this.partitionOptions = builder.partitionOptions;
+  }
+
+  /**
+   * Exports all partitions that have not yet been exported to the output directory, and returns the
+   * total number of rows in the export.
+   *
+   * @throws IllegalStateException if the output directory contains an export of a different query
+   *     or table
+   */
+  public long export() throws IOException {
+    Files.createDirectories(directory);
+    ExportState state = readState();
+    BatchReadOnlyTransaction txn;
+    if (state == null) {
+      txn = client.batchReadOnlyTransaction(bound);
+      List<Partition> partitions =
+          statement != null
+              ? txn.partitionQuery(partitionOptions, statement)
+              : txn.partitionRead(partitionOptions, table, keys, columns);
+      state = new ExportState(describeSource(), txn.getBatchTransactionId(), partitions);
+      writeState(state);
+    } else {
+      Preconditions.checkState(
+          state.source.equals(describeSource()),
+          "Directory %s contains an export of %s",
+          directory,
+          state.source);
+      txn = client.batchReadOnlyTransaction(state.transactionId);
+    }
+    Map<Integer, Long> completed = readManifest();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parallelism,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("bulk-export-%d").build());
+    try {
+      List<Future<Void>> futures = new ArrayList<>();
+      for (int i = 0; i < state.partitions.size(); i++) {
+        if (!completed.containsKey(i)) {
+          futures.add(executor.submit(new PartitionExporter(state.transactionId, i, state)));
+        }
+      }
+      for (Future<Void> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+          Throwables.throwIfUnchecked(e.getCause());
+          throw SpannerExceptionFactory.newSpannerException(e.getCause());
+        } catch (InterruptedException e) {
+          throw SpannerExceptionFactory.propagateInterrupt(e);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    // The export is complete, so the session of the transaction is no longer needed.
+    txn.close();
+    long rows = 0L;
+    for (Long partitionRows : readManifest().values()) {
+      rows += partitionRows;
+    }
+    return rows;
+  }
+
+  private final class PartitionExporter implements Callable<Void> {
+    private final BatchTransactionId transactionId;
+    private final int index;
+    private final Partition partition;
+
+    private PartitionExporter(BatchTransactionId transactionId, int index, ExportState state) {
+      this.transactionId = transactionId;
+      this.index = index;
+      this.partition = state.partitions.get(index);
+    }
+
+    @Override
+    public Void call() throws IOException {
+      String fileName = String.format("part-%05d%s", index, format.extension);
+      if (compressed) {
+        fileName += ".gz";
+      }
+      Path file = directory.resolve(fileName);
+      Path tmp = directory.resolve(fileName + ".tmp");
+      long rows = 0L;
+      // Each partition is executed in its own transaction object, in the same way as partitions
+      // that are distributed to different processes. The transaction objects share the session and
+      // read timestamp of the export, and are not closed as that would delete the shared session.
+      BatchReadOnlyTransaction txn = client.batchReadOnlyTransaction(transactionId);
+      try (ResultSet resultSet = txn.execute(partition);
+          Writer writer = newWriter(tmp)) {
+        boolean hasRow = resultSet.next();
+        if (format == Format.CSV) {
+          // The type is known after the first call to next(), also if the partition is empty.
+          writeCsvHeader(writer, resultSet.getType());
+        }
+        while (hasRow) {
+          if (format == Format.CSV) {
+            writeCsvRow(writer, resultSet);
+          } else {
+            writeJsonRow(writer, resultSet);
+          }
+          rows++;
+          hasRow = resultSet.next();
+        }
+      }
+      Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      recordCompleted(index, fileName, rows);
+      logger.log(Level.FINE, "Exported {0} rows to {1}", new Object[] {rows, file});
+      return null;
+    }
+  }
+
+  private String describeSource() {
+    if (statement != null) {
+      return "query " + statement;
+    }
+    return "table " + table + " " + keys + " " + columns;
+  }
+
+  private Writer newWriter(Path file) throws IOException {
+    OutputStream out = Files.newOutputStream(file);
+    if (compressed) {
+      out = new GZIPOutputStream(out);
+    }
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+  }
+
+  private ExportState readState() throws IOException {
+    Path file = directory.resolve(STATE_FILE_NAME);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try (InputStream in = Files.newInputStream(file);
+        ObjectInputStream objects = new ObjectInputStream(in)) {
+      return (ExportState) objects.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("Invalid export state in " + file, e);
+    }
+  }
+
+  private void writeState(ExportState state) throws IOException {
+    Path tmp = directory.resolve(STATE_FILE_NAME + ".tmp");
+    try (OutputStream out = Files.newOutputStream(tmp);
+        ObjectOutputStream objects = new ObjectOutputStream(out)) {
+      objects.writeObject(state);
+    }
+    Files.move(
+        tmp,
+        directory.resolve(STATE_FILE_NAME),
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /** Returns the number of rows of each exported partition, keyed by partition index. */
+  private Map<Integer, Long> readManifest() throws IOException {
+    Map<Integer, Long> completed = new HashMap<>();
+    Path file = directory.resolve(MANIFEST_FILE_NAME);
+    if (!Files.exists(file)) {
+      return completed;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] parts = line.split("\t");
+        // Ignore a partially written last line, the partition will be exported again.
+        if (parts.length == 3 && Files.exists(directory.resolve(parts[1]))) {
+          completed.put(Integer.valueOf(parts[0]), Long.valueOf(parts[2]));
+        }
+      }
+    }
+    return completed;
+  }
+
+  private synchronized void recordCompleted(int index, String fileName, long rows)
+      throws IOException {
+    try (Writer writer =
+        Files.newBufferedWriter(
+            directory.resolve(MANIFEST_FILE_NAME),
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND)) {
+      writer.write(index + "\t" + fileName + "\t" + rows + "\n");
+    }
+  }
+
+  private static void writeCsvHeader(Writer writer, Type type) throws IOException {
+    List<Type.StructField> fields = type.getStructFields();
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      writer.write(csvEscape(fields.get(i).getName()));
+    }
+    writer.write("\r\n");
+  }
+
+  private static void writeCsvRow(Writer writer, ResultSet row) throws IOException {
+    StringBuilder value = new StringBuilder();
+    for (int i = 0; i < row.getColumnCount(); i++) {
+      if (i > 0) {
+        writer.write(',');
+      }
+      if (row.isNull(i)) {
+        continue;
+      }
+      Type type = row.getColumnType(i);
+      value.setLength(0);
+      if (type.getCode() == Type.Code.STRING) {
+        value.append(row.getString(i));
+      } else if (type.getCode() == Type.Code.ARRAY) {
+        appendJsonValue(value, row, i);
+      } else {
+        appendScalar(value, row, i, type);
+      }
+      writer.write(csvEscape(value.toString()));
+    }
+    writer.write("\r\n");
+  }
+
+  private static void writeJsonRow(Writer writer, ResultSet row) throws IOException {
+    StringBuilder b = new StringBuilder("{");
+    List<Type.StructField> fields = row.getType().getStructFields();
+    for (int i = 0; i < fields.size(); i++) {
+      if (i > 0) {
+        b.append(',');
+      }
+      appendJsonString(b, fields.get(i).getName());
+      b.append(':');
+      appendJsonValue(b, row, i);
+    }
+    b.append("}\n");
+    writer.write(b.toString());
+  }
+
+  private static void appendJsonValue(StringBuilder b, ResultSet row, int column) {
+    if (row.isNull(column)) {
+      b.append("null");
+      return;
+    }
+    Type type = row.getColumnType(column);
+    switch (type.getCode()) {
+      case BOOL:
+      case INT64:
+        appendScalar(b, row, column, type);
+        break;
+      case FLOAT64:
+        double d = row.getDouble(column);
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+          appendJsonString(b, Double.toString(d));
+        } else {
+          b.append(d);
+        }
+        break;
+      case ARRAY:
+        b.append('[');
+        List<?> elements = getList(row, column, type.getArrayElementType());
+        for (int i = 0; i < elements.size(); i++) {
+          if (i > 0) {
+            b.append(',');
+          }
+          Object element = elements.get(i);
+          if (element == null) {
+            b.append("null");
+          } else if (element instanceof Boolean || element instanceof Long) {
+            b.append(element);
+          } else if (element instanceof Double
+              && !((Double) element).isNaN()
+              && !((Double) element).isInfinite()) {
+            b.append(element);
+          } else {
+            appendJsonString(
+                b,
+                element instanceof ByteArray
+                    ? ((ByteArray) element).toBase64()
+                    : element.toString());
+          }
+        }
+        b.append(']');
+        break;
+      default:
+        StringBuilder value = new StringBuilder();
+        appendScalar(value, row, column, type);
+        appendJsonString(b, value.toString());
+    }
+  }
+
+  private static void appendScalar(StringBuilder b, ResultSet row, int column, Type type) {
+    switch (type.getCode()) {
+      case BOOL:
+        b.append(row.getBoolean(column));
+        break;
+      case INT64:
+        b.append(row.getLong(column));
+        break;
+      case FLOAT64:
+        b.append(row.getDouble(column));
+        break;
+      case STRING:
+        b.append(row.getString(column));
+        break;
+      case BYTES:
+        b.append(row.getBytes(column).toBase64());
+        break;
+      case TIMESTAMP:
+        b.append(row.getTimestamp(column));
+        break;
+      case DATE:
+        b.append(row.getDate(column));
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported column type: " + type);
+    }
+  }
+
+  private static List<?> getList(ResultSet row, int column, Type elementType) {
+    switch (elementType.getCode()) {
+      case BOOL:
+        return row.getBooleanList(column);
+      case INT64:
+        return row.getLongList(column);
+      case FLOAT64:
+        return row.getDoubleList(column);
+      case STRING:
+        return row.getStringList(column);
+      case BYTES:
+        return row.getBytesList(column);
+      case TIMESTAMP:
+        return row.getTimestampList(column);
+      case DATE:
+        return row.getDateList(column);
+      default:
+        throw new IllegalArgumentException("Unsupported array element type: " + elementType);
+    }
+  }
+
+  private static String csvEscape(String value) {
+    if (value.isEmpty()) {
+      // An unquoted empty field is NULL.
+      return "\"\"";
+    }
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  private static void appendJsonString(StringBuilder b, String value) {
+    b.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          b.append("\\\"");
+          break;
+        case '\\':
+          b.append("\\\\");
+          break;
+        case '\n':
+          b.append("\\n");
+          break;
+        case '\r':
+          b.append("\\r");
+          break;
+        case '\t':
+          b.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            b.append(String.format("\\u%04x", (int) c));
+          } else {
+            b.append(c);
+          }
+      }
+    }
+    b.append('"');
+  }
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner.tools;
+
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.KeySetNormalizer;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.Mutation.Op;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Value;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads large numbers of mutations into a database with {@link
+ * DatabaseClient#writeAtLeastOnce(Iterable)}. Mutations that are added to the loader are buffered,
+ * sorted by table and primary key prefix, and packed into commits that stay below a maximum number
+ * of mutations and bytes. Sorting the mutations means that each commit touches a small key range,
+ * and therefore as few splits as possible. The commits are executed in parallel, and the number of
+ * concurrent commits is adjusted to the load that the database can handle: it is increased by one
+ * after each round of successful commits, and halved each time a commit is {@link
+ * ErrorCode#ABORTED} or {@link ErrorCode#RESOURCE_EXHAUSTED}, after which the commit is retried.
+ *
+ * <pre>{@code
+ * try (BulkLoader loader =
+ *     BulkLoader.newBuilder(dbClient).setKeyColumns("Singers", "SingerId").build()) {
+ *   for (Singer singer : singers) {
+ *     loader.add(
+ *         Mutation.newInsertBuilder("Singers")
+ *             .set("SingerId").to(singer.id)
+ *             .set("Name").to(singer.name)
+ *             .build());
+ *   }
+ * }
+ * }</pre>
+ *
+ * <p>As the mutations are committed in different transactions and in parallel, the order in which
+ * they are applied is not guaranteed. A loader should therefore not be given more than one mutation
+ * for the same row.
+ */
+public final class BulkLoader implements AutoCloseable {
+  /** Builder for {@link BulkLoader}. */
+  public static final class Builder {
+    private final DatabaseClient client;
+    private int maxMutationsPerCommit = 10000;
+    private long maxBytesPerCommit = 4L * 1024L * 1024L;
+    private int bufferSize = 50000;
+    private int initialConcurrency = 4;
+    private int maxConcurrency = 32;
+    private int maxAttempts = 10;
+    private final Map<String, List<String>> keyColumns = new HashMap<>();
+
+    private Builder(DatabaseClient client) {
+      this.client = Preconditions.checkNotNull(client);
+    }
+
+    /**
+     * Sets the maximum number of mutated cells in one commit. Each column value of an insert,
+     * update, insert-or-update or replace counts as one mutated cell, and each delete counts as
+     * one. Writes to secondary indexes also count towards the limit of the server, so this should
+     * leave room for those. The default is 10,000.
+     */
+    public Builder setMaxMutationsPerCommit(int maxMutationsPerCommit) {
+      Preconditions.checkArgument(maxMutationsPerCommit > 0);
+      this.maxMutationsPerCommit = maxMutationsPerCommit;
+      return this;
+    }
+
+    /** Sets the maximum estimated size of the values in one commit. The default is 4 MiB. */
+    public Builder setMaxBytesPerCommit(long maxBytesPerCommit) {
+      Preconditions.checkArgument(maxBytesPerCommit > 0L);
+      this.maxBytesPerCommit = maxBytesPerCommit;
+      return this;
+    }
+
+    /**
+     * Sets the number of mutations that are buffered and sorted before they are packed into
+     * commits. A larger buffer gives better key locality per commit, at the cost of memory. The
+     * default is 50,000.
+     */
+    public Builder setBufferSize(int bufferSize) {
+      Preconditions.checkArgument(bufferSize > 0);
+      this.bufferSize = bufferSize;
+      return this;
+    }
+
+    /**
+     * Sets the number of concurrent commits when the load starts. The concurrency is adjusted
+     * between 1 and the maximum concurrency during the load. The default is 4, or the maximum
+     * concurrency if that is lower.
+     */
+    public Builder setInitialConcurrency(int initialConcurrency) {
+      Preconditions.checkArgument(initialConcurrency > 0);
+      this.initialConcurrency = initialConcurrency;
+      return this;
+    }
+
+    /** Sets the maximum number of concurrent commits. The default is 32. */
+    public Builder setMaxConcurrency(int maxConcurrency) {
+      Preconditions.checkArgument(maxConcurrency > 0);
+      this.maxConcurrency = maxConcurrency;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of attempts for a commit that fails with {@link ErrorCode#ABORTED} or
+     * {@link ErrorCode#RESOURCE_EXHAUSTED}. The default is 10.
+     */
+    public Builder setMaxAttempts(int maxAttempts) {
+      Preconditions.checkArgument(maxAttempts > 0);
+      this.maxAttempts = maxAttempts;
+      return this;
+    }
+
+    /**
+     * Sets the primary key columns of {@code table} that mutations are sorted by. These should be
+     * the first columns of the primary key, for example the key of the root table of an interleaved
+     * hierarchy. If no key columns are set for a table, the mutations of that table are sorted by
+     * the first column that they write. Deletes are not sorted.
+     */
+    public Builder setKeyColumns(String table, String... columns) {
+      Preconditions.checkArgument(columns.length > 0, "At least one key column is required");
+      keyColumns.put(Preconditions.checkNotNull(table), ImmutableList.copyOf(columns));
+      return this;
+    }
+
+    public BulkLoader build() {
+      return new BulkLoader(this);
+    }
+  }
+
+  /** Returns a builder for a loader that writes to the database of {@code client}. */
+  public static Builder newBuilder(DatabaseClient client) {
+    return new Builder(client);
+  }
+
+  private static final long INITIAL_BACKOFF_MILLIS = 100L;
+  private static final long MAX_BACKOFF_MILLIS = 32000L;
+
+  private final DatabaseClient client;
+  private final int maxMutationsPerCommit;
+  private final long maxBytesPerCommit;
+  private final int bufferSize;
+  private final int maxConcurrency;
+  private final int maxAttempts;
+  private final Map<String, List<String>> keyColumns;
+  private final ExecutorService executor;
+  private final long startNanos = System.nanoTime();
+
+  private final List<KeyedMutation> buffer = new ArrayList<>();
+  private final Object lock = new Object();
+  private int concurrency;
+  private int inFlight;
+  private int successesSinceIncrease;
+  private SpannerException error;
+  private boolean closed;
+
+  private final AtomicLong rows = new AtomicLong();
+  private final AtomicLong bytes = new AtomicLong();
+  private final AtomicLong commits = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+
+  private BulkLoader(Builder builder) {
+    this.client = builder.client;
+    this.maxMutationsPerCommit = builder.maxMutationsPerCommit;
+    this.maxBytesPerCommit = builder.maxBytesPerCommit;
+    this.bufferSize = builder.bufferSize;
+    this.maxConcurrency = builder.maxConcurrency;
+    this.maxAttempts = builder.maxAttempts;
+    this.keyColumns = new HashMap<>(builder.keyColumns);
+    this.concurrency = Math.min(builder.initialConcurrency, builder.maxConcurrency);
+    this.executor =
+        Executors.newFixedThreadPool(
+            maxConcurrency,
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("bulk-loader-%d").build());
+  }
+
+  /**
+   * Adds {@code mutation} to the load. This method blocks while the maximum number of commits is in
+   * flight.
+   *
+   * @throws SpannerException if a previous commit of this loader has failed
+   */
+  public void add(Mutation mutation) {
+    Preconditions.checkNotNull(mutation);
+    List<KeyedMutation> full = null;
+    synchronized (buffer) {
+      Preconditions.checkState(!closed, "This loader has been closed");
+      buffer.add(new KeyedMutation(mutation, keyOf(mutation)));
+      if (buffer.size() >= bufferSize) {
+        full = new ArrayList<>(buffer);
+        buffer.clear();
+      }
+    }
+    checkError();
+    if (full != null) {
+      commitAll(full);
+    }
+  }
+
+  /** Adds all {@code mutations} to the load. */
+  public void add(Iterable<Mutation> mutations) {
+    for (Mutation mutation : mutations) {
+      add(mutation);
+    }
+  }
+
+  /**
+   * Commits all buffered mutations and waits until all commits have finished.
+   *
+   * @throws SpannerException if a commit of this loader has failed
+   */
+  public void flush() {
+    List<KeyedMutation> remaining;
+    synchronized (buffer) {
+      remaining = new ArrayList<>(buffer);
+      buffer.clear();
+    }
+    commitAll(remaining);
+    synchronized (lock) {
+      while (inFlight > 0) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          throw SpannerExceptionFactory.propagateInterrupt(e);
+        }
+      }
+    }
+    checkError();
+  }
+
+  /**
+   * Flushes the loader and releases its threads.
+   *
+   * @throws SpannerException if a commit of this loader has failed
+   */
+  @Override
+  public void close() {
+    try {
+      flush();
+    } finally {
+      synchronized (buffer) {
+        closed = true;
+      }
+      executor.shutdown();
+    }
+  }
+
+  /** Returns the number of rows that have been committed. */
+  public long getRowCount() {
+    return rows.get();
+  }
+
+  /** Returns the estimated number of bytes of the values that have been committed. */
+  public long getByteCount() {
+    return bytes.get();
+  }
+
+  /** Returns the number of successful commits. */
+  public long getCommitCount() {
+    return commits.get();
+  }
+
+  /** Returns the number of commits that have been retried. */
+  public long getRetryCount() {
+    return retries.get();
+  }
+
+  /** Returns the average number of rows that have been committed per second. */
+  public double getRowsPerSecond() {
+    return rows.get() / elapsedSeconds();
+  }
+
+  /** Returns the average estimated number of bytes that have been committed per second. */
+  public double getBytesPerSecond() {
+    return bytes.get() / elapsedSeconds();
+  }
+
+  /** Returns the current maximum number of concurrent commits. */
+  public int getConcurrency() {
+    synchronized (lock) {
+      return concurrency;
+    }
+  }
+
+  private double elapsedSeconds() {
+    return Math.max(1L, System.nanoTime() - startNanos) / 1e9d;
+  }
+
+  private void checkError() {
+    synchronized (lock) {
+      if (error != null) {
+        throw SpannerExceptionFactory.newSpannerException(error);
+      }
+    }
+  }
+
+  private void commitAll(List<KeyedMutation> mutations) {
+    Collections.sort(mutations, KEY_ORDER);
+    List<Mutation> batch = new ArrayList<>();
+    long batchCells = 0L;
+    long batchBytes = 0L;
+    for (KeyedMutation keyed : mutations) {
+      long cells = cellCount(keyed.mutation);
+      long size = estimateSize(keyed.mutation);
+      if (!batch.isEmpty()
+          && (batchCells + cells > maxMutationsPerCommit
+              || batchBytes + size > maxBytesPerCommit)) {
+        submit(batch, batchBytes);
+        batch = new ArrayList<>();
+        batchCells = 0L;
+        batchBytes = 0L;
+      }
+      batch.add(keyed.mutation);
+      batchCells += cells;
+      batchBytes += size;
+    }
+    if (!batch.isEmpty()) {
+      submit(batch, batchBytes);
+    }
+  }
+
+  private void submit(final List<Mutation> batch, final long batchBytes) {
+    synchronized (lock) {
+      while (inFlight >= concurrency && error == null) {
+        try {
+          lock.wait();
+        } catch (InterruptedException e) {
+          throw SpannerExceptionFactory.propagateInterrupt(e);
+        }
+      }
+      if (error != null) {
+        throw SpannerExceptionFactory.newSpannerException(error);
+      }
+      inFlight++;
+    }
+    executor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            try {
+              commit(batch, batchBytes);
+            } finally {
+              synchronized (lock) {
+                inFlight--;
+                lock.notifyAll();
+              }
+            }
+          }
+        });
+  }
+
+  private void commit(List<Mutation> batch, long batchBytes) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        client.writeAtLeastOnce(batch);
+        onSuccess();
+        rows.addAndGet(batch.size());
+        bytes.addAndGet(batchBytes);
+        commits.incrementAndGet();
+        return;
+      } catch (SpannerException e) {
+        if (!isThrottled(e) || attempt >= maxAttempts) {
+          synchronized (lock) {
+            if (error == null) {
+              error = e;
+            }
+            lock.notifyAll();
+          }
+          return;
+        }
+        onThrottled();
+        retries.incrementAndGet();
+        try {
+          TimeUnit.MILLISECONDS.sleep(backoffMillis(attempt));
+        } catch (InterruptedException ie) {
+          synchronized (lock) {
+            if (error == null) {
+              error = SpannerExceptionFactory.propagateInterrupt(ie);
+            }
+            lock.notifyAll();
+          }
+          return;
+        }
+      }
+    }
+  }
+
+  private static boolean isThrottled(SpannerException e) {
+    return e.getErrorCode() == ErrorCode.ABORTED
+        || e.getErrorCode() == ErrorCode.RESOURCE_EXHAUSTED;
+  }
+
+  /** Additive increase: one more concurrent commit after a full round of successful commits. */
+  private void onSuccess() {
+    synchronized (lock) {
+      successesSinceIncrease++;
+      if (successesSinceIncrease >= concurrency && concurrency < maxConcurrency) {
+        concurrency++;
+        successesSinceIncrease = 0;
+        lock.notifyAll();
+      }
+    }
+  }
+
+  /** Multiplicative decrease: halve the number of concurrent commits. */
+  private void onThrottled() {
+    synchronized (lock) {
+      concurrency = Math.max(1, concurrency / 2);
+      successesSinceIncrease = 0;
+    }
+  }
+
+  @VisibleForTesting
+  static long backoffMillis(int attempt) {
+    long backoff =
+        Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(attempt - 1, 20));
+    // Add up to 50% jitter to prevent retries from being synchronized.
+    return backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+  }
+
+  private static long cellCount(Mutation mutation) {
+    if (mutation.getOperation() == Op.DELETE) {
+      return 1L;
+    }
+    long cells = 0L;
+    for (Iterator<String> it = mutation.getColumns().iterator(); it.hasNext(); it.next()) {
+      cells++;
+    }
+    return cells;
+  }
+
+  private static long estimateSize(Mutation mutation) {
+    if (mutation.getOperation() == Op.DELETE) {
+      return mutation.getKeySet().toString().length();
+    }
+    long size = 0L;
+    for (Value value : mutation.getValues()) {
+      size += estimateSize(value);
+    }
+    return size;
+  }
+
+  private static long estimateSize(Value value) {
+    if (value.isNull()) {
+      return 1L;
+    }
+    switch (value.getType().getCode()) {
+      case BOOL:
+        return 1L;
+      case INT64:
+      case FLOAT64:
+        return 8L;
+      case STRING:
+        return value.getString().length();
+      case BYTES:
+        return value.getBytes().length();
+      case TIMESTAMP:
+        return 12L;
+      case DATE:
+        return 4L;
+      default:
+        return value.toString().length();
+    }
+  }
+
+  /** A mutation and the values of its key prefix, or {@code null} for deletes. */
+  private static final class KeyedMutation {
+    private final Mutation mutation;
+    private final List<Value> key;
+
+    private KeyedMutation(Mutation mutation, List<Value> key) {
+      this.mutation = mutation;
+      this.key = key;
+    }
+  }
+
+  private List<Value> keyOf(Mutation mutation) {
+    if (mutation.getOperation() == Op.DELETE) {
+      return null;
+    }
+    List<String> columns = keyColumns.get(mutation.getTable());
+    List<Value> key = new ArrayList<>();
+    if (columns == null) {
+      Iterator<Value> values = mutation.getValues().iterator();
+      if (values.hasNext()) {
+        key.add(values.next());
+      }
+      return key;
+    }
+    Map<String, Value> values = mutation.asMap();
+    for (String column : columns) {
+      key.add(values.get(column));
+    }
+    return key;
+  }
+
+  private static final Comparator<KeyedMutation> KEY_ORDER =
+      new Comparator<KeyedMutation>() {
+        @Override
+        public int compare(KeyedMutation o1, KeyedMutation o2) {
+          int c = o1.mutation.getTable().compareTo(o2.mutation.getTable());
+          if (c != 0) {
+            return c;
+          }
+          // Deletes are kept in their original order after the writes of the same table.
+          if (o1.key == null || o2.key == null) {
+            return o1.key == null ? (o2.key == null ? 0 : 1) : -1;
+          }
+          for (int i = 0; i < Math.min(o1.key.size(), o2.key.size()); i++) {
+            c = compareValues(o1.key.get(i), o2.key.get(i));
+            if (c != 0) {
+              return c;
+            }
+          }
+          return o1.key.size() - o2.key.size();
+        }
+      };
+
+  /**
+   * Compares two key values in the order that Cloud Spanner uses for keys in ascending order, which
+   * is the same order as {@link KeySetNormalizer#compareParts(Object, Object)}. A missing or {@code
+   * NULL} value is smaller than any other value, and a commit timestamp is larger than any other
+   * timestamp. Values of different types are ordered by type, which only affects the locality of
+   * commits.
+   */
+  @VisibleForTesting
+  static int compareValues(Value v1, Value v2) {
+    boolean null1 = v1 == null || v1.isNull();
+    boolean null2 = v2 == null || v2.isNull();
+    if (null1 || null2) {
+      return null1 ? (null2 ? 0 : -1) : 1;
+    }
+    Type.Code code = v1.getType().getCode();
+    if (code != v2.getType().getCode()) {
+      return code.compareTo(v2.getType().getCode());
+    }
+    if (code == Type.Code.TIMESTAMP && (v1.isCommitTimestamp() || v2.isCommitTimestamp())) {
+      return Boolean.compare(v1.isCommitTimestamp(), v2.isCommitTimestamp());
+    }
+    Object part1 = keyPart(v1);
+    return part1 == null ? 0 : KeySetNormalizer.compareParts(part1, keyPart(v2));
+  }
+
+  /** Returns the value as a {@link Key} part, or null if the type cannot be used in a key. */
+  private static Object keyPart(Value value) {
+    switch (value.getType().getCode()) {
+      case BOOL:
+        return value.getBool();
+      case INT64:
+        return value.getInt64();
+      case FLOAT64:
+        return value.getFloat64();
+      case STRING:
+        return value.getString();
+      case BYTES:
+        return value.getBytes();
+      case TIMESTAMP:
+        return value.getTimestamp();
+      case DATE:
+        return value.getDate();
+      default:
+        return null;
+    }
+  }
+}
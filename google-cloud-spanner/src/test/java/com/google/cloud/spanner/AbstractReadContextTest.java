@@ -26,6 +26,7 @@ import com.google.spanner.v1.ExecuteSqlRequest.QueryMode;
 import com.google.spanner.v1.ExecuteSqlRequest.QueryOptions;
 import com.google.spanner.v1.TransactionSelector;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import org.junit.Before;
@@ -106,4 +107,33 @@ public class AbstractReadContextTest {
     assertThat(request.getSql()).isEqualTo("SELECT FOO FROM BAR");
     assertThat(request.getQueryOptions().getOptimizerVersion()).isEqualTo("2.0");
   }
+
+  @Test
+  public void singleUseReadRequestsReadTimestamp() {
+    SessionImpl session = mock(SessionImpl.class);
+    when(session.getName()).thenReturn("session-1");
+    AbstractReadContext.SingleReadContext query =
+        AbstractReadContext.SingleReadContext.newBuilder()
+            .setTimestampBound(TimestampBound.strong())
+            .setSession(session)
+            .setRpc(mock(SpannerRpc.class))
+            .setDefaultQueryOptions(defaultQueryOptions)
+            .build();
+    assertThat(
+            query
+                .getExecuteSqlRequestBuilder(Statement.of("SELECT FOO FROM BAR"), QueryMode.NORMAL)
+                .hasTransaction())
+        .isFalse();
+
+    AbstractReadContext.SingleReadContext read =
+        AbstractReadContext.SingleReadContext.newBuilder()
+            .setTimestampBound(TimestampBound.strong())
+            .setSession(session)
+            .setRpc(mock(SpannerRpc.class))
+            .setDefaultQueryOptions(defaultQueryOptions)
+            .build();
+    read.read("BAR", KeySet.all(), Arrays.asList("FOO"));
+    assertThat(read.getTransactionSelector().getSingleUse().getReadOnly().getReturnReadTimestamp())
+        .isTrue();
+  }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link AdmissionController}. */
+@RunWith(JUnit4.class)
+public class AdmissionControllerTest {
+  private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100L);
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10L);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(200L);
+
+  @Test
+  public void startsAtMaxLimit() {
+    AdmissionController controller = new AdmissionController(1, 10, THRESHOLD);
+    assertThat(controller.getLimit()).isEqualTo(10);
+    // Requests above the maximum wait for a session while the limit has not been reduced.
+    assertThat(controller.tryAdmit(9)).isTrue();
+    assertThat(controller.tryAdmit(20)).isTrue();
+    assertThat(controller.getNumRejected()).isEqualTo(0L);
+  }
+
+  @Test
+  public void rejectsAboveReducedLimit() {
+    AdmissionController controller = new AdmissionController(1, 10, THRESHOLD);
+    controller.onSample(SLOW, 10, false);
+    assertThat(controller.getLimit()).isEqualTo(9);
+    assertThat(controller.tryAdmit(8)).isTrue();
+    assertThat(controller.tryAdmit(9)).isFalse();
+    assertThat(controller.getNumRejected()).isEqualTo(1L);
+  }
+
+  @Test
+  public void slowOperationsDecreaseLimit() {
+    AdmissionController controller = new AdmissionController(2, 10, THRESHOLD);
+    controller.onSample(SLOW, 10, false);
+    assertThat(controller.getLimit()).isEqualTo(9);
+    for (int i = 0; i < 100; i++) {
+      controller.onSample(SLOW, 10, false);
+    }
+    assertThat(controller.getLimit()).isEqualTo(2);
+  }
+
+  @Test
+  public void overloadedOperationsDecreaseLimit() {
+    AdmissionController controller = new AdmissionController(1, 10, THRESHOLD);
+    controller.onSample(FAST, 10, true);
+    assertThat(controller.getLimit()).isEqualTo(9);
+  }
+
+  @Test
+  public void fastOperationsIncreaseLimit() {
+    AdmissionController controller = new AdmissionController(1, 10, THRESHOLD);
+    for (int i = 0; i < 20; i++) {
+      controller.onSample(SLOW, 10, false);
+    }
+    assertThat(controller.getLimit()).isEqualTo(1);
+    controller.onSample(FAST, 1, false);
+    assertThat(controller.getLimit()).isEqualTo(2);
+    for (int i = 0; i < 100; i++) {
+      controller.onSample(FAST, 10, false);
+    }
+    assertThat(controller.getLimit()).isEqualTo(10);
+  }
+
+  @Test
+  public void limitIsNotIncreasedIfUnused() {
+    AdmissionController controller = new AdmissionController(1, 10, THRESHOLD);
+    controller.onSample(SLOW, 10, false);
+    controller.onSample(SLOW, 10, false);
+    int limit = controller.getLimit();
+    controller.onSample(FAST, 1, false);
+    assertThat(controller.getLimit()).isEqualTo(limit);
+  }
+}
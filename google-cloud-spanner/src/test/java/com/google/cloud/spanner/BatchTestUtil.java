@@ -0,0 +1,41 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.cloud.Timestamp;
+import com.google.protobuf.ByteString;
+
+/** Creates batch transaction ids and partitions for tests outside of this package. */
+public class BatchTestUtil {
+
+  private BatchTestUtil() {
+    // Utility class
+  }
+
+  public static BatchTransactionId newBatchTransactionId(String sessionId) {
+    return new BatchTransactionId(
+        sessionId, ByteString.copyFromUtf8("tx"), Timestamp.ofTimeMicroseconds(1L));
+  }
+
+  public static Partition newQueryPartition(String token, Statement statement) {
+    return Partition.createQueryPartition(
+        ByteString.copyFromUtf8(token),
+        PartitionOptions.getDefaultInstance(),
+        statement,
+        Options.fromQueryOptions());
+  }
+}
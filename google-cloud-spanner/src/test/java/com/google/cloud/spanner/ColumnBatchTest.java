@@ -0,0 +1,223 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.common.collect.ImmutableList;
+import com.google.spanner.v1.PartialResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.Transaction;
+import java.util.Iterator;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ColumnBatch}. */
+@RunWith(JUnit4.class)
+public class ColumnBatchTest {
+  @Rule public ExpectedException expectedException = ExpectedException.none();
+
+  private static final Type TYPE =
+      Type.struct(
+          Type.StructField.of("bool", Type.bool()),
+          Type.StructField.of("int", Type.int64()),
+          Type.StructField.of("double", Type.float64()),
+          Type.StructField.of("string", Type.string()),
+          Type.StructField.of("bytes", Type.bytes()),
+          Type.StructField.of("timestamp", Type.timestamp()),
+          Type.StructField.of("date", Type.date()),
+          Type.StructField.of("array", Type.array(Type.int64())));
+
+  private AbstractResultSet.GrpcResultSet resultSet;
+  private SpannerRpc.ResultStreamConsumer consumer;
+
+  private static class NoOpListener implements AbstractResultSet.Listener {
+    @Override
+    public void onTransactionMetadata(Transaction transaction) throws SpannerException {}
+
+    @Override
+    public void onError(SpannerException e) {}
+
+    @Override
+    public void onDone() {}
+  }
+
+  @Before
+  public void setUp() {
+    AbstractResultSet.GrpcStreamIterator stream = new AbstractResultSet.GrpcStreamIterator(10);
+    stream.setCall(
+        new SpannerRpc.StreamingCall() {
+          @Override
+          public void cancel(@Nullable String message) {}
+
+          @Override
+          public void request(int numMessages) {}
+        });
+    consumer = stream.consumer();
+    resultSet = new AbstractResultSet.GrpcResultSet(stream, new NoOpListener());
+  }
+
+  private static Struct row(long i) {
+    return Struct.newBuilder()
+        .set("bool")
+        .to(i % 2 == 0)
+        .set("int")
+        .to(i)
+        .set("double")
+        .to(i / 2d)
+        .set("string")
+        .to("s" + i)
+        .set("bytes")
+        .to(ByteArray.copyFrom("b" + i))
+        .set("timestamp")
+        .to(Timestamp.ofTimeSecondsAndNanos(i, 0))
+        .set("date")
+        .to(Date.fromYearMonthDay(2020, 1, (int) i + 1))
+        .set("array")
+        .toInt64Array(new long[] {i, i + 1})
+        .build();
+  }
+
+  private static Struct nullRow() {
+    return Struct.newBuilder()
+        .set("bool")
+        .to((Boolean) null)
+        .set("int")
+        .to((Long) null)
+        .set("double")
+        .to((Double) null)
+        .set("string")
+        .to((String) null)
+        .set("bytes")
+        .to((ByteArray) null)
+        .set("timestamp")
+        .to((Timestamp) null)
+        .set("date")
+        .to((Date) null)
+        .set("array")
+        .toInt64Array((long[]) null)
+        .build();
+  }
+
+  private void sendRows(List<Struct> rows) {
+    PartialResultSet.Builder builder =
+        PartialResultSet.newBuilder()
+            .setMetadata(
+                ResultSetMetadata.newBuilder().setRowType(TYPE.toProto().getStructType()).build());
+    for (Struct row : rows) {
+      builder.addAllValues(Value.struct(row).toProto().getListValue().getValuesList());
+    }
+    consumer.onPartialResultSet(builder.build());
+    consumer.onCompleted();
+  }
+
+  private static void assertBatch(ColumnBatch batch, long firstRow, int rowCount) {
+    assertThat(batch.getType()).isEqualTo(TYPE);
+    assertThat(batch.getColumnCount()).isEqualTo(8);
+    assertThat(batch.getRowCount()).isEqualTo(rowCount);
+    for (int r = 0; r < rowCount; r++) {
+      long i = firstRow + r;
+      for (int c = 0; c < batch.getColumnCount(); c++) {
+        assertThat(batch.isNull(c, r)).isFalse();
+      }
+      assertThat(batch.getBooleanColumn(0)[r]).isEqualTo(i % 2 == 0);
+      assertThat(batch.getLongColumn(1)[r]).isEqualTo(i);
+      assertThat(batch.getDoubleColumn(2)[r]).isEqualTo(i / 2d);
+      assertThat(batch.getStringColumn(3)[r]).isEqualTo("s" + i);
+      assertThat(batch.getBytesColumn(4)[r]).isEqualTo(ByteArray.copyFrom("b" + i));
+      assertThat(batch.getTimestampColumn(5)[r]).isEqualTo(Timestamp.ofTimeSecondsAndNanos(i, 0));
+      assertThat(batch.getDateColumn(6)[r]).isEqualTo(Date.fromYearMonthDay(2020, 1, (int) i + 1));
+      assertThat((List<?>) batch.getObjectColumn(7)[r]).containsExactly(i, i + 1).inOrder();
+    }
+  }
+
+  @Test
+  public void grpcResultSet() {
+    sendRows(ImmutableList.of(row(0), row(1), row(2), row(3), row(4)));
+    Iterator<ColumnBatch> batches = ResultSets.toColumnBatches(resultSet, 2);
+    assertBatch(batches.next(), 0, 2);
+    assertBatch(batches.next(), 2, 2);
+    assertBatch(batches.next(), 4, 1);
+    assertThat(batches.hasNext()).isFalse();
+  }
+
+  @Test
+  public void prePopulatedResultSet() {
+    ResultSet rs = ResultSets.forRows(TYPE, ImmutableList.of(row(0), row(1), row(2)));
+    Iterator<ColumnBatch> batches = ResultSets.toColumnBatches(rs, 2);
+    assertBatch(batches.next(), 0, 2);
+    assertBatch(batches.next(), 2, 1);
+    assertThat(batches.hasNext()).isFalse();
+  }
+
+  @Test
+  public void largeBatch() {
+    ImmutableList.Builder<Struct> rows = ImmutableList.builder();
+    for (int i = 0; i < 28; i++) {
+      rows.add(row(i));
+    }
+    ResultSet rs = ResultSets.forRows(TYPE, rows.build());
+    Iterator<ColumnBatch> batches = ResultSets.toColumnBatches(rs, 1000);
+    assertBatch(batches.next(), 0, 28);
+    assertThat(batches.hasNext()).isFalse();
+  }
+
+  @Test
+  public void nulls() {
+    sendRows(ImmutableList.of(nullRow(), row(1)));
+    ColumnBatch batch = ResultSets.toColumnBatches(resultSet, 10).next();
+    assertThat(batch.getRowCount()).isEqualTo(2);
+    for (int c = 0; c < batch.getColumnCount(); c++) {
+      assertThat(batch.isNull(c, 0)).isTrue();
+      assertThat(batch.isNull(c, 1)).isFalse();
+    }
+    assertThat(batch.getLongColumn(1)).asList().containsExactly(0L, 1L).inOrder();
+    assertThat(batch.getStringColumn(3)).asList().containsExactly(null, "s1").inOrder();
+  }
+
+  @Test
+  public void empty() {
+    sendRows(ImmutableList.<Struct>of());
+    assertThat(ResultSets.toColumnBatches(resultSet, 10).hasNext()).isFalse();
+  }
+
+  @Test
+  public void wrongColumnType() {
+    sendRows(ImmutableList.of(row(0)));
+    ColumnBatch batch = ResultSets.toColumnBatches(resultSet, 10).next();
+    expectedException.expect(IllegalStateException.class);
+    batch.getDoubleColumn(1);
+  }
+
+  @Test
+  public void primitiveObjectColumn() {
+    sendRows(ImmutableList.of(row(0)));
+    ColumnBatch batch = ResultSets.toColumnBatches(resultSet, 10).next();
+    expectedException.expect(IllegalStateException.class);
+    batch.getObjectColumn(1);
+  }
+}
@@ -17,11 +17,16 @@
 package com.google.cloud.spanner;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.initMocks;
 
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
 import com.google.api.gax.longrunning.OperationFuture;
+import com.google.api.gax.paging.Page;
 import com.google.cloud.Identity;
 import com.google.cloud.Role;
 import com.google.cloud.Timestamp;
@@ -34,6 +39,7 @@ import com.google.common.io.BaseEncoding;
 import com.google.iam.v1.Binding;
 import com.google.iam.v1.Policy;
 import com.google.iam.v1.TestIamPermissionsResponse;
+import com.google.longrunning.Operation;
 import com.google.protobuf.Any;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.Empty;
@@ -48,6 +54,7 @@ import com.google.spanner.admin.database.v1.UpdateDatabaseDdlMetadata;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import org.junit.Assert;
 import org.junit.Before;
@@ -55,6 +62,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 
 /** Unit tests for {@link com.google.cloud.spanner.SpannerImpl.DatabaseAdminClientImpl}. */
 @RunWith(JUnit4.class)
@@ -164,6 +172,21 @@ public class DatabaseAdminClientImplTest {
     assertThat(op.getName()).isEqualTo(originalOpName);
   }
 
+  @Test
+  public void updateDatabasesDdlAsync() throws Exception {
+    List<String> ddl = ImmutableList.of("CREATE TABLE mytable()");
+    when(rpc.startUpdateDatabaseDdl(Mockito.eq(DB_NAME), Mockito.eq(ddl), Mockito.startsWith("r")))
+        .thenReturn(
+            Operation.newBuilder().setName(DB_NAME + "/operations/op").setDone(true).build());
+    when(rpc.startUpdateDatabaseDdl(Mockito.eq(DB_NAME2), Mockito.eq(ddl), Mockito.startsWith("r")))
+        .thenReturn(
+            Operation.newBuilder().setName(DB_NAME2 + "/operations/op").setDone(true).build());
+    List<ApiFuture<Void>> results =
+        client.updateDatabasesDdlAsync(INSTANCE_ID, Arrays.asList(DB_ID, "my-db2"), ddl, 2);
+    assertThat(results).hasSize(2);
+    ApiFutures.allAsList(results).get(10L, TimeUnit.SECONDS);
+  }
+
   @Test
   public void dropDatabase() {
     client.dropDatabase(INSTANCE_ID, DB_ID);
@@ -224,6 +247,73 @@ public class DatabaseAdminClientImplTest {
     }
   }
 
+  @Test
+  public void listDatabasesWithPrefetch() {
+    String pageToken = "token";
+    when(rpc.listDatabases(INSTANCE_NAME, 1, null))
+        .thenReturn(new Paginated<>(ImmutableList.<Database>of(getDatabaseProto()), pageToken));
+    when(rpc.listDatabases(INSTANCE_NAME, 1, pageToken))
+        .thenReturn(new Paginated<>(ImmutableList.<Database>of(getAnotherDatabaseProto()), ""));
+    Page<com.google.cloud.spanner.Database> page =
+        client.listDatabases(INSTANCE_ID, Options.pageSize(1), Options.prefetchPages());
+    // The second page is fetched before the first page has been consumed.
+    verify(rpc, timeout(5000L)).listDatabases(INSTANCE_NAME, 1, pageToken);
+    List<com.google.cloud.spanner.Database> dbs = Lists.newArrayList(page.iterateAll());
+    assertThat(dbs.get(0).getId().getName()).isEqualTo(DB_NAME);
+    assertThat(dbs.get(1).getId().getName()).isEqualTo(DB_NAME2);
+    assertThat(dbs.size()).isEqualTo(2);
+    verify(rpc, times(1)).listDatabases(INSTANCE_NAME, 1, pageToken);
+  }
+
+  @Test
+  public void listAllDatabasesAsync() throws Exception {
+    String pageToken = "token";
+    when(rpc.listDatabases(INSTANCE_NAME, 1, null))
+        .thenReturn(new Paginated<>(ImmutableList.<Database>of(getDatabaseProto()), pageToken));
+    when(rpc.listDatabases(INSTANCE_NAME, 1, pageToken))
+        .thenReturn(new Paginated<>(ImmutableList.<Database>of(getAnotherDatabaseProto()), ""));
+    List<com.google.cloud.spanner.Database> dbs =
+        client.listAllDatabasesAsync(INSTANCE_ID, Options.pageSize(1)).get(5L, TimeUnit.SECONDS);
+    assertThat(dbs.get(0).getId().getName()).isEqualTo(DB_NAME);
+    assertThat(dbs.get(1).getId().getName()).isEqualTo(DB_NAME2);
+    assertThat(dbs.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void listAllDatabasesAsyncError() throws Exception {
+    String pageToken = "token";
+    when(rpc.listDatabases(INSTANCE_NAME, 1, null))
+        .thenReturn(new Paginated<>(ImmutableList.<Database>of(getDatabaseProto()), pageToken));
+    when(rpc.listDatabases(INSTANCE_NAME, 1, pageToken))
+        .thenThrow(
+            SpannerExceptionFactory.newSpannerException(ErrorCode.INVALID_ARGUMENT, "Test error"));
+    try {
+      client.listAllDatabasesAsync(INSTANCE_ID, Options.pageSize(1)).get(5L, TimeUnit.SECONDS);
+      Assert.fail("Missing expected exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(SpannerException.class);
+      assertThat(((SpannerException) e.getCause()).getErrorCode())
+          .isEqualTo(ErrorCode.INVALID_ARGUMENT);
+    }
+  }
+
+  @Test
+  public void listBackupOperationsUsesNextPageToken() throws Exception {
+    String pageToken = "token";
+    Operation operation1 = Operation.newBuilder().setName("op1").build();
+    Operation operation2 = Operation.newBuilder().setName("op2").build();
+    when(rpc.listBackupOperations(INSTANCE_NAME, 1, null, null))
+        .thenReturn(new Paginated<>(ImmutableList.of(operation1), pageToken));
+    when(rpc.listBackupOperations(INSTANCE_NAME, 1, null, pageToken))
+        .thenReturn(new Paginated<>(ImmutableList.of(operation2), ""));
+    assertThat(
+            client
+                .listAllBackupOperationsAsync(INSTANCE_ID, Options.pageSize(1))
+                .get(5L, TimeUnit.SECONDS))
+        .containsExactly(operation1, operation2)
+        .inOrder();
+  }
+
   @Test
   public void getDatabaseIAMPolicy() {
     when(rpc.getDatabaseAdminIAMPolicy(DB_NAME))
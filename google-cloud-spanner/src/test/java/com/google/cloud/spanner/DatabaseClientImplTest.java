@@ -22,6 +22,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.fail;
 
+import com.google.api.core.ApiFuture;
 import com.google.api.gax.grpc.testing.LocalChannelProvider;
 import com.google.api.gax.retrying.RetrySettings;
 import com.google.cloud.NoCredentials;
@@ -44,9 +45,11 @@ import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.inprocess.InProcessServerBuilder;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -157,6 +160,64 @@ public class DatabaseClientImplTest {
     assertThat(updateCount, is(equalTo(UPDATE_COUNT)));
   }
 
+  @Test
+  public void testQueryStats() {
+    try (Spanner spanner =
+        SpannerOptions.newBuilder()
+            .setProjectId(TEST_PROJECT)
+            .setChannelProvider(channelProvider)
+            .setCredentials(NoCredentials.getInstance())
+            .setQueryStatsOptions(QueryStatsOptions.newBuilder().build())
+            .build()
+            .getService()) {
+      DatabaseClient client =
+          spanner.getDatabaseClient(DatabaseId.of(TEST_PROJECT, TEST_INSTANCE, TEST_DATABASE));
+      for (int i = 0; i < 3; i++) {
+        try (ResultSet rs = client.singleUse().executeQuery(SELECT1)) {
+          while (rs.next()) {}
+        }
+      }
+      List<QueryStats> stats = spanner.getTopQueryStats(10);
+      assertThat(stats).hasSize(1);
+      assertThat(stats.get(0).getFingerprint()).isEqualTo("SELECT ? AS COL1");
+      assertThat(stats.get(0).getExecutionCount()).isEqualTo(3L);
+      assertThat(stats.get(0).getRowCount()).isEqualTo(3L);
+      assertThat(stats.get(0).getBytesReceived()).isGreaterThan(0L);
+    }
+    // Query statistics are disabled by default.
+    assertThat(spanner.getTopQueryStats(10)).isEmpty();
+  }
+
+  @Test
+  public void testWithSessionPriority() {
+    DatabaseClientImpl client =
+        (DatabaseClientImpl)
+            spanner.getDatabaseClient(DatabaseId.of(TEST_PROJECT, TEST_INSTANCE, TEST_DATABASE));
+    DatabaseClientImpl lowPriorityClient =
+        (DatabaseClientImpl) client.withSessionPriority(SessionPriority.LOW);
+    assertThat(lowPriorityClient.priority).isEqualTo(SessionPriority.LOW);
+    assertThat(lowPriorityClient.pool).isSameInstanceAs(client.pool);
+    assertThat(client.withSessionPriority(SessionPriority.NORMAL)).isSameInstanceAs(client);
+    long updateCount = lowPriorityClient.executePartitionedUpdate(UPDATE_STATEMENT);
+    assertThat(updateCount, is(equalTo(UPDATE_COUNT)));
+  }
+
+  @Test
+  public void testExecutePartitionedDmlAsync() throws Exception {
+    DatabaseClient client =
+        spanner.getDatabaseClient(DatabaseId.of(TEST_PROJECT, TEST_INSTANCE, TEST_DATABASE));
+    mockSpanner.abortNextTransaction();
+    assertThat(client.executePartitionedUpdateAsync(UPDATE_STATEMENT).get())
+        .isEqualTo(UPDATE_COUNT);
+    List<ApiFuture<Long>> results =
+        client.executePartitionedUpdatesAsync(
+            Arrays.asList(UPDATE_STATEMENT, UPDATE_STATEMENT, UPDATE_STATEMENT), 2);
+    assertThat(results).hasSize(3);
+    for (ApiFuture<Long> result : results) {
+      assertThat(result.get()).isEqualTo(UPDATE_COUNT);
+    }
+  }
+
   /** {@link AbortedException} should automatically be retried. */
   @Test
   public void testExecutePartitionedDmlAborted() {
@@ -186,9 +247,57 @@ public class DatabaseClientImplTest {
     client.executePartitionedUpdate(INVALID_UPDATE_STATEMENT);
   }
 
+  /**
+   * Internally retried exceptions can be created without a stack trace, but exceptions that are
+   * thrown to the user always have one.
+   */
+  @Test
+  public void testRetriedExceptionsWithoutStackTrace() {
+    SpannerExceptionFactory.setOmitRetriedStackTraces(true);
+    try {
+      DatabaseClient client =
+          spanner.getDatabaseClient(DatabaseId.of(TEST_PROJECT, TEST_INSTANCE, TEST_DATABASE));
+      final AtomicInteger attempts = new AtomicInteger();
+      mockSpanner.abortNextStatement();
+      long updateCount =
+          client
+              .readWriteTransaction()
+              .run(
+                  new TransactionCallable<Long>() {
+                    @Override
+                    public Long run(TransactionContext transaction) {
+                      attempts.incrementAndGet();
+                      return transaction.executeUpdate(UPDATE_STATEMENT);
+                    }
+                  });
+      assertThat(updateCount).isEqualTo(UPDATE_COUNT);
+      assertThat(attempts.get()).isEqualTo(2);
+
+      try {
+        client
+            .readWriteTransaction()
+            .run(
+                new TransactionCallable<Long>() {
+                  @Override
+                  public Long run(TransactionContext transaction) {
+                    return transaction.executeUpdate(INVALID_UPDATE_STATEMENT);
+                  }
+                });
+        fail("missing expected exception");
+      } catch (SpannerException e) {
+        assertThat(e.getErrorCode()).isEqualTo(ErrorCode.INVALID_ARGUMENT);
+        assertThat(e.getStackTrace()).isNotEmpty();
+      }
+    } finally {
+      SpannerExceptionFactory.setOmitRetriedStackTraces(false);
+    }
+  }
+
   @Test
   public void testPartitionedDmlDoesNotTimeout() throws Exception {
     mockSpanner.setExecuteSqlExecutionTime(SimulatedExecutionTime.ofMinimumAndRandomTime(10, 0));
+    mockSpanner.setExecuteStreamingSqlExecutionTime(
+        SimulatedExecutionTime.ofMinimumAndRandomTime(10, 0));
     final RetrySettings retrySettings =
         RetrySettings.newBuilder()
             .setInitialRpcTimeout(Duration.ofMillis(1L))
@@ -237,7 +346,8 @@ public class DatabaseClientImplTest {
 
   @Test
   public void testPartitionedDmlWithTimeout() throws Exception {
-    mockSpanner.setExecuteSqlExecutionTime(SimulatedExecutionTime.ofMinimumAndRandomTime(1000, 0));
+    mockSpanner.setExecuteStreamingSqlExecutionTime(
+        SimulatedExecutionTime.ofMinimumAndRandomTime(1000, 0));
     SpannerOptions.Builder builder =
         SpannerOptions.newBuilder()
             .setProjectId(TEST_PROJECT)
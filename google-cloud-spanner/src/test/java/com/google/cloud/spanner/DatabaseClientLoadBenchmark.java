@@ -0,0 +1,312 @@
+/*
+ * Copyright 2017 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.api.core.ApiFunction;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
+import com.google.common.base.Splitter;
+import com.google.protobuf.ListValue;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.TypeCode;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Server;
+import io.grpc.ServerInterceptors;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Load test of a {@link DatabaseClient} against {@link MockSpannerServiceImpl} on an in-process
+ * server. Each operation is a single-use read, a single-use query or a read/write transaction with
+ * one DML statement, chosen at random according to {@link #mix}. The benchmark reports the
+ * throughput and the latency percentiles of the operations, the number of operations of each type
+ * and the number of failed operations. Allocations are reported by the {@code gc} profiler of the
+ * {@code benchmark} profile. The session pool statistics are printed at the end of each trial.
+ *
+ * <p>The client settings {@link #numChannels}, {@link #maxSessions} and {@link #prefetchChunks} can
+ * be varied to compare their effect on a given workload. Latency and errors can be injected both in
+ * the client channels and in the server, and the server can abort read/write transactions with a
+ * given probability. All parameters can be changed with the JMH {@code -p} option, e.g. {@code -p
+ * numChannels=1,4,8 -p serverLatencyMillis=2}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Benchmark)
+public class DatabaseClientLoadBenchmark {
+  private static final DatabaseId DATABASE_ID = DatabaseId.of("[PROJECT]", "[INSTANCE]", "[DB]");
+  private static final String TABLE = "BENCH";
+  private static final List<String> COLUMNS = Arrays.asList("ID");
+  private static final Statement QUERY = Statement.of("SELECT ID FROM BENCH");
+  private static final Statement UPDATE = Statement.of("UPDATE BENCH SET ID=ID+1 WHERE TRUE");
+
+  private enum Operation {
+    READ,
+    QUERY,
+    WRITE
+  }
+
+  /** The number of gRPC channels of the client. */
+  @Param({"1", "4"})
+  public int numChannels;
+
+  /** The maximum number of sessions in the session pool. */
+  @Param({"100"})
+  public int maxSessions;
+
+  /** The number of chunks of a result set that the client buffers. */
+  @Param({"4"})
+  public int prefetchChunks;
+
+  /** The number of rows that reads and queries return. Each row is streamed in its own chunk. */
+  @Param({"100"})
+  public int rows;
+
+  /** The relative weights of reads, queries and read/write transactions. */
+  @Param({"read=50,query=30,write=20"})
+  public String mix;
+
+  /** The latency that the server adds to each call. */
+  @Param({"0"})
+  public long serverLatencyMillis;
+
+  /** The probability that the server fails a call with UNAVAILABLE. */
+  @Param({"0"})
+  public double serverErrorProbability;
+
+  /** The probability that the server aborts a read/write transaction. */
+  @Param({"0"})
+  public double abortProbability;
+
+  /** The latency that the client channels add to each call. */
+  @Param({"0"})
+  public long clientLatencyMillis;
+
+  /** The probability that the client channels fail a call with UNAVAILABLE. */
+  @Param({"0"})
+  public double clientErrorProbability;
+
+  private MockSpannerServiceImpl mockSpanner;
+  private FaultInjectingInterceptor serverFaults;
+  private FaultInjectingInterceptor clientFaults;
+  private Server server;
+  private Spanner spanner;
+  private DatabaseClient client;
+  private SessionPool pool;
+  private Operation[] operations;
+  private int[] cumulativeWeights;
+
+  /** The number of operations of each type and the number of failed operations of a thread. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class OperationCounters {
+    public long reads;
+    public long queries;
+    public long writes;
+    public long errors;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      reads = 0L;
+      queries = 0L;
+      writes = 0L;
+      errors = 0L;
+    }
+  }
+
+  @Setup
+  public void setup() throws IOException, InterruptedException {
+    parseMix();
+    com.google.spanner.v1.ResultSet resultSet = createResultSet(rows);
+    mockSpanner = new MockSpannerServiceImpl();
+    mockSpanner.setAbortProbability(abortProbability);
+    mockSpanner.putStatementResult(StatementResult.query(QUERY, resultSet));
+    mockSpanner.putStatementResult(StatementResult.read(TABLE, KeySet.all(), COLUMNS, resultSet));
+    mockSpanner.putStatementResult(StatementResult.update(UPDATE, 1L));
+    serverFaults = new FaultInjectingInterceptor(serverLatencyMillis, serverErrorProbability);
+    clientFaults = new FaultInjectingInterceptor(clientLatencyMillis, clientErrorProbability);
+
+    final String uniqueName = InProcessServerBuilder.generateName();
+    server =
+        InProcessServerBuilder.forName(uniqueName)
+            .directExecutor()
+            .addService(ServerInterceptors.intercept(mockSpanner, serverFaults))
+            .build()
+            .start();
+    spanner =
+        SpannerOptions.newBuilder()
+            .setProjectId("[PROJECT]")
+            .setNumChannels(numChannels)
+            .setPrefetchChunks(prefetchChunks)
+            // Replace each channel of the client with an in-process channel to the mock server.
+            .setChannelConfigurator(
+                new ApiFunction<ManagedChannelBuilder, ManagedChannelBuilder>() {
+                  @Override
+                  public ManagedChannelBuilder apply(ManagedChannelBuilder input) {
+                    return InProcessChannelBuilder.forName(uniqueName)
+                        .usePlaintext()
+                        .intercept(clientFaults);
+                  }
+                })
+            .setCredentials(NoCredentials.getInstance())
+            .setSessionPoolOption(
+                SessionPoolOptions.newBuilder()
+                    .setMinSessions(maxSessions)
+                    .setMaxSessions(maxSessions)
+                    .build())
+            .build()
+            .getService();
+    client = spanner.getDatabaseClient(DATABASE_ID);
+    pool = ((DatabaseClientImpl) client).pool;
+  }
+
+  private void parseMix() {
+    Map<String, String> weights =
+        Splitter.on(',').trimResults().withKeyValueSeparator('=').split(mix);
+    operations = new Operation[weights.size()];
+    cumulativeWeights = new int[weights.size()];
+    int total = 0;
+    int index = 0;
+    for (Map.Entry<String, String> weight : weights.entrySet()) {
+      operations[index] = Operation.valueOf(weight.getKey().toUpperCase());
+      total += Integer.parseInt(weight.getValue());
+      cumulativeWeights[index] = total;
+      index++;
+    }
+    if (total <= 0) {
+      throw new IllegalArgumentException("The weights of the mix must be > 0: " + mix);
+    }
+  }
+
+  private static com.google.spanner.v1.ResultSet createResultSet(int rows) {
+    com.google.spanner.v1.ResultSet.Builder builder =
+        com.google.spanner.v1.ResultSet.newBuilder()
+            .setMetadata(
+                ResultSetMetadata.newBuilder()
+                    .setRowType(
+                        StructType.newBuilder()
+                            .addFields(
+                                Field.newBuilder()
+                                    .setName("ID")
+                                    .setType(
+                                        com.google.spanner.v1.Type.newBuilder()
+                                            .setCode(TypeCode.INT64)))));
+    for (int row = 0; row < rows; row++) {
+      builder.addRows(
+          ListValue.newBuilder()
+              .addValues(
+                  com.google.protobuf.Value.newBuilder().setStringValue(String.valueOf(row))));
+    }
+    return builder.build();
+  }
+
+  @TearDown
+  public void teardown() throws InterruptedException {
+    System.out.printf(
+        "%nSession pool: %d sessions, %d in use, %d waiters, %d waiter timeouts%n"
+            + "Injected errors: %d in the client, %d in the server%n",
+        pool.totalSessions(),
+        pool.getNumberOfSessionsInUse(),
+        pool.getNumberOfWaiters(),
+        pool.getNumWaiterTimeouts(),
+        clientFaults.getInjectedErrors(),
+        serverFaults.getInjectedErrors());
+    spanner.close();
+    server.shutdown();
+    server.awaitTermination();
+  }
+
+  private Operation nextOperation() {
+    int value =
+        ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (value < cumulativeWeights[i]) {
+        return operations[i];
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  @Benchmark
+  public void mixedWorkload(OperationCounters counters, Blackhole blackhole) {
+    try {
+      switch (nextOperation()) {
+        case READ:
+          counters.reads++;
+          consume(client.singleUse().read(TABLE, KeySet.all(), COLUMNS), blackhole);
+          break;
+        case QUERY:
+          counters.queries++;
+          consume(client.singleUse().executeQuery(QUERY), blackhole);
+          break;
+        case WRITE:
+          counters.writes++;
+          blackhole.consume(
+              client
+                  .readWriteTransaction()
+                  .run(
+                      new TransactionCallable<Long>() {
+                        @Override
+                        public Long run(TransactionContext transaction) {
+                          return transaction.executeUpdate(UPDATE);
+                        }
+                      }));
+          break;
+      }
+    } catch (SpannerException e) {
+      counters.errors++;
+    }
+  }
+
+  private static void consume(ResultSet resultSet, Blackhole blackhole) {
+    try {
+      while (resultSet.next()) {
+        blackhole.consume(resultSet.getLong(0));
+      }
+    } finally {
+      resultSet.close();
+    }
+  }
+}
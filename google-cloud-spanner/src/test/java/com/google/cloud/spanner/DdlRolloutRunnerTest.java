@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.cloud.spanner.spi.v1.SpannerRpc.Paginated;
+import com.google.common.collect.Sets;
+import com.google.longrunning.Operation;
+import com.google.rpc.Code;
+import com.google.rpc.Status;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@RunWith(JUnit4.class)
+public class DdlRolloutRunnerTest {
+  private static final String INSTANCE = "projects/p/instances/i";
+  private static final List<String> DDL =
+      Arrays.asList("ALTER TABLE Albums ADD COLUMN MarketingBudget INT64");
+
+  private SpannerRpc rpc;
+  private DdlRolloutRunner runner;
+  private final List<Operation> started = new CopyOnWriteArrayList<>();
+  private final Set<String> failedOperations = Sets.newConcurrentHashSet();
+  private final List<String> filters = new CopyOnWriteArrayList<>();
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+
+  @Before
+  public void setUp() {
+    rpc = mock(SpannerRpc.class);
+    runner = new DdlRolloutRunner(rpc, 1L);
+    when(rpc.startUpdateDatabaseDdl(anyString(), any(Iterable.class), anyString()))
+        .thenAnswer(
+            new Answer<Operation>() {
+              @Override
+              public Operation answer(InvocationOnMock invocation) throws Throwable {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                  maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                Thread.sleep(5L);
+                running.decrementAndGet();
+                Operation operation =
+                    Operation.newBuilder()
+                        .setName(
+                            invocation.getArgumentAt(0, String.class)
+                                + "/operations/"
+                                + invocation.getArgumentAt(2, String.class))
+                        .build();
+                started.add(operation);
+                return operation;
+              }
+            });
+    when(rpc.listDatabaseOperations(eq(INSTANCE), anyInt(), anyString(), any(String.class)))
+        .thenAnswer(
+            new Answer<Paginated<Operation>>() {
+              @Override
+              public Paginated<Operation> answer(InvocationOnMock invocation) throws Throwable {
+                filters.add(invocation.getArgumentAt(2, String.class));
+                List<Operation> done = new ArrayList<>();
+                for (Operation operation : started) {
+                  Operation.Builder builder = operation.toBuilder().setDone(true);
+                  if (failedOperations.contains(operation.getName())) {
+                    builder.setError(
+                        Status.newBuilder()
+                            .setCode(Code.FAILED_PRECONDITION_VALUE)
+                            .setMessage("Column already exists"));
+                  }
+                  done.add(builder.build());
+                }
+                return new Paginated<>(done, null);
+              }
+            });
+  }
+
+  private static List<String> databases(int count) {
+    List<String> databases = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      databases.add(INSTANCE + "/databases/db" + i);
+    }
+    return databases;
+  }
+
+  @Test
+  public void tracksAllOperationsWithOneListing() throws Exception {
+    List<ApiFuture<Void>> results = runner.updateDdlAsync(INSTANCE, databases(10), DDL, 3);
+    assertThat(results).hasSize(10);
+    ApiFutures.allAsList(results).get(10L, TimeUnit.SECONDS);
+
+    assertThat(started).hasSize(10);
+    assertThat(maxRunning.get()).isAtMost(3);
+    // All operations of the rollout share the same operation id prefix.
+    String prefix = started.get(0).getName().replaceAll(".*/operations/(.*)_\\d+$", "$1");
+    for (Operation operation : started) {
+      assertThat(operation.getName()).contains("/operations/" + prefix + "_");
+    }
+    assertThat(filters).isNotEmpty();
+    for (String filter : filters) {
+      assertThat(filter).contains("UpdateDatabaseDdlMetadata");
+      assertThat(filter).contains("name:" + prefix);
+    }
+    verify(rpc, never()).getOperation(anyString());
+  }
+
+  @Test
+  public void failedOperationFailsOnlyItsDatabase() throws Exception {
+    when(rpc.startUpdateDatabaseDdl(
+            eq(INSTANCE + "/databases/db1"), any(Iterable.class), anyString()))
+        .thenAnswer(
+            new Answer<Operation>() {
+              @Override
+              public Operation answer(InvocationOnMock invocation) throws Throwable {
+                String name =
+                    INSTANCE
+                        + "/databases/db1/operations/"
+                        + invocation.getArgumentAt(2, String.class);
+                failedOperations.add(name);
+                Operation operation = Operation.newBuilder().setName(name).build();
+                started.add(operation);
+                return operation;
+              }
+            });
+    List<ApiFuture<Void>> results = runner.updateDdlAsync(INSTANCE, databases(3), DDL, 3);
+    results.get(0).get(10L, TimeUnit.SECONDS);
+    results.get(2).get(10L, TimeUnit.SECONDS);
+    try {
+      results.get(1).get(10L, TimeUnit.SECONDS);
+      fail("missing expected exception");
+    } catch (ExecutionException e) {
+      SpannerException cause = (SpannerException) e.getCause();
+      assertThat(cause.getErrorCode()).isEqualTo(ErrorCode.FAILED_PRECONDITION);
+      assertThat(cause.getMessage()).contains("Column already exists");
+    }
+  }
+
+  @Test
+  public void startFailureFailsOnlyItsDatabase() throws Exception {
+    when(rpc.startUpdateDatabaseDdl(
+            eq(INSTANCE + "/databases/db0"), any(Iterable.class), anyString()))
+        .thenThrow(
+            SpannerExceptionFactory.newSpannerException(ErrorCode.NOT_FOUND, "Database not found"));
+    List<ApiFuture<Void>> results = runner.updateDdlAsync(INSTANCE, databases(2), DDL, 1);
+    results.get(1).get(10L, TimeUnit.SECONDS);
+    try {
+      results.get(0).get(10L, TimeUnit.SECONDS);
+      fail("missing expected exception");
+    } catch (ExecutionException e) {
+      assertThat(((SpannerException) e.getCause()).getErrorCode()).isEqualTo(ErrorCode.NOT_FOUND);
+    }
+  }
+
+  @Test
+  public void operationThatIsDoneWhenStartedIsNotPolled() throws Exception {
+    when(rpc.startUpdateDatabaseDdl(anyString(), any(Iterable.class), anyString()))
+        .thenReturn(Operation.newBuilder().setName("op").setDone(true).build());
+    List<ApiFuture<Void>> results = runner.updateDdlAsync(INSTANCE, databases(2), DDL, 2);
+    ApiFutures.allAsList(results).get(10L, TimeUnit.SECONDS);
+    // Give the poller the chance to run a few iterations.
+    Thread.sleep(20L);
+    verify(rpc, never()).listDatabaseOperations(anyString(), anyInt(), anyString(), anyString());
+  }
+
+  @Test
+  public void emptyRollout() {
+    assertThat(runner.updateDdlAsync(INSTANCE, new ArrayList<String>(), DDL, 1)).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zeroConcurrency() {
+    runner.updateDdlAsync(INSTANCE, databases(1), DDL, 0);
+  }
+}
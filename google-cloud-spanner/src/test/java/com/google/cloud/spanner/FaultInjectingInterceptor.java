@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Uninterruptibles;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Interceptor that adds latency to and fails a fraction of the calls that pass through it. The same
+ * interceptor can be added to a client channel to simulate network latency and errors, or to an
+ * in-process server to simulate server latency and errors. Failed calls are closed with {@link
+ * Status#UNAVAILABLE} without reaching the other side.
+ */
+final class FaultInjectingInterceptor implements ClientInterceptor, ServerInterceptor {
+  private final long latencyMillis;
+  private final double errorProbability;
+  private final AtomicLong injectedErrors = new AtomicLong();
+
+  /**
+   * Creates an interceptor that delays each call by latencyMillis, and fails each call with the
+   * given probability.
+   */
+  FaultInjectingInterceptor(long latencyMillis, double errorProbability) {
+    Preconditions.checkArgument(latencyMillis >= 0L, "latencyMillis must be >= 0");
+    Preconditions.checkArgument(
+        errorProbability >= 0d && errorProbability <= 1d,
+        "errorProbability must be between 0 and 1 (inclusive)");
+    this.latencyMillis = latencyMillis;
+    this.errorProbability = errorProbability;
+  }
+
+  /** Returns the number of calls that have been failed by this interceptor. */
+  long getInjectedErrors() {
+    return injectedErrors.get();
+  }
+
+  private boolean delayAndDecideFailure() {
+    if (latencyMillis > 0L) {
+      Uninterruptibles.sleepUninterruptibly(latencyMillis, TimeUnit.MILLISECONDS);
+    }
+    if (errorProbability > 0d && ThreadLocalRandom.current().nextDouble() < errorProbability) {
+      injectedErrors.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  private static Status injectedError() {
+    return Status.UNAVAILABLE.withDescription("Injected error");
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+    if (delayAndDecideFailure()) {
+      return new ClientCall<ReqT, RespT>() {
+        @Override
+        public void start(Listener<RespT> responseListener, Metadata headers) {
+          responseListener.onClose(injectedError(), new Metadata());
+        }
+
+        @Override
+        public void request(int numMessages) {}
+
+        @Override
+        public void cancel(String message, Throwable cause) {}
+
+        @Override
+        public void halfClose() {}
+
+        @Override
+        public void sendMessage(ReqT message) {}
+      };
+    }
+    return next.newCall(method, callOptions);
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    if (delayAndDecideFailure()) {
+      call.close(injectedError(), new Metadata());
+      return new ServerCall.Listener<ReqT>() {};
+    }
+    return next.startCall(call, headers);
+  }
+}
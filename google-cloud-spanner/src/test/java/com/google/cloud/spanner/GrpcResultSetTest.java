@@ -19,6 +19,7 @@ package com.google.cloud.spanner;
 import static com.google.cloud.spanner.SpannerMatchers.isSpannerException;
 import static com.google.common.testing.SerializableTester.reserialize;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 
 import com.google.cloud.ByteArray;
 import com.google.cloud.Date;
@@ -34,10 +35,16 @@ import com.google.spanner.v1.QueryPlan;
 import com.google.spanner.v1.ResultSetMetadata;
 import com.google.spanner.v1.ResultSetStats;
 import com.google.spanner.v1.Transaction;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Rule;
@@ -112,6 +119,38 @@ public class GrpcResultSetTest {
     resultSet.next();
   }
 
+  @Test
+  public void deadlineExceededWhileWaitingForResults() {
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    stream = new AbstractResultSet.GrpcStreamIterator(10);
+    stream.setCall(
+        new SpannerRpc.StreamingCall() {
+          @Override
+          public void cancel(@Nullable String message) {
+            cancelled.set(true);
+          }
+
+          @Override
+          public void request(int numMessages) {}
+        });
+    resultSet = new AbstractResultSet.GrpcResultSet(stream, new NoOpListener());
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    CancellableContext context =
+        Context.current().withDeadlineAfter(10L, TimeUnit.MILLISECONDS, executor);
+    Context previous = context.attach();
+    try {
+      resultSet.next();
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.DEADLINE_EXCEEDED);
+      assertThat(cancelled.get()).isTrue();
+    } finally {
+      context.detach(previous);
+      context.cancel(null);
+      executor.shutdown();
+    }
+  }
+
   @Test
   public void noMetadata() {
     consumer.onCompleted();
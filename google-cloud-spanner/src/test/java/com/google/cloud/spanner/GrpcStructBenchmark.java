@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Date;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.AbstractResultSet.GrpcStruct;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks decoding a value of each {@link Type} from its protobuf representation. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class GrpcStructBenchmark {
+  @Param({
+    "BOOL",
+    "INT64",
+    "FLOAT64",
+    "STRING",
+    "BYTES",
+    "TIMESTAMP",
+    "DATE",
+    "ARRAY_INT64",
+    "ARRAY_STRING",
+    "STRUCT"
+  })
+  public String type;
+
+  private Type valueType;
+  private com.google.protobuf.Value proto;
+
+  @Setup
+  public void setup() {
+    Value value = sampleValue(type);
+    valueType = value.getType();
+    proto = value.toProto();
+  }
+
+  static Value sampleValue(String type) {
+    switch (type) {
+      case "BOOL":
+        return Value.bool(true);
+      case "INT64":
+        return Value.int64(1234567890L);
+      case "FLOAT64":
+        return Value.float64(3.14159d);
+      case "STRING":
+        return Value.string("The quick brown fox jumps over the lazy dog");
+      case "BYTES":
+        return Value.bytes(ByteArray.copyFrom("The quick brown fox jumps over the lazy dog"));
+      case "TIMESTAMP":
+        return Value.timestamp(Timestamp.parseTimestamp("2020-03-31T10:15:30.123456789Z"));
+      case "DATE":
+        return Value.date(Date.fromYearMonthDay(2020, 3, 31));
+      case "ARRAY_INT64":
+        return Value.int64Array(new long[] {1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L});
+      case "ARRAY_STRING":
+        return Value.stringArray(Arrays.asList("one", "two", "three", "four", "five"));
+      case "STRUCT":
+        return Value.struct(
+            Struct.newBuilder()
+                .set("id")
+                .to(1L)
+                .set("name")
+                .to("name")
+                .set("created")
+                .to(Timestamp.ofTimeSecondsAndNanos(1585649730L, 0))
+                .build());
+      default:
+        throw new IllegalArgumentException("Unknown type: " + type);
+    }
+  }
+
+  @Benchmark
+  public Object decodeValue() {
+    return GrpcStruct.decodeValue(valueType, proto);
+  }
+}
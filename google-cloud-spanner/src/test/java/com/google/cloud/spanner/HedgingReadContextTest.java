@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.api.gax.grpc.testing.LocalChannelProvider;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.spanner.MockSpannerServiceImpl.SimulatedExecutionTime;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.AbstractMessage;
+import com.google.protobuf.ListValue;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.TypeCode;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.threeten.bp.Duration;
+
+/** Unit tests for {@link HedgingReadContext}. */
+@RunWith(JUnit4.class)
+public class HedgingReadContextTest {
+  private static final Statement SELECT1 = Statement.of("SELECT 1 AS COL1");
+  private static final com.google.spanner.v1.ResultSet SELECT1_RESULTSET =
+      com.google.spanner.v1.ResultSet.newBuilder()
+          .addRows(
+              ListValue.newBuilder()
+                  .addValues(com.google.protobuf.Value.newBuilder().setStringValue("1").build())
+                  .build())
+          .setMetadata(
+              ResultSetMetadata.newBuilder()
+                  .setRowType(
+                      StructType.newBuilder()
+                          .addFields(
+                              Field.newBuilder()
+                                  .setName("COL1")
+                                  .setType(
+                                      com.google.spanner.v1.Type.newBuilder()
+                                          .setCode(TypeCode.INT64)
+                                          .build())
+                                  .build())
+                          .build())
+                  .build())
+          .build();
+  private static final TimestampBound STALE = TimestampBound.ofMaxStaleness(15L, TimeUnit.SECONDS);
+
+  private static MockSpannerServiceImpl mockSpanner;
+  private static Server server;
+  private static LocalChannelProvider channelProvider;
+  private Spanner spanner;
+
+  @BeforeClass
+  public static void startStaticServer() throws IOException {
+    mockSpanner = new MockSpannerServiceImpl();
+    mockSpanner.setAbortProbability(0.0D);
+    mockSpanner.putStatementResult(StatementResult.query(SELECT1, SELECT1_RESULTSET));
+    String uniqueName = InProcessServerBuilder.generateName();
+    server =
+        InProcessServerBuilder.forName(uniqueName)
+            .directExecutor()
+            .addService(mockSpanner)
+            .build()
+            .start();
+    channelProvider = LocalChannelProvider.create(uniqueName);
+  }
+
+  @AfterClass
+  public static void stopServer() throws InterruptedException {
+    server.shutdown();
+    server.awaitTermination();
+  }
+
+  @After
+  public void tearDown() {
+    if (spanner != null) {
+      spanner.close();
+      spanner = null;
+    }
+    mockSpanner.reset();
+    mockSpanner.setExecuteStreamingSqlExecutionTime(SimulatedExecutionTime.none());
+  }
+
+  private DatabaseClientImpl createClient(HedgingOptions hedgingOptions) {
+    spanner =
+        SpannerOptions.newBuilder()
+            .setProjectId("my-project")
+            .setChannelProvider(channelProvider)
+            .setCredentials(NoCredentials.getInstance())
+            .setHedgingOptions(hedgingOptions)
+            .build()
+            .getService();
+    return (DatabaseClientImpl)
+        spanner.getDatabaseClient(DatabaseId.of("my-project", "my-instance", "my-database"));
+  }
+
+  private static long countExecuteSqlRequests() {
+    long count = 0L;
+    for (AbstractMessage request : mockSpanner.getRequests()) {
+      if (request instanceof ExecuteSqlRequest) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static long count(ResultSet resultSet) {
+    long count = 0L;
+    try (ResultSet rs = resultSet) {
+      while (rs.next()) {
+        assertThat(rs.getLong(0)).isEqualTo(1L);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void onlyStaleReadsAreHedged() {
+    DatabaseClientImpl client = createClient(HedgingOptions.newBuilder().build());
+    try (ReadContext context = client.singleUse(STALE)) {
+      assertThat(context).isInstanceOf(HedgingReadContext.class);
+    }
+    try (ReadContext context =
+        client.singleUse(TimestampBound.ofExactStaleness(1L, TimeUnit.SECONDS))) {
+      assertThat(context).isInstanceOf(HedgingReadContext.class);
+    }
+    try (ReadContext context = client.singleUse(TimestampBound.strong())) {
+      assertThat(context).isNotInstanceOf(HedgingReadContext.class);
+    }
+    try (ReadContext context = client.singleUse()) {
+      assertThat(context).isNotInstanceOf(HedgingReadContext.class);
+    }
+  }
+
+  @Test
+  public void fastReadIsNotHedged() {
+    DatabaseClientImpl client =
+        createClient(
+            HedgingOptions.newBuilder()
+                .setBudgetPercent(100d)
+                .setInitialDelay(Duration.ofSeconds(10L))
+                .build());
+    assertThat(count(client.singleUse(STALE).executeQuery(SELECT1))).isEqualTo(1L);
+    assertThat(client.hedger.getReadCount()).isEqualTo(1L);
+    assertThat(client.hedger.getHedgedReadCount()).isEqualTo(0L);
+    assertThat(countExecuteSqlRequests()).isEqualTo(1L);
+    assertThat(client.pool.getNumberOfSessionsInUse()).isEqualTo(0);
+  }
+
+  @Test
+  public void slowReadIsHedged() throws InterruptedException {
+    DatabaseClientImpl client =
+        createClient(
+            HedgingOptions.newBuilder()
+                .setBudgetPercent(100d)
+                .setInitialDelay(Duration.ofMillis(50L))
+                .build());
+    // Only the first request is slow.
+    mockSpanner.setExecuteStreamingSqlExecutionTime(
+        SimulatedExecutionTime.ofMinimumAndRandomTime(2000, 0));
+    Thread speedUp =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                while (countExecuteSqlRequests() == 0L) {
+                  Thread.yield();
+                }
+                mockSpanner.setExecuteStreamingSqlExecutionTime(SimulatedExecutionTime.none());
+              }
+            });
+    speedUp.start();
+    Stopwatch watch = Stopwatch.createStarted();
+    assertThat(count(client.singleUse(STALE).executeQuery(SELECT1))).isEqualTo(1L);
+    assertThat(watch.elapsed(TimeUnit.MILLISECONDS)).isLessThan(2000L);
+    speedUp.join();
+    assertThat(client.hedger.getHedgedReadCount()).isEqualTo(1L);
+    assertThat(countExecuteSqlRequests()).isEqualTo(2L);
+    // The slow read is cancelled and its session is returned to the pool.
+    while (client.pool.getNumberOfSessionsInUse() > 0) {
+      Thread.sleep(1L);
+    }
+  }
+
+  @Test
+  public void hedgedReadUsesDeadlineOfCaller() throws InterruptedException {
+    DatabaseClientImpl client =
+        createClient(
+            HedgingOptions.newBuilder()
+                .setBudgetPercent(100d)
+                .setInitialDelay(Duration.ofMillis(10L))
+                .build());
+    mockSpanner.setExecuteStreamingSqlExecutionTime(
+        SimulatedExecutionTime.ofMinimumAndRandomTime(2000, 0));
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    CancellableContext context =
+        Context.current().withDeadlineAfter(100L, TimeUnit.MILLISECONDS, scheduler);
+    Context previous = context.attach();
+    Stopwatch watch = Stopwatch.createStarted();
+    try {
+      count(client.singleUse(STALE).executeQuery(SELECT1));
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.DEADLINE_EXCEEDED);
+      assertThat(watch.elapsed(TimeUnit.MILLISECONDS)).isLessThan(2000L);
+    } finally {
+      context.detach(previous);
+      context.cancel(null);
+      scheduler.shutdown();
+    }
+    // Both the primary and the hedged read are cancelled and return their sessions to the pool.
+    while (client.pool.getNumberOfSessionsInUse() > 0) {
+      Thread.sleep(1L);
+    }
+  }
+
+  @Test
+  public void budgetLimitsHedgedReads() {
+    DatabaseClientImpl client =
+        createClient(
+            HedgingOptions.newBuilder()
+                .setBudgetPercent(0d)
+                .setInitialDelay(Duration.ZERO)
+                .build());
+    mockSpanner.setExecuteStreamingSqlExecutionTime(
+        SimulatedExecutionTime.ofMinimumAndRandomTime(50, 0));
+    assertThat(count(client.singleUse(STALE).executeQuery(SELECT1))).isEqualTo(1L);
+    assertThat(client.hedger.getHedgedReadCount()).isEqualTo(0L);
+    assertThat(countExecuteSqlRequests()).isEqualTo(1L);
+  }
+
+  @Test
+  public void hedgingDelayIsPercentileOfLatencies() {
+    HedgingReadContext.Hedger hedger =
+        new HedgingReadContext.Hedger(
+            HedgingOptions.newBuilder()
+                .setLatencyPercentile(95d)
+                .setMinDelay(Duration.ofMillis(10L))
+                .setInitialDelay(Duration.ofMillis(50L))
+                .build(),
+            MoreExecutors.newDirectExecutorService());
+    assertThat(hedger.getDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(50L));
+    for (long latency = 1L; latency <= 100L; latency++) {
+      hedger.recordFirstResponseLatency(TimeUnit.MILLISECONDS.toNanos(latency));
+    }
+    assertThat(hedger.getDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(95L));
+    for (int i = 0; i < 1024; i++) {
+      hedger.recordFirstResponseLatency(TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+    // The minimum delay is used if the percentile is lower.
+    assertThat(hedger.getDelayNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(10L));
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks converting a {@link KeySet} of point keys and ranges to protobuf. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class KeySetBenchmark {
+  @Param({"1", "100", "1000"})
+  public int keys;
+
+  private KeySet keySet;
+
+  @Setup
+  public void setup() {
+    KeySet.Builder builder = KeySet.newBuilder();
+    for (int i = 0; i < keys; i++) {
+      if (i % 10 == 9) {
+        builder.addRange(KeyRange.closedOpen(Key.of(i * 100L, "a"), Key.of(i * 100L, "z")));
+      } else {
+        builder.addKey(Key.of(i * 100L, "name" + i));
+      }
+    }
+    keySet = builder.build();
+  }
+
+  @Benchmark
+  public com.google.spanner.v1.KeySet appendToProto() {
+    com.google.spanner.v1.KeySet.Builder proto = com.google.spanner.v1.KeySet.newBuilder();
+    keySet.appendToProto(proto);
+    return proto.build();
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.ByteArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link com.google.cloud.spanner.KeySetNormalizer}. */
+@RunWith(JUnit4.class)
+public class KeySetNormalizerTest {
+
+  @Test
+  public void all() {
+    KeySet set = KeySet.all().toBuilder().addKey(Key.of("a")).addInt64Keys(1L).build();
+    assertThat(set.normalize()).isEqualTo(KeySet.all());
+  }
+
+  @Test
+  public void sortsAndRemovesDuplicateKeys() {
+    KeySet set =
+        KeySet.newBuilder()
+            .addKey(Key.of("b", 1L))
+            .addKey(Key.of("a", 3L))
+            .addKey(Key.of("b", 1L))
+            .addKey(Key.of("a", 1L))
+            .build();
+    assertThat(set.normalize())
+        .isEqualTo(
+            KeySet.newBuilder()
+                .addKey(Key.of("a", 1L))
+                .addKey(Key.of("a", 3L))
+                .addKey(Key.of("b", 1L))
+                .build());
+  }
+
+  @Test
+  public void collapsesConsecutiveIntegers() {
+    KeySet set =
+        KeySet.newBuilder()
+            .addInt64Keys(7L, 3L, 1L, 2L, 3L)
+            .addKey(Key.of(4L))
+            .addKey(Key.of(10L))
+            .build();
+    assertThat(set.normalize())
+        .isEqualTo(
+            KeySet.newBuilder()
+                .addInt64Keys(7L, 10L)
+                .addRange(KeyRange.closedClosed(Key.of(1L), Key.of(4L)))
+                .build());
+  }
+
+  @Test
+  public void collapsesConsecutiveIntegersInLastPart() {
+    KeySet set =
+        KeySet.newBuilder()
+            .addKey(Key.of("a", 2L))
+            .addKey(Key.of("a", 1L))
+            .addKey(Key.of("b", 3L))
+            .addKey(Key.of("a", 3L))
+            .build();
+    assertThat(set.normalize())
+        .isEqualTo(
+            KeySet.newBuilder()
+                .addKey(Key.of("b", 3L))
+                .addRange(KeyRange.closedClosed(Key.of("a", 1L), Key.of("a", 3L)))
+                .build());
+  }
+
+  @Test
+  public void mergesOverlappingAndAdjacentRanges() {
+    KeySet set =
+        KeySet.newBuilder()
+            .addRange(KeyRange.closedOpen(Key.of("m"), Key.of("p")))
+            .addRange(KeyRange.closedOpen(Key.of("a"), Key.of("d")))
+            .addRange(KeyRange.closedClosed(Key.of("c"), Key.of("f")))
+            .addRange(KeyRange.closedOpen(Key.of("f"), Key.of("h")))
+            .addRange(KeyRange.openOpen(Key.of("p"), Key.of("q")))
+            .build();
+    assertThat(set.normalize())
+        .isEqualTo(
+            KeySet.newBuilder()
+                .addRange(KeyRange.closedOpen(Key.of("a"), Key.of("h")))
+                .addRange(KeyRange.closedOpen(Key.of("m"), Key.of("p")))
+                .addRange(KeyRange.openOpen(Key.of("p"), Key.of("q")))
+                .build());
+  }
+
+  @Test
+  public void removesEmptyRanges() {
+    KeySet set =
+        KeySet.newBuilder()
+            .addRange(KeyRange.closedOpen(Key.of("a"), Key.of("a")))
+            .addRange(KeyRange.openClosed(Key.of("z"), Key.of("b")))
+            .build();
+    assertThat(set.normalize()).isEqualTo(KeySet.newBuilder().build());
+  }
+
+  @Test
+  public void removesKeysCoveredByRanges() {
+    KeySet set =
+        KeySet.newBuilder()
+            .addKey(Key.of("Bob", "2015-06-01"))
+            .addKey(Key.of("Alice", "2015-06-01"))
+            .addKey(Key.of("b"))
+            .addRange(KeyRange.prefix(Key.of("Bob")))
+            .addRange(KeyRange.openClosed(Key.of("b"), Key.of("c")))
+            .build();
+    assertThat(set.normalize())
+        .isEqualTo(
+            KeySet.newBuilder()
+                .addKey(Key.of("Alice", "2015-06-01"))
+                .addKey(Key.of("b"))
+                .addRange(KeyRange.prefix(Key.of("Bob")))
+                .addRange(KeyRange.openClosed(Key.of("b"), Key.of("c")))
+                .build());
+  }
+
+  @Test
+  public void prefixRangesAreOrderedAroundLongerKeys() {
+    // The prefix range of "a" covers all keys that start with "a", including the range.
+    KeySet set =
+        KeySet.newBuilder()
+            .addRange(KeyRange.closedClosed(Key.of("a", 1L), Key.of("a", 5L)))
+            .addRange(KeyRange.prefix(Key.of("a")))
+            .build();
+    assertThat(set.normalize())
+        .isEqualTo(KeySet.newBuilder().addRange(KeyRange.prefix(Key.of("a"))).build());
+  }
+
+  @Test
+  public void keyOrder() {
+    assertThat(KeySetNormalizer.KEY_ORDER.compare(Key.of((Object) null), Key.of(Long.MIN_VALUE)))
+        .isLessThan(0);
+    assertThat(
+            KeySetNormalizer.KEY_ORDER.compare(
+                Key.of(Double.NaN), Key.of(Double.NEGATIVE_INFINITY)))
+        .isLessThan(0);
+    assertThat(KeySetNormalizer.KEY_ORDER.compare(Key.of(-0.0d), Key.of(0.0d))).isEqualTo(0);
+    // U+FFFD sorts before U+1F600 in UTF-8, but after it in UTF-16.
+    assertThat(KeySetNormalizer.KEY_ORDER.compare(Key.of("\uFFFD"), Key.of("\uD83D\uDE00")))
+        .isLessThan(0);
+    assertThat(
+            KeySetNormalizer.KEY_ORDER.compare(
+                Key.of(ByteArray.copyFrom(new byte[] {1})),
+                Key.of(ByteArray.copyFrom(new byte[] {(byte) 0xff}))))
+        .isLessThan(0);
+    assertThat(KeySetNormalizer.KEY_ORDER.compare(Key.of("a"), Key.of("a", 1L))).isLessThan(0);
+  }
+}
@@ -273,6 +273,59 @@ public class KeySetTest {
             .build());
   }
 
+  @Test
+  public void int64Keys() {
+    KeySet set =
+        KeySet.newBuilder().addKey(Key.of(10L)).addInt64Keys(3L, 1L).addInt64Keys(2L).build();
+    assertThat(set.getKeys()).containsExactly(Key.of(10L), Key.of(3L), Key.of(1L), Key.of(2L));
+    assertThat(set.getKeyCount()).isEqualTo(4);
+    assertThat(set.toString()).isEqualTo("{[10],[3],[1],[2]}");
+    assertThat(set.toBuilder().build()).isEqualTo(set);
+    checkProto(
+        set,
+        "keys { values { string_value: '10' } } keys { values { string_value: '3' } }"
+            + " keys { values { string_value: '1' } } keys { values { string_value: '2' } }");
+    new EqualsTester()
+        .addEqualityGroup(
+            set,
+            KeySet.newBuilder().addKey(Key.of(10L)).addInt64Keys(3, 1, 2).build(),
+            KeySet.newBuilder()
+                .addKey(Key.of(10L))
+                .addKey(Key.of(3L))
+                .addKey(Key.of(1L))
+                .addKey(Key.of(2L))
+                .build(),
+            KeySet.newBuilder().addKey(Key.of(10L)).addKey(Key.of(3L)).addInt64Keys(1, 2).build())
+        .addEqualityGroup(
+            KeySet.newBuilder().addInt64Keys(1L).build(),
+            KeySet.newBuilder().addKey(Key.of(1L)).build())
+        .addEqualityGroup(KeySet.newBuilder().addInt64Keys(3L, 1L, 2L, 10L).build())
+        .testEquals();
+    reserializeAndAssert(set);
+  }
+
+  @Test
+  public void split() {
+    KeySet set =
+        KeySet.newBuilder()
+            .addRange(KeyRange.closedOpen(Key.of(100L), Key.of(200L)))
+            .addKey(Key.of(50L))
+            .addInt64Keys(5L, 3L, 4L, 1L, 2L)
+            .build();
+    assertThat(set.split(6)).containsExactly(set);
+    assertThat(set.split(2))
+        .containsExactly(
+            KeySet.newBuilder()
+                .addRange(KeyRange.closedOpen(Key.of(100L), Key.of(200L)))
+                .addKey(Key.of(50L))
+                .addInt64Keys(1L)
+                .build(),
+            KeySet.newBuilder().addInt64Keys(2L, 3L).build(),
+            KeySet.newBuilder().addInt64Keys(4L, 5L).build())
+        .inOrder();
+    assertThat(KeySet.all().toBuilder().addInt64Keys(1L, 2L, 3L).build().split(1)).hasSize(1);
+  }
+
   private static void checkProto(KeySet keySet, String proto) {
     com.google.spanner.v1.KeySet.Builder builder = com.google.spanner.v1.KeySet.newBuilder();
     keySet.appendToProto(builder);
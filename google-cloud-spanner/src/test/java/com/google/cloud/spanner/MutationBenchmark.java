@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.cloud.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks converting mutations to protobuf, which coalesces consecutive writes to the same table
+ * and columns into one {@code Mutation} proto.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+  @Param({"1", "100", "1000"})
+  public int rows;
+
+  private List<Mutation> mutations;
+  private List<Mutation> encodedMutations;
+  private List<Mutation> deletes;
+
+  @Setup
+  public void setup() {
+    Timestamp timestamp = Timestamp.ofTimeSecondsAndNanos(1585649730L, 0);
+    mutations = new ArrayList<>(rows);
+    deletes = new ArrayList<>(rows);
+    Mutation.RowsBuilder builder =
+        Mutation.newRowsBuilder(Mutation.Op.INSERT, "Singers")
+            .addColumn("SingerId", Type.int64())
+            .addColumn("Name", Type.string())
+            .addColumn("Created", Type.timestamp());
+    for (int i = 0; i < rows; i++) {
+      mutations.add(
+          Mutation.newInsertBuilder("Singers")
+              .set("SingerId")
+              .to(i)
+              .set("Name")
+              .to("Singer " + i)
+              .set("Created")
+              .to(timestamp)
+              .build());
+      builder.append(i).append("Singer " + i).append(timestamp);
+      deletes.add(Mutation.delete("Singers", Key.of(i)));
+    }
+    encodedMutations = builder.build();
+  }
+
+  @Benchmark
+  public List<com.google.spanner.v1.Mutation> toProto() {
+    List<com.google.spanner.v1.Mutation> out = new ArrayList<>(1);
+    Mutation.toProto(mutations, out);
+    return out;
+  }
+
+  @Benchmark
+  public List<com.google.spanner.v1.Mutation> toProtoFromRowsBuilder() {
+    List<com.google.spanner.v1.Mutation> out = new ArrayList<>(1);
+    Mutation.toProto(encodedMutations, out);
+    return out;
+  }
+
+  @Benchmark
+  public List<com.google.spanner.v1.Mutation> toProtoDeletes() {
+    List<com.google.spanner.v1.Mutation> out = new ArrayList<>(1);
+    Mutation.toProto(deletes, out);
+    return out;
+  }
+}
@@ -402,6 +402,155 @@ public class MutationTest {
             "insert { table: 'T2', columns: 'C', values { values { string_value: 'V1' } } }"));
   }
 
+  @Test
+  public void rowsBuilder() {
+    List<Mutation> mutations =
+        Mutation.newRowsBuilder(Mutation.Op.INSERT, "T")
+            .addColumn("C1", Type.int64())
+            .addColumn("C2", Type.string())
+            .append(1L)
+            .append("v1")
+            .append(2L)
+            .appendNull()
+            .build();
+    assertThat(mutations).hasSize(2);
+    assertThat(mutations.get(0))
+        .isEqualTo(Mutation.newInsertBuilder("T").set("C1").to(1L).set("C2").to("v1").build());
+    assertThat(mutations.get(1))
+        .isEqualTo(
+            Mutation.newInsertBuilder("T").set("C1").to(2L).set("C2").to((String) null).build());
+    assertThat(mutations.get(1).toString()).isEqualTo("insert(T{C1=2,C2=NULL})");
+  }
+
+  @Test
+  public void rowsBuilderAllTypes() {
+    Mutation m =
+        Mutation.newRowsBuilder(Mutation.Op.INSERT_OR_UPDATE, "T")
+            .addColumn("bool", Type.bool())
+            .addColumn("int", Type.int64())
+            .addColumn("double", Type.float64())
+            .addColumn("string", Type.string())
+            .addColumn("bytes", Type.bytes())
+            .addColumn("timestamp", Type.timestamp())
+            .addColumn("commit", Type.timestamp())
+            .addColumn("date", Type.date())
+            .addColumn("value", Type.int64())
+            .append(true)
+            .append(1L)
+            .append(1.5)
+            .append("x")
+            .append(ByteArray.copyFrom("y"))
+            .append(Timestamp.ofTimeSecondsAndNanos(1, 2))
+            .append(Value.COMMIT_TIMESTAMP)
+            .append(Date.fromYearMonthDay(2020, 1, 2))
+            .append(Value.int64(3L))
+            .build()
+            .get(0);
+    Mutation expected =
+        Mutation.newInsertOrUpdateBuilder("T")
+            .set("bool")
+            .to(true)
+            .set("int")
+            .to(1L)
+            .set("double")
+            .to(1.5)
+            .set("string")
+            .to("x")
+            .set("bytes")
+            .to(ByteArray.copyFrom("y"))
+            .set("timestamp")
+            .to(Timestamp.ofTimeSecondsAndNanos(1, 2))
+            .set("commit")
+            .to(Value.COMMIT_TIMESTAMP)
+            .set("date")
+            .to(Date.fromYearMonthDay(2020, 1, 2))
+            .set("value")
+            .to(3L)
+            .build();
+    assertThat(m).isEqualTo(expected);
+    assertThat(m.hashCode()).isEqualTo(expected.hashCode());
+
+    List<com.google.spanner.v1.Mutation> actualProto = new ArrayList<>();
+    Mutation.toProto(Arrays.asList(m), actualProto);
+    List<com.google.spanner.v1.Mutation> expectedProto = new ArrayList<>();
+    Mutation.toProto(Arrays.asList(expected), expectedProto);
+    assertThat(actualProto).isEqualTo(expectedProto);
+  }
+
+  @Test
+  public void rowsBuilderCoalescing() {
+    List<Mutation> mutations =
+        Mutation.newRowsBuilder(Mutation.Op.REPLACE, "T")
+            .addColumn("C", Type.string())
+            .append("V1")
+            .append("V2")
+            .append("V3")
+            .build();
+
+    List<com.google.spanner.v1.Mutation> proto = new ArrayList<>();
+    Mutation.toProto(mutations, proto);
+
+    assertThat(proto.size()).isEqualTo(1);
+    MatcherAssert.assertThat(
+        proto.get(0),
+        matchesProto(
+            "replace { table: 'T' columns: 'C' values { values { string_value: 'V1' } }"
+                + " values { values { string_value: 'V2' } }"
+                + " values { values { string_value: 'V3' } } }"));
+  }
+
+  @Test
+  public void rowsBuilderDelete() {
+    expectedException.expect(IllegalArgumentException.class);
+    Mutation.newRowsBuilder(Mutation.Op.DELETE, "T");
+  }
+
+  @Test
+  public void rowsBuilderDuplicateColumn() {
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Duplicate column");
+    Mutation.newRowsBuilder(Mutation.Op.INSERT, "T")
+        .addColumn("C1", Type.int64())
+        .addColumn("c1", Type.int64());
+  }
+
+  @Test
+  public void rowsBuilderArrayColumn() {
+    expectedException.expect(IllegalArgumentException.class);
+    Mutation.newRowsBuilder(Mutation.Op.INSERT, "T").addColumn("C1", Type.array(Type.int64()));
+  }
+
+  @Test
+  public void rowsBuilderTypeMismatch() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Column C2 has type STRING");
+    Mutation.newRowsBuilder(Mutation.Op.INSERT, "T")
+        .addColumn("C1", Type.int64())
+        .addColumn("C2", Type.string())
+        .append(1L)
+        .append(2L);
+  }
+
+  @Test
+  public void rowsBuilderAddColumnAfterAppend() {
+    Mutation.RowsBuilder builder =
+        Mutation.newRowsBuilder(Mutation.Op.INSERT, "T").addColumn("C1", Type.int64()).append(1L);
+    expectedException.expect(IllegalStateException.class);
+    builder.addColumn("C2", Type.int64());
+  }
+
+  @Test
+  public void rowsBuilderIncompleteRow() {
+    Mutation.RowsBuilder builder =
+        Mutation.newRowsBuilder(Mutation.Op.INSERT, "T")
+            .addColumn("C1", Type.int64())
+            .addColumn("C2", Type.int64())
+            .append(1L);
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("Incomplete row");
+    builder.build();
+  }
+
   @Test
   public void javaSerialization() throws Exception {
     reserializeAndAssert(appendAllTypes(Mutation.newInsertBuilder("test")).build());
@@ -421,6 +570,14 @@ public class MutationTest {
                 ByteArray.fromBase64("abcd"),
                 Timestamp.ofTimeSecondsAndNanos(1, 2),
                 Date.fromYearMonthDay(2017, 04, 17))));
+    reserializeAndAssert(
+        Mutation.newRowsBuilder(Mutation.Op.INSERT, "test")
+            .addColumn("C1", Type.int64())
+            .addColumn("C2", Type.timestamp())
+            .append(1L)
+            .append(Timestamp.ofTimeSecondsAndNanos(1, 2))
+            .build()
+            .get(0));
     reserializeAndAssert(Mutation.delete("test", KeySet.all()));
     reserializeAndAssert(
         Mutation.delete(
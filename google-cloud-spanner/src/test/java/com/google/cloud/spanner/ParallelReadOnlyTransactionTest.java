@@ -0,0 +1,452 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.gax.grpc.testing.LocalChannelProvider;
+import com.google.cloud.NoCredentials;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.MockSpannerServiceImpl.SimulatedExecutionTime;
+import com.google.cloud.spanner.MockSpannerServiceImpl.StatementResult;
+import com.google.common.base.Function;
+import com.google.common.base.Stopwatch;
+import com.google.protobuf.AbstractMessage;
+import com.google.protobuf.ListValue;
+import com.google.spanner.v1.BeginTransactionRequest;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.ReadRequest;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import com.google.spanner.v1.TypeCode;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/** Unit tests for {@link ParallelReadOnlyTransaction}. */
+@RunWith(JUnit4.class)
+public class ParallelReadOnlyTransactionTest {
+  private static final Statement SELECT1 = Statement.of("SELECT 1 AS COL1");
+  private static final com.google.spanner.v1.ResultSet SELECT1_RESULTSET =
+      com.google.spanner.v1.ResultSet.newBuilder()
+          .addRows(
+              ListValue.newBuilder()
+                  .addValues(com.google.protobuf.Value.newBuilder().setStringValue("1").build())
+                  .build())
+          .setMetadata(
+              ResultSetMetadata.newBuilder()
+                  .setRowType(
+                      StructType.newBuilder()
+                          .addFields(
+                              Field.newBuilder()
+                                  .setName("COL1")
+                                  .setType(
+                                      com.google.spanner.v1.Type.newBuilder()
+                                          .setCode(TypeCode.INT64)
+                                          .build())
+                                  .build())
+                          .build())
+                  .build())
+          .build();
+
+  private static MockSpannerServiceImpl mockSpanner;
+  private static Server server;
+  private static LocalChannelProvider channelProvider;
+  private Spanner spanner;
+  private DatabaseClientImpl client;
+
+  @BeforeClass
+  public static void startStaticServer() throws IOException {
+    mockSpanner = new MockSpannerServiceImpl();
+    mockSpanner.setAbortProbability(0.0D);
+    mockSpanner.putStatementResult(StatementResult.query(SELECT1, SELECT1_RESULTSET));
+    mockSpanner.putStatementResult(
+        StatementResult.read(
+            "FOO", KeySet.singleKey(Key.of()), Arrays.asList("COL1"), SELECT1_RESULTSET));
+    String uniqueName = InProcessServerBuilder.generateName();
+    server =
+        InProcessServerBuilder.forName(uniqueName)
+            .directExecutor()
+            .addService(mockSpanner)
+            .build()
+            .start();
+    channelProvider = LocalChannelProvider.create(uniqueName);
+  }
+
+  @AfterClass
+  public static void stopServer() throws InterruptedException {
+    server.shutdown();
+    server.awaitTermination();
+  }
+
+  @Before
+  public void setUp() {
+    spanner =
+        SpannerOptions.newBuilder()
+            .setProjectId("my-project")
+            .setChannelProvider(channelProvider)
+            .setCredentials(NoCredentials.getInstance())
+            .build()
+            .getService();
+    client =
+        (DatabaseClientImpl)
+            spanner.getDatabaseClient(DatabaseId.of("my-project", "my-instance", "my-database"));
+  }
+
+  @After
+  public void tearDown() {
+    spanner.close();
+    mockSpanner.removeAllExecutionTimes();
+    mockSpanner.reset();
+  }
+
+  private static <T extends AbstractMessage> List<T> getRequests(Class<T> type) {
+    List<T> requests = new ArrayList<>();
+    for (AbstractMessage request : mockSpanner.getRequests()) {
+      if (type.isInstance(request)) {
+        requests.add(type.cast(request));
+      }
+    }
+    return requests;
+  }
+
+  /**
+   * Returns the read-only BeginTransaction requests. The pool also prepares read/write sessions.
+   */
+  private static List<BeginTransactionRequest> getReadOnlyBeginTransactionRequests() {
+    List<BeginTransactionRequest> requests = new ArrayList<>();
+    for (BeginTransactionRequest request : getRequests(BeginTransactionRequest.class)) {
+      if (request.getOptions().hasReadOnly()) {
+        requests.add(request);
+      }
+    }
+    return requests;
+  }
+
+  @Test
+  public void queriesUseReadTimestampOfTransaction() {
+    Timestamp readTimestamp;
+    try (ReadOnlyTransaction txn = client.parallelReadOnlyTransaction(TimestampBound.strong())) {
+      for (int i = 0; i < 3; i++) {
+        try (ResultSet rs = txn.executeQuery(SELECT1)) {
+          assertThat(rs.next()).isTrue();
+          assertThat(rs.getLong(0)).isEqualTo(1L);
+        }
+      }
+      readTimestamp = txn.getReadTimestamp();
+    }
+    assertThat(getReadOnlyBeginTransactionRequests()).hasSize(1);
+    List<ExecuteSqlRequest> requests = getRequests(ExecuteSqlRequest.class);
+    assertThat(requests).hasSize(3);
+    for (ExecuteSqlRequest request : requests) {
+      assertThat(request.getTransaction().getSingleUse().getReadOnly().getReadTimestamp())
+          .isEqualTo(readTimestamp.toProto());
+    }
+  }
+
+  @Test
+  public void readTimestampIsBegunWithoutHoldingLock() throws Exception {
+    mockSpanner.setBeginTransactionExecutionTime(
+        SimulatedExecutionTime.ofMinimumAndRandomTime(1000, 0));
+    final ReadOnlyTransaction txn = client.parallelReadOnlyTransaction(TimestampBound.strong());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<Long>> results = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        results.add(
+            executor.submit(
+                new Callable<Long>() {
+                  @Override
+                  public Long call() {
+                    try (ResultSet rs = txn.executeQuery(SELECT1)) {
+                      assertThat(rs.next()).isTrue();
+                      return rs.getLong(0);
+                    }
+                  }
+                }));
+      }
+      while (getReadOnlyBeginTransactionRequests().isEmpty()) {
+        Thread.sleep(1L);
+      }
+      // The read-only transaction is being begun, which must not block other calls.
+      Stopwatch watch = Stopwatch.createStarted();
+      try {
+        txn.getReadTimestamp();
+        fail("missing expected exception");
+      } catch (IllegalStateException e) {
+        assertThat(watch.elapsed(TimeUnit.MILLISECONDS)).isLessThan(500L);
+      }
+      for (Future<Long> result : results) {
+        assertThat(result.get(30L, TimeUnit.SECONDS)).isEqualTo(1L);
+      }
+      assertThat(getReadOnlyBeginTransactionRequests()).hasSize(1);
+      assertThat(txn.getReadTimestamp()).isNotNull();
+    } finally {
+      executor.shutdown();
+      txn.close();
+    }
+  }
+
+  @Test
+  public void queriesUseDifferentSessions() {
+    List<ResultSet> resultSets = new ArrayList<>();
+    try (ReadOnlyTransaction txn =
+        client.parallelReadOnlyTransaction(
+            TimestampBound.ofExactStaleness(10L, TimeUnit.SECONDS))) {
+      for (int i = 0; i < 3; i++) {
+        ResultSet rs = txn.executeQuery(SELECT1);
+        assertThat(rs.next()).isTrue();
+        resultSets.add(rs);
+      }
+      assertThat(client.pool.getNumberOfSessionsInUse()).isEqualTo(3);
+      for (ResultSet rs : resultSets) {
+        rs.close();
+      }
+    }
+    assertThat(client.pool.getNumberOfSessionsInUse()).isEqualTo(0);
+  }
+
+  @Test
+  public void readTimestampBoundDoesNotBeginTransaction() {
+    Timestamp timestamp = Timestamp.ofTimeSecondsAndNanos(1000L, 0);
+    try (ReadOnlyTransaction txn =
+        client.parallelReadOnlyTransaction(TimestampBound.ofReadTimestamp(timestamp))) {
+      assertThat(txn.getReadTimestamp()).isEqualTo(timestamp);
+      try (ResultSet rs = txn.executeQuery(SELECT1)) {
+        assertThat(rs.next()).isTrue();
+      }
+    }
+    assertThat(getReadOnlyBeginTransactionRequests()).isEmpty();
+  }
+
+  @Test
+  public void largeReadIsSplit() {
+    long[] ids = new long[25];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = ids.length - i;
+    }
+    KeySet keys = KeySet.newBuilder().addInt64Keys(ids).build();
+    int rows = 0;
+    Timestamp readTimestamp;
+    try (ReadOnlyTransaction txn =
+        new ParallelReadOnlyTransaction(client, TimestampBound.strong(), 10)) {
+      try (ResultSet rs = txn.read("FOO", keys, Arrays.asList("COL1"))) {
+        while (rs.next()) {
+          assertThat(rs.getLong(0)).isEqualTo(1L);
+          rows++;
+        }
+      }
+      readTimestamp = txn.getReadTimestamp();
+    }
+    // The mock server returns one row for each read.
+    assertThat(rows).isEqualTo(3);
+    List<ReadRequest> requests = getRequests(ReadRequest.class);
+    assertThat(requests).hasSize(3);
+    List<Integer> sizes = new ArrayList<>();
+    for (ReadRequest request : requests) {
+      sizes.add(request.getKeySet().getKeysCount());
+      assertThat(request.getTransaction().getSingleUse().getReadOnly().getReadTimestamp())
+          .isEqualTo(readTimestamp.toProto());
+    }
+    assertThat(sizes).containsExactly(10, 10, 5);
+    assertThat(client.pool.getNumberOfSessionsInUse()).isEqualTo(0);
+  }
+
+  @Test
+  public void readWithLimitIsNotSplit() {
+    KeySet keys = KeySet.newBuilder().addInt64Keys(1L, 2L, 3L).build();
+    try (ReadOnlyTransaction txn =
+        new ParallelReadOnlyTransaction(client, TimestampBound.strong(), 2)) {
+      try (ResultSet rs = txn.read("FOO", keys, Arrays.asList("COL1"), Options.limit(10L))) {
+        while (rs.next()) {}
+      }
+    }
+    assertThat(getRequests(ReadRequest.class)).hasSize(1);
+  }
+
+  @Test
+  public void closeWaitsForRunningFirstNext() throws Exception {
+    final CountDownLatch nextStarted = new CountDownLatch(1);
+    final CountDownLatch finishNext = new CountDownLatch(1);
+    final AtomicBoolean inNext = new AtomicBoolean();
+    final AtomicBoolean closedWhileInNext = new AtomicBoolean();
+    final List<ResultSet> resultSets = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      final ResultSet resultSet = mock(ResultSet.class);
+      when(resultSet.next())
+          .thenAnswer(
+              new Answer<Boolean>() {
+                @Override
+                public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                  inNext.set(true);
+                  nextStarted.countDown();
+                  finishNext.await();
+                  inNext.set(false);
+                  return true;
+                }
+              });
+      doAnswer(
+              new Answer<Void>() {
+                @Override
+                public Void answer(InvocationOnMock invocation) {
+                  if (inNext.get()) {
+                    closedWhileInNext.set(true);
+                  }
+                  return null;
+                }
+              })
+          .when(resultSet)
+          .close();
+      resultSets.add(resultSet);
+    }
+    final AtomicInteger reads = new AtomicInteger();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final ResultSet resultSet =
+          ParallelReadOnlyTransaction.SplitReadResultSet.create(
+              executor,
+              Arrays.asList(KeySet.singleKey(Key.of(1L)), KeySet.singleKey(Key.of(2L))),
+              new Function<KeySet, ResultSet>() {
+                @Override
+                public ResultSet apply(KeySet input) {
+                  return resultSets.get(reads.getAndIncrement());
+                }
+              },
+              ParallelReadOnlyTransaction.MAX_PARALLEL_SPLIT_READS);
+      nextStarted.await();
+      Thread closer =
+          new Thread(
+              new Runnable() {
+                @Override
+                public void run() {
+                  resultSet.close();
+                }
+              });
+      closer.start();
+      closer.join(50L);
+      // The first read is still in its first next() call, so close() must wait for it.
+      assertThat(closer.isAlive()).isTrue();
+      finishNext.countDown();
+      closer.join();
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(closedWhileInNext.get()).isFalse();
+    // The second read was queued behind the first and has been cancelled before it started.
+    assertThat(reads.get()).isEqualTo(1);
+    verify(resultSets.get(0)).next();
+    verify(resultSets.get(0)).close();
+    verify(resultSets.get(1), never()).next();
+  }
+
+  @Test
+  public void concurrentSplitReadsWithSmallPool() throws Exception {
+    final int numReaders = 4;
+    Spanner smallPoolSpanner =
+        SpannerOptions.newBuilder()
+            .setProjectId("my-project")
+            .setChannelProvider(channelProvider)
+            .setCredentials(NoCredentials.getInstance())
+            .setSessionPoolOption(
+                SessionPoolOptions.newBuilder().setMinSessions(0).setMaxSessions(2).build())
+            .build()
+            .getService();
+    ExecutorService readers = Executors.newFixedThreadPool(numReaders);
+    try {
+      final DatabaseClientImpl smallPoolClient =
+          (DatabaseClientImpl)
+              smallPoolSpanner.getDatabaseClient(
+                  DatabaseId.of("my-project", "my-instance", "my-database"));
+      final KeySet keys = KeySet.newBuilder().addInt64Keys(1L, 2L, 3L, 4L).build();
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int i = 0; i < numReaders; i++) {
+        results.add(
+            readers.submit(
+                new Callable<Integer>() {
+                  @Override
+                  public Integer call() throws Exception {
+                    start.await();
+                    int rows = 0;
+                    try (ReadOnlyTransaction txn =
+                            new ParallelReadOnlyTransaction(
+                                smallPoolClient, TimestampBound.strong(), 1);
+                        ResultSet rs = txn.read("FOO", keys, Arrays.asList("COL1"))) {
+                      while (rs.next()) {
+                        rows++;
+                      }
+                    }
+                    return rows;
+                  }
+                }));
+      }
+      start.countDown();
+      // Each reader splits its read into more reads than there are sessions in the pool.
+      for (Future<Integer> result : results) {
+        assertThat(result.get(30L, TimeUnit.SECONDS)).isEqualTo(4);
+      }
+      assertThat(smallPoolClient.pool.getNumberOfSessionsInUse()).isEqualTo(0);
+    } finally {
+      readers.shutdownNow();
+      smallPoolSpanner.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void boundedStalenessIsNotSupported() {
+    client.parallelReadOnlyTransaction(TimestampBound.ofMaxStaleness(10L, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void closedTransactionRejectsQueries() {
+    ReadOnlyTransaction txn = client.parallelReadOnlyTransaction(TimestampBound.strong());
+    txn.close();
+    try {
+      txn.executeQuery(SELECT1);
+      fail("missing expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).contains("closed");
+    }
+  }
+}
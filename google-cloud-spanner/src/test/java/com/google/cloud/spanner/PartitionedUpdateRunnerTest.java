@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFuture;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
+import io.grpc.Deadline;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+@RunWith(JUnit4.class)
+public class PartitionedUpdateRunnerTest {
+  private PartitionedUpdateRunner runner;
+  private DatabaseClient client;
+  private ScheduledExecutorService executor;
+
+  @Before
+  public void setUp() {
+    runner = new PartitionedUpdateRunner();
+    client = mock(DatabaseClient.class);
+    executor = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @After
+  public void tearDown() {
+    runner.close();
+    executor.shutdown();
+  }
+
+  @Test
+  public void limitsConcurrency() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    when(client.executePartitionedUpdate(any(Statement.class)))
+        .thenAnswer(
+            new Answer<Long>() {
+              @Override
+              public Long answer(InvocationOnMock invocation) throws Throwable {
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                  maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                Thread.sleep(10L);
+                running.decrementAndGet();
+                return 1L;
+              }
+            });
+    List<Statement> statements = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      statements.add(Statement.of("DELETE FROM FOO WHERE ID=" + i));
+    }
+    List<ApiFuture<Long>> results = runner.executeAsync(client, statements, 3);
+    assertThat(results).hasSize(20);
+    for (ApiFuture<Long> result : results) {
+      assertThat(result.get(10L, TimeUnit.SECONDS)).isEqualTo(1L);
+    }
+    assertThat(maxRunning.get()).isAtMost(3);
+    assertThat(maxRunning.get()).isGreaterThan(1);
+  }
+
+  @Test
+  public void failureDoesNotStopOtherStatements() throws Exception {
+    Statement failing = Statement.of("DELETE FROM FOO WHERE FAIL");
+    Statement succeeding = Statement.of("DELETE FROM FOO WHERE TRUE");
+    when(client.executePartitionedUpdate(failing))
+        .thenThrow(
+            SpannerExceptionFactory.newSpannerException(ErrorCode.INVALID_ARGUMENT, "invalid"));
+    when(client.executePartitionedUpdate(succeeding)).thenReturn(100L);
+    List<ApiFuture<Long>> results =
+        runner.executeAsync(client, Arrays.asList(failing, succeeding), 1);
+    try {
+      results.get(0).get();
+      fail("missing expected exception");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause()).isInstanceOf(SpannerException.class);
+      assertThat(((SpannerException) e.getCause()).getErrorCode())
+          .isEqualTo(ErrorCode.INVALID_ARGUMENT);
+    }
+    assertThat(results.get(1).get()).isEqualTo(100L);
+  }
+
+  @Test
+  public void cancelledStatementIsNotStarted() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Statement first = Statement.of("DELETE FROM FOO WHERE ID=1");
+    Statement second = Statement.of("DELETE FROM FOO WHERE ID=2");
+    when(client.executePartitionedUpdate(first))
+        .thenAnswer(
+            new Answer<Long>() {
+              @Override
+              public Long answer(InvocationOnMock invocation) throws Throwable {
+                started.countDown();
+                release.await();
+                return 1L;
+              }
+            });
+    List<ApiFuture<Long>> results = runner.executeAsync(client, Arrays.asList(first, second), 1);
+    assertThat(started.await(10L, TimeUnit.SECONDS)).isTrue();
+    assertThat(results.get(1).cancel(true)).isTrue();
+    release.countDown();
+    assertThat(results.get(0).get()).isEqualTo(1L);
+    verify(client, never()).executePartitionedUpdate(second);
+  }
+
+  @Test
+  public void statementsRunInContextOfCaller() throws Exception {
+    final Context.Key<String> key = Context.key("caller");
+    final List<String> values = Collections.synchronizedList(new ArrayList<String>());
+    final List<Deadline> deadlines = Collections.synchronizedList(new ArrayList<Deadline>());
+    when(client.executePartitionedUpdate(any(Statement.class)))
+        .thenAnswer(
+            new Answer<Long>() {
+              @Override
+              public Long answer(InvocationOnMock invocation) throws Throwable {
+                values.add(key.get());
+                deadlines.add(Context.current().getDeadline());
+                return 1L;
+              }
+            });
+    final Deadline deadline = Deadline.after(1L, TimeUnit.MINUTES);
+    CancellableContext context =
+        Context.current().withValue(key, "value").withDeadline(deadline, executor);
+    List<ApiFuture<Long>> results;
+    Context previous = context.attach();
+    try {
+      results =
+          runner.executeAsync(
+              client,
+              Arrays.asList(
+                  Statement.of("DELETE FROM FOO WHERE ID=1"),
+                  Statement.of("DELETE FROM FOO WHERE ID=2")),
+              2);
+    } finally {
+      context.detach(previous);
+    }
+    for (ApiFuture<Long> result : results) {
+      assertThat(result.get(10L, TimeUnit.SECONDS)).isEqualTo(1L);
+    }
+    context.cancel(null);
+    assertThat(values).containsExactly("value", "value");
+    assertThat(deadlines).containsExactly(deadline, deadline);
+  }
+
+  @Test
+  public void closedRunnerRejectsStatements() {
+    runner.close();
+    try {
+      runner.executeAsync(client, Arrays.asList(Statement.of("DELETE FROM FOO WHERE TRUE")), 1);
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.FAILED_PRECONDITION);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zeroConcurrency() {
+    runner.executeAsync(client, Arrays.<Statement>asList(), 0);
+  }
+}
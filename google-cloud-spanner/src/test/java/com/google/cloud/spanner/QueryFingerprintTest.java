@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class QueryFingerprintTest {
+
+  @Test
+  public void replacesLiterals() {
+    assertThat(QueryFingerprint.of("SELECT * FROM Singers WHERE SingerId=1"))
+        .isEqualTo("SELECT * FROM Singers WHERE SingerId=?");
+    assertThat(QueryFingerprint.of("SELECT * FROM Singers WHERE Name='Alice' AND Score>1.5e-3"))
+        .isEqualTo("SELECT * FROM Singers WHERE Name=? AND Score>?");
+    assertThat(QueryFingerprint.of("SELECT .5, 0x1F, \"it\\\"s\", '''multi\nline'''"))
+        .isEqualTo("SELECT ?");
+    assertThat(QueryFingerprint.of("SELECT b'bytes', r'raw\\', RB\"raw bytes\""))
+        .isEqualTo("SELECT ?");
+  }
+
+  @Test
+  public void sameFingerprintForDifferentLiterals() {
+    assertThat(QueryFingerprint.of("SELECT Name FROM Singers WHERE SingerId IN (1, 2, 3)"))
+        .isEqualTo(QueryFingerprint.of("SELECT Name FROM Singers WHERE SingerId IN (4)"));
+    assertThat(QueryFingerprint.of("SELECT Name FROM Singers WHERE SingerId IN (1, 2, 3)"))
+        .isEqualTo("SELECT Name FROM Singers WHERE SingerId IN (?)");
+  }
+
+  @Test
+  public void collapsesWhitespaceAndRemovesComments() {
+    assertThat(
+            QueryFingerprint.of(
+                "  SELECT *\n\tFROM Singers -- all singers\n# hash comment\n"
+                    + "WHERE /* the id */ SingerId = 1  "))
+        .isEqualTo("SELECT * FROM Singers WHERE SingerId = ?");
+  }
+
+  @Test
+  public void keepsParametersAndIdentifiers() {
+    assertThat(QueryFingerprint.of("SELECT t1.Col2, `Table 3`.x FROM T1 WHERE Id=@p1 LIMIT 10"))
+        .isEqualTo("SELECT t1.Col2, `Table 3`.x FROM T1 WHERE Id=@p1 LIMIT ?");
+    assertThat(QueryFingerprint.of("SELECT Col_1 FROM Table2"))
+        .isEqualTo("SELECT Col_1 FROM Table2");
+  }
+}
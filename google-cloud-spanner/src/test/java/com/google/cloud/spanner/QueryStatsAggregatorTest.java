@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.AbstractResultSet.CloseableIterator;
+import com.google.protobuf.ListValue;
+import com.google.protobuf.Value;
+import com.google.spanner.v1.PartialResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.StructType;
+import com.google.spanner.v1.StructType.Field;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class QueryStatsAggregatorTest {
+  private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1L);
+
+  private static QueryStatsAggregator createAggregator(int maxFingerprints) {
+    return new QueryStatsAggregator(
+        QueryStatsOptions.newBuilder().setMaxFingerprints(maxFingerprints).build());
+  }
+
+  @Test
+  public void aggregatesPerFingerprint() {
+    QueryStatsAggregator aggregator = createAggregator(100);
+    aggregator.record("SELECT * FROM FOO WHERE ID=1", 1L, 100L, 1L * MILLIS, 2L * MILLIS);
+    aggregator.record("SELECT * FROM FOO WHERE ID=2", 1L, 100L, 3L * MILLIS, 4L * MILLIS);
+    aggregator.record("SELECT * FROM BAR", 10L, 1000L, 40L * MILLIS, 100L * MILLIS);
+
+    List<QueryStats> stats = aggregator.getTopQueryStats(10);
+    assertThat(stats).hasSize(2);
+    assertThat(stats.get(0).getFingerprint()).isEqualTo("SELECT * FROM BAR");
+    assertThat(stats.get(1).getFingerprint()).isEqualTo("SELECT * FROM FOO WHERE ID=?");
+    assertThat(stats.get(1).getExecutionCount()).isEqualTo(2L);
+    assertThat(stats.get(1).getRowCount()).isEqualTo(2L);
+    assertThat(stats.get(1).getBytesReceived()).isEqualTo(200L);
+    assertThat(stats.get(1).getTotalLatencyMillis()).isWithin(0.001d).of(6d);
+    assertThat(stats.get(1).getLatencyPercentileMillis(50d)).isEqualTo(2d);
+    assertThat(stats.get(1).getLatencyPercentileMillis(100d)).isEqualTo(4d);
+    assertThat(stats.get(1).getTimeToFirstRowPercentileMillis(50d)).isEqualTo(1d);
+
+    assertThat(aggregator.getTopQueryStats(1)).hasSize(1);
+    assertThat(aggregator.getTopQueryStats(1).get(0).getFingerprint())
+        .isEqualTo("SELECT * FROM BAR");
+  }
+
+  @Test
+  public void limitsNumberOfFingerprints() {
+    QueryStatsAggregator aggregator = createAggregator(2);
+    aggregator.record("SELECT 1", 1L, 10L, MILLIS, MILLIS);
+    aggregator.record("SELECT * FROM FOO", 1L, 10L, MILLIS, MILLIS);
+    aggregator.record("SELECT * FROM BAR", 1L, 10L, MILLIS, MILLIS);
+    aggregator.record("SELECT * FROM BAZ", 1L, 10L, MILLIS, MILLIS);
+
+    List<QueryStats> stats = aggregator.getTopQueryStats(10);
+    assertThat(stats).hasSize(3);
+    for (QueryStats queryStats : stats) {
+      if (queryStats.getFingerprint().equals(QueryStatsAggregator.OTHER_FINGERPRINT)) {
+        assertThat(queryStats.getExecutionCount()).isEqualTo(2L);
+      } else {
+        assertThat(queryStats.getExecutionCount()).isEqualTo(1L);
+      }
+    }
+  }
+
+  @Test
+  public void latencyAboveLastBucketReturnsMax() {
+    QueryStatsAggregator aggregator = createAggregator(10);
+    aggregator.record("SELECT 1", 0L, 0L, -1L, 200_000L * MILLIS);
+    QueryStats stats = aggregator.getTopQueryStats(1).get(0);
+    assertThat(stats.getLatencyPercentileMillis(99d)).isEqualTo(200_000d);
+    // The query did not return any rows.
+    assertThat(stats.getTimeToFirstRowPercentileMillis(99d)).isEqualTo(0d);
+  }
+
+  @Test
+  public void recordsResultStream() {
+    QueryStatsAggregator aggregator = createAggregator(10);
+    List<PartialResultSet> results =
+        Arrays.asList(
+            PartialResultSet.newBuilder()
+                .setMetadata(
+                    ResultSetMetadata.newBuilder()
+                        .setRowType(
+                            StructType.newBuilder()
+                                .addFields(Field.newBuilder().setName("A"))
+                                .addFields(Field.newBuilder().setName("B"))))
+                .addValues(Value.newBuilder().setStringValue("1"))
+                .addValues(Value.newBuilder().setStringValue("a"))
+                .addValues(Value.newBuilder().setStringValue("2"))
+                .addValues(Value.newBuilder().setStringValue("b"))
+                .setChunkedValue(true)
+                .build(),
+            PartialResultSet.newBuilder()
+                .addValues(Value.newBuilder().setStringValue("c"))
+                .addValues(Value.newBuilder().setStringValue("3"))
+                .addValues(Value.newBuilder().setListValue(ListValue.getDefaultInstance()))
+                .build());
+    long size = results.get(0).getSerializedSize() + results.get(1).getSerializedSize();
+    CloseableIterator<PartialResultSet> stream =
+        aggregator.wrap("SELECT A, B FROM FOO", new ListIterator(results.iterator()));
+    while (stream.hasNext()) {
+      stream.next();
+    }
+    // Closing the stream after it has ended does not record it again.
+    stream.close(null);
+
+    QueryStats stats = aggregator.getTopQueryStats(1).get(0);
+    assertThat(stats.getFingerprint()).isEqualTo("SELECT A, B FROM FOO");
+    assertThat(stats.getExecutionCount()).isEqualTo(1L);
+    assertThat(stats.getRowCount()).isEqualTo(3L);
+    assertThat(stats.getBytesReceived()).isEqualTo(size);
+  }
+
+  @Test
+  public void streamThatIsNotConsumedIsNotRecorded() {
+    QueryStatsAggregator aggregator = createAggregator(10);
+    aggregator
+        .wrap("SELECT 1", new ListIterator(Arrays.<PartialResultSet>asList().iterator()))
+        .close(null);
+    assertThat(aggregator.getTopQueryStats(10)).isEmpty();
+  }
+
+  private static final class ListIterator implements CloseableIterator<PartialResultSet> {
+    private final Iterator<PartialResultSet> delegate;
+
+    private ListIterator(Iterator<PartialResultSet> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return delegate.hasNext();
+    }
+
+    @Override
+    public PartialResultSet next() {
+      return delegate.next();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close(@Nullable String message) {}
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.cloud.spanner.AbstractResultSet.CloseableIterator;
+import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.protobuf.ByteString;
+import com.google.spanner.v1.PartialResultSet;
+import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.Transaction;
+import io.opencensus.trace.BlankSpan;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks reading all rows of a streamed result set through {@link
+ * AbstractResultSet.GrpcStreamIterator} and {@link AbstractResultSet.ResumableStreamIterator}. Each
+ * operation reads {@link #ROWS_PER_CHUNK} rows per chunk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class ResultStreamBenchmark {
+  static final int ROWS_PER_CHUNK = 100;
+  private static final Type TYPE =
+      Type.struct(
+          Type.StructField.of("id", Type.int64()),
+          Type.StructField.of("name", Type.string()),
+          Type.StructField.of("score", Type.float64()));
+
+  @Param({"1", "10", "100"})
+  public int chunks;
+
+  private List<PartialResultSet> results;
+
+  private static final AbstractResultSet.Listener NO_OP_LISTENER =
+      new AbstractResultSet.Listener() {
+        @Override
+        public void onTransactionMetadata(Transaction transaction) {}
+
+        @Override
+        public void onError(SpannerException e) {}
+
+        @Override
+        public void onDone() {}
+      };
+
+  private static final SpannerRpc.StreamingCall NO_OP_CALL =
+      new SpannerRpc.StreamingCall() {
+        @Override
+        public void cancel(@Nullable String message) {}
+
+        @Override
+        public void request(int numMessages) {}
+      };
+
+  @Setup
+  public void setup() {
+    results = new ArrayList<>(chunks);
+    long id = 0L;
+    for (int c = 0; c < chunks; c++) {
+      PartialResultSet.Builder builder = PartialResultSet.newBuilder();
+      if (c == 0) {
+        builder.setMetadata(
+            ResultSetMetadata.newBuilder().setRowType(TYPE.toProto().getStructType()));
+      }
+      for (int r = 0; r < ROWS_PER_CHUNK; r++, id++) {
+        builder
+            .addValues(Value.int64(id).toProto())
+            .addValues(Value.string("name" + id).toProto())
+            .addValues(Value.float64(id / 3d).toProto());
+      }
+      builder.setResumeToken(ByteString.copyFromUtf8(Integer.toString(c)));
+      results.add(builder.build());
+    }
+  }
+
+  private static void consume(ResultSet resultSet, Blackhole blackhole) {
+    while (resultSet.next()) {
+      blackhole.consume(resultSet.getLong(0));
+      blackhole.consume(resultSet.getString(1));
+      blackhole.consume(resultSet.getDouble(2));
+    }
+    resultSet.close();
+  }
+
+  @Benchmark
+  public void grpcStreamIterator(Blackhole blackhole) {
+    AbstractResultSet.GrpcStreamIterator stream =
+        new AbstractResultSet.GrpcStreamIterator(results.size());
+    stream.setCall(NO_OP_CALL);
+    SpannerRpc.ResultStreamConsumer consumer = stream.consumer();
+    for (PartialResultSet result : results) {
+      consumer.onPartialResultSet(result);
+    }
+    consumer.onCompleted();
+    consume(new AbstractResultSet.GrpcResultSet(stream, NO_OP_LISTENER), blackhole);
+  }
+
+  @Benchmark
+  public void resumableStreamIterator(Blackhole blackhole) {
+    AbstractResultSet.ResumableStreamIterator stream =
+        new AbstractResultSet.ResumableStreamIterator(
+            Integer.MAX_VALUE, "ResultStreamBenchmark", BlankSpan.INSTANCE) {
+          @Override
+          CloseableIterator<PartialResultSet> startStream(@Nullable ByteString resumeToken) {
+            final Iterator<PartialResultSet> iterator = results.iterator();
+            return new CloseableIterator<PartialResultSet>() {
+              @Override
+              public boolean hasNext() {
+                return iterator.hasNext();
+              }
+
+              @Override
+              public PartialResultSet next() {
+                return iterator.next();
+              }
+
+              @Override
+              public void remove() {
+                throw new UnsupportedOperationException();
+              }
+
+              @Override
+              public void close(@Nullable String message) {}
+            };
+          }
+        };
+    consume(new AbstractResultSet.GrpcResultSet(stream, NO_OP_LISTENER), blackhole);
+  }
+}
@@ -18,6 +18,7 @@ package com.google.cloud.spanner;
 
 import static com.google.cloud.spanner.SpannerMatchers.isSpannerException;
 import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -180,6 +181,45 @@ public class ResumableStreamIteratorTest {
     assertThat(consume(resumableStreamIterator)).containsExactly("a", "b", "c", "d").inOrder();
   }
 
+  @Test
+  public void restartDeniedByRetryBudget() {
+    RetryBudget budget =
+        new RetryBudget(RetryBudgetOptions.newBuilder().setMaxTokens(1).setRetryRatio(0d).build());
+    resumableStreamIterator =
+        new AbstractResultSet.ResumableStreamIterator(Integer.MAX_VALUE, "", null, budget) {
+          @Override
+          AbstractResultSet.CloseableIterator<PartialResultSet> startStream(
+              @Nullable ByteString resumeToken) {
+            return starter.startStream(resumeToken);
+          }
+        };
+    ResultSetStream s1 = Mockito.mock(ResultSetStream.class);
+    Mockito.when(starter.startStream(null)).thenReturn(new ResultSetIterator(s1));
+    Mockito.when(s1.next())
+        .thenReturn(resultSet(ByteString.copyFromUtf8("r1"), "a"))
+        .thenThrow(new RetryableException(ErrorCode.UNAVAILABLE, "failed by test"));
+
+    ResultSetStream s2 = Mockito.mock(ResultSetStream.class);
+    Mockito.when(starter.startStream(ByteString.copyFromUtf8("r1")))
+        .thenReturn(new ResultSetIterator(s2));
+    Mockito.when(s2.next())
+        .thenReturn(resultSet(ByteString.copyFromUtf8("r2"), "b"))
+        .thenThrow(new RetryableException(ErrorCode.UNAVAILABLE, "failed by test"));
+
+    List<String> results = new ArrayList<>();
+    try {
+      while (resumableStreamIterator.hasNext()) {
+        results.add(resumableStreamIterator.next().getValues(0).getStringValue());
+      }
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.UNAVAILABLE);
+    }
+    assertThat(results).containsExactly("a", "b").inOrder();
+    assertThat(budget.getRetriesAttempted()).isEqualTo(1L);
+    assertThat(budget.getRetriesDenied()).isEqualTo(1L);
+  }
+
   @Test
   public void restartWithHoldBack() {
     ResultSetStream s1 = Mockito.mock(ResultSetStream.class);
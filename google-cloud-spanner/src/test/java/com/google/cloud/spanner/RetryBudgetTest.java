@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RetryBudget}. */
+@RunWith(JUnit4.class)
+public class RetryBudgetTest {
+
+  @Test
+  public void defaultOptions() {
+    RetryBudgetOptions options = RetryBudgetOptions.newBuilder().build();
+    assertThat(options.getMaxTokens()).isEqualTo(100);
+    assertThat(options.getRetryRatio()).isEqualTo(0.1d);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void zeroMaxTokens() {
+    RetryBudgetOptions.newBuilder().setMaxTokens(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void negativeRetryRatio() {
+    RetryBudgetOptions.newBuilder().setRetryRatio(-0.1d);
+  }
+
+  @Test
+  public void budgetStartsFull() {
+    RetryBudget budget = new RetryBudget(RetryBudgetOptions.newBuilder().setMaxTokens(3).build());
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isFalse();
+    assertThat(budget.getRetriesAttempted()).isEqualTo(3L);
+    assertThat(budget.getRetriesDenied()).isEqualTo(1L);
+  }
+
+  @Test
+  public void successfulRequestsRefillBudget() {
+    RetryBudget budget =
+        new RetryBudget(
+            RetryBudgetOptions.newBuilder().setMaxTokens(2).setRetryRatio(0.5d).build());
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.tryAcquireRetry()).isFalse();
+    budget.recordSuccess();
+    assertThat(budget.tryAcquireRetry()).isFalse();
+    budget.recordSuccess();
+    assertThat(budget.tryAcquireRetry()).isTrue();
+    assertThat(budget.getRetriesAttempted()).isEqualTo(3L);
+    assertThat(budget.getRetriesDenied()).isEqualTo(2L);
+  }
+
+  @Test
+  public void budgetIsCappedAtMaxTokens() {
+    RetryBudget budget =
+        new RetryBudget(RetryBudgetOptions.newBuilder().setMaxTokens(2).setRetryRatio(1d).build());
+    for (int i = 0; i < 10; i++) {
+      budget.recordSuccess();
+    }
+    assertThat(budget.getTokens()).isEqualTo(2d);
+  }
+}
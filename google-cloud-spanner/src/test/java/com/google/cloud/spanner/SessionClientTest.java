@@ -106,6 +106,8 @@ public class SessionClientTest {
     when(spannerOptions.getPrefetchChunks()).thenReturn(1);
     when(spannerOptions.getRetrySettings()).thenReturn(RetrySettings.newBuilder().build());
     when(spannerOptions.getClock()).thenReturn(NanoClock.getDefaultClock());
+    when(spannerOptions.getSessionPoolOptions())
+        .thenReturn(SessionPoolOptions.newBuilder().build());
     when(spanner.getOptions()).thenReturn(spannerOptions);
     when(spanner.getRpc()).thenReturn(rpc);
   }
@@ -199,6 +201,42 @@ public class SessionClientTest {
     REMOVE;
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void batchCreateSessionsWithClientId() {
+    DatabaseId db = DatabaseId.of(dbName);
+    when(rpc.batchCreateSessions(
+            Mockito.eq(dbName), Mockito.anyInt(), Mockito.anyMap(), Mockito.anyMap()))
+        .thenReturn(
+            Arrays.asList(
+                com.google.spanner.v1.Session.newBuilder()
+                    .setName(dbName + "/sessions/s1")
+                    .build()));
+    final List<Object> clientIds = Collections.synchronizedList(new ArrayList<Object>());
+    SessionConsumer consumer =
+        new SessionConsumer() {
+          @Override
+          public void onSessionReady(SessionImpl session) {
+            clientIds.add(session.getOptions().get(SpannerRpc.Option.CLIENT_ID));
+          }
+
+          @Override
+          public void onSessionCreateFailure(Throwable t, int createFailureForSessionCount) {}
+        };
+    try (SessionClient client = new SessionClient(spanner, db, new TestExecutorFactory())) {
+      client.asyncBatchCreateSessions(1, "client-1", consumer);
+      assertThat(
+              client
+                  .sessionWithId(dbName + "/sessions/s2", "client-1")
+                  .getOptions()
+                  .get(SpannerRpc.Option.CLIENT_ID))
+          .isEqualTo("client-1");
+      assertThat(client.sessionWithId(dbName + "/sessions/s3").getOptions())
+          .doesNotContainKey(SpannerRpc.Option.CLIENT_ID);
+    }
+    assertThat(clientIds).containsExactly("client-1");
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void batchCreateSessionsWithExceptions() {
@@ -334,4 +372,55 @@ public class SessionClientTest {
     }
     assertThat(returnedSessionCount.get()).isEqualTo(numSessions);
   }
+
+  @Test
+  public void batchCreateSessionsWithConcurrencyPerChannel() {
+    when(spannerOptions.getSessionPoolOptions())
+        .thenReturn(
+            SessionPoolOptions.newBuilder().setBatchCreateSessionsConcurrencyPerChannel(3).build());
+    DatabaseId db = DatabaseId.of(dbName);
+    final String sessionName = dbName + "/sessions/s%d";
+    final List<Integer> requestedSessionCounts =
+        Collections.synchronizedList(new ArrayList<Integer>());
+    when(rpc.batchCreateSessions(
+            Mockito.eq(dbName), Mockito.anyInt(), Mockito.anyMap(), Mockito.anyMap()))
+        .then(
+            new Answer<List<com.google.spanner.v1.Session>>() {
+              @Override
+              public List<com.google.spanner.v1.Session> answer(InvocationOnMock invocation)
+                  throws Throwable {
+                int sessionCount = invocation.getArgumentAt(1, Integer.class);
+                requestedSessionCounts.add(sessionCount);
+                List<com.google.spanner.v1.Session> res = new ArrayList<>();
+                for (int i = 1; i <= Math.min(100, sessionCount); i++) {
+                  res.add(
+                      com.google.spanner.v1.Session.newBuilder()
+                          .setName(String.format(sessionName, i))
+                          .build());
+                }
+                return res;
+              }
+            });
+    final AtomicInteger returnedSessionCount = new AtomicInteger();
+    SessionConsumer consumer =
+        new SessionConsumer() {
+          @Override
+          public void onSessionReady(SessionImpl session) {
+            returnedSessionCount.incrementAndGet();
+          }
+
+          @Override
+          public void onSessionCreateFailure(Throwable t, int createFailureForSessionCount) {}
+        };
+    // Each channel needs 250 sessions, which are created by 3 concurrent RPCs per channel.
+    final int numSessions = numChannels * 250;
+    try (SessionClient client = new SessionClient(spanner, db, new TestExecutorFactory())) {
+      client.asyncBatchCreateSessions(numSessions, consumer);
+    }
+    assertThat(returnedSessionCount.get()).isEqualTo(numSessions);
+    assertThat(requestedSessionCounts).hasSize(numChannels * 3);
+    for (int count : requestedSessionCounts) {
+      assertThat(count).isAtMost(100);
+    }
+  }
 }
@@ -23,21 +23,25 @@ import static org.mockito.Mockito.when;
 
 import com.google.api.core.NanoClock;
 import com.google.api.gax.retrying.RetrySettings;
+import com.google.api.gax.rpc.ServerStream;
 import com.google.cloud.Timestamp;
 import com.google.cloud.grpc.GrpcTransportOptions;
 import com.google.cloud.grpc.GrpcTransportOptions.ExecutorFactory;
 import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
 import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.common.collect.AbstractIterator;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.ListValue;
 import com.google.protobuf.util.Timestamps;
 import com.google.spanner.v1.BeginTransactionRequest;
 import com.google.spanner.v1.CommitRequest;
 import com.google.spanner.v1.CommitResponse;
+import com.google.spanner.v1.ExecuteSqlRequest;
 import com.google.spanner.v1.Mutation.Write;
 import com.google.spanner.v1.PartialResultSet;
 import com.google.spanner.v1.ReadRequest;
 import com.google.spanner.v1.ResultSetMetadata;
+import com.google.spanner.v1.ResultSetStats;
 import com.google.spanner.v1.Session;
 import com.google.spanner.v1.Transaction;
 import java.text.ParseException;
@@ -62,6 +66,7 @@ import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.threeten.bp.Duration;
 
 /** Unit tests for {@link com.google.cloud.spanner.SpannerImpl.SessionImpl}. */
 @RunWith(JUnit4.class)
@@ -465,4 +470,61 @@ public class SessionImplTest {
     expectedException.expect(SpannerMatchers.isSpannerException(ErrorCode.INTERNAL));
     txn.readRow("Dummy", Key.of(), Arrays.asList("C"));
   }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void partitionedDmlResumesBrokenStream() {
+    when(spannerOptions.getPartitionedDmlTimeout()).thenReturn(Duration.ofMinutes(1L));
+    final ByteString resumeToken = ByteString.copyFromUtf8("token");
+    ServerStream<PartialResultSet> broken = mock(ServerStream.class);
+    when(broken.iterator())
+        .thenReturn(
+            new AbstractIterator<PartialResultSet>() {
+              private boolean returned;
+
+              @Override
+              protected PartialResultSet computeNext() {
+                if (returned) {
+                  throw SpannerExceptionFactory.newSpannerException(
+                      ErrorCode.UNAVAILABLE, "stream broken");
+                }
+                returned = true;
+                return PartialResultSet.newBuilder().setResumeToken(resumeToken).build();
+              }
+            });
+    ServerStream<PartialResultSet> resumed = mock(ServerStream.class);
+    when(resumed.iterator())
+        .thenReturn(
+            Arrays.asList(
+                    PartialResultSet.newBuilder()
+                        .setStats(ResultSetStats.newBuilder().setRowCountLowerBound(10L))
+                        .build())
+                .iterator());
+    ArgumentCaptor<ExecuteSqlRequest> requests = ArgumentCaptor.forClass(ExecuteSqlRequest.class);
+    when(rpc.executeStreamingPartitionedDml(
+            requests.capture(), Mockito.any(Map.class), Mockito.any(Duration.class)))
+        .thenReturn(broken, resumed);
+
+    assertThat(session.executePartitionedUpdate(Statement.of("UPDATE FOO SET BAR=1 WHERE TRUE")))
+        .isEqualTo(10L);
+    assertThat(requests.getAllValues()).hasSize(2);
+    ExecuteSqlRequest first = requests.getAllValues().get(0);
+    ExecuteSqlRequest second = requests.getAllValues().get(1);
+    assertThat(first.getResumeToken()).isEqualTo(ByteString.EMPTY);
+    assertThat(second.getResumeToken()).isEqualTo(resumeToken);
+    assertThat(second.getTransaction()).isEqualTo(first.getTransaction());
+    Mockito.verify(rpc, Mockito.times(1))
+        .beginTransaction(Mockito.any(BeginTransactionRequest.class), Mockito.any(Map.class));
+  }
+
+  @Test
+  public void partitionedUpdatesOnSessionRejectConcurrency() {
+    try {
+      session.executePartitionedUpdatesAsync(
+          Arrays.asList(Statement.of("UPDATE FOO SET BAR=1 WHERE TRUE")), 2);
+      fail("missing expected exception");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("maxConcurrency must be 1");
+    }
+  }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import com.google.api.gax.grpc.testing.LocalChannelProvider;
+import com.google.cloud.NoCredentials;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks acquiring and releasing sessions from a {@link SessionPool} by multiple threads. The
+ * pool is backed by {@link MockSpannerServiceImpl} on an in-process server, and is filled before
+ * the benchmark starts. With fewer sessions than threads, the benchmark measures contention on the
+ * pool, including the cost of waiting for a session to be released. The number of threads can be
+ * changed with the JMH {@code -t} option.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class SessionPoolBenchmark {
+  private static final DatabaseId DATABASE_ID = DatabaseId.of("[PROJECT]", "[INSTANCE]", "[DB]");
+
+  @Param({"4", "100"})
+  public int sessions;
+
+  private MockSpannerServiceImpl mockSpanner;
+  private Server server;
+  private Spanner spanner;
+  private SessionPool pool;
+
+  @Setup
+  public void setup() throws IOException, InterruptedException {
+    mockSpanner = new MockSpannerServiceImpl();
+    mockSpanner.setAbortProbability(0.0D);
+    String uniqueName = InProcessServerBuilder.generateName();
+    server =
+        InProcessServerBuilder.forName(uniqueName)
+            .directExecutor()
+            .addService(mockSpanner)
+            .build()
+            .start();
+    spanner =
+        SpannerOptions.newBuilder()
+            .setProjectId("[PROJECT]")
+            .setChannelProvider(LocalChannelProvider.create(uniqueName))
+            .setCredentials(NoCredentials.getInstance())
+            .setSessionPoolOption(
+                SessionPoolOptions.newBuilder()
+                    .setMinSessions(sessions)
+                    .setMaxSessions(sessions)
+                    .build())
+            .build()
+            .getService();
+    pool = ((DatabaseClientImpl) spanner.getDatabaseClient(DATABASE_ID)).pool;
+    while (pool.totalSessions() < sessions) {
+      Thread.sleep(1L);
+    }
+  }
+
+  @TearDown
+  public void teardown() throws InterruptedException {
+    spanner.close();
+    server.shutdown();
+    server.awaitTermination();
+  }
+
+  @Benchmark
+  public void readSession() {
+    pool.getReadSession().close();
+  }
+
+  @Benchmark
+  public void readWriteSession() {
+    pool.getReadWriteSession().close();
+  }
+}
@@ -112,4 +112,54 @@ public class SessionPoolOptionsTest {
   public void setNegativeMaxSessions() {
     SessionPoolOptions.newBuilder().setMaxSessions(-1);
   }
+
+  @Test
+  public void setReservedSessions() {
+    SessionPoolOptions options =
+        SessionPoolOptions.newBuilder()
+            .setMaxSessions(10)
+            .setReservedSessions(SessionPriority.HIGH, 4)
+            .setPriorityWeight(SessionPriority.LOW, 2)
+            .build();
+    assertThat(options.getReservedSessions(SessionPriority.HIGH)).isEqualTo(4);
+    assertThat(options.getReservedSessions(SessionPriority.LOW)).isEqualTo(0);
+    assertThat(options.getPriorityWeight(SessionPriority.LOW)).isEqualTo(2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setReservedSessionsAboveMaxSessions() {
+    SessionPoolOptions.newBuilder()
+        .setMaxSessions(10)
+        .setReservedSessions(SessionPriority.HIGH, 6)
+        .setReservedSessions(SessionPriority.NORMAL, 5)
+        .build();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setZeroPriorityWeight() {
+    SessionPoolOptions.newBuilder().setPriorityWeight(SessionPriority.HIGH, 0);
+  }
+
+  @Test
+  public void setSessionLifecycleOptions() {
+    SessionPoolOptions defaults = SessionPoolOptions.newBuilder().build();
+    assertThat(defaults.getBatchCreateSessionsConcurrencyPerChannel()).isEqualTo(1);
+    assertThat(defaults.getCloseTimeoutMillis()).isEqualTo(0L);
+    assertThat(defaults.isSkipSessionDeletionOnClose()).isFalse();
+
+    SessionPoolOptions options =
+        SessionPoolOptions.newBuilder()
+            .setBatchCreateSessionsConcurrencyPerChannel(4)
+            .setCloseTimeoutMillis(1000L)
+            .setSkipSessionDeletionOnClose(true)
+            .build();
+    assertThat(options.getBatchCreateSessionsConcurrencyPerChannel()).isEqualTo(4);
+    assertThat(options.getCloseTimeoutMillis()).isEqualTo(1000L);
+    assertThat(options.isSkipSessionDeletionOnClose()).isTrue();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setZeroBatchCreateSessionsConcurrency() {
+    SessionPoolOptions.newBuilder().setBatchCreateSessionsConcurrencyPerChannel(0);
+  }
 }
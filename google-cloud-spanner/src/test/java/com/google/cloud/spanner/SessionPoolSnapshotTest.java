@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link com.google.cloud.spanner.SessionPoolSnapshot}. */
+@RunWith(JUnit4.class)
+public class SessionPoolSnapshotTest {
+  private static final DatabaseId DB = DatabaseId.of("projects/p/instances/i/databases/d1");
+  private static final DatabaseId OTHER_DB = DatabaseId.of("projects/p/instances/i/databases/d2");
+
+  @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void writeAndClaim() throws Exception {
+    File dir = folder.getRoot();
+    SessionPoolSnapshot.write(
+        dir,
+        DB,
+        Arrays.asList(
+            DB.getName() + "/sessions/s1",
+            DB.getName() + "/sessions/s2",
+            OTHER_DB.getName() + "/sessions/s3",
+            DB.getName() + "/sessions/s4"));
+    assertThat(SessionPoolSnapshot.claim(dir, OTHER_DB, 10)).isEmpty();
+    assertThat(SessionPoolSnapshot.claim(dir, DB, 2))
+        .containsExactly(DB.getName() + "/sessions/s1", DB.getName() + "/sessions/s2")
+        .inOrder();
+    // The sessions that were not adopted are returned to the directory.
+    assertThat(SessionPoolSnapshot.claim(dir, DB, 10))
+        .containsExactly(DB.getName() + "/sessions/s4");
+    // A snapshot can only be claimed once.
+    assertThat(SessionPoolSnapshot.claim(dir, DB, 10)).isEmpty();
+    assertThat(dir.list()).isEmpty();
+  }
+
+  @Test
+  public void writeDoesNotOverwriteSnapshotOfOtherPool() throws Exception {
+    File dir = folder.getRoot();
+    SessionPoolSnapshot.write(dir, DB, Arrays.asList(DB.getName() + "/sessions/s1"));
+    SessionPoolSnapshot.write(dir, DB, Arrays.asList(DB.getName() + "/sessions/s2"));
+    assertThat(SessionPoolSnapshot.getFiles(dir, DB)).hasSize(2);
+    assertThat(SessionPoolSnapshot.claim(dir, DB, 10))
+        .containsExactly(DB.getName() + "/sessions/s1", DB.getName() + "/sessions/s2");
+    assertThat(dir.list()).isEmpty();
+  }
+
+  @Test
+  public void claimLeavesSnapshotsThatAreNotNeeded() throws Exception {
+    File dir = folder.getRoot();
+    SessionPoolSnapshot.write(dir, DB, Arrays.asList(DB.getName() + "/sessions/s1"));
+    SessionPoolSnapshot.write(dir, DB, Arrays.asList(DB.getName() + "/sessions/s2"));
+    assertThat(SessionPoolSnapshot.claim(dir, DB, 1)).hasSize(1);
+    assertThat(SessionPoolSnapshot.getFiles(dir, DB)).hasSize(1);
+    assertThat(SessionPoolSnapshot.claim(dir, DB, 1)).hasSize(1);
+    assertThat(dir.list()).isEmpty();
+  }
+}
@@ -19,8 +19,10 @@ package com.google.cloud.spanner;
 import static com.google.cloud.spanner.MetricRegistryConstants.SPANNER_LABEL_KEYS;
 import static com.google.cloud.spanner.SpannerMatchers.isSpannerException;
 import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.atMost;
@@ -35,7 +37,9 @@ import static org.mockito.MockitoAnnotations.initMocks;
 
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
 import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.AbstractReadContext.SingleReadContext;
 import com.google.cloud.spanner.MetricRegistryTestUtils.FakeMetricRegistry;
 import com.google.cloud.spanner.MetricRegistryTestUtils.MetricsRecord;
 import com.google.cloud.spanner.ReadContext.QueryAnalyzeMode;
@@ -47,6 +51,7 @@ import com.google.cloud.spanner.TransactionRunner.TransactionCallable;
 import com.google.cloud.spanner.TransactionRunnerImpl.TransactionContextImpl;
 import com.google.cloud.spanner.spi.v1.SpannerRpc;
 import com.google.cloud.spanner.spi.v1.SpannerRpc.ResultStreamConsumer;
+import com.google.common.base.Stopwatch;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.protobuf.ByteString;
@@ -56,11 +61,19 @@ import com.google.spanner.v1.ExecuteBatchDmlRequest;
 import com.google.spanner.v1.ExecuteSqlRequest;
 import com.google.spanner.v1.ResultSetStats;
 import com.google.spanner.v1.RollbackRequest;
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
 import io.opencensus.metrics.LabelValue;
 import io.opencensus.metrics.MetricRegistry;
+import io.opencensus.stats.Measure.MeasureDouble;
+import io.opencensus.stats.MeasureMap;
+import io.opencensus.stats.StatsRecorder;
+import java.io.File;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +82,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -96,6 +110,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
   @Mock SpannerImpl client;
   @Mock SessionClient sessionClient;
   @Mock SpannerOptions spannerOptions;
+  @Mock SpannerRpc spannerRpc;
   DatabaseId db = DatabaseId.of("projects/p/instances/i/databases/unused");
   SessionPool pool;
   SessionPoolOptions options;
@@ -131,6 +146,8 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     initMocks(this);
     when(client.getOptions()).thenReturn(spannerOptions);
     when(client.getSessionClient(db)).thenReturn(sessionClient);
+    when(client.getRpc()).thenReturn(spannerRpc);
+    when(sessionClient.getSpanner()).thenReturn(client);
     when(spannerOptions.getNumChannels()).thenReturn(4);
     options =
         SessionPoolOptions.newBuilder()
@@ -151,7 +168,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       public void run() {
                         int sessionCount = invocation.getArgumentAt(0, Integer.class);
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         for (int i = 0; i < sessionCount; i++) {
                           consumer.onSessionReady(mockSession());
                         }
@@ -161,7 +178,8 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.anyInt(), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(
+            Mockito.anyInt(), Mockito.anyString(), any(SessionConsumer.class));
   }
 
   @Test
@@ -220,7 +238,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(sessions.pop());
                       }
                     });
@@ -228,7 +246,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     Session session1 = pool.getReadSession();
     // Leaked sessions
@@ -241,6 +259,151 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     verify(mockSession2).asyncClose();
   }
 
+  @Test
+  public void poolClosureSkipsSessionDeletion() throws Exception {
+    final SessionImpl mockSession = mockSession();
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(final InvocationOnMock invocation) throws Throwable {
+                executor.submit(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        SessionConsumerImpl consumer =
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
+                        consumer.onSessionReady(mockSession);
+                      }
+                    });
+                return null;
+              }
+            })
+        .when(sessionClient)
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(minSessions)
+            .setMaxSessions(1)
+            .setSkipSessionDeletionOnClose(true)
+            .build();
+    pool = createPool();
+    pool.getReadSession().close();
+    pool.closeAsync().get(5L, TimeUnit.SECONDS);
+    verify(mockSession, never()).asyncClose();
+  }
+
+  @Test
+  public void poolClosureTimesOut() throws Exception {
+    final SessionImpl mockSession = mockSession();
+    // The DeleteSession RPC never returns.
+    when(mockSession.asyncClose()).thenReturn(SettableApiFuture.<Empty>create());
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(final InvocationOnMock invocation) throws Throwable {
+                executor.submit(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        SessionConsumerImpl consumer =
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
+                        consumer.onSessionReady(mockSession);
+                      }
+                    });
+                return null;
+              }
+            })
+        .when(sessionClient)
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(minSessions)
+            .setMaxSessions(1)
+            .setCloseTimeoutMillis(50L)
+            .build();
+    pool = createPool();
+    pool.getReadSession().close();
+    pool.closeAsync().get(5L, TimeUnit.SECONDS);
+    verify(mockSession).asyncClose();
+  }
+
+  @Test
+  public void poolClosureWritesSessionSnapshot() throws Exception {
+    File dir = Files.createTempDirectory("snapshot").toFile();
+    DatabaseId db = DatabaseId.of("projects/p/instances/i/databases/d");
+    when(sessionClient.getDatabaseId()).thenReturn(db);
+    final SessionImpl mockSession = mockSession();
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(final InvocationOnMock invocation) throws Throwable {
+                executor.submit(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        SessionConsumerImpl consumer =
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
+                        consumer.onSessionReady(mockSession);
+                      }
+                    });
+                return null;
+              }
+            })
+        .when(sessionClient)
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(minSessions)
+            .setMaxSessions(1)
+            .setSessionSnapshotDirectory(dir.getPath())
+            .build();
+    pool = createPool();
+    pool.getReadSession().close();
+    pool.closeAsync().get(5L, TimeUnit.SECONDS);
+    verify(mockSession, never()).asyncClose();
+    List<File> snapshots = SessionPoolSnapshot.getFiles(dir, db);
+    assertThat(snapshots).hasSize(1);
+    assertThat(Files.readAllLines(snapshots.get(0).toPath(), UTF_8))
+        .containsExactly(mockSession.getName());
+  }
+
+  @Test
+  public void poolAdoptsSessionsFromSnapshot() throws Exception {
+    File dir = Files.createTempDirectory("snapshot").toFile();
+    DatabaseId db = DatabaseId.of("projects/p/instances/i/databases/d");
+    String existingName = db.getName() + "/sessions/existing";
+    String deletedName = db.getName() + "/sessions/deleted";
+    SessionPoolSnapshot.write(dir, db, Arrays.asList(existingName, deletedName));
+    when(sessionClient.getDatabaseId()).thenReturn(db);
+    SessionImpl existingSession = mockSession();
+    mockKeepAlive(existingSession);
+    when(sessionClient.sessionWithId(Mockito.eq(existingName), Mockito.anyString()))
+        .thenReturn(existingSession);
+    SessionImpl deletedSession = mockSession();
+    when(deletedSession.singleUse(any(TimestampBound.class)))
+        .thenThrow(SpannerExceptionFactoryTest.newSessionNotFoundException(deletedName));
+    when(sessionClient.sessionWithId(Mockito.eq(deletedName), Mockito.anyString()))
+        .thenReturn(deletedSession);
+    setupMockSessionCreation();
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(2)
+            .setMaxSessions(2)
+            .setSessionSnapshotDirectory(dir.getPath())
+            .build();
+    pool = createPool();
+    Stopwatch watch = Stopwatch.createStarted();
+    while (pool.totalSessions() < 2 && watch.elapsed(TimeUnit.SECONDS) < 5L) {
+      Thread.sleep(1L);
+    }
+    assertThat(pool.totalSessions()).isEqualTo(2);
+    // Only the session that no longer exists is replaced by a new session.
+    verify(sessionClient)
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
+    verify(existingSession).singleUse(any(TimestampBound.class));
+    assertThat(SessionPoolSnapshot.getFiles(dir, db)).isEmpty();
+  }
+
   @Test
   public void poolClosesWhenMaintenanceLoopIsRunning() throws Exception {
     setupMockSessionCreation();
@@ -278,7 +441,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session1);
                       }
                     });
@@ -296,7 +459,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                         insideCreation.countDown();
                         releaseCreation.await();
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session2);
                         return null;
                       }
@@ -305,7 +468,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
 
     pool = createPool();
     PooledSession leakedSession = pool.getReadSession();
@@ -336,7 +499,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session1);
                       }
                     });
@@ -354,7 +517,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                         insideCreation.countDown();
                         releaseCreation.await();
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session2);
                         return null;
                       }
@@ -363,7 +526,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
 
     pool = createPool();
     PooledSession leakedSession = pool.getReadSession();
@@ -394,7 +557,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                         insideCreation.countDown();
                         releaseCreation.await();
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionCreateFailure(
                             SpannerExceptionFactory.newSpannerException(new RuntimeException()), 1);
                         return null;
@@ -404,7 +567,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     AtomicBoolean failed = new AtomicBoolean(false);
     CountDownLatch latch = new CountDownLatch(1);
@@ -428,7 +591,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session);
                       }
                     });
@@ -436,7 +599,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     final CountDownLatch insidePrepare = new CountDownLatch(1);
     final CountDownLatch releasePrepare = new CountDownLatch(1);
     doAnswer(
@@ -473,7 +636,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session);
                       }
                     });
@@ -481,7 +644,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     PooledSession leakedSession = pool.getReadSession();
     // Suppress expected leakedSession warning.
@@ -503,7 +666,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     }
     Uninterruptibles.awaitUninterruptibly(latch);
     verify(sessionClient, atMost(options.getMaxSessions()))
-        .asyncBatchCreateSessions(eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(eq(1), Mockito.anyString(), any(SessionConsumer.class));
     assertThat(failed.get()).isFalse();
   }
 
@@ -518,7 +681,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public Void call() throws Exception {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionCreateFailure(
                             SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL, ""), 1);
                         return null;
@@ -528,7 +691,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     expectedException.expect(isSpannerException(ErrorCode.INTERNAL));
     pool.getReadSession();
@@ -545,7 +708,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public Void call() throws Exception {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionCreateFailure(
                             SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL, ""), 1);
                         return null;
@@ -555,7 +718,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     expectedException.expect(isSpannerException(ErrorCode.INTERNAL));
     pool.getReadWriteSession();
@@ -573,7 +736,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session);
                       }
                     });
@@ -581,7 +744,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     doThrow(SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL, ""))
         .when(session)
         .prepareReadWriteTransaction();
@@ -602,7 +765,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(mockSession);
                       }
                     });
@@ -610,7 +773,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     try (Session session = pool.getReadWriteSession()) {
       assertThat(session).isNotNull();
@@ -633,7 +796,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(sessions.pop());
                       }
                     });
@@ -641,7 +804,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     Session session1 = pool.getReadWriteSession();
     Session session2 = pool.getReadWriteSession();
@@ -664,7 +827,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(session);
                       }
                     });
@@ -672,7 +835,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
 
     pool = createPool();
     int numSessions = 5;
@@ -719,7 +882,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(mockSession1);
                         consumer.onSessionReady(mockSession2);
                       }
@@ -728,7 +891,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(2), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(2), Mockito.anyString(), any(SessionConsumer.class));
 
     options =
         SessionPoolOptions.newBuilder()
@@ -770,7 +933,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(mockSession1);
                       }
                     });
@@ -778,7 +941,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     options =
         SessionPoolOptions.newBuilder()
             .setMinSessions(minSessions)
@@ -810,7 +973,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(mockSession());
                       }
                     });
@@ -818,7 +981,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     Session session1 = pool.getReadSession();
     expectedException.expect(isSpannerException(ErrorCode.RESOURCE_EXHAUSTED));
@@ -829,6 +992,245 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     session1.close();
   }
 
+  @Test
+  public void admissionControlRejectsRequestsAboveLimit() {
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(1)
+            .setMaxSessions(4)
+            .setAdmissionControlLatencyThresholdMillis(100L)
+            .build();
+    when(sessionClient.getDatabaseId()).thenReturn(db);
+    setupMockSessionCreation();
+    pool = createPool();
+    AdmissionController controller = pool.getAdmissionController();
+    assertThat(controller).isNotNull();
+    assertThat(controller.getLimit()).isEqualTo(4);
+    // Simulate slow operations to reduce the limit.
+    for (int i = 0; i < 10; i++) {
+      controller.onSample(TimeUnit.SECONDS.toNanos(1L), 4, false);
+    }
+    assertThat(controller.getLimit()).isEqualTo(1);
+    Session session1 = pool.getReadSession();
+    try {
+      pool.getReadSession();
+      fail("missing expected exception");
+    } catch (AdmissionRejectedException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.RESOURCE_EXHAUSTED);
+    }
+    assertThat(controller.getNumRejected()).isEqualTo(1L);
+    session1.close();
+    session1 = pool.getReadSession();
+    assertThat(session1).isNotNull();
+    session1.close();
+  }
+
+  @Test
+  public void admissionControlQueuesRequestsWhileHealthy() throws Exception {
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(1)
+            .setMaxSessions(1)
+            .setAdmissionControlLatencyThresholdMillis(100L)
+            .build();
+    when(sessionClient.getDatabaseId()).thenReturn(db);
+    setupMockSessionCreation();
+    pool = createPool();
+    Session session1 = pool.getReadSession();
+    ExecutorService waiterExecutor = Executors.newSingleThreadExecutor();
+    try {
+      // The pool is saturated but the limit has not been reduced, so the request waits.
+      Future<Session> waiter =
+          waiterExecutor.submit(
+              new Callable<Session>() {
+                @Override
+                public Session call() {
+                  return pool.getReadSession();
+                }
+              });
+      while (pool.getNumberOfWaiters() == 0) {
+        Thread.sleep(1L);
+      }
+      session1.close();
+      waiter.get(5L, TimeUnit.SECONDS).close();
+    } finally {
+      waiterExecutor.shutdown();
+    }
+    assertThat(pool.getAdmissionController().getNumRejected()).isEqualTo(0L);
+  }
+
+  @Test
+  public void waiterHonorsContextDeadline() throws Exception {
+    options = SessionPoolOptions.newBuilder().setMinSessions(1).setMaxSessions(1).build();
+    setupMockSessionCreation();
+    pool = createPool();
+    Session session1 = pool.getReadSession();
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    CancellableContext context =
+        Context.current().withDeadlineAfter(50L, TimeUnit.MILLISECONDS, scheduler);
+    Context previous = context.attach();
+    Stopwatch watch = Stopwatch.createStarted();
+    try {
+      pool.getReadSession();
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.DEADLINE_EXCEEDED);
+      assertThat(watch.elapsed(TimeUnit.MILLISECONDS))
+          .isLessThan(options.getInitialWaitForSessionTimeoutMillis());
+    } finally {
+      context.detach(previous);
+      context.cancel(null);
+      scheduler.shutdown();
+    }
+    // The expired waiter should have been removed from the queue, so releasing the session does
+    // not block and the session can be checked out again.
+    session1.close();
+    Session session2 = pool.getReadSession();
+    assertThat(session2).isNotNull();
+    session2.close();
+  }
+
+  @Test
+  public void waiterDeadlineRacesWithReleaseSession() throws Exception {
+    options = SessionPoolOptions.newBuilder().setMinSessions(1).setMaxSessions(1).build();
+    setupMockSessionCreation();
+    pool = createPool();
+    ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    try {
+      for (int i = 0; i < 50; i++) {
+        final Session session = pool.getReadSession();
+        final CancellableContext context =
+            Context.current().withDeadlineAfter(5L, TimeUnit.MILLISECONDS, scheduler);
+        Future<Session> waiter =
+            scheduler.submit(
+                context.wrap(
+                    new Callable<Session>() {
+                      @Override
+                      public Session call() {
+                        try {
+                          return pool.getReadSession();
+                        } catch (SpannerException e) {
+                          assertThat(e.getErrorCode()).isEqualTo(ErrorCode.DEADLINE_EXCEEDED);
+                          return null;
+                        }
+                      }
+                    }));
+        Future<?> release =
+            scheduler.schedule(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    session.close();
+                  }
+                },
+                5L,
+                TimeUnit.MILLISECONDS);
+        // Neither the waiter nor the thread that releases the session may block on the other.
+        release.get(5L, TimeUnit.SECONDS);
+        Session received = waiter.get(5L, TimeUnit.SECONDS);
+        if (received != null) {
+          received.close();
+        }
+        context.cancel(null);
+        assertThat(pool.getNumberOfSessionsInUse()).isEqualTo(0);
+      }
+      // The session must be available again after all the races.
+      Session session = pool.getReadSession();
+      assertThat(session).isNotNull();
+      session.close();
+    } finally {
+      scheduler.shutdown();
+    }
+  }
+
+  @Test
+  public void expiredRequestIsRejectedBeforeWaiting() {
+    setupMockSessionCreation();
+    pool = createPool();
+    CancellableContext context = Context.current().withCancellation();
+    context.cancel(null);
+    Context previous = context.attach();
+    try {
+      pool.getReadWriteSession();
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.CANCELLED);
+    } finally {
+      context.detach(previous);
+    }
+  }
+
+  @Test
+  public void reservedSessionsAreNotUsedByOtherPriorities() {
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(2)
+            .setMaxSessions(2)
+            .setReservedSessions(SessionPriority.HIGH, 1)
+            .build();
+    setupMockSessionCreation();
+    pool = createPool();
+    Session low = pool.getReadSession(SessionPriority.LOW);
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    CancellableContext context =
+        Context.current().withDeadlineAfter(50L, TimeUnit.MILLISECONDS, scheduler);
+    Context previous = context.attach();
+    try {
+      // The only other session is reserved for high-priority requests.
+      pool.getReadSession(SessionPriority.LOW);
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.DEADLINE_EXCEEDED);
+    } finally {
+      context.detach(previous);
+      context.cancel(null);
+      scheduler.shutdown();
+    }
+    Session high = pool.getReadSession(SessionPriority.HIGH);
+    assertThat(pool.getNumberOfSessionsInUse()).isEqualTo(2);
+    high.close();
+    low.close();
+  }
+
+  @Test
+  public void higherPriorityWaiterIsServedFirst() throws Exception {
+    options = SessionPoolOptions.newBuilder().setMinSessions(1).setMaxSessions(1).build();
+    setupMockSessionCreation();
+    pool = createPool();
+    Session session = pool.getReadSession();
+    final List<SessionPriority> served =
+        Collections.synchronizedList(new ArrayList<SessionPriority>());
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    for (final SessionPriority priority :
+        new SessionPriority[] {SessionPriority.LOW, SessionPriority.HIGH}) {
+      executor.submit(
+          new Callable<Void>() {
+            @Override
+            public Void call() {
+              Session session = pool.getReadSession(priority);
+              served.add(priority);
+              session.close();
+              return null;
+            }
+          });
+      // Make sure that the waiters are queued in the order LOW, HIGH.
+      while (pool.getNumberOfWaiters() < (priority == SessionPriority.LOW ? 1 : 2)) {
+        Thread.sleep(1L);
+      }
+    }
+    session.close();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10L, TimeUnit.SECONDS)).isTrue();
+    assertThat(served).containsExactly(SessionPriority.HIGH, SessionPriority.LOW).inOrder();
+  }
+
+  @Test
+  public void admissionControlIsDisabledByDefault() {
+    setupMockSessionCreation();
+    pool = createPool();
+    assertThat(pool.getAdmissionController()).isNull();
+  }
+
   @Test
   public void poolWorksWhenSessionNotFound() {
     SessionImpl mockSession1 = mockSession();
@@ -847,7 +1249,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(sessions.pop());
                       }
                     });
@@ -855,7 +1257,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     pool = createPool();
     assertThat(pool.getReadWriteSession().delegate).isEqualTo(mockSession2);
   }
@@ -883,7 +1285,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(sessions.pop());
                       }
                     });
@@ -891,7 +1293,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     for (Session session : new Session[] {session1, session2, session3}) {
       doAnswer(
               new Answer<ApiFuture<Empty>>() {
@@ -950,7 +1352,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       public void run() {
                         int sessionCount = invocation.getArgumentAt(0, Integer.class);
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         for (int i = 0; i < sessionCount; i++) {
                           consumer.onSessionReady(session);
                         }
@@ -960,7 +1362,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(anyInt(), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(anyInt(), Mockito.anyString(), any(SessionConsumer.class));
     FakeClock clock = new FakeClock();
     clock.currentTimeMillis = System.currentTimeMillis();
     pool = createPool(clock);
@@ -1066,7 +1468,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(closedSession);
                       }
                     });
@@ -1082,7 +1484,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(openSession);
                       }
                     });
@@ -1090,7 +1492,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     FakeClock clock = new FakeClock();
     clock.currentTimeMillis = System.currentTimeMillis();
     pool = createPool(clock);
@@ -1099,6 +1501,133 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     assertThat(resultSet.next()).isTrue();
   }
 
+  @Test
+  public void testSessionNotFoundSingleUseReadResumesAtReadTimestamp() {
+    KeySet keys = KeySet.all();
+    List<String> columns = Arrays.asList("ID");
+    Timestamp readTimestamp = Timestamp.ofTimeSecondsAndNanos(1000L, 0);
+    SessionImpl closedSession = mockSession();
+    SingleReadContext closedContext = mock(SingleReadContext.class);
+    ResultSet closedResultSet = mock(ResultSet.class);
+    when(closedResultSet.next())
+        .thenReturn(true, true)
+        .thenThrow(SpannerExceptionFactoryTest.newSessionNotFoundException(sessionName));
+    when(closedContext.read("T", keys, columns)).thenReturn(closedResultSet);
+    when(closedContext.getReadTimestampIfAvailable()).thenReturn(readTimestamp);
+    when(closedSession.singleUse()).thenReturn(closedContext);
+
+    SessionImpl openSession = mockSession();
+    SingleReadContext openContext = mock(SingleReadContext.class);
+    ResultSet openResultSet = mock(ResultSet.class);
+    when(openResultSet.next()).thenReturn(true, true, true, false);
+    when(openContext.read("T", keys, columns)).thenReturn(openResultSet);
+    when(openSession.singleUse(TimestampBound.ofReadTimestamp(readTimestamp)))
+        .thenReturn(openContext);
+
+    setupClosedAndOpenSession(closedSession, openSession);
+    ResultSet resultSet = pool.getReadSession().singleUse().read("T", keys, columns);
+    int rows = 0;
+    while (resultSet.next()) {
+      rows++;
+    }
+    // The two rows that were returned before the session was lost are skipped.
+    assertThat(rows).isEqualTo(3);
+    verify(openSession, never()).singleUse();
+    verify(openResultSet, times(4)).next();
+  }
+
+  @Test
+  public void testSessionNotFoundSingleUseQueryIsNotResumed() {
+    Statement statement = Statement.of("SELECT 1");
+    SessionImpl closedSession = mockSession();
+    SingleReadContext closedContext = mock(SingleReadContext.class);
+    ResultSet closedResultSet = mock(ResultSet.class);
+    when(closedResultSet.next())
+        .thenReturn(true)
+        .thenThrow(SpannerExceptionFactoryTest.newSessionNotFoundException(sessionName));
+    when(closedContext.executeQuery(statement)).thenReturn(closedResultSet);
+    when(closedContext.getReadTimestampIfAvailable())
+        .thenReturn(Timestamp.ofTimeSecondsAndNanos(1000L, 0));
+    when(closedSession.singleUse()).thenReturn(closedContext);
+    SessionImpl openSession = mockSession();
+
+    setupClosedAndOpenSession(closedSession, openSession);
+    ResultSet resultSet = pool.getReadSession().singleUse().executeQuery(statement);
+    assertThat(resultSet.next()).isTrue();
+    try {
+      resultSet.next();
+      fail("missing expected exception");
+    } catch (SessionNotFoundException e) {
+      // A query without a guaranteed order cannot be resumed without risking different rows.
+    }
+    verify(openSession, never()).singleUse(any(TimestampBound.class));
+  }
+
+  @Test
+  public void testSessionNotFoundSingleUseWithoutReadTimestamp() {
+    Statement statement = Statement.of("SELECT 1");
+    SessionImpl closedSession = mockSession();
+    SingleReadContext closedContext = mock(SingleReadContext.class);
+    ResultSet closedResultSet = mock(ResultSet.class);
+    when(closedResultSet.next())
+        .thenReturn(true)
+        .thenThrow(SpannerExceptionFactoryTest.newSessionNotFoundException(sessionName));
+    when(closedContext.executeQuery(statement)).thenReturn(closedResultSet);
+    when(closedSession.singleUse()).thenReturn(closedContext);
+    SessionImpl openSession = mockSession();
+
+    setupClosedAndOpenSession(closedSession, openSession);
+    ResultSet resultSet = pool.getReadSession().singleUse().executeQuery(statement);
+    assertThat(resultSet.next()).isTrue();
+    try {
+      resultSet.next();
+      fail("missing expected exception");
+    } catch (SessionNotFoundException e) {
+      // The read cannot be resumed without duplicating rows if the read timestamp is unknown.
+    }
+  }
+
+  private void setupClosedAndOpenSession(
+      final SessionImpl closedSession, final SessionImpl openSession) {
+    doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(final InvocationOnMock invocation) throws Throwable {
+                executor.submit(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        SessionConsumerImpl consumer =
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
+                        consumer.onSessionReady(closedSession);
+                      }
+                    });
+                return null;
+              }
+            })
+        .doAnswer(
+            new Answer<Void>() {
+              @Override
+              public Void answer(final InvocationOnMock invocation) throws Throwable {
+                executor.submit(
+                    new Runnable() {
+                      @Override
+                      public void run() {
+                        SessionConsumerImpl consumer =
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
+                        consumer.onSessionReady(openSession);
+                      }
+                    });
+                return null;
+              }
+            })
+        .when(sessionClient)
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
+    FakeClock clock = new FakeClock();
+    clock.currentTimeMillis = System.currentTimeMillis();
+    pool = createPool(clock);
+  }
+
   @Test
   public void testSessionNotFoundReadOnlyTransaction() {
     Statement statement = Statement.of("SELECT 1");
@@ -1122,7 +1651,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(closedSession);
                       }
                     });
@@ -1138,7 +1667,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(openSession);
                       }
                     });
@@ -1146,7 +1675,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     FakeClock clock = new FakeClock();
     clock.currentTimeMillis = System.currentTimeMillis();
     pool = createPool(clock);
@@ -1244,7 +1773,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                           @Override
                           public void run() {
                             SessionConsumerImpl consumer =
-                                invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                                invocation.getArgumentAt(2, SessionConsumerImpl.class);
                             consumer.onSessionReady(closedSession);
                           }
                         });
@@ -1260,7 +1789,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                           @Override
                           public void run() {
                             SessionConsumerImpl consumer =
-                                invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                                invocation.getArgumentAt(2, SessionConsumerImpl.class);
                             consumer.onSessionReady(openSession);
                           }
                         });
@@ -1268,7 +1797,8 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                   }
                 })
             .when(sessionClient)
-            .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+            .asyncBatchCreateSessions(
+                Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
         SessionPoolOptions options =
             SessionPoolOptions.newBuilder()
                 .setMinSessions(0) // The pool should not auto-create any sessions
@@ -1378,7 +1908,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(closedSession);
                       }
                     });
@@ -1394,7 +1924,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(openSession);
                       }
                     });
@@ -1402,7 +1932,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     FakeClock clock = new FakeClock();
     clock.currentTimeMillis = System.currentTimeMillis();
     pool = createPool(clock);
@@ -1429,7 +1959,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(closedSession);
                       }
                     });
@@ -1445,7 +1975,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(openSession);
                       }
                     });
@@ -1453,7 +1983,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
 
     FakeClock clock = new FakeClock();
     clock.currentTimeMillis = System.currentTimeMillis();
@@ -1481,7 +2011,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(closedSession);
                       }
                     });
@@ -1497,7 +2027,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(openSession);
                       }
                     });
@@ -1505,7 +2035,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     FakeClock clock = new FakeClock();
     clock.currentTimeMillis = System.currentTimeMillis();
     pool = createPool(clock);
@@ -1532,7 +2062,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(closedSession);
                       }
                     });
@@ -1548,7 +2078,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
                       @Override
                       public void run() {
                         SessionConsumerImpl consumer =
-                            invocation.getArgumentAt(1, SessionConsumerImpl.class);
+                            invocation.getArgumentAt(2, SessionConsumerImpl.class);
                         consumer.onSessionReady(openSession);
                       }
                     });
@@ -1556,7 +2086,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
               }
             })
         .when(sessionClient)
-        .asyncBatchCreateSessions(Mockito.eq(1), any(SessionConsumer.class));
+        .asyncBatchCreateSessions(Mockito.eq(1), Mockito.anyString(), any(SessionConsumer.class));
     FakeClock clock = new FakeClock();
     clock.currentTimeMillis = System.currentTimeMillis();
     pool = createPool(clock);
@@ -1590,7 +2120,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     Session session2 = pool.getReadSession();
 
     MetricsRecord record = metricRegistry.pollRecord();
-    assertThat(record.getMetrics().size()).isEqualTo(6);
+    assertThat(record.getMetrics().size()).isEqualTo(8);
     assertThat(record.getMetrics()).containsEntry(MetricRegistryConstants.IN_USE_SESSIONS, 2L);
     assertThat(record.getMetrics()).containsEntry(MetricRegistryConstants.MAX_IN_USE_SESSIONS, 2L);
     assertThat(record.getMetrics()).containsEntry(MetricRegistryConstants.GET_SESSION_TIMEOUTS, 0L);
@@ -1598,6 +2128,9 @@ public class SessionPoolTest extends BaseSessionPoolTest {
         .containsEntry(MetricRegistryConstants.NUM_ACQUIRED_SESSIONS, 2L);
     assertThat(record.getMetrics())
         .containsEntry(MetricRegistryConstants.NUM_RELEASED_SESSIONS, 0L);
+    assertThat(record.getMetrics()).containsEntry(MetricRegistryConstants.NUM_SESSION_WAITERS, 0L);
+    assertThat(record.getMetrics())
+        .containsEntry(MetricRegistryConstants.NUM_ADMISSION_REJECTIONS, 0L);
     assertThat(record.getMetrics())
         .containsEntry(
             MetricRegistryConstants.MAX_ALLOWED_SESSIONS, (long) options.getMaxSessions());
@@ -1624,6 +2157,7 @@ public class SessionPoolTest extends BaseSessionPoolTest {
       Thread.sleep(5L);
       waitCount++;
     }
+    assertThat(record.getMetrics()).containsEntry(MetricRegistryConstants.NUM_SESSION_WAITERS, 1L);
     // Return the checked out session to the pool so the async request will get a session and
     // finish.
     session2.close();
@@ -1642,6 +2176,50 @@ public class SessionPoolTest extends BaseSessionPoolTest {
     assertThat(record.getMetrics()).containsEntry(MetricRegistryConstants.MAX_IN_USE_SESSIONS, 2L);
   }
 
+  @Test
+  public void testSessionDistributions() throws Exception {
+    options =
+        SessionPoolOptions.newBuilder()
+            .setMinSessions(minSessions)
+            .setMaxSessions(2)
+            .setWriteSessionsFraction(0.0f)
+            .build();
+    StatsRecorder statsRecorder = mock(StatsRecorder.class);
+    MeasureMap measureMap = mock(MeasureMap.class);
+    when(statsRecorder.newMeasureMap()).thenReturn(measureMap);
+    when(measureMap.put(any(MeasureDouble.class), anyDouble())).thenReturn(measureMap);
+    setupMockSessionCreation();
+    pool =
+        SessionPool.createPool(
+            options,
+            new TestExecutorFactory(),
+            client.getSessionClient(db),
+            new FakeClock(),
+            new FakeMetricRegistry(),
+            statsRecorder,
+            Arrays.asList(
+                LabelValue.create("client1"),
+                LabelValue.create("database1"),
+                LabelValue.create("instance1"),
+                LabelValue.create("1.0.0")));
+
+    Session readSession = pool.getReadSession();
+    verify(measureMap, times(1))
+        .put(eq(MetricRegistryConstants.GET_SESSION_WAIT_TIME_MEASURE), anyDouble());
+    readSession.close();
+    verify(measureMap, times(1))
+        .put(eq(MetricRegistryConstants.SESSION_HOLD_TIME_MEASURE), anyDouble());
+
+    Session readWriteSession = pool.getReadWriteSession();
+    verify(measureMap, times(2))
+        .put(eq(MetricRegistryConstants.GET_SESSION_WAIT_TIME_MEASURE), anyDouble());
+    verify(measureMap, times(1))
+        .put(eq(MetricRegistryConstants.PREPARE_SESSION_LATENCY_MEASURE), anyDouble());
+    readWriteSession.close();
+    verify(measureMap, times(2))
+        .put(eq(MetricRegistryConstants.SESSION_HOLD_TIME_MEASURE), anyDouble());
+  }
+
   private void mockKeepAlive(Session session) {
     ReadContext context = mock(ReadContext.class);
     ResultSet resultSet = mock(ResultSet.class);
@@ -245,4 +245,53 @@ public class SpannerExceptionFactoryTest {
 
     return trailers;
   }
+
+  @Test
+  public void retriedExceptionsWithoutStackTrace() {
+    SpannerExceptionFactory.setOmitRetriedStackTraces(true);
+    try {
+      boolean retryScope = SpannerExceptionFactory.enterRetryScope();
+      assertThat(retryScope).isTrue();
+      // Nested scopes do not start a new scope.
+      assertThat(SpannerExceptionFactory.enterRetryScope()).isFalse();
+      SpannerException aborted;
+      SpannerException sessionNotFound;
+      SpannerException other;
+      try {
+        aborted = SpannerExceptionFactory.newSpannerException(ErrorCode.ABORTED, "aborted");
+        sessionNotFound = newSessionNotFoundException("session-1");
+        other = SpannerExceptionFactory.newSpannerException(ErrorCode.INTERNAL, "internal");
+      } finally {
+        SpannerExceptionFactory.exitRetryScope(retryScope);
+      }
+      assertThat(aborted.getStackTrace()).isEmpty();
+      assertThat(aborted.getMessage()).isEqualTo("ABORTED: aborted");
+      assertThat(sessionNotFound.getStackTrace()).isEmpty();
+      assertThat(other.getStackTrace()).isNotEmpty();
+
+      aborted.ensureStackTrace();
+      assertThat(aborted.getStackTrace()).isNotEmpty();
+      // Exceptions that are created outside a retry scope always have a stack trace.
+      assertThat(
+              SpannerExceptionFactory.newSpannerException(ErrorCode.ABORTED, "aborted")
+                  .getStackTrace())
+          .isNotEmpty();
+    } finally {
+      SpannerExceptionFactory.setOmitRetriedStackTraces(false);
+    }
+  }
+
+  @Test
+  public void retryScopeDisabledByDefault() {
+    boolean retryScope = SpannerExceptionFactory.enterRetryScope();
+    try {
+      assertThat(retryScope).isFalse();
+      assertThat(
+              SpannerExceptionFactory.newSpannerException(ErrorCode.ABORTED, "aborted")
+                  .getStackTrace())
+          .isNotEmpty();
+    } finally {
+      SpannerExceptionFactory.exitRetryScope(retryScope);
+    }
+  }
 }
@@ -56,6 +56,10 @@ public class SpannerOptionsTest {
     assertThat(options.getHost()).isEqualTo("https://spanner.googleapis.com");
     assertThat(options.getPrefetchChunks()).isEqualTo(4);
     assertThat(options.getSessionLabels()).isNull();
+    assertThat(options.getTracingLevel()).isEqualTo(SpannerOptions.TracingLevel.ALL);
+    assertThat(options.getHedgingOptions()).isNull();
+    assertThat(options.getRetryBudgetOptions()).isNull();
+    assertThat(options.getQueryStatsOptions()).isNull();
   }
 
   @Test
@@ -64,17 +68,33 @@ public class SpannerOptionsTest {
     String projectId = "test-project";
     Map<String, String> labels = new HashMap<>();
     labels.put("env", "dev");
+    HedgingOptions hedgingOptions = HedgingOptions.newBuilder().setBudgetPercent(10d).build();
+    RetryBudgetOptions retryBudgetOptions = RetryBudgetOptions.newBuilder().build();
+    QueryStatsOptions queryStatsOptions =
+        QueryStatsOptions.newBuilder().setMaxFingerprints(10).build();
     SpannerOptions options =
         SpannerOptions.newBuilder()
             .setHost(host)
             .setProjectId(projectId)
             .setPrefetchChunks(2)
             .setSessionLabels(labels)
+            .setTracingLevel(SpannerOptions.TracingLevel.SPANS_ONLY)
+            .setHedgingOptions(hedgingOptions)
+            .setRetryBudgetOptions(retryBudgetOptions)
+            .setQueryStatsOptions(queryStatsOptions)
             .build();
     assertThat(options.getHost()).isEqualTo(host);
     assertThat(options.getProjectId()).isEqualTo(projectId);
     assertThat(options.getPrefetchChunks()).isEqualTo(2);
     assertThat(options.getSessionLabels()).containsExactlyEntriesIn(labels);
+    assertThat(options.getTracingLevel()).isEqualTo(SpannerOptions.TracingLevel.SPANS_ONLY);
+    assertThat(options.toBuilder().build().getTracingLevel())
+        .isEqualTo(SpannerOptions.TracingLevel.SPANS_ONLY);
+    assertThat(options.getHedgingOptions()).isSameInstanceAs(hedgingOptions);
+    assertThat(options.toBuilder().build().getHedgingOptions()).isSameInstanceAs(hedgingOptions);
+    assertThat(options.getRetryBudgetOptions()).isSameInstanceAs(retryBudgetOptions);
+    assertThat(options.toBuilder().build().getQueryStatsOptions())
+        .isSameInstanceAs(queryStatsOptions);
   }
 
   @Test
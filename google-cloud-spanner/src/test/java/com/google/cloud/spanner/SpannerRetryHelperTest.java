@@ -188,6 +188,47 @@ public class SpannerRetryHelperTest {
     SpannerRetryHelper.runTxWithRetriesOnAborted(callable);
   }
 
+  @Test
+  public void retryBudgetLimitsRetriesOnAborted() {
+    final AtomicInteger attempts = new AtomicInteger();
+    Callable<Integer> callable =
+        new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            attempts.incrementAndGet();
+            throw abortedWithRetryInfo((int) TimeUnit.MILLISECONDS.toNanos(1L));
+          }
+        };
+    RetryBudget budget =
+        new RetryBudget(RetryBudgetOptions.newBuilder().setMaxTokens(2).setRetryRatio(0d).build());
+    try {
+      SpannerRetryHelper.runTxWithRetriesOnAborted(callable, budget);
+      fail("missing expected exception");
+    } catch (AbortedException e) {
+      assertThat(attempts.get(), is(equalTo(3)));
+      assertThat(budget.getRetriesAttempted(), is(equalTo(2L)));
+      assertThat(budget.getRetriesDenied(), is(equalTo(1L)));
+    }
+  }
+
+  @Test
+  public void successRefillsRetryBudget() {
+    Callable<Integer> callable =
+        new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            return 1 + 1;
+          }
+        };
+    RetryBudget budget =
+        new RetryBudget(
+            RetryBudgetOptions.newBuilder().setMaxTokens(1).setRetryRatio(0.5d).build());
+    assertThat(budget.tryAcquireRetry(), is(true));
+    SpannerRetryHelper.runTxWithRetriesOnAborted(callable, budget);
+    SpannerRetryHelper.runTxWithRetriesOnAborted(callable, budget);
+    assertThat(budget.getTokens(), is(equalTo(1d)));
+  }
+
   @Test
   public void testExceptionWithRetryInfo() {
     Metadata.Key<RetryInfo> key = ProtoUtils.keyForProto(RetryInfo.getDefaultInstance());
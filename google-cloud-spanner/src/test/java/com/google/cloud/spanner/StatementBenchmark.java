@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static org.mockito.Mockito.mock;
+
+import com.google.cloud.spanner.spi.v1.SpannerRpc;
+import com.google.common.collect.ImmutableMap;
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.ExecuteSqlRequest.QueryMode;
+import com.google.spanner.v1.ExecuteSqlRequest.QueryOptions;
+import com.google.spanner.v1.TransactionSelector;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks encoding the parameters of a {@link Statement} into an {@link ExecuteSqlRequest}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class StatementBenchmark {
+  @Param({"0", "1", "10"})
+  public int parameters;
+
+  private AbstractReadContext context;
+  private Statement statement;
+
+  static class BenchmarkReadContextBuilder
+      extends AbstractReadContext.Builder<BenchmarkReadContextBuilder, BenchmarkReadContext> {
+    @Override
+    BenchmarkReadContext build() {
+      return new BenchmarkReadContext(this);
+    }
+  }
+
+  static class BenchmarkReadContext extends AbstractReadContext {
+    BenchmarkReadContext(BenchmarkReadContextBuilder builder) {
+      super(builder);
+    }
+
+    @Override
+    TransactionSelector getTransactionSelector() {
+      return TransactionSelector.getDefaultInstance();
+    }
+  }
+
+  @Setup
+  public void setup() {
+    SessionImpl session =
+        new SessionImpl(
+            null,
+            "projects/p/instances/i/databases/d/sessions/s",
+            ImmutableMap.<SpannerRpc.Option, Object>of());
+    context =
+        new BenchmarkReadContextBuilder()
+            .setSession(session)
+            .setRpc(mock(SpannerRpc.class))
+            .setDefaultQueryOptions(QueryOptions.getDefaultInstance())
+            .build();
+    StringBuilder sql = new StringBuilder("SELECT * FROM Singers WHERE TRUE");
+    for (int i = 0; i < parameters; i++) {
+      sql.append(" AND Col").append(i).append(" = @p").append(i);
+    }
+    Statement.Builder builder = Statement.newBuilder(sql.toString());
+    for (int i = 0; i < parameters; i++) {
+      switch (i % 3) {
+        case 0:
+          builder.bind("p" + i).to((long) i);
+          break;
+        case 1:
+          builder.bind("p" + i).to("value" + i);
+          break;
+        default:
+          builder.bind("p" + i).toInt64Array(new long[] {i, i + 1, i + 2});
+      }
+    }
+    statement = builder.build();
+  }
+
+  @Benchmark
+  public ExecuteSqlRequest executeSqlRequest() {
+    return context.getExecuteSqlRequestBuilder(statement, QueryMode.NORMAL).build();
+  }
+}
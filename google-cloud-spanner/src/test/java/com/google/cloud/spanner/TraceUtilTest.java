@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.cloud.spanner.SpannerOptions.TracingLevel;
+import io.opencensus.trace.Annotation;
+import io.opencensus.trace.AttributeValue;
+import io.opencensus.trace.BlankSpan;
+import io.opencensus.trace.EndSpanOptions;
+import io.opencensus.trace.Link;
+import io.opencensus.trace.Span;
+import io.opencensus.trace.SpanContext;
+import java.util.EnumSet;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link TraceUtil}. */
+@RunWith(JUnit4.class)
+public class TraceUtilTest {
+
+  /** A {@link Span} that records events, but ignores everything that is added to it. */
+  private static final class RecordingSpan extends Span {
+    RecordingSpan() {
+      super(SpanContext.INVALID, EnumSet.of(Span.Options.RECORD_EVENTS));
+    }
+
+    @Override
+    public void addAnnotation(String description, Map<String, AttributeValue> attributes) {}
+
+    @Override
+    public void addAnnotation(Annotation annotation) {}
+
+    @Override
+    public void addLink(Link link) {}
+
+    @Override
+    public void end(EndSpanOptions options) {}
+  }
+
+  @Test
+  public void shouldAnnotate() {
+    Span span = new RecordingSpan();
+    assertThat(TraceUtil.shouldAnnotate(span, TracingLevel.ALL)).isTrue();
+    assertThat(TraceUtil.shouldAnnotate(span, null)).isTrue();
+    assertThat(TraceUtil.shouldAnnotate(span, TracingLevel.SPANS_ONLY)).isFalse();
+  }
+
+  @Test
+  public void shouldNotAnnotateSpanThatDoesNotRecordEvents() {
+    assertThat(TraceUtil.shouldAnnotate(BlankSpan.INSTANCE, TracingLevel.ALL)).isFalse();
+    assertThat(TraceUtil.shouldAnnotate(BlankSpan.INSTANCE, null)).isFalse();
+  }
+}
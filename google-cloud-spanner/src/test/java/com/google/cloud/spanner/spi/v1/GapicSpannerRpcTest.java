@@ -37,6 +37,7 @@ import com.google.cloud.spanner.SpannerOptions.CallCredentialsProvider;
 import com.google.cloud.spanner.Statement;
 import com.google.cloud.spanner.admin.database.v1.MockDatabaseAdminImpl;
 import com.google.cloud.spanner.admin.instance.v1.MockInstanceAdminImpl;
+import com.google.cloud.spanner.spi.v1.SpannerLatencyInterceptor.LatencyListener;
 import com.google.cloud.spanner.spi.v1.SpannerRpc.Option;
 import com.google.common.base.Stopwatch;
 import com.google.protobuf.ListValue;
@@ -74,6 +75,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
 
 /** Tests that opening and closing multiple Spanner instances does not leak any threads. */
 @RunWith(JUnit4.class)
@@ -326,6 +328,39 @@ public class GapicSpannerRpcTest {
     rpc.shutdown();
   }
 
+  @Test
+  public void testLatencyListenersArePerInstance() {
+    SpannerOptions options =
+        SpannerOptions.newBuilder().setProjectId("p").setCredentials(STATIC_CREDENTIALS).build();
+    GapicSpannerRpc rpc = new GapicSpannerRpc(options);
+    GapicSpannerRpc other = new GapicSpannerRpc(options);
+    LatencyListener listener = Mockito.mock(LatencyListener.class);
+    String session = "projects/p/instances/i/databases/d/sessions/s";
+    rpc.addLatencyListener("projects/p/instances/i/databases/d", listener);
+    try {
+      assertThat(
+              rpc.newCallContext(optionsMap, session)
+                  .getCallOptions()
+                  .getOption(SpannerLatencyInterceptor.LATENCY_LISTENERS_KEY))
+          .containsExactly(listener);
+      assertThat(
+              rpc.newCallContext(optionsMap, "projects/p/instances/i/databases/other")
+                  .getCallOptions()
+                  .getOption(SpannerLatencyInterceptor.LATENCY_LISTENERS_KEY))
+          .isNull();
+      assertThat(
+              other
+                  .newCallContext(optionsMap, session)
+                  .getCallOptions()
+                  .getOption(SpannerLatencyInterceptor.LATENCY_LISTENERS_KEY))
+          .isNull();
+    } finally {
+      rpc.removeLatencyListener("projects/p/instances/i/databases/d", listener);
+      rpc.shutdown();
+      other.shutdown();
+    }
+  }
+
   @SuppressWarnings("rawtypes")
   private SpannerOptions createSpannerOptions() {
     String endpoint = address.getHostString() + ":" + server.getPort();
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner.spi.v1;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.spanner.v1.ExecuteSqlRequest;
+import com.google.spanner.v1.PartialResultSet;
+import com.google.spanner.v1.SpannerGrpc;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.opencensus.stats.Measure.MeasureDouble;
+import io.opencensus.stats.MeasureMap;
+import io.opencensus.stats.StatsRecorder;
+import io.opencensus.tags.TagContext;
+import io.opencensus.tags.TagContextBuilder;
+import io.opencensus.tags.TagKey;
+import io.opencensus.tags.TagValue;
+import io.opencensus.tags.Tagger;
+import io.opencensus.tags.Tags;
+import java.util.Collections;
+import javax.annotation.Nullable;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link SpannerLatencyInterceptor}. */
+@RunWith(JUnit4.class)
+public class SpannerLatencyInterceptorTest {
+  private StatsRecorder statsRecorder;
+  private MeasureMap measureMap;
+
+  @Before
+  public void setUp() {
+    statsRecorder = mock(StatsRecorder.class);
+    measureMap = mock(MeasureMap.class);
+    when(statsRecorder.newMeasureMap()).thenReturn(measureMap);
+    when(measureMap.put(any(MeasureDouble.class), anyDouble())).thenReturn(measureMap);
+  }
+
+  /** A channel whose calls immediately return the given headers and number of responses. */
+  private static final class FakeChannel extends Channel {
+    private final Metadata headers;
+    private final int responses;
+
+    private FakeChannel(Metadata headers, int responses) {
+      this.headers = headers;
+      this.responses = responses;
+    }
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+        MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+      return new ClientCall<ReqT, RespT>() {
+        @Override
+        public void start(Listener<RespT> listener, Metadata requestHeaders) {
+          listener.onHeaders(headers);
+          for (int i = 0; i < responses; i++) {
+            listener.onMessage(null);
+          }
+          listener.onClose(Status.OK, new Metadata());
+        }
+
+        @Override
+        public void request(int numMessages) {}
+
+        @Override
+        public void cancel(@Nullable String message, @Nullable Throwable cause) {}
+
+        @Override
+        public void halfClose() {}
+
+        @Override
+        public void sendMessage(ReqT message) {}
+      };
+    }
+
+    @Override
+    public String authority() {
+      return "localhost";
+    }
+  }
+
+  private void executeStreamingSql(Metadata responseHeaders, int responses) {
+    executeStreamingSql(Tags.getTagger(), CallOptions.DEFAULT, responseHeaders, responses);
+  }
+
+  private void executeStreamingSql(
+      Tagger tagger, CallOptions callOptions, Metadata responseHeaders, int responses) {
+    SpannerLatencyInterceptor interceptor = new SpannerLatencyInterceptor(statsRecorder, tagger);
+    ClientCall<ExecuteSqlRequest, PartialResultSet> call =
+        interceptor.interceptCall(
+            SpannerGrpc.getExecuteStreamingSqlMethod(),
+            callOptions,
+            new FakeChannel(responseHeaders, responses));
+    Metadata requestHeaders = new Metadata();
+    requestHeaders.put(
+        Metadata.Key.of("google-cloud-resource-prefix", Metadata.ASCII_STRING_MARSHALLER),
+        "projects/p/instances/i/databases/d");
+    call.start(new ClientCall.Listener<PartialResultSet>() {}, requestHeaders);
+  }
+
+  @Test
+  public void recordsLatencies() {
+    Metadata headers = new Metadata();
+    headers.put(
+        Metadata.Key.of("server-timing", Metadata.ASCII_STRING_MARSHALLER), "gfet4t7; dur=123");
+    executeStreamingSql(headers, 3);
+
+    verify(measureMap).put(SpannerRpcViews.SERVER_LATENCY, 123d);
+    verify(measureMap, times(1)).put(eq(SpannerRpcViews.FIRST_RESPONSE_LATENCY), anyDouble());
+    verify(measureMap, times(1)).put(eq(SpannerRpcViews.RPC_LATENCY), anyDouble());
+    verify(measureMap, times(3)).record(any(TagContext.class));
+  }
+
+  @Test
+  public void noServerTiming() {
+    executeStreamingSql(new Metadata(), 0);
+
+    verify(measureMap, never()).put(eq(SpannerRpcViews.SERVER_LATENCY), anyDouble());
+    verify(measureMap, never()).put(eq(SpannerRpcViews.FIRST_RESPONSE_LATENCY), anyDouble());
+    verify(measureMap, times(1)).put(eq(SpannerRpcViews.RPC_LATENCY), anyDouble());
+  }
+
+  @Test
+  public void tagsLatenciesWithClientId() {
+    Tagger tagger = mock(Tagger.class);
+    TagContextBuilder builder = mock(TagContextBuilder.class);
+    when(tagger.toBuilder(any(TagContext.class))).thenReturn(builder);
+    when(builder.put(any(TagKey.class), any(TagValue.class))).thenReturn(builder);
+    when(builder.build()).thenReturn(mock(TagContext.class));
+
+    executeStreamingSql(
+        tagger,
+        CallOptions.DEFAULT.withOption(SpannerLatencyInterceptor.CLIENT_ID_KEY, "client-1"),
+        new Metadata(),
+        1);
+
+    verify(builder).put(SpannerRpcViews.CLIENT_ID, TagValue.create("client-1"));
+    verify(builder).put(SpannerRpcViews.DATABASE, TagValue.create("d"));
+  }
+
+  @Test
+  public void noClientIdWithoutCallOption() {
+    Tagger tagger = mock(Tagger.class);
+    TagContextBuilder builder = mock(TagContextBuilder.class);
+    when(tagger.toBuilder(any(TagContext.class))).thenReturn(builder);
+    when(builder.put(any(TagKey.class), any(TagValue.class))).thenReturn(builder);
+    when(builder.build()).thenReturn(mock(TagContext.class));
+
+    executeStreamingSql(tagger, CallOptions.DEFAULT, new Metadata(), 1);
+
+    verify(builder, never()).put(eq(SpannerRpcViews.CLIENT_ID), any(TagValue.class));
+  }
+
+  @Test
+  public void notifiesLatencyListenersOfCall() {
+    SpannerLatencyInterceptor.LatencyListener listener =
+        mock(SpannerLatencyInterceptor.LatencyListener.class);
+    executeStreamingSql(
+        Tags.getTagger(),
+        CallOptions.DEFAULT.withOption(
+            SpannerLatencyInterceptor.LATENCY_LISTENERS_KEY, Collections.singleton(listener)),
+        new Metadata(),
+        3);
+    // The listener is notified once per call, when the first response is received.
+    verify(listener, times(1)).onLatency(anyLong(), eq(Status.Code.OK));
+
+    executeStreamingSql(new Metadata(), 1);
+    verify(listener, times(1)).onLatency(anyLong(), any(Status.Code.class));
+  }
+
+  @Test
+  public void parseServerTiming() {
+    assertThat(SpannerLatencyInterceptor.parseServerTiming("gfet4t7; dur=123")).isEqualTo(123d);
+    assertThat(SpannerLatencyInterceptor.parseServerTiming("gfet4t7;dur=1.5")).isEqualTo(1.5d);
+    assertThat(SpannerLatencyInterceptor.parseServerTiming("cache, db;DUR=53")).isEqualTo(53d);
+    assertThat(SpannerLatencyInterceptor.parseServerTiming("gfet4t7")).isNull();
+    assertThat(SpannerLatencyInterceptor.parseServerTiming(null)).isNull();
+  }
+}
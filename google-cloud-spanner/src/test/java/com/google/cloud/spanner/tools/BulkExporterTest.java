@@ -0,0 +1,217 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner.tools;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spanner.BatchClient;
+import com.google.cloud.spanner.BatchReadOnlyTransaction;
+import com.google.cloud.spanner.BatchTestUtil;
+import com.google.cloud.spanner.BatchTransactionId;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Partition;
+import com.google.cloud.spanner.PartitionOptions;
+import com.google.cloud.spanner.ResultSet;
+import com.google.cloud.spanner.ResultSets;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Statement;
+import com.google.cloud.spanner.Struct;
+import com.google.cloud.spanner.TimestampBound;
+import com.google.cloud.spanner.Type;
+import com.google.cloud.spanner.Type.StructField;
+import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/** Unit tests for {@link BulkExporter}. */
+@RunWith(JUnit4.class)
+public class BulkExporterTest {
+  private static final Statement QUERY = Statement.of("SELECT Id, Name FROM Singers");
+  private static final Type TYPE =
+      Type.struct(StructField.of("Id", Type.int64()), StructField.of("Name", Type.string()));
+
+  @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+  private BatchClient client;
+  private BatchReadOnlyTransaction txn;
+  private List<Partition> partitions;
+  private Path directory;
+
+  @Before
+  public void setUp() throws IOException {
+    client = mock(BatchClient.class);
+    txn = mock(BatchReadOnlyTransaction.class);
+    BatchTransactionId id = BatchTestUtil.newBatchTransactionId("session");
+    partitions =
+        ImmutableList.of(
+            BatchTestUtil.newQueryPartition("p0", QUERY),
+            BatchTestUtil.newQueryPartition("p1", QUERY));
+    when(client.batchReadOnlyTransaction(any(TimestampBound.class))).thenReturn(txn);
+    when(client.batchReadOnlyTransaction(any(BatchTransactionId.class))).thenReturn(txn);
+    when(txn.getBatchTransactionId()).thenReturn(id);
+    when(txn.partitionQuery(any(PartitionOptions.class), eq(QUERY))).thenReturn(partitions);
+    directory = tmp.newFolder().toPath();
+  }
+
+  private static ResultSet rows(long... ids) {
+    ImmutableList.Builder<Struct> rows = ImmutableList.builder();
+    for (long id : ids) {
+      rows.add(Struct.newBuilder().set("Id").to(id).set("Name").to("a,\"" + id).build());
+    }
+    return ResultSets.forRows(TYPE, rows.build());
+  }
+
+  private static Answer<ResultSet> answer(final long... ids) {
+    return new Answer<ResultSet>() {
+      @Override
+      public ResultSet answer(InvocationOnMock invocation) {
+        return rows(ids);
+      }
+    };
+  }
+
+  private String read(String fileName) throws IOException {
+    try (InputStream in = Files.newInputStream(directory.resolve(fileName))) {
+      InputStream input = fileName.endsWith(".gz") ? new GZIPInputStream(in) : in;
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int n;
+      while ((n = input.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void exportCsv() throws IOException {
+    when(txn.execute(partitions.get(0))).thenAnswer(answer(1L, 2L));
+    when(txn.execute(partitions.get(1))).thenAnswer(answer(3L));
+
+    long rows =
+        BulkExporter.newBuilder(client, directory)
+            .setQuery(QUERY)
+            .setParallelism(2)
+            .build()
+            .export();
+
+    assertThat(rows).isEqualTo(3L);
+    assertThat(read("part-00000.csv")).isEqualTo("Id,Name\r\n1,\"a,\"\"1\"\r\n2,\"a,\"\"2\"\r\n");
+    assertThat(read("part-00001.csv")).isEqualTo("Id,Name\r\n3,\"a,\"\"3\"\r\n");
+    assertThat(read(BulkExporter.MANIFEST_FILE_NAME)).contains("0\tpart-00000.csv\t2\n");
+    verify(txn).close();
+  }
+
+  @Test
+  public void exportCsvWritesHeaderOfEmptyPartitionAndDistinguishesNull() throws IOException {
+    when(txn.execute(partitions.get(0)))
+        .thenReturn(
+            ResultSets.forRows(
+                TYPE,
+                ImmutableList.of(
+                    Struct.newBuilder().set("Id").to(1L).set("Name").to((String) null).build(),
+                    Struct.newBuilder().set("Id").to(2L).set("Name").to("").build())));
+    when(txn.execute(partitions.get(1))).thenAnswer(answer());
+
+    long rows = BulkExporter.newBuilder(client, directory).setQuery(QUERY).build().export();
+
+    assertThat(rows).isEqualTo(2L);
+    assertThat(read("part-00000.csv")).isEqualTo("Id,Name\r\n1,\r\n2,\"\"\r\n");
+    assertThat(read("part-00001.csv")).isEqualTo("Id,Name\r\n");
+  }
+
+  @Test
+  public void exportCompressedJson() throws IOException {
+    when(txn.execute(any(Partition.class))).thenAnswer(answer(1L));
+
+    long rows =
+        BulkExporter.newBuilder(client, directory)
+            .setQuery(QUERY)
+            .setFormat(BulkExporter.Format.JSON)
+            .setCompressed(true)
+            .build()
+            .export();
+
+    assertThat(rows).isEqualTo(2L);
+    assertThat(read("part-00000.json.gz")).isEqualTo("{\"Id\":1,\"Name\":\"a,\\\"1\"}\n");
+    assertThat(read("part-00001.json.gz")).isEqualTo("{\"Id\":1,\"Name\":\"a,\\\"1\"}\n");
+  }
+
+  @Test
+  public void resumeAfterFailure() throws IOException {
+    when(txn.execute(partitions.get(0))).thenAnswer(answer(1L));
+    when(txn.execute(partitions.get(1)))
+        .thenThrow(SpannerExceptionFactory.newSpannerException(ErrorCode.UNAVAILABLE, "down"));
+    BulkExporter exporter =
+        BulkExporter.newBuilder(client, directory).setQuery(QUERY).setParallelism(1).build();
+    try {
+      exporter.export();
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.UNAVAILABLE);
+    }
+    assertThat(Files.exists(directory.resolve("part-00000.csv"))).isTrue();
+    assertThat(Files.exists(directory.resolve("part-00001.csv"))).isFalse();
+
+    BatchReadOnlyTransaction resumed = mock(BatchReadOnlyTransaction.class);
+    when(client.batchReadOnlyTransaction(any(BatchTransactionId.class))).thenReturn(resumed);
+    when(resumed.execute(any(Partition.class))).thenAnswer(answer(2L, 3L));
+
+    assertThat(exporter.export()).isEqualTo(3L);
+    // Only the failed partition is exported again, in the original transaction.
+    verify(resumed, times(1)).execute(any(Partition.class));
+    verify(client, times(1)).batchReadOnlyTransaction(any(TimestampBound.class));
+    assertThat(read("part-00001.csv")).isEqualTo("Id,Name\r\n2,\"a,\"\"2\"\r\n3,\"a,\"\"3\"\r\n");
+  }
+
+  @Test
+  public void differentSource() throws IOException {
+    when(txn.execute(any(Partition.class))).thenAnswer(answer(1L));
+    BulkExporter.newBuilder(client, directory).setQuery(QUERY).build().export();
+    try {
+      BulkExporter.newBuilder(client, directory)
+          .setQuery(Statement.of("SELECT 1"))
+          .build()
+          .export();
+      fail("missing expected exception");
+    } catch (IllegalStateException e) {
+      assertThat(e.getMessage()).contains("contains an export of");
+    }
+  }
+}
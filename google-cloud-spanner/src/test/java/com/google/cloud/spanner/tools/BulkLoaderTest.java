@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spanner.tools;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.ByteArray;
+import com.google.cloud.Timestamp;
+import com.google.cloud.spanner.DatabaseClient;
+import com.google.cloud.spanner.ErrorCode;
+import com.google.cloud.spanner.Key;
+import com.google.cloud.spanner.Mutation;
+import com.google.cloud.spanner.SpannerException;
+import com.google.cloud.spanner.SpannerExceptionFactory;
+import com.google.cloud.spanner.Value;
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/** Unit tests for {@link BulkLoader}. */
+@RunWith(JUnit4.class)
+public class BulkLoaderTest {
+  private DatabaseClient client;
+  private List<List<Mutation>> commits;
+
+  @Before
+  public void setUp() {
+    client = mock(DatabaseClient.class);
+    commits = Collections.synchronizedList(new ArrayList<List<Mutation>>());
+    when(client.writeAtLeastOnce(anyListOf(Mutation.class))).thenAnswer(recordCommit());
+  }
+
+  private Answer<Timestamp> recordCommit() {
+    return new Answer<Timestamp>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Timestamp answer(InvocationOnMock invocation) {
+        commits.add(ImmutableList.copyOf((Iterable<Mutation>) invocation.getArguments()[0]));
+        return Timestamp.now();
+      }
+    };
+  }
+
+  private static Mutation singer(long id) {
+    return Mutation.newInsertBuilder("Singers")
+        .set("SingerId")
+        .to(id)
+        .set("Name")
+        .to("Singer " + id)
+        .build();
+  }
+
+  @Test
+  public void sortsAndPacksCommits() {
+    BulkLoader loader =
+        BulkLoader.newBuilder(client)
+            .setKeyColumns("Singers", "SingerId")
+            .setMaxMutationsPerCommit(4)
+            .setInitialConcurrency(1)
+            .setMaxConcurrency(1)
+            .build();
+    loader.add(ImmutableList.of(singer(5L), singer(1L), singer(3L), singer(2L), singer(4L)));
+    loader.close();
+
+    // Each row writes two cells, so each commit contains at most two rows.
+    assertThat(commits).hasSize(3);
+    assertThat(commits.get(0)).containsExactly(singer(1L), singer(2L)).inOrder();
+    assertThat(commits.get(1)).containsExactly(singer(3L), singer(4L)).inOrder();
+    assertThat(commits.get(2)).containsExactly(singer(5L));
+    assertThat(loader.getRowCount()).isEqualTo(5L);
+    assertThat(loader.getCommitCount()).isEqualTo(3L);
+    assertThat(loader.getByteCount()).isGreaterThan(0L);
+    assertThat(loader.getRowsPerSecond()).isGreaterThan(0d);
+  }
+
+  @Test
+  public void packsByBytes() {
+    BulkLoader loader =
+        BulkLoader.newBuilder(client).setMaxBytesPerCommit(20L).setMaxConcurrency(1).build();
+    for (long i = 0L; i < 4L; i++) {
+      // 8 bytes for the id and 8 bytes for the name.
+      loader.add(Mutation.newInsertBuilder("T").set("Id").to(i).set("Name").to("12345678").build());
+    }
+    loader.close();
+    assertThat(commits).hasSize(4);
+    assertThat(loader.getByteCount()).isEqualTo(64L);
+  }
+
+  @Test
+  public void flushesWhenBufferIsFull() {
+    BulkLoader loader = BulkLoader.newBuilder(client).setBufferSize(2).build();
+    loader.add(singer(1L));
+    assertThat(commits).isEmpty();
+    loader.add(singer(2L));
+    loader.flush();
+    assertThat(commits).hasSize(1);
+    loader.close();
+  }
+
+  @Test
+  public void retriesThrottledCommits() {
+    final AtomicInteger attempts = new AtomicInteger();
+    doAnswer(
+            new Answer<Timestamp>() {
+              @Override
+              public Timestamp answer(InvocationOnMock invocation) throws Throwable {
+                if (attempts.incrementAndGet() == 1) {
+                  throw SpannerExceptionFactory.newSpannerException(
+                      ErrorCode.RESOURCE_EXHAUSTED, "too busy");
+                }
+                return recordCommit().answer(invocation);
+              }
+            })
+        .when(client)
+        .writeAtLeastOnce(anyListOf(Mutation.class));
+    BulkLoader loader =
+        BulkLoader.newBuilder(client).setInitialConcurrency(8).setMaxConcurrency(8).build();
+    loader.add(singer(1L));
+    loader.close();
+    assertThat(commits).hasSize(1);
+    assertThat(loader.getRetryCount()).isEqualTo(1L);
+    assertThat(loader.getConcurrency()).isEqualTo(4);
+  }
+
+  @Test
+  public void failsOnPermanentError() {
+    doThrow(SpannerExceptionFactory.newSpannerException(ErrorCode.NOT_FOUND, "no table"))
+        .when(client)
+        .writeAtLeastOnce(anyListOf(Mutation.class));
+    BulkLoader loader = BulkLoader.newBuilder(client).build();
+    loader.add(singer(1L));
+    try {
+      loader.close();
+      fail("missing expected exception");
+    } catch (SpannerException e) {
+      assertThat(e.getErrorCode()).isEqualTo(ErrorCode.NOT_FOUND);
+    }
+    assertThat(loader.getRowCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void deletesAfterWrites() {
+    BulkLoader loader = BulkLoader.newBuilder(client).setMaxConcurrency(1).build();
+    Mutation delete = Mutation.delete("Singers", Key.of(1L));
+    loader.add(ImmutableList.of(delete, singer(2L), singer(1L)));
+    loader.close();
+    assertThat(commits).hasSize(1);
+    assertThat(commits.get(0)).containsExactly(singer(1L), singer(2L), delete).inOrder();
+  }
+
+  @Test
+  public void compareValues() {
+    assertThat(BulkLoader.compareValues(Value.int64(1L), Value.int64(2L))).isLessThan(0);
+    assertThat(BulkLoader.compareValues(Value.int64(null), Value.int64(-1L))).isLessThan(0);
+    assertThat(BulkLoader.compareValues(null, Value.string(""))).isLessThan(0);
+    assertThat(BulkLoader.compareValues(Value.string("b"), Value.string("a"))).isGreaterThan(0);
+    assertThat(
+            BulkLoader.compareValues(
+                Value.bytes(ByteArray.copyFrom(new byte[] {(byte) 0xff})),
+                Value.bytes(ByteArray.copyFrom(new byte[] {0x01}))))
+        .isGreaterThan(0);
+    assertThat(BulkLoader.compareValues(Value.float64(1d), Value.float64(1d))).isEqualTo(0);
+    // Keys are ordered like KeySet#normalize() orders them: NaN first and strings by code point.
+    assertThat(BulkLoader.compareValues(Value.float64(Double.NaN), Value.float64(-1d)))
+        .isLessThan(0);
+    assertThat(BulkLoader.compareValues(Value.string("\uFFFF"), Value.string("\uD83D\uDE00")))
+        .isLessThan(0);
+    assertThat(
+            BulkLoader.compareValues(
+                Value.timestamp(Timestamp.MAX_VALUE), Value.timestamp(Value.COMMIT_TIMESTAMP)))
+        .isLessThan(0);
+  }
+
+  @Test
+  public void backoff() {
+    assertThat(BulkLoader.backoffMillis(1)).isAtLeast(100L);
+    assertThat(BulkLoader.backoffMillis(1)).isAtMost(150L);
+    assertThat(BulkLoader.backoffMillis(100)).isAtMost(48000L);
+  }
+}